@@ -502,6 +502,24 @@ public class BrowseActivity extends ForkyzActivity {
     protected void onResume() {
         super.onResume();
 
+        // previous game ended for now, refresh once its save is written
+        // so its meta is up to date, without waiting for it here
+        ForkyzApplication application = ForkyzApplication.getInstance();
+        PuzHandle lastAccessed = application.getPuzHandle();
+        application.clearBoard(() -> {
+            handler.post(() -> refreshPuzzleList(lastAccessed));
+        });
+    }
+
+    /**
+     * Load the puzzle list if needed, else refresh the last accessed
+     *
+     * @param lastAccessed the puzzle last played, may be null
+     */
+    private void refreshPuzzleList(PuzHandle lastAccessed) {
+        if (isFinishing())
+            return;
+
         // A background update will commonly happen when the user turns
         // on the preference for the first time, so check here to ensure
         // the UI is re-rendered when they exit the settings dialog.
@@ -521,12 +539,9 @@ public class BrowseActivity extends ForkyzActivity {
                 startLoadPuzzleList();
             }
         } else {
-            refreshLastAccessedPuzzle();
+            refreshLastAccessedPuzzle(lastAccessed);
         }
 
-        // previous game ended for now
-        ForkyzApplication.getInstance().clearBoard();
-
         autoDownloadIfEnabled();
     }
 
@@ -560,9 +575,7 @@ public class BrowseActivity extends ForkyzActivity {
         checkAutoDownloadNotificationPermissions();
     }
 
-    private void refreshLastAccessedPuzzle() {
-        final PuzHandle lastAccessed
-            = ForkyzApplication.getInstance().getPuzHandle();
+    private void refreshLastAccessedPuzzle(PuzHandle lastAccessed) {
         if (lastAccessed == null)
             return;
         model.refreshPuzzleMeta(lastAccessed);
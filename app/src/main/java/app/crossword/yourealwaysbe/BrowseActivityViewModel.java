@@ -34,6 +34,7 @@ import app.crossword.yourealwaysbe.util.files.DirHandle;
 import app.crossword.yourealwaysbe.util.files.FileHandler;
 import app.crossword.yourealwaysbe.util.files.PuzHandle;
 import app.crossword.yourealwaysbe.util.files.PuzMetaFile;
+import app.crossword.yourealwaysbe.util.files.PuzzleSaver;
 
 public class BrowseActivityViewModel extends ViewModel {
     private static final Logger LOGGER
@@ -110,16 +111,16 @@ public class BrowseActivityViewModel extends ViewModel {
             List<MutableLiveData<PuzMetaFile>> puzFiles
                 = new ArrayList<>();
 
-            for (PuzMetaFile pm : fileHandler.getPuzMetas(directory)) {
-                puzFiles.add(new MutableLiveData<>(pm));
-            }
-
-            // use handler for this so viewArchive changes when
-            // puzzleFiles does
-            handler.post(() -> {
-                setIsViewArchive(archive);
-                puzzleFiles.setValue(puzFiles);
+            // show files as they are read, files with uncached meta can
+            // take a while
+            fileHandler.getPuzMetas(directory, (metas) -> {
+                for (PuzMetaFile pm : metas)
+                    puzFiles.add(new MutableLiveData<>(pm));
+                postPuzzleFiles(archive, new ArrayList<>(puzFiles));
             });
+
+            if (puzFiles.isEmpty())
+                postPuzzleFiles(archive, puzFiles);
         });
     }
 
@@ -244,6 +245,9 @@ public class BrowseActivityViewModel extends ViewModel {
 
     public void loadPuzzle(PuzMetaFile puzMeta) {
         threadWithUILock(() -> {
+            // it may have just been put away and still be saving
+            PuzzleSaver.waitForWrites();
+
             FileHandler fileHandler = getFileHandler();
             try {
                 Puzzle puz = fileHandler.load(puzMeta);
@@ -432,6 +436,17 @@ public class BrowseActivityViewModel extends ViewModel {
         });
     }
 
+    private void postPuzzleFiles(
+        boolean archive, List<MutableLiveData<PuzMetaFile>> puzFiles
+    ) {
+        // use handler for this so viewArchive changes when
+        // puzzleFiles does
+        handler.post(() -> {
+            setIsViewArchive(archive);
+            puzzleFiles.setValue(puzFiles);
+        });
+    }
+
     /**
      * Don't add the same file twice!
      */
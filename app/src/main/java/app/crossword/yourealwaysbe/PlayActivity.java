@@ -493,6 +493,23 @@ public class PlayActivity extends PuzzleActivity
                     handled = true;
                     break;
 
+                case KeyEvent.KEYCODE_Z:
+                    if (event.isCtrlPressed()) {
+                        if (event.isShiftPressed())
+                            getBoard().redo();
+                        else
+                            getBoard().undo();
+                        handled = true;
+                    }
+                    break;
+
+                case KeyEvent.KEYCODE_Y:
+                    if (event.isCtrlPressed()) {
+                        getBoard().redo();
+                        handled = true;
+                    }
+                    break;
+
                 case KeyEvent.KEYCODE_VOLUME_DOWN:
                     if (isVolumeDownActivatesVoicePref()) {
                         launchVoiceInput();
@@ -123,11 +123,13 @@ public abstract class PuzzleActivity
 
     @Override
     public void onPlayboardChange(PlayboardChanges changes) {
+        Playboard board = getBoard();
         Puzzle puz = getPuzzle();
         ImaginaryTimer timer = getTimer();
 
-        if (puz != null &&
-            puz.getPercentComplete() == 100 &&
+        // board keeps count, no need to scan the grid on every change
+        if (board != null &&
+            board.getPercentComplete() == 100 &&
             timer != null) {
 
             timer.stop();
@@ -224,6 +226,10 @@ public abstract class PuzzleActivity
         if (timer != null) {
             timer.stop();
         }
+
+        // no longer visible, write the save from onPause without delay
+        if (getPuzzle() != null)
+            saveBoardNow();
     }
 
     /**
@@ -262,6 +268,10 @@ public abstract class PuzzleActivity
         ForkyzApplication.getInstance().saveBoard();
     }
 
+    protected void saveBoardNow() {
+        ForkyzApplication.getInstance().saveBoardNow();
+    }
+
     protected String getLongClueText(Clue clue) {
         boolean showCount = prefs.getBoolean("showCount", false);
 
@@ -12,16 +12,15 @@ import androidx.preference.PreferenceManager;
 
 import app.crossword.yourealwaysbe.puz.MovementStrategy;
 import app.crossword.yourealwaysbe.puz.Playboard;
-import app.crossword.yourealwaysbe.puz.Puzzle;
 import app.crossword.yourealwaysbe.util.ThemeHelper;
 import app.crossword.yourealwaysbe.util.files.FileHandler;
 import app.crossword.yourealwaysbe.util.files.FileHandlerInternal;
 import app.crossword.yourealwaysbe.util.files.FileHandlerLegacy;
 import app.crossword.yourealwaysbe.util.files.FileHandlerSAF;
 import app.crossword.yourealwaysbe.util.files.PuzHandle;
+import app.crossword.yourealwaysbe.util.files.PuzzleSaver;
 import app.crossword.yourealwaysbe.versions.AndroidVersionUtils;
 
-import java.io.IOException;
 import java.util.logging.Logger;
 
 public class ForkyzApplication extends Application {
@@ -34,6 +33,7 @@ public class ForkyzApplication extends Application {
     private static ForkyzApplication INSTANCE;
     private Playboard board;
     private PuzHandle puzHandle;
+    private PuzzleSaver puzzleSaver;
     private SharedPreferences settings;
 
     private FileHandler fileHandler;
@@ -64,13 +64,27 @@ public class ForkyzApplication extends Application {
      * Set the board and base file of the puzzle loaded on it
      */
     public void setBoard(Playboard board, PuzHandle puzHandle){
+        finishSaving(puzzleSaver, null);
         this.board = board;
         this.puzHandle = puzHandle;
+        this.puzzleSaver = new PuzzleSaver(
+            getFileHandler(), board.getPuzzle(), puzHandle
+        );
     }
 
-    public void clearBoard() {
+    /**
+     * Forget the board, after starting its last save
+     *
+     * Does not wait for the save.
+     *
+     * @param onSaved run on the save thread once the board is saved, or
+     * straight away if there is no board, may be null
+     */
+    public void clearBoard(Runnable onSaved) {
+        finishSaving(puzzleSaver, onSaved);
         this.board = null;
         this.puzHandle = null;
+        this.puzzleSaver = null;
     }
 
     public Playboard getBoard() {
@@ -82,36 +96,48 @@ public class ForkyzApplication extends Application {
     }
 
     /**
-     * Save the puzzle
+     * Save the puzzle in the background
      *
-     * Will block, but saving is quick, so probably safer to let it
-     * block onPause.
+     * Only the changes since the last save are written (see
+     * FileHandler.saveChanges). Does not block, saves close together
+     * are written once (see PuzzleSaver).
      */
     public void saveBoard() {
-        PuzHandle puzHandle = getPuzHandle();
-        if (puzHandle == null) {
-            LOGGER.severe("No puz handle to save puzzle to.");
-            return;
-        }
+        PuzzleSaver saver = getPuzzleSaver();
+        if (saver != null)
+            saver.save();
+    }
 
-        Playboard board = getBoard();
-        if (board == null) {
+    /**
+     * Save the puzzle without the usual delay
+     *
+     * For when the puzzle is put away, e.g. the app is left. Does not
+     * block.
+     */
+    public void saveBoardNow() {
+        PuzzleSaver saver = getPuzzleSaver();
+        if (saver != null)
+            saver.saveNow(null);
+    }
+
+    private PuzzleSaver getPuzzleSaver() {
+        if (puzzleSaver == null)
             LOGGER.severe("No board to save.");
-            return;
-        }
+        return puzzleSaver;
+    }
 
-        Puzzle puz = board.getPuzzle();
-        if (puz == null) {
-            LOGGER.severe("No puzzle associated to the board to save.");
+    private static void finishSaving(PuzzleSaver saver, Runnable onSaved) {
+        if (saver == null) {
+            if (onSaved != null)
+                onSaved.run();
             return;
         }
 
-        try {
-            getFileHandler().save(puz, puzHandle);
-        } catch (IOException e) {
-            LOGGER.severe("Error saving puzzle.");
-            e.printStackTrace();
-        }
+        saver.saveNow(() -> {
+            LOGGER.info("Puzzle saves: " + saver.getStats());
+            if (onSaved != null)
+                onSaved.run();
+        });
     }
 
     @Override
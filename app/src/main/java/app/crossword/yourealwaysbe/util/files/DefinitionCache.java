@@ -0,0 +1,109 @@
+package app.crossword.yourealwaysbe.util.files;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.net.Uri;
+
+import app.crossword.yourealwaysbe.puz.PlayState;
+import app.crossword.yourealwaysbe.puz.Puzzle;
+import app.crossword.yourealwaysbe.puz.PuzzleDefinition;
+
+/**
+ * Definitions of recently used puzzles, shared in memory
+ *
+ * One file handler serves the browse list, downloads and the play
+ * screen, so a puzzle downloaded, listed or played is parsed once and
+ * opened again from its definition and the play state last written.
+ * Both are immutable, so each load gets its own puzzle to change.
+ *
+ * Entries are stamped with a version of the puzzle's files and only
+ * returned if it matches, so a puzzle changed by something else is a
+ * cache miss. Saves through the file handler keep the entry current.
+ * Keeps at most MAX_DEFINITIONS, dropping the least recently used.
+ */
+class DefinitionCache {
+    private static final int MAX_DEFINITIONS = 20;
+
+    private static class Entry {
+        final PuzzleDefinition definition;
+        final PlayState state;
+        final String version;
+
+        Entry(PuzzleDefinition definition, PlayState state, String version) {
+            this.definition = definition;
+            this.state = state;
+            this.version = version;
+        }
+    }
+
+    // guarded by itself
+    private final Map<Uri, Entry> entries
+        = new LinkedHashMap<Uri, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Uri, Entry> e) {
+                return size() > MAX_DEFINITIONS;
+            }
+        };
+
+    /**
+     * A new puzzle from the cached definition and play state
+     *
+     * @param uri the uri of the puzzle's main file
+     * @param version the version of the files the entry must be of
+     * @return null if no entry of that version
+     */
+    public Puzzle load(Uri uri, String version) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(uri);
+        }
+        if (entry == null || !entry.version.equals(version))
+            return null;
+        return entry.definition.newPuzzle(entry.state);
+    }
+
+    /**
+     * Cache the definition and play state of a puzzle
+     *
+     * Both are copied, so puz can be changed after.
+     *
+     * @param uri the uri of the puzzle's main file
+     * @param version the version of the files puz is the contents of
+     */
+    public void put(Uri uri, String version, Puzzle puz) {
+        Entry entry = new Entry(
+            new PuzzleDefinition(puz), new PlayState(puz), version
+        );
+        synchronized (entries) {
+            entries.put(uri, entry);
+        }
+    }
+
+    /**
+     * Update the play state of a cached puzzle, if cached
+     *
+     * @param uri the uri of the puzzle's main file
+     * @param version the version of the files with the new state
+     * @param state the play state now in the files
+     */
+    public void putState(Uri uri, String version, PlayState state) {
+        synchronized (entries) {
+            Entry entry = entries.get(uri);
+            if (entry != null) {
+                entries.put(
+                    uri, new Entry(entry.definition, state, version)
+                );
+            }
+        }
+    }
+
+    /**
+     * Forget any entry for the puzzle file
+     */
+    public void delete(Uri uri) {
+        synchronized (entries) {
+            entries.remove(uri);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package app.crossword.yourealwaysbe.util.files;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.content.Context;
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Dao;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.PrimaryKey;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import androidx.room.TypeConverters;
+
+/**
+ * The files of each directory, so it needn't be listed every time
+ *
+ * Kept in the meta cache database. A directory's files are stored with
+ * its last modified time when they were listed, its stamp. Adding,
+ * removing or renaming a file changes the directory's stamp, so while
+ * the stamp is the same the stored files can be used instead of a
+ * listing.
+ *
+ * The file handler updates the stored files when it changes them, and
+ * moves the stamp on if nothing else changed the directory meanwhile.
+ * Changes by the file handler to the same directory at the same time
+ * can't be told apart by the stamp, so when two overlap neither is
+ * recorded and the directory is listed again. Other apps can't be
+ * seen either, and are caught only if they change the directory
+ * outside the file handler's changes. Files changed in place by other
+ * apps are not noticed until the directory is next listed.
+ */
+public class DirIndex {
+
+    /**
+     * Directories stamped less than this before being listed are
+     * listed again next time
+     *
+     * Storage may keep times to the nearest second or two, so a file
+     * added just after the listing could leave the stamp unchanged.
+     */
+    private static final long STAMP_GRACE_MILLIS = 3000;
+
+    // most files deleted in one statement, SQLite allows 999 arguments
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    @Entity(tableName = "indexedDir")
+    @TypeConverters({MetaCache.Converters.class})
+    public static class IndexedDir {
+        @PrimaryKey
+        @NonNull
+        public Uri directoryUri;
+
+        // last modified time of the directory when indexed, 0 if the
+        // files must be listed again
+        @ColumnInfo
+        public long stamp;
+    }
+
+    @Entity(
+        tableName = "indexedFile",
+        indices = {@Index("directoryUri")}
+    )
+    @TypeConverters({MetaCache.Converters.class})
+    public static class IndexedFile {
+        @PrimaryKey
+        @NonNull
+        public Uri fileUri;
+
+        @ColumnInfo
+        @NonNull
+        public Uri directoryUri;
+
+        @ColumnInfo
+        @NonNull
+        public String name;
+
+        @ColumnInfo
+        public long size;
+
+        @ColumnInfo
+        public long lastModified;
+
+        boolean isSame(IndexedFile other) {
+            return directoryUri.equals(other.directoryUri)
+                && name.equals(other.name)
+                && size == other.size
+                && lastModified == other.lastModified;
+        }
+    }
+
+    @Dao
+    @TypeConverters({MetaCache.Converters.class})
+    public static abstract class DirIndexDao {
+        @Query("SELECT * FROM indexedDir WHERE directoryUri = :directory")
+        public abstract IndexedDir getDir(Uri directory);
+
+        @Query("SELECT * FROM indexedFile WHERE directoryUri = :directory")
+        public abstract List<IndexedFile> getFiles(Uri directory);
+
+        @Insert(onConflict = OnConflictStrategy.REPLACE)
+        public abstract void insertDir(IndexedDir dir);
+
+        @Insert(onConflict = OnConflictStrategy.REPLACE)
+        public abstract void insertFiles(List<IndexedFile> files);
+
+        @Query("DELETE FROM indexedFile WHERE fileUri IN (:fileUris)")
+        public abstract void deleteFiles(List<Uri> fileUris);
+
+        /**
+         * Replace the directory's files, writing only those changed
+         */
+        @Transaction
+        public void replaceDir(IndexedDir dir, List<IndexedFile> files) {
+            Map<Uri, IndexedFile> oldFiles = new HashMap<>();
+            for (IndexedFile f : getFiles(dir.directoryUri))
+                oldFiles.put(f.fileUri, f);
+
+            List<IndexedFile> changed = new ArrayList<>();
+            for (IndexedFile f : files) {
+                IndexedFile old = oldFiles.remove(f.fileUri);
+                if (old == null || !old.isSame(f))
+                    changed.add(f);
+            }
+
+            if (!changed.isEmpty())
+                insertFiles(changed);
+            deleteAllFiles(new ArrayList<>(oldFiles.keySet()));
+            insertDir(dir);
+        }
+
+        /**
+         * Mark the directory's files as needing a listing
+         */
+        @Query(
+            "UPDATE indexedDir SET stamp = 0 WHERE directoryUri = :directory"
+        )
+        public abstract void clearStamp(Uri directory);
+
+        /**
+         * Update files and move the stamp on, if stamp is current
+         *
+         * @return false if the stored stamp was not oldStamp, and
+         * nothing was changed
+         */
+        @Transaction
+        public boolean changeDir(
+            Uri directory, long oldStamp, long newStamp,
+            List<IndexedFile> files, List<Uri> removedUris
+        ) {
+            IndexedDir dir = getDir(directory);
+            if (dir == null || dir.stamp != oldStamp)
+                return false;
+
+            if (!files.isEmpty())
+                insertFiles(files);
+            deleteAllFiles(removedUris);
+
+            dir.stamp = newStamp;
+            insertDir(dir);
+
+            return true;
+        }
+
+        private void deleteAllFiles(List<Uri> fileUris) {
+            for (int i = 0; i < fileUris.size(); i += DELETE_BATCH_SIZE) {
+                int end = Math.min(fileUris.size(), i + DELETE_BATCH_SIZE);
+                deleteFiles(fileUris.subList(i, end));
+            }
+        }
+    }
+
+    /**
+     * Changes the file handler has under way in a directory
+     */
+    private static class Changes {
+        int numActive;
+        // another change started before the others ended
+        boolean overlapped;
+    }
+
+    private Context applicationContext;
+    private FileHandler fileHandler;
+    // by directory uri, guarded by itself
+    private final Map<Uri, Changes> activeChanges = new HashMap<>();
+
+    public DirIndex(Context applicationContext, FileHandler fileHandler) {
+        this.applicationContext = applicationContext;
+        this.fileHandler = fileHandler;
+    }
+
+    /**
+     * The stored files of the directory
+     *
+     * @param stamp the directory's last modified time now
+     * @return null if the files were not stored at this stamp
+     */
+    public List<IndexedFile> getFiles(DirHandle dir, long stamp) {
+        if (stamp <= 0)
+            return null;
+
+        Uri dirUri = fileHandler.getUri(dir);
+        IndexedDir indexedDir = getDao().getDir(dirUri);
+        if (indexedDir == null || indexedDir.stamp != stamp)
+            return null;
+
+        return getDao().getFiles(dirUri);
+    }
+
+    /**
+     * Store the listed files of the directory
+     *
+     * @param stamp the directory's last modified time before listing
+     * @param listedAt the time the listing started
+     * @param files all files in the directory
+     */
+    public void putFiles(
+        DirHandle dir, long stamp, long listedAt,
+        Collection<FileHandle> files
+    ) {
+        Uri dirUri = fileHandler.getUri(dir);
+
+        IndexedDir indexedDir = new IndexedDir();
+        indexedDir.directoryUri = dirUri;
+        // a change under way may have been half listed
+        indexedDir.stamp = (
+            listedAt - stamp > STAMP_GRACE_MILLIS && !isChanging(dirUri)
+        ) ? stamp : 0;
+
+        getDao().replaceDir(indexedDir, newIndexedFiles(dirUri, files));
+    }
+
+    /**
+     * Start a change by the file handler to the directory's files
+     *
+     * Must be followed by endChange, even if the change fails.
+     *
+     * @return the directory's stamp before the change
+     */
+    public long startChange(DirHandle dir) {
+        Uri dirUri = fileHandler.getUri(dir);
+        synchronized (activeChanges) {
+            Changes changes = activeChanges.get(dirUri);
+            if (changes == null) {
+                changes = new Changes();
+                activeChanges.put(dirUri, changes);
+            } else {
+                changes.overlapped = true;
+            }
+            changes.numActive += 1;
+        }
+        return fileHandler.getDirStamp(dir);
+    }
+
+    /**
+     * Record the changes the file handler made to the directory
+     *
+     * Only recorded if the stored files were current before the
+     * changes and no other change to the directory overlapped them.
+     * Else the new stamp may hide changes that are not recorded, so the
+     * directory is marked to be listed again.
+     *
+     * @param oldStamp the directory's stamp from startChange
+     * @param newStamp the directory's last modified time after
+     * @param files files that were created or changed, or null if the
+     * change failed part way
+     * @param removedUris files that were deleted or moved away
+     */
+    public void endChange(
+        DirHandle dir, long oldStamp, long newStamp,
+        Collection<FileHandle> files, List<Uri> removedUris
+    ) {
+        Uri dirUri = fileHandler.getUri(dir);
+
+        boolean overlapped;
+        synchronized (activeChanges) {
+            Changes changes = activeChanges.get(dirUri);
+            overlapped = changes.overlapped;
+            changes.numActive -= 1;
+            if (changes.numActive == 0)
+                activeChanges.remove(dirUri);
+        }
+
+        if (oldStamp <= 0)
+            return;
+
+        boolean recorded = !overlapped && files != null
+            && getDao().changeDir(
+                dirUri, oldStamp, Math.max(newStamp, 0),
+                newIndexedFiles(dirUri, files), removedUris
+            );
+
+        if (!recorded)
+            getDao().clearStamp(dirUri);
+    }
+
+    private boolean isChanging(Uri dirUri) {
+        synchronized (activeChanges) {
+            return activeChanges.containsKey(dirUri);
+        }
+    }
+
+    private List<IndexedFile> newIndexedFiles(
+        Uri dirUri, Collection<FileHandle> files
+    ) {
+        List<IndexedFile> indexedFiles = new ArrayList<>(files.size());
+        for (FileHandle f : files) {
+            IndexedFile indexedFile = new IndexedFile();
+            indexedFile.fileUri = fileHandler.getUri(f);
+            indexedFile.directoryUri = dirUri;
+            indexedFile.name = fileHandler.getName(f);
+            indexedFile.size = fileHandler.getSize(f);
+            indexedFile.lastModified = fileHandler.getLastModified(f);
+            indexedFiles.add(indexedFile);
+        }
+        return indexedFiles;
+    }
+
+    private DirIndexDao getDao() {
+        return MetaCache.CachedMetaDB
+            .getInstance(applicationContext)
+            .dirIndexDao();
+    }
+}
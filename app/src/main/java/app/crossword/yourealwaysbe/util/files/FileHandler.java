@@ -3,24 +3,40 @@ package app.crossword.yourealwaysbe.util.files;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.SyncFailedException;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 import android.content.Context;
@@ -28,8 +44,11 @@ import android.net.Uri;
 
 import app.crossword.yourealwaysbe.io.IO;
 import app.crossword.yourealwaysbe.io.IPuzIO;
+import app.crossword.yourealwaysbe.io.PlayJournal;
 import app.crossword.yourealwaysbe.io.StreamUtils;
+import app.crossword.yourealwaysbe.puz.PlayState;
 import app.crossword.yourealwaysbe.puz.Puzzle;
+import app.crossword.yourealwaysbe.puz.PuzzleMeta;
 
 /**
  * Abstraction layer for file operations
@@ -45,6 +64,7 @@ public abstract class FileHandler {
     // names
     private static final String MIME_TYPE_PUZ = "application/x-crossword";
     private static final String MIME_TYPE_META = "application/octet-stream";
+    private static final String MIME_TYPE_JOURNAL = "application/octet-stream";
     // Android messes with application/json by adding .json extension :(
     public static final String MIME_TYPE_IPUZ = "application/octet-stream";
 
@@ -55,6 +75,7 @@ public abstract class FileHandler {
     public static final String FILE_EXT_PUZ = ".puz";
     public static final String FILE_EXT_FORKYZ = ".forkyz";
     public static final String FILE_EXT_IPUZ = ".ipuz";
+    public static final String FILE_EXT_JOURNAL = ".journal";
 
     // the file extensions forkyz supports as backend storage
     public static final String[] FORKYZ_STORED_PUZZLE_EXTS = new String[] {
@@ -63,18 +84,60 @@ public abstract class FileHandler {
 
     protected static final long MINIMUM_STORAGE_REQUIRED = 1024L * 1024L;
 
-    // used for saving meta cache to DB since we currently save puzzles
-    // on the main thread (can be removed if/when a better save solution
-    // is implemented)
-    private ExecutorService executorService
-        = Executors.newSingleThreadExecutor();
+    // journal entries to append before saving the puzzle in full again
+    private static final int MAX_JOURNAL_ENTRIES = 50;
+
+    // new contents of a puzzle's files before they are put in place, or
+    // kept to alternate with the files, and the list of them that makes
+    // the save count
+    private static final String FILE_EXT_SLOT = ".slot";
+    private static final String FILE_EXT_COMMIT = ".commit";
+    private static final String COMMIT_END = "end";
+    private static final Charset COMMIT_CHARSET = Charset.forName("UTF-8");
+
+    // most files read at once when listing files with no cached meta
+    private static final int MAX_META_LOAD_THREADS = 4;
+    // meta cache rows written per transaction, and listed at once
+    private static final int META_BATCH_SIZE = 50;
+    // list what has been read at least this often
+    private static final long META_BATCH_MILLIS = 500;
+
+    /**
+     * The new contents of a file being saved
+     */
+    private interface FileContents {
+        void writeTo(OutputStream os) throws IOException;
+    }
 
     private Context applicationContext;
     private MetaCache metaCache;
+    private SnapshotCache snapshotCache;
+    private DefinitionCache definitionCache = new DefinitionCache();
+    private DirIndex dirIndex;
+    // by puzzle main file, read lock to read its files, write lock to
+    // change them
+    private FileLocks fileLocks = new FileLocks();
+    // directories and puzzle main files whose leftovers from a crash
+    // have been dealt with since starting, guarded by itself
+    private final Set<Uri> recoveredUris = new HashSet<>();
+    // by puzzle main file, the save slots of puzzles on storage that
+    // can't replace files, guarded by itself
+    private final Map<Uri, SaveSlots> saveSlots = new HashMap<>();
+
+    // reused for every ipuz save on a thread
+    private ThreadLocal<IPuzIO.PuzzleWriter> ipuzWriters
+        = new ThreadLocal<IPuzIO.PuzzleWriter>() {
+            @Override
+            protected IPuzIO.PuzzleWriter initialValue() {
+                return new IPuzIO.PuzzleWriter();
+            }
+        };
 
     protected FileHandler(Context applicationContext) {
         this.applicationContext = applicationContext;
         this.metaCache = new MetaCache(applicationContext, this);
+        this.snapshotCache = new SnapshotCache(applicationContext);
+        this.dirIndex = new DirIndex(applicationContext, this);
     }
 
     public abstract DirHandle getCrosswordsDirectory();
@@ -83,6 +146,14 @@ public abstract class FileHandler {
     public abstract boolean isStorageFull();
 
     protected abstract FileHandle getFileHandle(Uri uri);
+
+    /**
+     * Handle of a file from its stored details, without checking storage
+     */
+    protected abstract FileHandle getFileHandle(
+        Uri uri, String name, long lastModified
+    );
+
     protected abstract boolean exists(DirHandle dir);
     protected abstract boolean exists(FileHandle file);
     protected abstract Iterable<FileHandle> listFiles(final DirHandle dir);
@@ -90,6 +161,7 @@ public abstract class FileHandler {
     protected abstract Uri getUri(FileHandle f);
     protected abstract String getName(FileHandle f);
     protected abstract long getLastModified(FileHandle file);
+    protected abstract long getSize(FileHandle file);
 
     /**
      * Get output stream to file, erasing previous contents
@@ -97,6 +169,13 @@ public abstract class FileHandler {
     protected abstract OutputStream getOutputStream(FileHandle fileHandle)
         throws IOException;
 
+    /**
+     * Get output stream to end of file, keeping previous contents
+     */
+    protected abstract OutputStream getAppendOutputStream(
+        FileHandle fileHandle
+    ) throws IOException;
+
     protected abstract InputStream getInputStream(FileHandle fileHandle)
         throws IOException;
 
@@ -138,78 +217,207 @@ public abstract class FileHandler {
         return exists;
     }
 
-    public synchronized void delete(PuzMetaFile pm) {
+    public void delete(PuzMetaFile pm) {
         delete(pm.getPuzHandle());
     }
 
-    public synchronized void delete(PuzHandle ph) {
-        delete(ph.getMainFileHandle());
+    public void delete(PuzHandle ph) {
+        Lock lock = fileLocks.getWriteLock(getUri(ph));
+        lock.lock();
+        try {
+            deleteLocked(ph);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        ph.accept(new PuzHandle.Visitor<Void>() {
-            @Override
-            public Void visit(PuzHandle.Puz puzHandle) {
-                FileHandle metaHandle = puzHandle.getMetaFileHandle();
-                if (metaHandle != null)
-                    delete(metaHandle);
-                return null;
-            }
-            @Override
-            public Void visit(PuzHandle.IPuz ipuzHandle) {
-                return null;
-            }
-        });
+    private void deleteLocked(PuzHandle ph) {
+        DirHandle dirHandle = ph.getDirHandle();
+        try {
+            loadSaveSlots(ph);
+        } catch (IOException e) {
+            // any slots are deleted as leftovers of a missing puzzle
+            LOGGER.warning("Could not read save slots of " + ph + ": " + e);
+        }
+        long stamp = dirIndex.startChange(dirHandle);
+        List<FileHandle> files = getFileHandles(ph);
+        List<FileHandle> changed = null;
+        try {
+            snapshotCache.delete(getUri(ph));
+            definitionCache.delete(getUri(ph));
+            deleteSaveSlots(ph);
+            delete(ph.getMainFileHandle());
+
+            ph.accept(new PuzHandle.Visitor<Void>() {
+                @Override
+                public Void visit(PuzHandle.Puz puzHandle) {
+                    FileHandle metaHandle = puzHandle.getMetaFileHandle();
+                    if (metaHandle != null)
+                        delete(metaHandle);
+                    return null;
+                }
+                @Override
+                public Void visit(PuzHandle.IPuz ipuzHandle) {
+                    return null;
+                }
+            });
 
-        metaCache.deleteRecord(ph);
+            FileHandle journalHandle = ph.getJournalFileHandle();
+            if (journalHandle != null)
+                delete(journalHandle);
+
+            metaCache.deleteRecord(ph);
+            changed = files;
+        } finally {
+            indexChanges(dirHandle, stamp, changed);
+        }
     }
 
-    public synchronized void moveTo(
-        PuzMetaFile pm, DirHandle destDirHandle
-    ) {
+    public void moveTo(PuzMetaFile pm, DirHandle destDirHandle) {
         moveTo(pm.getPuzHandle(), destDirHandle);
     }
 
-    public synchronized void moveTo(
-        PuzHandle ph, DirHandle destDirHandle
-    ) {
+    /**
+     * Move the puzzle's files to the directory
+     *
+     * Holds the lock of the puzzle in its old place only, so handles to
+     * the new place should not be used until it returns.
+     */
+    public void moveTo(PuzHandle ph, DirHandle destDirHandle) {
+        Lock lock = fileLocks.getWriteLock(getUri(ph));
+        lock.lock();
+        try {
+            moveToLocked(ph, destDirHandle);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void moveToLocked(PuzHandle ph, DirHandle destDirHandle) {
         DirHandle srcDirHandle = ph.getDirHandle();
+        try {
+            loadSaveSlots(ph);
+        } catch (IOException e) {
+            LOGGER.severe("Could not move " + ph + ": " + e);
+            return;
+        }
+        long srcStamp = dirIndex.startChange(srcDirHandle);
+        long destStamp = dirIndex.startChange(destDirHandle);
+        List<FileHandle> srcFiles = getFileHandles(ph);
+        List<FileHandle> srcChanged = null;
+        try {
+            snapshotCache.delete(getUri(ph));
+            definitionCache.delete(getUri(ph));
 
-        moveTo(ph.getMainFileHandle(), srcDirHandle, destDirHandle);
+            // slot uris would not survive the move, and the files may
+            // be out of date without them
+            try {
+                settleSaveSlots(ph);
+            } catch (IOException e) {
+                LOGGER.severe("Could not move " + ph + ": " + e);
+                return;
+            }
 
-        ph.setDirectory(destDirHandle);
+            moveTo(ph.getMainFileHandle(), srcDirHandle, destDirHandle);
 
-        ph.accept(new PuzHandle.Visitor<Void>() {
-            @Override
-            public Void visit(PuzHandle.Puz puzHandle) {
-                FileHandle metaHandle = puzHandle.getMetaFileHandle();
-                if (metaHandle != null)
-                    moveTo(metaHandle, srcDirHandle, destDirHandle);
-                return null;
-            }
-            @Override
-            public Void visit(PuzHandle.IPuz ipuzHandle) {
-                return null;
-            }
-        });
+            ph.setDirectory(destDirHandle);
+
+            ph.accept(new PuzHandle.Visitor<Void>() {
+                @Override
+                public Void visit(PuzHandle.Puz puzHandle) {
+                    FileHandle metaHandle = puzHandle.getMetaFileHandle();
+                    if (metaHandle != null)
+                        moveTo(metaHandle, srcDirHandle, destDirHandle);
+                    return null;
+                }
+                @Override
+                public Void visit(PuzHandle.IPuz ipuzHandle) {
+                    return null;
+                }
+            });
+
+            FileHandle journalHandle = ph.getJournalFileHandle();
+            if (journalHandle != null)
+                moveTo(journalHandle, srcDirHandle, destDirHandle);
 
-        // TODO: can we move record instead? What is new Uri?
-        metaCache.deleteRecord(ph);
+            // TODO: can we move record instead? What is new Uri?
+            metaCache.deleteRecord(ph);
+            srcChanged = srcFiles;
+        } finally {
+            indexChanges(srcDirHandle, srcStamp, srcChanged);
+            // the moved files' new uris aren't known here, so the
+            // destination is listed when next used
+            indexChanges(destDirHandle, destStamp, null);
+        }
     }
 
     /**
      * Get puz files in directory, will create meta files when missing
      */
     public List<PuzMetaFile> getPuzMetas(DirHandle dirHandle) {
+        return getPuzMetas(dirHandle, null);
+    }
+
+    /**
+     * Get puz files in directory, will create meta files when missing
+     *
+     * Files with no cached meta data are read in parallel, and their
+     * meta data cached in batches. The directory is only listed if it
+     * changed since its files were indexed.
+     *
+     * @param onLoaded if not null, called on the calling thread with
+     * each batch of metas as they become available, the cached ones
+     * first
+     */
+    public List<PuzMetaFile> getPuzMetas(
+        DirHandle dirHandle, Consumer<List<PuzMetaFile>> onLoaded
+    ) {
         ArrayList<PuzMetaFile> metas = new ArrayList<>();
 
-        Iterable<FileHandle> rawFileList = listFiles(dirHandle);
+        long stamp = getDirStamp(dirHandle);
+        Iterable<FileHandle> rawFileList = getIndexedFiles(dirHandle, stamp);
+        boolean listed = (rawFileList == null);
+        if (listed)
+            rawFileList = listAndIndexFiles(dirHandle, stamp);
+
+        // saves cut short by a crash are finished or dropped first
+        Set<Uri> recovered = new HashSet<>();
+        if (recoverCommits(rawFileList, recovered)) {
+            rawFileList = listAndIndexFiles(
+                dirHandle, getDirStamp(dirHandle)
+            );
+            listed = true;
+        }
+        markRecovered(getUri(dirHandle));
 
         Map<Uri, MetaCache.MetaRecord> cachedMetas
             = metaCache.getDirCache(dirHandle);
 
-        loadMetasFromPuzFiles(dirHandle, rawFileList, cachedMetas, metas);
-        loadMetasFromIPuzFiles(dirHandle, rawFileList, cachedMetas, metas);
+        Map<String, FileHandle> journalFiles = getJournalFiles(rawFileList);
+
+        List<PuzHandle> handles = new ArrayList<>();
+        addPuzHandles(dirHandle, rawFileList, journalFiles, handles);
+        addIPuzHandles(dirHandle, rawFileList, journalFiles, handles);
+
+        List<PuzHandle> uncached = new ArrayList<>();
+        for (PuzHandle ph : handles) {
+            Uri uri = getUri(ph);
+            MetaCache.MetaRecord metaRecord = cachedMetas.get(uri);
+            if (metaRecord != null && !recovered.contains(uri))
+                metas.add(new PuzMetaFile(ph, metaRecord));
+            else
+                uncached.add(ph);
+        }
+
+        if (onLoaded != null && !metas.isEmpty())
+            onLoaded.accept(new ArrayList<>(metas));
+
+        if (!loadPuzMetaFiles(uncached, metas, onLoaded))
+            return metas;
 
-        metaCache.cleanupCache(dirHandle, metas);
+        // no files went missing if the index was current
+        if (listed)
+            metaCache.cleanupCache(dirHandle, metas);
 
         return metas;
     }
@@ -217,16 +425,17 @@ public abstract class FileHandler {
     /**
      * Gets the set of puzzle names stored by Forkyz
      *
-     * File names are names without the file extension or directories
+     * File names are names without the file extension or directories.
+     * Read from the directory index when it is current.
      */
     public Set<String> getPuzzleNames() {
         Set<String> puzzleNames = new HashSet<>();
-        for (FileHandle fh : listFiles(getCrosswordsDirectory())) {
+        for (FileHandle fh : getDirFiles(getCrosswordsDirectory())) {
             String puzzleName = getPuzzleFileName(getName(fh));
             if (puzzleName != null)
                 puzzleNames.add(puzzleName);
         }
-        for (FileHandle fh : listFiles(getArchiveDirectory())) {
+        for (FileHandle fh : getDirFiles(getArchiveDirectory())) {
             String puzzleName = getPuzzleFileName(getName(fh));
             if (puzzleName != null)
                 puzzleNames.add(puzzleName);
@@ -235,49 +444,58 @@ public abstract class FileHandler {
     }
 
     /**
-     * Synchronized to avoid reading/writing from the same file at the same
-     * time.
+     * Read and cache meta data of the puzzle
+     *
+     * Holds the puzzle's read lock while reading.
      *
      * @return null if could not be loaded
      */
-    public synchronized PuzMetaFile loadPuzMetaFile(PuzHandle puzHandle) throws IOException {
-        Puzzle puz = load(puzHandle);
+    public PuzMetaFile loadPuzMetaFile(PuzHandle puzHandle) throws IOException {
+        MetaCache.MetaRecord metaRecord;
+
+        Lock lock = fileLocks.getReadLock(getUri(puzHandle));
+        lock.lock();
+        try {
+            metaRecord = readMetaRecord(puzHandle);
+        } finally {
+            lock.unlock();
+        }
 
-        if (puz == null)
+        if (metaRecord == null)
             return null;
 
-        MetaCache.MetaRecord metaRecord = metaCache.addRecord(puzHandle, puz);
+        metaCache.addRecords(Collections.singletonList(metaRecord));
 
         return new PuzMetaFile(puzHandle, metaRecord);
     }
 
-    /**
-     * Synchronized to avoid reading/writing from the same file at the same
-     * time.
-     */
-    public synchronized Puzzle load(PuzMetaFile pm) throws IOException {
+    public Puzzle load(PuzMetaFile pm) throws IOException {
         return load(pm.getPuzHandle());
     }
 
     /**
      * Loads puzzle with meta
      *
-     * If the meta file of puz handle is null, loads without meta
+     * If the meta file of puz handle is null, loads without meta. If
+     * there is a play state journal, it is replayed on the loaded
+     * puzzle.
+     *
+     * The puzzle is taken from the snapshot cache if there is a snapshot
+     * of the current files, else it is parsed and a snapshot made.
      *
-     * Synchronized to avoid reading/writing from the same file at the same
-     * time.
+     * Holds the puzzle's read lock, so other puzzles can be used and
+     * this one read by others at the same time.
      */
-    public synchronized Puzzle load(PuzHandle ph) throws IOException {
-        Puzzle puz = ph.accept(new PuzHandle.VisitorIO<Puzzle>() {
-            @Override
-            public Puzzle visit(PuzHandle.Puz puzHandle) throws IOException {
-                return load(puzHandle);
-            }
-            @Override
-            public Puzzle visit(PuzHandle.IPuz ipuzHandle) throws IOException {
-                return load(ipuzHandle);
-            }
-        });
+    public Puzzle load(PuzHandle ph) throws IOException {
+        Puzzle puz;
+
+        Lock lock = fileLocks.getReadLock(getUri(ph));
+        lock.lock();
+        try {
+            puz = readPuzzle(ph, true);
+        } finally {
+            lock.unlock();
+        }
 
         if (puz != null)
             metaCache.addRecord(ph, puz);
@@ -285,7 +503,54 @@ public abstract class FileHandler {
         return puz;
     }
 
-    public synchronized void save(Puzzle puz, PuzMetaFile puzMeta)
+    /**
+     * Load the puzzle, from its cached definition and play state if
+     * current, else from a snapshot if possible and replay its journal
+     *
+     * Caller must hold the file's read or write lock.
+     *
+     * @param makeSnapshot whether to snapshot the puzzle if it had to be
+     * parsed, not worth it for puzzles only read for listing
+     */
+    private Puzzle readPuzzle(PuzHandle ph, boolean makeSnapshot)
+            throws IOException {
+        loadSaveSlots(ph);
+        Uri uri = getUri(ph);
+        String version = getSnapshotVersion(ph);
+        String playVersion = getPlayVersion(ph, version);
+
+        Puzzle puz = definitionCache.load(uri, playVersion);
+        if (puz != null)
+            return puz;
+
+        puz = snapshotCache.load(uri, version);
+        if (puz == null) {
+            puz = ph.accept(new PuzHandle.VisitorIO<Puzzle>() {
+                @Override
+                public Puzzle visit(PuzHandle.Puz puzHandle)
+                        throws IOException {
+                    return load(puzHandle);
+                }
+                @Override
+                public Puzzle visit(PuzHandle.IPuz ipuzHandle)
+                        throws IOException {
+                    return load(ipuzHandle);
+                }
+            });
+            // before the journal, snapshot is of the files only
+            if (puz != null && makeSnapshot)
+                snapshotCache.save(uri, version, puz);
+        }
+
+        if (puz != null) {
+            replayJournal(puz, ph);
+            definitionCache.put(uri, playVersion, puz);
+        }
+
+        return puz;
+    }
+
+    public void save(Puzzle puz, PuzMetaFile puzMeta)
             throws IOException {
         save(puz, puzMeta.getPuzHandle());
     }
@@ -293,39 +558,218 @@ public abstract class FileHandler {
     /** Save puzzle and meta data
      *
      * If puzHandle's meta handle is null, a new meta file will be created and
-     * puzHandle is updated with the new meta file handle
+     * puzHandle is updated with the new meta file handle. Any play state
+     * journal is deleted since the puzzle is saved in full.
      *
-     * Synchronized to avoid reading/writing from the same file at the same
-     * time.
+     * Holds the puzzle's write lock, so nothing reads it half written,
+     * but other puzzles can be used at the same time. Updates the meta
+     * cache before returning, so not to be called on the main thread.
      */
-    public synchronized void save(Puzzle puz, PuzHandle ph)
+    public void save(Puzzle puz, PuzHandle ph)
             throws IOException {
+        MetaCache.MetaRecord record;
+        Lock lock = fileLocks.getWriteLock(getUri(ph));
+        lock.lock();
+        try {
+            record = saveLocked(puz, ph);
+        } finally {
+            lock.unlock();
+        }
+        addMetaRecord(record);
+    }
+
+    /**
+     * Save puzzle, caller holds write lock
+     *
+     * @return meta record of the saved puzzle to cache
+     */
+    private MetaCache.MetaRecord saveLocked(
+        Puzzle puz, PuzHandle ph
+    ) throws IOException {
+        DirHandle dirHandle = ph.getDirHandle();
+        recoverLeftovers(
+            dirHandle, getName(ph.getMainFileHandle()), getUri(ph)
+        );
+        long stamp = dirIndex.startChange(dirHandle);
+        Set<FileHandle> changed = null;
+        try {
+            Set<FileHandle> files = new LinkedHashSet<>(getFileHandles(ph));
+            MetaCache.MetaRecord record = saveFilesLocked(puz, ph);
+            files.addAll(getFileHandles(ph));
+            changed = files;
+            return record;
+        } finally {
+            indexChanges(dirHandle, stamp, changed);
+        }
+    }
+
+    /**
+     * Save puzzle without indexing, caller holds write lock and has
+     * started a change to the directory
+     *
+     * @return meta record of the saved puzzle to cache
+     */
+    private MetaCache.MetaRecord saveFilesLocked(
+        Puzzle puz, PuzHandle ph
+    ) throws IOException {
+        // handles may not see the new modification time, so don't rely
+        // on the version stamp to spot the snapshot is stale
+        snapshotCache.delete(getUri(ph));
+        definitionCache.delete(getUri(ph));
 
-        boolean success = ph.accept(new PuzHandle.VisitorIO<Boolean>() {
+        ph.accept(new PuzHandle.VisitorIO<Void>() {
             @Override
-            public Boolean visit(PuzHandle.Puz puzHandle) throws IOException {
-                return save(puz, puzHandle);
+            public Void visit(PuzHandle.Puz puzHandle) throws IOException {
+                save(puz, puzHandle);
+                return null;
             }
             @Override
-            public Boolean visit(PuzHandle.IPuz ipuzHandle) throws IOException {
-                return save(puz, ipuzHandle);
+            public Void visit(PuzHandle.IPuz ipuzHandle) throws IOException {
+                save(puz, ipuzHandle);
+                return null;
             }
         });
 
-        // Cannot be done on main thread (and you save puzzles on
-        // the main thread).
-        if (success) {
-            executorService.execute(() -> {
-                metaCache.addRecord(ph, puz);
-            });
+        FileHandle journalFile = ph.getJournalFileHandle();
+        if (journalFile != null) {
+            delete(journalFile);
+            ph.setJournalFileHandle(null);
+        }
+
+        // made now, puz may change once the lock is released
+        definitionCache.put(
+            getUri(ph), getPlayVersion(ph, getSnapshotVersion(ph)), puz
+        );
+        return metaCache.newRecord(ph, puz);
+    }
+
+    /**
+     * Save only the play state changed since the last save
+     *
+     * The changes are appended to a journal file next to the puzzle that
+     * is replayed when the puzzle is loaded. The puzzle is saved in full
+     * instead (and the journal removed) when the journal gets long, when
+     * it was left by an earlier session, or if it can't be created.
+     *
+     * @param puz the puzzle to save
+     * @param ph the puzzle's files
+     * @param journal tracks the changes to puz since its last save
+     */
+    public void saveChanges(
+        Puzzle puz, PuzHandle ph, PlayJournal journal
+    ) throws IOException {
+        MetaCache.MetaRecord record;
+        Lock lock = fileLocks.getWriteLock(getUri(ph));
+        lock.lock();
+        try {
+            record = saveChangesLocked(puz, ph, journal);
+        } finally {
+            lock.unlock();
+        }
+        addMetaRecord(record);
+    }
+
+    /**
+     * Save changes, caller holds write lock
+     *
+     * @return meta record of the saved puzzle to cache, null if nothing
+     * was written
+     */
+    private MetaCache.MetaRecord saveChangesLocked(
+        Puzzle puz, PuzHandle ph, PlayJournal journal
+    ) throws IOException {
+        FileHandle journalFile = ph.getJournalFileHandle();
+
+        // journal file from an earlier session is folded in now
+        boolean compact = journal.getNumEntries() >= MAX_JOURNAL_ENTRIES
+            || (journalFile != null && journal.getNumEntries() == 0);
+
+        if (compact) {
+            MetaCache.MetaRecord record = saveLocked(puz, ph);
+            journal.markSaved();
+            return record;
+        }
+
+        if (journalFile != null)
+            return writeJournalLocked(puz, ph, journal);
+
+        // a new journal changes the directory
+        DirHandle dirHandle = ph.getDirHandle();
+        recoverLeftovers(
+            dirHandle, getName(ph.getMainFileHandle()), getUri(ph)
+        );
+        long stamp = dirIndex.startChange(dirHandle);
+        Set<FileHandle> changed = null;
+        try {
+            Set<FileHandle> files = new LinkedHashSet<>(getFileHandles(ph));
+            MetaCache.MetaRecord record;
+
+            journalFile = createFileHandle(
+                dirHandle,
+                getJournalFileName(ph.getMainFileHandle()),
+                MIME_TYPE_JOURNAL
+            );
+            if (journalFile == null) {
+                record = saveFilesLocked(puz, ph);
+                journal.markSaved();
+            } else {
+                files.add(journalFile);
+                ph.setJournalFileHandle(journalFile);
+                record = writeJournalLocked(puz, ph, journal);
+                // don't leave an empty journal to be mistaken for an
+                // old one
+                if (record == null) {
+                    delete(journalFile);
+                    ph.setJournalFileHandle(null);
+                }
+            }
+
+            files.addAll(getFileHandles(ph));
+            changed = files;
+            return record;
+        } finally {
+            indexChanges(dirHandle, stamp, changed);
+        }
+    }
+
+    /**
+     * Append the changes to the puzzle's journal, caller holds write
+     * lock
+     *
+     * @return meta record of the saved puzzle to cache, null if nothing
+     * was written
+     */
+    private MetaCache.MetaRecord writeJournalLocked(
+        Puzzle puz, PuzHandle ph, PlayJournal journal
+    ) throws IOException {
+        boolean written;
+        FileHandle journalFile = ph.getJournalFileHandle();
+        try (OutputStream os = getAppendOutputStream(journalFile)) {
+            written = journal.writeEntry(os);
         }
+        if (!written)
+            return null;
+
+        // only the play state changed, the definition is still good
+        definitionCache.putState(
+            getUri(ph),
+            getPlayVersion(ph, getSnapshotVersion(ph)),
+            new PlayState(puz)
+        );
+        return metaCache.newRecord(ph, puz);
+    }
+
+    private void addMetaRecord(MetaCache.MetaRecord record) {
+        if (record != null)
+            metaCache.addRecords(Collections.singletonList(record));
     }
 
     /**
      * Save a (new) puzzle to the given directory
      *
      * Use this instead of createFile to save puzzles -- let the file
-     * handler decide the backend file format.
+     * handler decide the backend file format. Synchronized so that two
+     * new puzzles can't be given the same file.
      *
      * @param puz the puzzle to save
      * @param dirHandle the directory to save under
@@ -337,21 +781,38 @@ public abstract class FileHandler {
         Puzzle puz, String fileNameBody
     ) throws IOException {
         DirHandle dirHandle = getCrosswordsDirectory();
+        String mainName = fileNameBody + FILE_EXT_IPUZ;
+        recoverLeftovers(dirHandle, mainName, null);
+        long stamp = dirIndex.startChange(dirHandle);
+        List<FileHandle> changed = null;
+        try {
+            FileHandle mainFile = createFileHandle(
+                dirHandle, mainName, MIME_TYPE_IPUZ
+            );
 
-        FileHandle mainFile = createFileHandle(
-            dirHandle, fileNameBody + FILE_EXT_IPUZ, MIME_TYPE_IPUZ
-        );
-
-        if (mainFile == null)
-            return null;
+            if (mainFile == null) {
+                changed = Collections.emptyList();
+                return null;
+            }
 
-        try {
             PuzHandle ph = new PuzHandle.IPuz(dirHandle, mainFile);
-            save(puz, ph);
+            MetaCache.MetaRecord record;
+            Lock lock = fileLocks.getWriteLock(getUri(ph));
+            lock.lock();
+            try {
+                record = saveFilesLocked(puz, ph);
+            } catch (Exception e) {
+                delete(mainFile);
+                throw e;
+            } finally {
+                lock.unlock();
+            }
+            addMetaRecord(record);
+
+            changed = getFileHandles(ph);
             return ph;
-        } catch (Exception e) {
-            delete(mainFile);
-            throw e;
+        } finally {
+            indexChanges(dirHandle, stamp, changed);
         }
     }
 
@@ -375,10 +836,42 @@ public abstract class FileHandler {
         DirHandle dir, String fileName, String mimeType
     );
 
+    /**
+     * Replace target with src in one step, if the storage can
+     *
+     * A crash must leave either all of the old target or all of src in
+     * its place. Storage that can do this overrides this method and
+     * canReplaceFile. Called with the files' puzzle locked.
+     *
+     * @return true if replaced, else src and target are unchanged
+     */
+    protected boolean replaceFile(FileHandle src, FileHandle target) {
+        return false;
+    }
+
+    /**
+     * Whether replaceFile is supported
+     */
+    protected boolean canReplaceFile() {
+        return false;
+    }
+
+    /**
+     * Last modified time of the directory, for the directory index
+     *
+     * Must change whenever a file is added to, removed from or renamed
+     * in the directory. Storage that can't promise this returns 0 and
+     * its directories are always listed.
+     */
+    protected long getDirStamp(DirHandle dir) {
+        return 0;
+    }
+
     /**
      * Provide a moveTo implementation
      *
-     * Assume in a synced class
+     * Called with the file's puzzle locked if it has one, but may be
+     * called for different files at the same time.
      */
     protected abstract void moveToUnsync(
         FileHandle fileHandle, DirHandle srcDirHandle, DirHandle destDirHandle
@@ -387,7 +880,8 @@ public abstract class FileHandler {
     /**
      * Provide a delete implementation
      *
-     * Assume in a synced class
+     * Called with the file's puzzle locked if it has one, but may be
+     * called for different files at the same time.
      */
     protected abstract void deleteUnsync(FileHandle fileHandle);
 
@@ -401,11 +895,17 @@ public abstract class FileHandler {
         return new BufferedInputStream(getInputStream(fileHandle));
     }
 
-    protected synchronized void delete(FileHandle fileHandle) {
+    /**
+     * Delete a file, caller holds the lock of its puzzle if it has one
+     */
+    protected void delete(FileHandle fileHandle) {
         deleteUnsync(fileHandle);
     }
 
-    protected synchronized void moveTo(
+    /**
+     * Move a file, caller holds the lock of its puzzle if it has one
+     */
+    protected void moveTo(
         FileHandle fileHandle, DirHandle srcDirHandle, DirHandle destDirHandle
     ) {
         moveToUnsync(fileHandle, srcDirHandle, destDirHandle);
@@ -416,6 +916,11 @@ public abstract class FileHandler {
         return name.substring(0, name.lastIndexOf(".")) + FileHandler.FILE_EXT_FORKYZ;
     }
 
+    protected String getJournalFileName(FileHandle puzFile) {
+        String name = getName(puzFile);
+        return name.substring(0, name.lastIndexOf(".")) + FILE_EXT_JOURNAL;
+    }
+
     protected Context getApplicationContext() {
         return applicationContext;
     }
@@ -439,14 +944,14 @@ public abstract class FileHandler {
         return null;
     }
 
-    private synchronized Puzzle load(PuzHandle.Puz ph) throws IOException {
+    private Puzzle load(PuzHandle.Puz ph) throws IOException {
         FileHandle metaFile = ph.getMetaFileHandle();
         if (metaFile == null) {
             try (
                 DataInputStream fis
                     = new DataInputStream(
                         getBufferedInputStream(
-                            ph.getMainFileHandle()))
+                            getCurrentFile(ph, ph.getMainFileHandle())))
             ) {
                 return IO.loadNative(fis);
             }
@@ -455,31 +960,158 @@ public abstract class FileHandler {
                 DataInputStream pis
                     = new DataInputStream(
                         getBufferedInputStream(
-                            ph.getMainFileHandle()));
+                            getCurrentFile(ph, ph.getMainFileHandle())));
                 DataInputStream mis
                     = new DataInputStream(
                         getBufferedInputStream(
-                            ph.getMetaFileHandle()))
+                            getCurrentFile(ph, ph.getMetaFileHandle())))
             ) {
                 return IO.load(pis, mis);
             }
         }
     }
 
-    private synchronized Puzzle load(PuzHandle.IPuz ph) throws IOException {
+    /**
+     * Version of the puzzle's files for checking snapshots are current
+     *
+     * Of the current files, which may be save slots, so the version
+     * changes when a save only writes a slot. Caller has loaded the
+     * puzzle's save slots.
+     */
+    private String getSnapshotVersion(PuzHandle ph) {
+        FileHandle mainHandle = getCurrentFile(ph, ph.getMainFileHandle());
+        // slot and file written in the same mtime tick differ
+        String mainVersion = (mainHandle == ph.getMainFileHandle())
+            ? String.valueOf(getLastModified(mainHandle))
+            : FILE_EXT_SLOT + getLastModified(mainHandle);
+        return ph.accept(new PuzHandle.Visitor<String>() {
+            @Override
+            public String visit(PuzHandle.Puz puzHandle) {
+                FileHandle metaHandle = puzHandle.getMetaFileHandle();
+                if (metaHandle == null)
+                    return mainVersion;
+                return mainVersion + "|" + getLastModified(
+                    getCurrentFile(ph, metaHandle)
+                );
+            }
+            @Override
+            public String visit(PuzHandle.IPuz ipuzHandle) {
+                return mainVersion;
+            }
+        });
+    }
+
+    /**
+     * Version of the puzzle's files and journal, for checking cached
+     * play state is current
+     *
+     * @param snapshotVersion the version of the puzzle's files
+     */
+    private String getPlayVersion(PuzHandle ph, String snapshotVersion) {
+        FileHandle journalFile = ph.getJournalFileHandle();
+        if (journalFile == null)
+            return snapshotVersion;
+        // appends may be within one mtime tick
+        return snapshotVersion
+            + "|" + getLastModified(journalFile)
+            + "|" + getSize(journalFile);
+    }
+
+    /**
+     * Replay play state journal of handle on puzzle if there is one
+     *
+     * A journal that can't be read is ignored (but not deleted) so that
+     * the puzzle can still be opened.
+     */
+    private void replayJournal(Puzzle puz, PuzHandle ph) {
+        FileHandle journalFile = ph.getJournalFileHandle();
+        if (journalFile == null)
+            return;
+
+        try (InputStream is = getBufferedInputStream(journalFile)) {
+            PlayJournal.replay(puz, is);
+        } catch (IOException e) {
+            LOGGER.warning("Could not read journal for " + ph + ": " + e);
+        }
+    }
+
+    private Puzzle load(PuzHandle.IPuz ph) throws IOException {
         try (
-            InputStream is = getBufferedInputStream(ph.getMainFileHandle())
+            InputStream is = getBufferedInputStream(
+                getCurrentFile(ph, ph.getMainFileHandle())
+            )
         ) {
             return IPuzIO.readPuzzle(is);
         }
     }
 
-    private synchronized boolean save(Puzzle puz, PuzHandle.Puz ph)
+    /**
+     * Read just the list meta data for the puzzle
+     *
+     * Caller must hold the file's read or write lock.
+     *
+     * @return null if could not be read without a full load
+     */
+    private PuzzleMeta loadMeta(PuzHandle ph) throws IOException {
+        loadSaveSlots(ph);
+        return ph.accept(new PuzHandle.VisitorIO<PuzzleMeta>() {
+            @Override
+            public PuzzleMeta visit(PuzHandle.Puz puzHandle)
+                    throws IOException {
+                return loadMeta(puzHandle);
+            }
+            @Override
+            public PuzzleMeta visit(PuzHandle.IPuz ipuzHandle)
+                    throws IOException {
+                return loadMeta(ipuzHandle);
+            }
+        });
+    }
+
+    private PuzzleMeta loadMeta(PuzHandle.Puz ph)
             throws IOException {
-        FileHandle puzFile = ph.getMainFileHandle();
         FileHandle metaFile = ph.getMetaFileHandle();
-        DirHandle puzDir = ph.getDirHandle();
-
+        if (metaFile == null) {
+            try (
+                DataInputStream fis
+                    = new DataInputStream(
+                        getBufferedInputStream(
+                            getCurrentFile(ph, ph.getMainFileHandle())))
+            ) {
+                return IO.loadMeta(fis, null);
+            }
+        } else {
+            try (
+                DataInputStream pis
+                    = new DataInputStream(
+                        getBufferedInputStream(
+                            getCurrentFile(ph, ph.getMainFileHandle())));
+                DataInputStream mis
+                    = new DataInputStream(
+                        getBufferedInputStream(
+                            getCurrentFile(ph, ph.getMetaFileHandle())))
+            ) {
+                return IO.loadMeta(pis, mis);
+            }
+        }
+    }
+
+    private PuzzleMeta loadMeta(PuzHandle.IPuz ph)
+            throws IOException {
+        try (
+            InputStream is = getBufferedInputStream(
+                getCurrentFile(ph, ph.getMainFileHandle())
+            )
+        ) {
+            return IPuzIO.readMeta(is);
+        }
+    }
+
+    private void save(Puzzle puz, PuzHandle.Puz ph)
+            throws IOException {
+        FileHandle puzFile = ph.getMainFileHandle();
+        FileHandle metaFile = ph.getMetaFileHandle();
+
         boolean metaCreated = false;
 
         if (metaFile == null) {
@@ -504,73 +1136,743 @@ public abstract class FileHandler {
             IO.save(puz, dosPuz, dosMeta);
         }
 
-        // Write meta first, if doesn't throw, write main puzzle
+        // Meta and puzzle are committed together so a crash can't leave
+        // one new and the other old
 
-        boolean metaSuccess = false;
+        boolean success = false;
 
-        try (
-            InputStream baisMeta
-                = new ByteArrayInputStream(baosMeta.toByteArray());
-            OutputStream meta = getBufferedOutputStream(metaFile);
-        ) {
-            StreamUtils.copyStream(baisMeta, meta);
-            metaSuccess = true;
+        try {
+            commitFiles(
+                ph,
+                Arrays.asList(metaFile, puzFile),
+                Arrays.<FileContents>asList(
+                    baosMeta::writeTo, baosPuz::writeTo
+                )
+            );
+            success = true;
         } finally {
-            if (!metaSuccess && metaCreated)
+            if (!success && metaCreated)
                 delete(metaFile);
+            else
+                ph.setMetaFileHandle(metaFile);
         }
+    }
 
-        boolean puzSuccess = false;
+    private void save(Puzzle puz, PuzHandle.IPuz ph)
+            throws IOException {
+        FileHandle ipuzFile = ph.getMainFileHandle();
+        IPuzIO.PuzzleWriter ipuzWriter = ipuzWriters.get();
 
-        try (
-            InputStream baisPuz
-                = new ByteArrayInputStream(baosPuz.toByteArray());
-            OutputStream puzzle = getBufferedOutputStream(puzFile);
-        ) {
-            StreamUtils.copyStream(baisPuz, puzzle);
-            puzSuccess = true;
+        // Encode to buffer first -- get puzzle encoded before
+        // touching the previously saved file. Compact since saved
+        // files are not read by people.
+        ipuzWriter.encode(puz, false, true);
+
+        commitFiles(
+            ph,
+            Collections.singletonList(ipuzFile),
+            Collections.<FileContents>singletonList(ipuzWriter::writeTo)
+        );
+    }
+
+    /**
+     * Replace the contents of a puzzle's files as one change
+     *
+     * The new contents of each file are written and synced to a slot
+     * file next to it. Then, unless there is one file, a commit file
+     * listing the slots is written, after which the save counts as done.
+     * The slots are then put in place of the files by replaceFile. A
+     * crash before the commit file is written leaves the old files,
+     * after it recoverCommits finishes the job, so the files are never
+     * part written or a mix of old and new. Storage that can't replace
+     * files uses commitToSlots instead.
+     *
+     * Caller holds the puzzle's write lock.
+     */
+    private void commitFiles(
+        PuzHandle ph, List<FileHandle> files, List<FileContents> contents
+    ) throws IOException {
+        if (!canReplaceFile()) {
+            commitToSlots(ph, files, contents);
+            return;
+        }
+
+        DirHandle dirHandle = ph.getDirHandle();
+        String mainName = getName(ph.getMainFileHandle());
+
+        List<FileHandle> slots = new ArrayList<>();
+        FileHandle commitFile = null;
+        boolean committed = false;
+
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                FileHandle slot = createFileHandle(
+                    dirHandle, mainName + FILE_EXT_SLOT + i, MIME_TYPE_GENERIC
+                );
+                if (slot == null) {
+                    throw new IOException(
+                        "Could not create save slot for " + mainName
+                    );
+                }
+                slots.add(slot);
+                writeSynced(slot, contents.get(i));
+            }
+
+            if (files.size() > 1) {
+                commitFile = createFileHandle(
+                    dirHandle, mainName + FILE_EXT_COMMIT, MIME_TYPE_GENERIC
+                );
+                if (commitFile == null) {
+                    throw new IOException(
+                        "Could not create commit file for " + mainName
+                    );
+                }
+                writeSynced(commitFile, os -> {
+                    writeCommitList(os, slots, files, true);
+                });
+            }
+
+            committed = true;
         } finally {
-            if (!puzSuccess && metaCreated)
-                delete(metaFile);
-            else
-                ph.setMetaFileHandle(metaFile);
+            if (!committed) {
+                for (FileHandle slot : slots)
+                    delete(slot);
+                if (commitFile != null)
+                    delete(commitFile);
+            }
+        }
+
+        for (int i = 0; i < files.size(); i++)
+            installSlot(slots.get(i), files.get(i), contents.get(i));
+
+        if (commitFile != null)
+            delete(commitFile);
+    }
+
+    /**
+     * Save by alternating between the files and their slots
+     *
+     * For storage that can't replace files. The new contents are
+     * written and synced to whichever of the files or their slots are
+     * not current, then the commit file is rewritten to say they are,
+     * after which the save counts as done. The slots and commit file
+     * are kept once made, so a save writes the contents once plus the
+     * short commit file, and does not change the directory. A crash
+     * before the commit file is rewritten leaves the last save current,
+     * and a commit file cut short is dropped with the slots, leaving the
+     * files current. Either way the crash loses only the save being
+     * made.
+     *
+     * Caller holds the puzzle's write lock.
+     */
+    private void commitToSlots(
+        PuzHandle ph, List<FileHandle> files, List<FileContents> contents
+    ) throws IOException {
+        Uri mainUri = getUri(ph);
+        SaveSlots known = getSaveSlots(mainUri);
+        // e.g. a puz file given a meta file
+        if (known != null && !isSaveSlotsFor(known, files)) {
+            settleSaveSlots(ph);
+            known = null;
+        }
+
+        boolean created = (known == null);
+        SaveSlots slots = created ? createSaveSlots(ph, files) : known;
+        boolean committed = false;
+        try {
+            List<FileHandle> targets = slots.inSlots
+                ? slots.files
+                : slots.slots;
+            for (int i = 0; i < targets.size(); i++)
+                writeSynced(targets.get(i), contents.get(i));
+
+            writeSynced(slots.commitFile, os -> {
+                writeCommitList(os, slots.slots, slots.files, !slots.inSlots);
+            });
+            committed = true;
+        } finally {
+            if (committed) {
+                slots.inSlots = !slots.inSlots;
+                putSaveSlots(mainUri, slots);
+            } else if (created) {
+                deleteSaveSlots(slots);
+            } else {
+                // commit file may be cut short, looked at again as a
+                // leftover when next used
+                removeSaveSlots(mainUri);
+                forgetRecovered(getUri(ph.getDirHandle()), mainUri);
+            }
+        }
+    }
+
+    /**
+     * Create slots for the files and an empty commit file
+     *
+     * An empty commit file is dropped if found after a crash, leaving
+     * the files current, which is what it means until written.
+     */
+    private SaveSlots createSaveSlots(
+        PuzHandle ph, List<FileHandle> files
+    ) throws IOException {
+        DirHandle dirHandle = ph.getDirHandle();
+        String mainName = getName(ph.getMainFileHandle());
+
+        List<FileHandle> slots = new ArrayList<>();
+        FileHandle commitFile = null;
+        boolean created = false;
+
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                FileHandle slot = createFileHandle(
+                    dirHandle, mainName + FILE_EXT_SLOT + i, MIME_TYPE_GENERIC
+                );
+                if (slot == null) {
+                    throw new IOException(
+                        "Could not create save slot for " + mainName
+                    );
+                }
+                slots.add(slot);
+            }
+
+            commitFile = createFileHandle(
+                dirHandle, mainName + FILE_EXT_COMMIT, MIME_TYPE_GENERIC
+            );
+            if (commitFile == null) {
+                throw new IOException(
+                    "Could not create commit file for " + mainName
+                );
+            }
+
+            created = true;
+        } finally {
+            if (!created) {
+                for (FileHandle slot : slots)
+                    delete(slot);
+            }
         }
 
+        return new SaveSlots(commitFile, new ArrayList<>(files), slots, false);
+    }
+
+    /**
+     * Put the current contents back in the puzzle's files and remove
+     * its save slots, if it has any
+     *
+     * Caller holds the puzzle's write lock and has loaded its slots.
+     */
+    private void settleSaveSlots(PuzHandle ph) throws IOException {
+        Uri mainUri = getUri(ph);
+        SaveSlots slots = getSaveSlots(mainUri);
+        if (slots == null)
+            return;
+
+        if (slots.inSlots) {
+            for (int i = 0; i < slots.files.size(); i++) {
+                FileHandle slot = slots.slots.get(i);
+                writeSynced(slots.files.get(i), os -> {
+                    try (InputStream is = getInputStream(slot)) {
+                        StreamUtils.copyStream(is, os);
+                    }
+                });
+            }
+        }
+
+        removeSaveSlots(mainUri);
+        deleteSaveSlots(slots);
+    }
+
+    /**
+     * Delete the puzzle's save slots without settling them, if any
+     *
+     * Caller holds the puzzle's write lock and has loaded its slots.
+     */
+    private void deleteSaveSlots(PuzHandle ph) {
+        SaveSlots slots = removeSaveSlots(getUri(ph));
+        if (slots != null)
+            deleteSaveSlots(slots);
+    }
+
+    /**
+     * Delete the commit file, so the files are current, then the slots
+     */
+    private void deleteSaveSlots(SaveSlots slots) {
+        delete(slots.commitFile);
+        for (FileHandle slot : slots.slots)
+            delete(slot);
+    }
+
+    /**
+     * Make sure the puzzle's save slots are known, if it may have some
+     *
+     * They are found when the puzzle or its directory is checked for
+     * leftovers. Until then the puzzle's commit file is looked for and
+     * read here, without changing anything, so a commit file cut short
+     * leaves the files current until the leftovers are dealt with.
+     *
+     * Caller holds the puzzle's read or write lock.
+     */
+    private void loadSaveSlots(PuzHandle ph) throws IOException {
+        if (canReplaceFile() || isRecovered(ph))
+            return;
+
+        String commitName = getName(ph.getMainFileHandle()) + FILE_EXT_COMMIT;
+        for (FileHandle f : getDirFiles(ph.getDirHandle())) {
+            if (commitName.equals(getName(f))) {
+                SaveSlots slots = readSaveSlots(f);
+                if (slots != null)
+                    putSaveSlots(getUri(ph), slots);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Save slots from a commit file
+     *
+     * @return null if the commit file was cut short, or a file it lists
+     * is missing
+     */
+    private SaveSlots readSaveSlots(FileHandle commitFile)
+            throws IOException {
+        CommitList commitList = readCommitList(commitFile);
+        if (commitList == null)
+            return null;
+
+        List<FileHandle> files = new ArrayList<>();
+        List<FileHandle> slots = new ArrayList<>();
+        for (Map.Entry<Uri, Uri> entry : commitList.slotFiles.entrySet()) {
+            FileHandle slot = getFileHandle(entry.getKey());
+            FileHandle file = getFileHandle(entry.getValue());
+            if (slot == null || file == null || !exists(slot) || !exists(file))
+                return null;
+            slots.add(slot);
+            files.add(file);
+        }
+
+        return new SaveSlots(commitFile, files, slots, commitList.inSlots);
+    }
+
+    /**
+     * The file or slot with the current contents of the puzzle's file
+     */
+    private FileHandle getCurrentFile(PuzHandle ph, FileHandle file) {
+        SaveSlots slots = getSaveSlots(getUri(ph));
+        if (slots == null || !slots.inSlots)
+            return file;
+
+        Uri uri = getUri(file);
+        for (int i = 0; i < slots.files.size(); i++) {
+            if (uri.equals(getUri(slots.files.get(i))))
+                return slots.slots.get(i);
+        }
+        return file;
+    }
+
+    private boolean isSaveSlotsFor(SaveSlots slots, List<FileHandle> files) {
+        if (slots.files.size() != files.size())
+            return false;
+        for (int i = 0; i < files.size(); i++) {
+            if (!getUri(slots.files.get(i)).equals(getUri(files.get(i))))
+                return false;
+        }
         return true;
     }
 
-    private synchronized boolean save(Puzzle puz, PuzHandle.IPuz ph)
+    private SaveSlots getSaveSlots(Uri mainUri) {
+        synchronized (saveSlots) {
+            return saveSlots.get(mainUri);
+        }
+    }
+
+    private void putSaveSlots(Uri mainUri, SaveSlots slots) {
+        synchronized (saveSlots) {
+            saveSlots.put(mainUri, slots);
+        }
+    }
+
+    private SaveSlots removeSaveSlots(Uri mainUri) {
+        synchronized (saveSlots) {
+            return saveSlots.remove(mainUri);
+        }
+    }
+
+    /**
+     * Put a slot's contents in place of the file
+     *
+     * @param contents the slot's contents, written to file if it can't
+     * be replaced
+     */
+    private void installSlot(
+        FileHandle slot, FileHandle file, FileContents contents
+    ) throws IOException {
+        if (!replaceFile(slot, file)) {
+            writeSynced(file, contents);
+            delete(slot);
+        }
+    }
+
+    /**
+     * Write the whole file and sync it to storage
+     */
+    private void writeSynced(FileHandle file, FileContents contents)
             throws IOException {
-        FileHandle ipuzFile = ph.getMainFileHandle();
-        DirHandle puzDir = ph.getDirHandle();
+        try (OutputStream os = getOutputStream(file)) {
+            contents.writeTo(os);
+            os.flush();
+            if (os instanceof FileOutputStream) {
+                try {
+                    ((FileOutputStream) os).getFD().sync();
+                } catch (SyncFailedException e) {
+                    // not all providers give a real file, do our best
+                }
+            }
+        }
+    }
 
-        // Write to buffer first -- get puzzle written to a stream
-        // before truncating the previously saved file
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        IPuzIO.writePuzzle(puz, baos);
+    /**
+     * Slot and file uris one pair a line, then an end line
+     *
+     * The end line shows the list was written in full. If the files
+     * rather than the slots are current, an end line comes first too.
+     */
+    private void writeCommitList(
+        OutputStream os, List<FileHandle> slots, List<FileHandle> files,
+        boolean inSlots
+    ) throws IOException {
+        // not closed, os is synced after
+        Writer writer = new OutputStreamWriter(os, COMMIT_CHARSET);
+        if (!inSlots)
+            writer.write(COMMIT_END + "\n");
+        for (int i = 0; i < slots.size(); i++) {
+            writer.write(
+                getUri(slots.get(i)) + "\t" + getUri(files.get(i)) + "\n"
+            );
+        }
+        writer.write(COMMIT_END + "\n");
+        writer.flush();
+    }
 
+    /**
+     * Read slot to file uris from a commit file
+     *
+     * A list cut short after the first line shows the files are current
+     * and gives only the slots it got to, any others are leftovers.
+     *
+     * @return null if the file was not written far enough to tell
+     * which are current
+     */
+    private CommitList readCommitList(FileHandle commitFile)
+            throws IOException {
+        CommitList commitList = new CommitList();
         try (
-            InputStream bais = new ByteArrayInputStream(baos.toByteArray());
-            OutputStream os = getBufferedOutputStream(ipuzFile)
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(
+                    getInputStream(commitFile), COMMIT_CHARSET
+                )
+            )
         ) {
-            StreamUtils.copyStream(bais, os);
-            return true;
+            String line = reader.readLine();
+            if (COMMIT_END.equals(line)) {
+                commitList.inSlots = false;
+                while ((line = reader.readLine()) != null) {
+                    if (COMMIT_END.equals(line) || !addSlotFile(commitList, line))
+                        break;
+                }
+                return commitList;
+            }
+
+            commitList.inSlots = true;
+            while (line != null) {
+                if (COMMIT_END.equals(line))
+                    return commitList;
+                if (!addSlotFile(commitList, line))
+                    return null;
+                line = reader.readLine();
+            }
         }
+        return null;
     }
 
     /**
-     * Load .puz/.forkyz file data into the loadedPuzMetas array
+     * Add a slot and file uri line to the list
+     *
+     * @return false if the line is not a pair
+     */
+    private boolean addSlotFile(CommitList commitList, String line) {
+        String[] uris = line.split("\t");
+        if (uris.length != 2)
+            return false;
+        commitList.slotFiles.put(Uri.parse(uris[0]), Uri.parse(uris[1]));
+        return true;
+    }
+
+    /**
+     * Finish or drop saves cut short by a crash
+     *
+     * Saves with a commit file are finished, slots of any others are
+     * deleted. On storage that can't replace files, slots still in use
+     * are kept. Each puzzle's leftovers are dealt with under its write
+     * lock, so saves in progress are left alone. A new puzzle's files
+     * may not exist yet, its leftovers are dealt with holding the
+     * monitor since new puzzles are saved holding it.
+     *
+     * @param files the files of a directory
+     * @param recovered the uris of main files of finished saves are
+     * added to this set
+     * @return true if any files were changed
+     */
+    private boolean recoverCommits(
+        Iterable<FileHandle> files, Set<Uri> recovered
+    ) {
+        Map<String, FileHandle> filesByName = new HashMap<>();
+        Map<String, List<FileHandle>> leftovers = new HashMap<>();
+        for (FileHandle f : files) {
+            String fileName = getName(f);
+            filesByName.put(fileName, f);
+            String mainName = getCommitMainFileName(fileName);
+            if (mainName != null) {
+                List<FileHandle> mainLeftovers = leftovers.get(mainName);
+                if (mainLeftovers == null) {
+                    mainLeftovers = new ArrayList<>();
+                    leftovers.put(mainName, mainLeftovers);
+                }
+                mainLeftovers.add(f);
+            }
+        }
+
+        boolean changed = false;
+        for (Map.Entry<String, List<FileHandle>> entry : leftovers.entrySet()) {
+            FileHandle mainFile = filesByName.get(entry.getKey());
+            try {
+                if (mainFile == null) {
+                    synchronized (this) {
+                        changed |= recoverCommit(
+                            null, entry.getValue(), recovered
+                        );
+                    }
+                } else {
+                    Uri uri = getUri(mainFile);
+                    Lock lock = fileLocks.getWriteLock(uri);
+                    lock.lock();
+                    try {
+                        changed |= recoverCommit(
+                            uri, entry.getValue(), recovered
+                        );
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            } catch (IOException e) {
+                // tried again next listing
+                changed = true;
+                LOGGER.severe(
+                    "Could not recover save of " + entry.getKey() + ": " + e
+                );
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Finish or drop the puzzle's saves cut short by a crash
+     *
+     * Else their slot files would be in the way of new ones. Looked for
+     * once per puzzle, or not at all if its directory was listed since
+     * starting, since any there were dealt with then. Only the puzzle's
+     * own files are touched, so no other puzzle's lock is needed. Called
+     * before starting a change to the directory, so a listing made here
+     * can be indexed.
+     *
+     * Caller holds the puzzle's write lock, or the monitor if a new
+     * puzzle.
+     *
+     * @param mainName the name of the puzzle's main file
+     * @param mainUri the puzzle's main file, or null if a new puzzle
+     */
+    private void recoverLeftovers(
+        DirHandle dirHandle, String mainName, Uri mainUri
+    ) throws IOException {
+        Uri dirUri = getUri(dirHandle);
+        synchronized (recoveredUris) {
+            if (recoveredUris.contains(dirUri)
+                    || recoveredUris.contains(mainUri))
+                return;
+        }
+
+        List<FileHandle> leftovers = new ArrayList<>();
+        boolean othersLeftovers = false;
+        for (FileHandle f : getDirFiles(dirHandle)) {
+            String leftoverOf = getCommitMainFileName(getName(f));
+            if (mainName.equals(leftoverOf))
+                leftovers.add(f);
+            else if (leftoverOf != null)
+                othersLeftovers = true;
+        }
+        if (!leftovers.isEmpty())
+            recoverCommit(mainUri, leftovers, new HashSet<>());
+
+        if (!othersLeftovers)
+            markRecovered(dirUri);
+        else if (mainUri != null)
+            markRecovered(mainUri);
+    }
+
+    private boolean isRecovered(PuzHandle ph) {
+        synchronized (recoveredUris) {
+            return recoveredUris.contains(getUri(ph.getDirHandle()))
+                || recoveredUris.contains(getUri(ph));
+        }
+    }
+
+    private void markRecovered(Uri uri) {
+        synchronized (recoveredUris) {
+            recoveredUris.add(uri);
+        }
+    }
+
+    /**
+     * Have the puzzle's leftovers looked for again when next used
+     */
+    private void forgetRecovered(Uri dirUri, Uri mainUri) {
+        synchronized (recoveredUris) {
+            recoveredUris.remove(dirUri);
+            recoveredUris.remove(mainUri);
+        }
+    }
+
+    /**
+     * Finish or drop a save from its leftover files
+     *
+     * On storage that can't replace files, save slots still in use are
+     * kept and become known. Caller holds the puzzle's write lock.
+     *
+     * @param mainUri the puzzle's main file, null if it doesn't exist
+     * @param leftovers the slot and commit files of the puzzle
+     * @param recovered mainUri is added to this if a save was finished
+     * @return true if any files were changed
+     */
+    private boolean recoverCommit(
+        Uri mainUri, List<FileHandle> leftovers, Set<Uri> recovered
+    ) throws IOException {
+        if (!canReplaceFile() && mainUri != null) {
+            // known slots are up to date, saves go through them
+            SaveSlots slots = getSaveSlots(mainUri);
+            for (FileHandle f : leftovers) {
+                if (slots == null && getName(f).endsWith(FILE_EXT_COMMIT))
+                    slots = readSaveSlots(f);
+            }
+            if (slots != null) {
+                putSaveSlots(mainUri, slots);
+                return deleteUnusedSlots(slots, leftovers);
+            }
+        }
+
+        boolean finished = false;
+
+        for (FileHandle f : leftovers) {
+            if (!getName(f).endsWith(FILE_EXT_COMMIT) || !exists(f))
+                continue;
+
+            CommitList commitList = readCommitList(f);
+            if (commitList != null && commitList.inSlots) {
+                for (Map.Entry<Uri, Uri> entry
+                        : commitList.slotFiles.entrySet()) {
+                    FileHandle slot = getFileHandle(entry.getKey());
+                    // may have been put in place before the crash
+                    if (slot == null || !exists(slot))
+                        continue;
+                    FileHandle file = getFileHandle(entry.getValue());
+                    if (file == null) {
+                        throw new IOException(
+                            "Missing file " + entry.getValue()
+                        );
+                    }
+                    installSlot(slot, file, os -> {
+                        try (InputStream is = getInputStream(slot)) {
+                            StreamUtils.copyStream(is, os);
+                        }
+                    });
+                }
+                finished = true;
+            }
+            delete(f);
+        }
+
+        for (FileHandle f : leftovers) {
+            if (exists(f))
+                delete(f);
+        }
+
+        if (finished && mainUri != null)
+            recovered.add(mainUri);
+
+        return true;
+    }
+
+    /**
+     * Delete leftovers that are not the commit file or a slot in use
+     *
+     * @return true if any were deleted
+     */
+    private boolean deleteUnusedSlots(
+        SaveSlots slots, List<FileHandle> leftovers
+    ) {
+        Set<Uri> used = new HashSet<>();
+        used.add(getUri(slots.commitFile));
+        for (FileHandle slot : slots.slots)
+            used.add(getUri(slot));
+
+        boolean deleted = false;
+        for (FileHandle f : leftovers) {
+            if (!used.contains(getUri(f))) {
+                delete(f);
+                deleted = true;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * The name of the main file a slot or commit file belongs to
+     *
+     * @return null if neither a slot nor a commit file
+     */
+    private String getCommitMainFileName(String fileName) {
+        if (fileName.endsWith(FILE_EXT_COMMIT)) {
+            return fileName.substring(
+                0, fileName.length() - FILE_EXT_COMMIT.length()
+            );
+        }
+
+        int slotStart = fileName.lastIndexOf(FILE_EXT_SLOT);
+        if (slotStart <= 0)
+            return null;
+        String slotNum = fileName.substring(
+            slotStart + FILE_EXT_SLOT.length()
+        );
+        if (slotNum.isEmpty())
+            return null;
+        for (int i = 0; i < slotNum.length(); i++) {
+            if (!Character.isDigit(slotNum.charAt(i)))
+                return null;
+        }
+        return fileName.substring(0, slotStart);
+    }
+
+    /**
+     * Add handles for .puz/.forkyz files to the handles list
      *
      * @param dirHandle the directory the files are in
      * @param files the list of files in the directory
-     * @param cachedMetas cached meta data for the file URIs
-     * @param loadedPuzMetas the list into which to store the metas
+     * @param journalFiles journal files in the directory by name
+     * @param handles the list into which to store the handles
      */
-    private void loadMetasFromPuzFiles(
+    private void addPuzHandles(
         DirHandle dirHandle,
         Iterable<FileHandle> files,
-        Map<Uri, MetaCache.MetaRecord> cachedMetas,
-        List<PuzMetaFile> loadedPuzMetas
+        Map<String, FileHandle> journalFiles,
+        List<PuzHandle> handles
     ) {
         // Load files into data structures to avoid repeated interaction
         // with filesystem (which is good for content resolver)
@@ -597,58 +1899,362 @@ public abstract class FileHandler {
             }
 
             PuzHandle ph = new PuzHandle.Puz(dirHandle, puzFile, metaFile);
-
-            PuzMetaFile pm = getPuzMetaFile(ph, cachedMetas);
-            if (pm != null)
-                loadedPuzMetas.add(pm);
+            attachJournal(ph, journalFiles);
+            handles.add(ph);
         }
     }
 
     /**
-     * Load .puz/.forkyz file data into the loadedPuzMetas array
+     * Add handles for .ipuz files to the handles list
      *
      * @param dirHandle the directory the files are in
      * @param files the list of files in the directory
-     * @param cachedMetas cached meta data for the file URIs
-     * @param loadedPuzMetas the list into which to store the metas
+     * @param journalFiles journal files in the directory by name
+     * @param handles the list into which to store the handles
      */
-    private void loadMetasFromIPuzFiles(
+    private void addIPuzHandles(
         DirHandle dirHandle,
         Iterable<FileHandle> files,
-        Map<Uri, MetaCache.MetaRecord> cachedMetas,
-        List<PuzMetaFile> loadedPuzMetas
+        Map<String, FileHandle> journalFiles,
+        List<PuzHandle> handles
     ) {
         for (FileHandle f : files) {
             String fileName = getName(f);
             if (fileName.endsWith(FILE_EXT_IPUZ)) {
                 PuzHandle ph = new PuzHandle.IPuz(dirHandle, f);
-                PuzMetaFile pm = getPuzMetaFile(ph, cachedMetas);
-                if (pm != null)
-                    loadedPuzMetas.add(pm);
+                attachJournal(ph, journalFiles);
+                handles.add(ph);
             }
         }
     }
 
     /**
-     * Get the PuzMetaFile from the handle
+     * Map journal file names to their files
+     */
+    private Map<String, FileHandle> getJournalFiles(
+        Iterable<FileHandle> files
+    ) {
+        Map<String, FileHandle> journalFiles = new HashMap<>();
+        for (FileHandle f : files) {
+            String fileName = getName(f);
+            if (fileName.endsWith(FILE_EXT_JOURNAL))
+                journalFiles.put(fileName, f);
+        }
+        return journalFiles;
+    }
+
+    /**
+     * Set the journal file of the handle if it has one
+     */
+    private void attachJournal(
+        PuzHandle ph, Map<String, FileHandle> journalFiles
+    ) {
+        String journalName = getJournalFileName(ph.getMainFileHandle());
+        ph.setJournalFileHandle(journalFiles.get(journalName));
+    }
+
+    /**
+     * The files of the directory, from the index if it is current
+     */
+    private Iterable<FileHandle> getDirFiles(DirHandle dirHandle) {
+        long stamp = getDirStamp(dirHandle);
+        Iterable<FileHandle> files = getIndexedFiles(dirHandle, stamp);
+        return (files == null) ? listAndIndexFiles(dirHandle, stamp) : files;
+    }
+
+    /**
+     * The indexed files of the directory
      *
-     * Uses cache if possible, else loads data from file
+     * @param stamp the directory's stamp now
+     * @return null if the index is not current
      */
-    private PuzMetaFile getPuzMetaFile(
-        PuzHandle ph, Map<Uri, MetaCache.MetaRecord> cachedMetas
+    private List<FileHandle> getIndexedFiles(DirHandle dirHandle, long stamp) {
+        List<DirIndex.IndexedFile> indexedFiles
+            = dirIndex.getFiles(dirHandle, stamp);
+        if (indexedFiles == null)
+            return null;
+
+        List<FileHandle> files = new ArrayList<>(indexedFiles.size());
+        for (DirIndex.IndexedFile f : indexedFiles) {
+            files.add(getFileHandle(f.fileUri, f.name, f.lastModified));
+        }
+        return files;
+    }
+
+    /**
+     * List the directory and index its files
+     *
+     * @param stamp the directory's stamp, read before listing
+     */
+    private List<FileHandle> listAndIndexFiles(
+        DirHandle dirHandle, long stamp
     ) {
-        Uri puzFileUri = getUri(ph);
-        MetaCache.MetaRecord metaRecord = cachedMetas.get(puzFileUri);
+        long listedAt = System.currentTimeMillis();
+        List<FileHandle> files = new ArrayList<>();
+        for (FileHandle f : listFiles(dirHandle))
+            files.add(f);
 
-        if (metaRecord != null) {
-            return new PuzMetaFile(ph, metaRecord);
-        } else {
-            try {
-                return loadPuzMetaFile(ph);
-            } catch (IOException e) {
-                LOGGER.warning("Could not load puz meta for " + ph +": " + e);
-                return new PuzMetaFile(ph, null);
+        if (stamp > 0)
+            dirIndex.putFiles(dirHandle, stamp, listedAt, files);
+
+        return files;
+    }
+
+    /**
+     * Update the directory index after the file handler changed files
+     *
+     * Ends the change started with dirIndex.startChange. The files are
+     * looked up again to record them as they are now, or as removed if
+     * they no longer exist.
+     *
+     * @param stamp the directory's stamp from startChange
+     * @param files the files that may have been created, changed,
+     * deleted or moved away, or null if the change failed part way
+     */
+    private void indexChanges(
+        DirHandle dirHandle, long stamp, Collection<FileHandle> files
+    ) {
+        if (stamp <= 0 || files == null) {
+            dirIndex.endChange(dirHandle, stamp, 0, null, null);
+            return;
+        }
+
+        List<FileHandle> current = new ArrayList<>();
+        List<Uri> removed = new ArrayList<>();
+        for (FileHandle f : files) {
+            FileHandle now = exists(f) ? getFileHandle(getUri(f)) : null;
+            if (now == null)
+                removed.add(getUri(f));
+            else
+                current.add(now);
+        }
+
+        dirIndex.endChange(
+            dirHandle, stamp, getDirStamp(dirHandle), current, removed
+        );
+    }
+
+    /**
+     * The main, meta and journal files of the puzzle that it has, and
+     * its save slots if known
+     */
+    private List<FileHandle> getFileHandles(PuzHandle ph) {
+        List<FileHandle> files = new ArrayList<>();
+        files.add(ph.getMainFileHandle());
+
+        FileHandle metaHandle
+            = ph.accept(new PuzHandle.Visitor<FileHandle>() {
+                public FileHandle visit(PuzHandle.Puz puzHandle) {
+                    return puzHandle.getMetaFileHandle();
+                }
+                public FileHandle visit(PuzHandle.IPuz ipuzHandle) {
+                    return null;
+                }
+            });
+        if (metaHandle != null)
+            files.add(metaHandle);
+
+        FileHandle journalHandle = ph.getJournalFileHandle();
+        if (journalHandle != null)
+            files.add(journalHandle);
+
+        SaveSlots slots = getSaveSlots(getUri(ph));
+        if (slots != null) {
+            files.add(slots.commitFile);
+            files.addAll(slots.slots);
+        }
+
+        return files;
+    }
+
+    /**
+     * Read meta data of files into loadedPuzMetas and cache it
+     *
+     * Files are read on a small pool of threads, each holding only the
+     * read lock of the file it reads. Results are cached and passed to
+     * onLoaded in batches on the calling thread.
+     *
+     * @param handles the files to read
+     * @param loadedPuzMetas the list into which to store the metas
+     * @param onLoaded if not null, given each batch
+     * @return false if interrupted before all were read
+     */
+    private boolean loadPuzMetaFiles(
+        List<PuzHandle> handles,
+        List<PuzMetaFile> loadedPuzMetas,
+        Consumer<List<PuzMetaFile>> onLoaded
+    ) {
+        if (handles.isEmpty())
+            return true;
+
+        int numThreads = Math.min(
+            handles.size(),
+            Math.min(
+                MAX_META_LOAD_THREADS,
+                Runtime.getRuntime().availableProcessors()
+            )
+        );
+        ExecutorService loadExecutor
+            = Executors.newFixedThreadPool(numThreads);
+        CompletionService<PuzMetaFile> loads
+            = new ExecutorCompletionService<>(loadExecutor);
+
+        for (PuzHandle ph : handles)
+            loads.submit(() -> loadUncachedPuzMetaFile(ph));
+
+        List<PuzMetaFile> batch = new ArrayList<>();
+        long lastBatch = System.currentTimeMillis();
+
+        try {
+            for (int i = 0; i < handles.size(); i++) {
+                PuzMetaFile pm = getResult(loads);
+                if (pm != null)
+                    batch.add(pm);
+
+                long now = System.currentTimeMillis();
+                boolean isLast = (i == handles.size() - 1);
+                if (
+                    isLast
+                    || batch.size() >= META_BATCH_SIZE
+                    || now - lastBatch >= META_BATCH_MILLIS
+                ) {
+                    commitBatch(batch, loadedPuzMetas, onLoaded);
+                    batch.clear();
+                    lastBatch = now;
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            loadExecutor.shutdownNow();
+        }
+
+        return true;
+    }
+
+    /**
+     * Next read meta data to finish
+     *
+     * Errors reading the file are dealt with in the task, anything else
+     * is rethrown.
+     */
+    private PuzMetaFile getResult(CompletionService<PuzMetaFile> loads)
+            throws InterruptedException {
+        try {
+            return loads.take().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Cache the meta data in one transaction and pass it on
+     */
+    private void commitBatch(
+        List<PuzMetaFile> batch,
+        List<PuzMetaFile> loadedPuzMetas,
+        Consumer<List<PuzMetaFile>> onLoaded
+    ) {
+        if (batch.isEmpty())
+            return;
+
+        List<MetaCache.MetaRecord> records = new ArrayList<>();
+        for (PuzMetaFile pm : batch) {
+            if (pm.meta != null)
+                records.add(pm.meta);
+        }
+        metaCache.addRecords(records);
+
+        loadedPuzMetas.addAll(batch);
+        if (onLoaded != null)
+            onLoaded.accept(new ArrayList<>(batch));
+    }
+
+    /**
+     * Read meta data for a file not in the cache, without caching it
+     *
+     * Takes the file's read lock, so files can be read at the same time.
+     *
+     * @return meta with null record if it could not be read, or null if
+     * the file is not a puzzle
+     */
+    private PuzMetaFile loadUncachedPuzMetaFile(PuzHandle ph) {
+        Lock lock = fileLocks.getReadLock(getUri(ph));
+        lock.lock();
+        try {
+            MetaCache.MetaRecord metaRecord = readMetaRecord(ph);
+            return (metaRecord == null)
+                ? null
+                : new PuzMetaFile(ph, metaRecord);
+        } catch (IOException e) {
+            LOGGER.warning("Could not load puz meta for " + ph +": " + e);
+            return new PuzMetaFile(ph, null);
+        } finally {
+            lock.unlock();
         }
     }
+
+    /**
+     * Read meta data record for the file, not yet cached
+     *
+     * Does a light read of the meta data if possible, else loads the
+     * puzzle. Caller must hold the file's read or write lock.
+     *
+     * @return null if the puzzle could not be loaded
+     */
+    private MetaCache.MetaRecord readMetaRecord(PuzHandle ph)
+            throws IOException {
+        // the main file is out of date if there is a journal
+        PuzzleMeta meta = null;
+        if (ph.getJournalFileHandle() == null)
+            meta = loadMeta(ph);
+
+        if (meta != null)
+            return metaCache.newRecord(ph, meta);
+
+        // meta not available from a light read, do it the long way
+        Puzzle puz = readPuzzle(ph, false);
+        return (puz == null) ? null : metaCache.newRecord(ph, puz);
+    }
+
+    /**
+     * A puzzle's files and the slots they alternate with
+     *
+     * Files and slots are in the same order.
+     */
+    private static class SaveSlots {
+        final FileHandle commitFile;
+        final List<FileHandle> files;
+        final List<FileHandle> slots;
+        /** whether the slots have the current contents */
+        boolean inSlots;
+
+        SaveSlots(
+            FileHandle commitFile,
+            List<FileHandle> files,
+            List<FileHandle> slots,
+            boolean inSlots
+        ) {
+            this.commitFile = commitFile;
+            this.files = files;
+            this.slots = slots;
+            this.inSlots = inSlots;
+        }
+    }
+
+    /**
+     * What a commit file says
+     */
+    private static class CommitList {
+        /** slot uri to file uri, in the order written */
+        final Map<Uri, Uri> slotFiles = new LinkedHashMap<>();
+        /** whether the slots have the current contents */
+        boolean inSlots;
+    }
 }
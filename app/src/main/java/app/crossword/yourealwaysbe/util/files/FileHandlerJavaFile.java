@@ -13,6 +13,8 @@ import java.util.logging.Logger;
 import android.content.Context;
 import android.net.Uri;
 
+import app.crossword.yourealwaysbe.versions.AndroidVersionUtils;
+
 /**
  * Base implementation of java.io.File-based file access from a given
  * root directory.
@@ -50,6 +52,13 @@ public abstract class FileHandlerJavaFile extends FileHandler {
         return new FileHandle(new File(uri.getPath()));
     }
 
+    @Override
+    protected FileHandle getFileHandle(
+        Uri uri, String name, long lastModified
+    ) {
+        return getFileHandle(uri);
+    }
+
     @Override
     protected boolean exists(DirHandle dir) {
         return dir.getFile().exists();
@@ -100,6 +109,11 @@ public abstract class FileHandlerJavaFile extends FileHandler {
         return file.getFile().lastModified();
     }
 
+    @Override
+    protected long getSize(FileHandle file) {
+        return file.getFile().length();
+    }
+
     @Override
     protected FileHandle createFileHandle(
         DirHandle dir, String fileName, String mimeType
@@ -125,12 +139,47 @@ public abstract class FileHandlerJavaFile extends FileHandler {
         file.renameTo(new File(directory, file.getName()));
     }
 
+    /**
+     * Rename over the target, which replaces it in one step
+     *
+     * The rename is only lasting once the directory is synced, else a
+     * crash could bring back the old target after the save returned.
+     */
+    @Override
+    protected boolean replaceFile(FileHandle src, FileHandle target) {
+        File targetFile = target.getFile();
+        if (!src.getFile().renameTo(targetFile))
+            return false;
+        AndroidVersionUtils.Factory.getInstance()
+            .syncDirectory(targetFile.getParentFile());
+        return true;
+    }
+
+    @Override
+    protected boolean canReplaceFile() {
+        return true;
+    }
+
+    /**
+     * Directory times change when files are added, removed or renamed
+     */
+    @Override
+    protected long getDirStamp(DirHandle dir) {
+        return dir.getFile().lastModified();
+    }
+
     @Override
     protected OutputStream getOutputStream(FileHandle fileHandle)
             throws IOException {
         return new FileOutputStream(fileHandle.getFile());
     }
 
+    @Override
+    protected OutputStream getAppendOutputStream(FileHandle fileHandle)
+            throws IOException {
+        return new FileOutputStream(fileHandle.getFile(), true);
+    }
+
     @Override
     protected InputStream getInputStream(FileHandle fileHandle)
             throws IOException {
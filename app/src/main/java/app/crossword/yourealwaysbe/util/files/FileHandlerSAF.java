@@ -33,6 +33,11 @@ public class FileHandlerSAF extends FileHandler {
     private static final String SAF_ARCHIVE_URI_PREF
         = "safArchiveFolderUri";
 
+    // provider of files on the device, its directory times change when
+    // their files do
+    private static final String EXTERNAL_STORAGE_AUTHORITY
+        = "com.android.externalstorage.documents";
+
     private static final String ARCHIVE_NAME = "archive";
     private static final String TEMP_NAME = "temp";
 
@@ -43,14 +48,21 @@ public class FileHandlerSAF extends FileHandler {
     public static class Meta {
         private String name;
         private long lastModified;
+        private long size;
 
         public Meta(String name, long lastModified) {
+            this(name, lastModified, 0);
+        }
+
+        public Meta(String name, long lastModified, long size) {
             this.name = name;
             this.lastModified = lastModified;
+            this.size = size;
         }
 
         public String getName() { return name; }
         public long getLastModified() { return lastModified; }
+        public long getSize() { return size; }
     }
 
     public static boolean isSAFSupported() {
@@ -99,6 +111,13 @@ public class FileHandlerSAF extends FileHandler {
             return null;
     }
 
+    @Override
+    protected FileHandle getFileHandle(
+        Uri uri, String name, long lastModified
+    ) {
+        return new FileHandle(uri, new Meta(name, lastModified));
+    }
+
     @Override
     protected boolean exists(DirHandle dir) {
         return exists(getContentResolver(), dir.getUri());
@@ -132,7 +151,8 @@ public class FileHandlerSAF extends FileHandler {
                     Document.COLUMN_DOCUMENT_ID,
                     Document.COLUMN_DISPLAY_NAME,
                     Document.COLUMN_LAST_MODIFIED,
-                    Document.COLUMN_MIME_TYPE
+                    Document.COLUMN_MIME_TYPE,
+                    Document.COLUMN_SIZE
                 },
                 null, null, null
             )
@@ -142,13 +162,16 @@ public class FileHandlerSAF extends FileHandler {
                 String name = cursor.getString(1);
                 long modified = cursor.getLong(2);
                 String mimeType = cursor.getString(3);
+                long size = cursor.getLong(4);
 
                 if (!Document.MIME_TYPE_DIR.equals(mimeType)) {
                     Uri uri = DocumentsContract.buildDocumentUriUsingTree(
                         dirUri, id
                     );
 
-                    files.add(new FileHandle(uri, new Meta(name, modified)));
+                    files.add(
+                        new FileHandle(uri, new Meta(name, modified, size))
+                    );
                 }
             }
         }
@@ -172,6 +195,38 @@ public class FileHandlerSAF extends FileHandler {
         return file.getSAFMeta().getLastModified();
     }
 
+    @Override
+    protected long getSize(FileHandle file) {
+        return file.getSAFMeta().getSize();
+    }
+
+    /**
+     * Directory time if known to change with its files, else 0
+     *
+     * Only trusted from the device storage provider, others may not
+     * update it.
+     */
+    @Override
+    protected long getDirStamp(DirHandle dir) {
+        Uri uri = dir.getUri();
+        if (!EXTERNAL_STORAGE_AUTHORITY.equals(uri.getAuthority()))
+            return 0;
+
+        try (
+            Cursor c = getContentResolver().query(
+                uri,
+                new String[] { Document.COLUMN_LAST_MODIFIED },
+                null, null, null
+            )
+        ) {
+            if (c != null && c.moveToFirst() && !c.isNull(0))
+                return c.getLong(0);
+        } catch (IllegalArgumentException e) {
+            // directory gone, list it to find out
+        }
+        return 0;
+    }
+
     @Override
     protected void deleteUnsync(FileHandle fileHandle) {
         try {
@@ -225,6 +280,19 @@ public class FileHandlerSAF extends FileHandler {
         }
     }
 
+    @Override
+    protected OutputStream getAppendOutputStream(FileHandle fileHandle)
+        throws IOException {
+        try {
+            return getContentResolver().openOutputStream(
+                fileHandle.getUri(), "wa"
+            );
+        } catch (IllegalArgumentException e) {
+            // happens when e.g. file was deleted, so consider as IO
+            throw new IOException(e);
+        }
+    }
+
     @Override
     protected InputStream getInputStream(FileHandle fileHandle)
         throws IOException {
@@ -470,7 +538,8 @@ public class FileHandlerSAF extends FileHandler {
                 uri,
                 new String[] {
                     Document.COLUMN_DISPLAY_NAME,
-                    Document.COLUMN_LAST_MODIFIED
+                    Document.COLUMN_LAST_MODIFIED,
+                    Document.COLUMN_SIZE
                 },
                 null, null, null
             )
@@ -480,7 +549,8 @@ public class FileHandlerSAF extends FileHandler {
                     c.getString(0),
                     // avoid exception crash if last modified is not known
                     // e.g. when opening firefox download urls
-                    getLongColumnWithDefault(c, 1, System.currentTimeMillis())
+                    getLongColumnWithDefault(c, 1, System.currentTimeMillis()),
+                    getLongColumnWithDefault(c, 2, 0)
                 );
             } else {
                 return null;
@@ -492,7 +562,7 @@ public class FileHandlerSAF extends FileHandler {
         Cursor c, int columnIndex, long defaultValue
     ) {
         try {
-            return c.getLong(1);
+            return c.getLong(columnIndex);
         } catch (Throwable e) {
             return defaultValue;
         }
@@ -0,0 +1,41 @@
+package app.crossword.yourealwaysbe.util.files;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import android.net.Uri;
+
+/**
+ * Read/write locks for puzzle files by URI
+ *
+ * A fixed set of locks handed out by hash of the URI, so files need no
+ * lock objects of their own and unrelated files rarely share one. Any
+ * number of readers of a file, or one writer. Never hold two at once:
+ * two files may share a lock.
+ *
+ * Locks are reentrant, and a writer may also take the read lock, but a
+ * reader cannot upgrade to writing.
+ */
+class FileLocks {
+    private static final int NUM_STRIPES = 32;
+
+    private final ReadWriteLock[] locks = new ReadWriteLock[NUM_STRIPES];
+
+    public FileLocks() {
+        for (int i = 0; i < NUM_STRIPES; i++)
+            locks[i] = new ReentrantReadWriteLock();
+    }
+
+    public Lock getReadLock(Uri uri) {
+        return getLock(uri).readLock();
+    }
+
+    public Lock getWriteLock(Uri uri) {
+        return getLock(uri).writeLock();
+    }
+
+    private ReadWriteLock getLock(Uri uri) {
+        return locks[(uri.hashCode() & 0x7fffffff) % NUM_STRIPES];
+    }
+}
@@ -30,6 +30,7 @@ import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import app.crossword.yourealwaysbe.puz.Puzzle;
+import app.crossword.yourealwaysbe.puz.PuzzleMeta;
 
 public class MetaCache {
 
@@ -135,7 +136,14 @@ public class MetaCache {
         }
     }
 
-    @Database(entities = {CachedMeta.class}, version = 2)
+    @Database(
+        entities = {
+            CachedMeta.class,
+            DirIndex.IndexedDir.class,
+            DirIndex.IndexedFile.class
+        },
+        version = 3
+    )
     public static abstract class CachedMetaDB extends RoomDatabase {
         private static CachedMetaDB instance = null;
 
@@ -154,17 +162,49 @@ public class MetaCache {
             }
         };
 
-        public static CachedMetaDB getInstance(Context applicationContext) {
+        /**
+         * Version 3 adds the directory index tables
+         */
+        private static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+            @Override
+            public void migrate(SupportSQLiteDatabase database) {
+                database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `indexedDir` ("
+                        + "`directoryUri` TEXT NOT NULL, "
+                        + "`stamp` INTEGER NOT NULL, "
+                        + "PRIMARY KEY(`directoryUri`))"
+                );
+                database.execSQL(
+                    "CREATE TABLE IF NOT EXISTS `indexedFile` ("
+                        + "`fileUri` TEXT NOT NULL, "
+                        + "`directoryUri` TEXT NOT NULL, "
+                        + "`name` TEXT NOT NULL, "
+                        + "`size` INTEGER NOT NULL, "
+                        + "`lastModified` INTEGER NOT NULL, "
+                        + "PRIMARY KEY(`fileUri`))"
+                );
+                database.execSQL(
+                    "CREATE INDEX IF NOT EXISTS "
+                        + "`index_indexedFile_directoryUri` "
+                        + "ON `indexedFile` (`directoryUri`)"
+                );
+            }
+        };
+
+        public static synchronized CachedMetaDB getInstance(
+            Context applicationContext
+        ) {
             if (instance == null) {
                 instance = Room.databaseBuilder(
                     applicationContext, CachedMetaDB.class, "meta-cache-db"
-                ).addMigrations(MIGRATION_l_2)
+                ).addMigrations(MIGRATION_l_2, MIGRATION_2_3)
                 .build();
             }
             return instance;
         }
 
         public abstract CachedMetaDao cachedMetaDao();
+        public abstract DirIndex.DirIndexDao dirIndexDao();
     }
 
     public class MetaRecord {
@@ -218,24 +258,31 @@ public class MetaCache {
      * Cache meta for a file URI, returns new record
      */
     public MetaRecord addRecord(PuzHandle puzHandle, Puzzle puz) {
-        CachedMeta cm = new CachedMeta();
-        cm.mainFileUri = fileHandler.getUri(puzHandle.getMainFileHandle());
+        MetaRecord record = newRecord(puzHandle, puz);
+        getDao().insertAll(record.dbRow);
+        return record;
+    }
 
-        FileHandle metaHandle
-            = puzHandle.accept(new PuzHandle.Visitor<FileHandle>() {
-                public FileHandle visit(PuzHandle.Puz puzPH) {
-                    return puzPH.getMetaFileHandle();
-                }
-                public FileHandle visit(PuzHandle.IPuz ipuzPH) {
-                    return null;
-                }
-            });
+    /**
+     * Cache records made with newRecord, in one transaction
+     */
+    public void addRecords(Collection<MetaRecord> records) {
+        if (records.isEmpty())
+            return;
 
-        cm.metaFileUri = (metaHandle == null)
-            ? null
-            : fileHandler.getUri(metaHandle);
+        CachedMeta[] rows = new CachedMeta[records.size()];
+        int i = 0;
+        for (MetaRecord record : records)
+            rows[i++] = record.dbRow;
 
-        cm.directoryUri = fileHandler.getUri(puzHandle.getDirHandle());
+        getDao().insertAll(rows);
+    }
+
+    /**
+     * Record of meta for a file URI, not cached until added
+     */
+    public MetaRecord newRecord(PuzHandle puzHandle, Puzzle puz) {
+        CachedMeta cm = newCachedMeta(puzHandle);
         cm.isUpdatable = puz.isUpdatable();
         cm.date = puz.getDate();
         cm.percentComplete = puz.getPercentComplete();
@@ -243,9 +290,22 @@ public class MetaCache {
         cm.source = puz.getSource();
         cm.title = puz.getTitle();
         cm.author = puz.getAuthor();
+        return new MetaRecord(cm);
+    }
 
-        getDao().insertAll(cm);
-
+    /**
+     * Record of meta read without loading the full puzzle, not cached
+     * until added
+     */
+    public MetaRecord newRecord(PuzHandle puzHandle, PuzzleMeta meta) {
+        CachedMeta cm = newCachedMeta(puzHandle);
+        cm.isUpdatable = meta.updatable;
+        cm.date = meta.date;
+        cm.percentComplete = meta.percentComplete;
+        cm.percentFilled = meta.percentFilled;
+        cm.source = meta.source;
+        cm.title = meta.title;
+        cm.author = meta.author;
         return new MetaRecord(cm);
     }
 
@@ -266,6 +326,32 @@ public class MetaCache {
         getDao().deleteOutside(dirUri, puzMetaFiles);
     }
 
+    /**
+     * New row with the file and directory URIs of the handle filled in
+     */
+    private CachedMeta newCachedMeta(PuzHandle puzHandle) {
+        CachedMeta cm = new CachedMeta();
+        cm.mainFileUri = fileHandler.getUri(puzHandle.getMainFileHandle());
+
+        FileHandle metaHandle
+            = puzHandle.accept(new PuzHandle.Visitor<FileHandle>() {
+                public FileHandle visit(PuzHandle.Puz puzPH) {
+                    return puzPH.getMetaFileHandle();
+                }
+                public FileHandle visit(PuzHandle.IPuz ipuzPH) {
+                    return null;
+                }
+            });
+
+        cm.metaFileUri = (metaHandle == null)
+            ? null
+            : fileHandler.getUri(metaHandle);
+
+        cm.directoryUri = fileHandler.getUri(puzHandle.getDirHandle());
+
+        return cm;
+    }
+
     private CachedMetaDao getDao() {
         return CachedMetaDB.getInstance(applicationContext).cachedMetaDao();
     }
@@ -6,6 +6,7 @@ import java.io.IOException;
 public abstract class PuzHandle {
     public DirHandle dirHandle;
     public FileHandle mainHandle;
+    private FileHandle journalHandle;
 
     private PuzHandle(
         DirHandle dirHandle, FileHandle mainHandle
@@ -17,6 +18,11 @@ public abstract class PuzHandle {
     public DirHandle getDirHandle() { return dirHandle; }
     public FileHandle getMainFileHandle() { return mainHandle; }
 
+    /**
+     * The play state journal file, or null if there isn't one
+     */
+    public FileHandle getJournalFileHandle() { return journalHandle; }
+
     /**
      * True if the objects refer to the same underlying puzzle file
      */
@@ -43,6 +49,11 @@ public abstract class PuzHandle {
         this.dirHandle = dirHandle;
     }
 
+    // deliberately package-level
+    void setJournalFileHandle(FileHandle journalHandle) {
+        this.journalHandle = journalHandle;
+    }
+
 
     static class Puz extends PuzHandle {
         private FileHandle metaHandle;
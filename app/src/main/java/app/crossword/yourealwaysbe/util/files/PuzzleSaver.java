@@ -0,0 +1,288 @@
+package app.crossword.yourealwaysbe.util.files;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import app.crossword.yourealwaysbe.io.PlayJournal;
+import app.crossword.yourealwaysbe.puz.PlayState;
+import app.crossword.yourealwaysbe.puz.Puzzle;
+
+/**
+ * Saves the puzzle being played in the background
+ *
+ * The UI thread only takes a PlayState of the puzzle, which is a quick
+ * copy. The state is put on a private copy of the puzzle and written
+ * with FileHandler.saveChanges on a background thread, so slow storage
+ * never holds up the UI.
+ *
+ * Save requests in quick succession are coalesced into one write of
+ * the latest state. Use saveNow when the puzzle is put away: it writes
+ * straight away and says when done, without waiting. Readers of the
+ * file that may run before then use waitForWrites.
+ *
+ * Methods other than getStats should be called from the UI thread,
+ * which is the thread that changes the puzzle. All savers share one
+ * write thread, so writes happen in the order they are asked for.
+ */
+public class PuzzleSaver {
+    private static final Logger LOGGER
+        = Logger.getLogger(PuzzleSaver.class.getCanonicalName());
+
+    /**
+     * How long to wait for more save requests before writing
+     */
+    private static final long COALESCE_MILLIS = 500;
+
+    /**
+     * Writes taking longer than this are logged
+     */
+    private static final long SLOW_WRITE_MILLIS = 200;
+
+    private static ScheduledExecutorService executorService
+        = Executors.newSingleThreadScheduledExecutor();
+
+    private final FileHandler fileHandler;
+    private final Puzzle puz;
+    private final PuzHandle puzHandle;
+
+    // only used on the write thread
+    private final Puzzle savedPuz;
+    private final PlayJournal journal;
+
+    // guarded by this
+    private PlayState pendingState;
+    private long pendingSinceNanos;
+    private boolean writeScheduled;
+    private Stats stats = new Stats();
+
+    /**
+     * Latency of saves so far
+     *
+     * Times in milliseconds. Snapshot times are time spent on the UI
+     * thread, write times are time spent writing the files, and latency
+     * is from the earliest request a write covers to the write being
+     * done.
+     */
+    public static class Stats {
+        private int numRequests;
+        private int numWrites;
+        private int numFailures;
+        private double totalSnapshotMillis;
+        private double maxSnapshotMillis;
+        private double totalWriteMillis;
+        private double maxWriteMillis;
+        private double maxLatencyMillis;
+
+        public int getNumRequests() { return numRequests; }
+        public int getNumWrites() { return numWrites; }
+        public int getNumFailures() { return numFailures; }
+        public double getMaxSnapshotMillis() { return maxSnapshotMillis; }
+        public double getMaxWriteMillis() { return maxWriteMillis; }
+        public double getMaxLatencyMillis() { return maxLatencyMillis; }
+
+        public double getMeanSnapshotMillis() {
+            return numRequests == 0 ? 0 : totalSnapshotMillis / numRequests;
+        }
+
+        public double getMeanWriteMillis() {
+            return numWrites == 0 ? 0 : totalWriteMillis / numWrites;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "%d requests, %d writes, %d failed, "
+                    + "snapshot mean %.2fms max %.2fms, "
+                    + "write mean %.1fms max %.1fms, "
+                    + "latency max %.1fms",
+                numRequests, numWrites, numFailures,
+                getMeanSnapshotMillis(), maxSnapshotMillis,
+                getMeanWriteMillis(), maxWriteMillis,
+                maxLatencyMillis
+            );
+        }
+
+        private Stats copy() {
+            Stats copy = new Stats();
+            copy.numRequests = numRequests;
+            copy.numWrites = numWrites;
+            copy.numFailures = numFailures;
+            copy.totalSnapshotMillis = totalSnapshotMillis;
+            copy.maxSnapshotMillis = maxSnapshotMillis;
+            copy.totalWriteMillis = totalWriteMillis;
+            copy.maxWriteMillis = maxWriteMillis;
+            copy.maxLatencyMillis = maxLatencyMillis;
+            return copy;
+        }
+    }
+
+    /**
+     * Save puz to puzHandle
+     *
+     * The puzzle as it is now is taken as already saved.
+     */
+    public PuzzleSaver(
+        FileHandler fileHandler, Puzzle puz, PuzHandle puzHandle
+    ) {
+        this.fileHandler = fileHandler;
+        this.puz = puz;
+        this.puzHandle = puzHandle;
+        this.savedPuz = puz.copyDefinition();
+        new PlayState(puz).applyTo(savedPuz);
+        this.journal = new PlayJournal(savedPuz);
+    }
+
+    /**
+     * Save the puzzle soon
+     *
+     * Returns straight away. Requests close together are written once.
+     */
+    public void save() {
+        boolean schedule;
+        synchronized (this) {
+            setPendingState(takeState());
+            schedule = !writeScheduled;
+            writeScheduled = true;
+        }
+
+        if (schedule) {
+            executorService.schedule(
+                this::writePending, COALESCE_MILLIS, TimeUnit.MILLISECONDS
+            );
+        }
+    }
+
+    /**
+     * Save the puzzle now without waiting for the write
+     *
+     * The write is queued behind any already asked for, rather than
+     * after the coalescing delay.
+     *
+     * @param onSaved run on the write thread when the write is done or
+     * has failed, may be null
+     */
+    public void saveNow(Runnable onSaved) {
+        synchronized (this) {
+            setPendingState(takeState());
+        }
+
+        executorService.execute(() -> {
+            try {
+                writePending();
+            } finally {
+                if (onSaved != null)
+                    onSaved.run();
+            }
+        });
+    }
+
+    /**
+     * Wait for the writes asked for so far, of all savers
+     *
+     * Blocks, so not for the UI thread. For reading a puzzle file that
+     * may still be being saved, e.g. when it is opened again.
+     */
+    public static void waitForWrites() {
+        try {
+            executorService.submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            // nothing to fail
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Copy of the save latency stats so far
+     */
+    public synchronized Stats getStats() {
+        return stats.copy();
+    }
+
+    /**
+     * Snapshot the play state, on the UI thread
+     */
+    private PlayState takeState() {
+        long start = System.nanoTime();
+        PlayState state = new PlayState(puz);
+        double snapshotMillis = millisSince(start);
+
+        stats.numRequests += 1;
+        stats.totalSnapshotMillis += snapshotMillis;
+        stats.maxSnapshotMillis
+            = Math.max(stats.maxSnapshotMillis, snapshotMillis);
+
+        return state;
+    }
+
+    /**
+     * Replace the pending state, caller holds the monitor
+     */
+    private void setPendingState(PlayState state) {
+        if (pendingState == null)
+            pendingSinceNanos = System.nanoTime();
+        pendingState = state;
+    }
+
+    /**
+     * Write the latest pending state, on the write thread
+     *
+     * Does nothing if an earlier call already wrote it.
+     */
+    private void writePending() {
+        PlayState state;
+        long sinceNanos;
+        synchronized (this) {
+            state = pendingState;
+            sinceNanos = pendingSinceNanos;
+            pendingState = null;
+            writeScheduled = false;
+        }
+
+        if (state == null)
+            return;
+
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            state.applyTo(savedPuz);
+            fileHandler.saveChanges(savedPuz, puzHandle, journal);
+        } catch (IOException e) {
+            LOGGER.severe(
+                "Error saving puzzle " + fileHandler.getUri(puzHandle)
+                    + ": " + e
+            );
+            failed = true;
+        }
+        double writeMillis = millisSince(start);
+        double latencyMillis = millisSince(sinceNanos);
+
+        synchronized (this) {
+            if (failed) {
+                stats.numFailures += 1;
+            } else {
+                stats.numWrites += 1;
+                stats.totalWriteMillis += writeMillis;
+                stats.maxWriteMillis
+                    = Math.max(stats.maxWriteMillis, writeMillis);
+            }
+            stats.maxLatencyMillis
+                = Math.max(stats.maxLatencyMillis, latencyMillis);
+        }
+
+        if (writeMillis > SLOW_WRITE_MILLIS) {
+            LOGGER.info(
+                "Slow save of " + fileHandler.getUri(puzHandle)
+                    + " took " + writeMillis + "ms, " + getStats()
+            );
+        }
+    }
+
+    private static double millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e6;
+    }
+}
@@ -0,0 +1,187 @@
+package app.crossword.yourealwaysbe.util.files;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.logging.Logger;
+
+import android.content.Context;
+import android.net.Uri;
+
+import app.crossword.yourealwaysbe.io.SnapshotIO;
+import app.crossword.yourealwaysbe.puz.Puzzle;
+
+/**
+ * Binary snapshots of loaded puzzles so they can be opened again
+ * without parsing
+ *
+ * Kept in the app cache directory, one file per puzzle file. Each
+ * snapshot is stamped with the puzzle file uri and a version string
+ * (modification times of the source files), and only returned if both
+ * match, so stale snapshots and hash collisions of file names are
+ * cache misses.
+ *
+ * The cache keeps itself within a number of snapshots and a total size,
+ * dropping the least recently used first. Loading a snapshot marks it
+ * used by touching its modification time. The system may also clear
+ * the directory at any time.
+ */
+class SnapshotCache {
+    private static final Logger LOGGER
+        = Logger.getLogger(SnapshotCache.class.getCanonicalName());
+
+    private static final String SNAPSHOT_DIR = "snapshots";
+    private static final String FILE_EXT_SNAPSHOT = ".snapshot";
+    private static final String FILE_EXT_TEMP = ".tmp";
+
+    private static final int MAX_SNAPSHOTS = 100;
+    private static final long MAX_TOTAL_BYTES = 16L * 1024L * 1024L;
+
+    private File snapshotDir;
+
+    public SnapshotCache(Context applicationContext) {
+        snapshotDir = new File(applicationContext.getCacheDir(), SNAPSHOT_DIR);
+    }
+
+    /**
+     * Load puzzle from snapshot
+     *
+     * @param uri the uri of the puzzle's main file
+     * @param version the version of the file the snapshot must be of
+     * @return puzzle, or null if there is no snapshot of that version
+     */
+    public Puzzle load(Uri uri, String version) {
+        File file = getSnapshotFile(uri);
+        long length = file.length();
+        if (length <= 0 || length > Integer.MAX_VALUE)
+            return null;
+
+        // one read of the whole thing, no buffering layers
+        byte[] data = new byte[(int) length];
+        try (
+            DataInputStream is = new DataInputStream(new FileInputStream(file))
+        ) {
+            is.readFully(data);
+        } catch (IOException e) {
+            LOGGER.info("Could not read snapshot for " + uri + ": " + e);
+            return null;
+        }
+
+        Puzzle puz = SnapshotIO.readSnapshot(data, getKey(uri, version));
+        if (puz != null)
+            file.setLastModified(System.currentTimeMillis());
+        return puz;
+    }
+
+    /**
+     * Save snapshot of puzzle
+     *
+     * Failure is logged and otherwise ignored, it's just a cache. The
+     * snapshot is written to a temporary file and renamed so a partly
+     * written snapshot is never read. Each save has its own temporary
+     * file since readers of the same puzzle may save at the same time.
+     *
+     * @param uri the uri of the puzzle's main file
+     * @param version the version of the file puz was loaded from
+     * @param puz the puzzle as loaded from the file
+     */
+    public void save(Uri uri, String version, Puzzle puz) {
+        snapshotDir.mkdirs();
+
+        File file = getSnapshotFile(uri);
+        File tempFile;
+        try {
+            tempFile = File.createTempFile(
+                file.getName(), FILE_EXT_TEMP, snapshotDir
+            );
+        } catch (IOException e) {
+            LOGGER.info("Could not write snapshot for " + uri + ": " + e);
+            return;
+        }
+
+        try (
+            OutputStream os = new BufferedOutputStream(
+                new FileOutputStream(tempFile)
+            )
+        ) {
+            SnapshotIO.writeSnapshot(puz, getKey(uri, version), os);
+        } catch (IOException e) {
+            LOGGER.info("Could not write snapshot for " + uri + ": " + e);
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(file)) {
+            LOGGER.info("Could not store snapshot for " + uri);
+            tempFile.delete();
+            return;
+        }
+
+        trim();
+    }
+
+    /**
+     * Remove any snapshot for the puzzle file
+     */
+    public void delete(Uri uri) {
+        getSnapshotFile(uri).delete();
+    }
+
+    /**
+     * Delete least recently used snapshots until within limits
+     */
+    private synchronized void trim() {
+        File[] files = snapshotDir.listFiles(
+            (dir, name) -> name.endsWith(FILE_EXT_SNAPSHOT)
+        );
+        if (files == null)
+            return;
+
+        long[] lastModified = new long[files.length];
+        long totalBytes = 0;
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+            totalBytes += files[i].length();
+            order[i] = i;
+        }
+
+        int numFiles = files.length;
+        if (numFiles <= MAX_SNAPSHOTS && totalBytes <= MAX_TOTAL_BYTES)
+            return;
+
+        // oldest first, times read once as they may change meanwhile
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i, Integer j) {
+                long diff = lastModified[i] - lastModified[j];
+                return (diff < 0) ? -1 : ((diff > 0) ? 1 : 0);
+            }
+        });
+        for (int i = 0; i < order.length; i++) {
+            if (numFiles <= MAX_SNAPSHOTS && totalBytes <= MAX_TOTAL_BYTES)
+                break;
+            File file = files[order[i]];
+            long length = file.length();
+            if (file.delete()) {
+                numFiles -= 1;
+                totalBytes -= length;
+            }
+        }
+    }
+
+    private File getSnapshotFile(Uri uri) {
+        String name = Integer.toHexString(uri.toString().hashCode());
+        return new File(snapshotDir, name + FILE_EXT_SNAPSHOT);
+    }
+
+    private static String getKey(Uri uri, String version) {
+        return uri + "|" + version;
+    }
+}
@@ -111,6 +111,13 @@ public interface AndroidVersionUtils {
         File directory, long minimumBytesFree
     );
 
+    /**
+     * Sync a directory's entries to storage, e.g. after a rename
+     *
+     * Does nothing if not possible on this version of Android.
+     */
+    void syncDirectory(File directory);
+
     boolean isSAFSupported();
 
     ActivityResultLauncher<Uri> registerForSAFUriResult(
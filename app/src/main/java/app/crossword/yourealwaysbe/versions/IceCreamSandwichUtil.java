@@ -200,6 +200,12 @@ public class IceCreamSandwichUtil implements AndroidVersionUtils {
         return available < minimumBytesFree;
     }
 
+    /**
+     * Directories can't be opened for syncing before Os.open
+     */
+    @Override
+    public void syncDirectory(File directory) { }
+
     @Override
     public boolean isSAFSupported() {
         return false;
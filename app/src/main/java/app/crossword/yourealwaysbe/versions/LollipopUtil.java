@@ -1,6 +1,9 @@
 package app.crossword.yourealwaysbe.versions;
 
+import java.io.File;
+import java.io.FileDescriptor;
 import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 import android.annotation.TargetApi;
 import android.app.Activity;
@@ -9,6 +12,9 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Build;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
 import androidx.activity.result.ActivityResultCallback;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts.OpenDocumentTree;
@@ -19,6 +25,8 @@ import app.crossword.yourealwaysbe.util.BackgroundDownloadManager;
 
 @TargetApi(Build.VERSION_CODES.LOLLIPOP)
 public class LollipopUtil extends KitKatUtil {
+    private static final Logger LOGGER
+        = Logger.getLogger(LollipopUtil.class.getCanonicalName());
 
     private static final String PREF_LEGACY_BACKGROUND_DOWNLOAD
         = "backgroundDownload";
@@ -44,6 +52,23 @@ public class LollipopUtil extends KitKatUtil {
         }
     }
 
+    @Override
+    public void syncDirectory(File directory) {
+        try {
+            FileDescriptor fd = Os.open(
+                directory.getPath(), OsConstants.O_RDONLY, 0
+            );
+            try {
+                Os.fsync(fd);
+            } finally {
+                Os.close(fd);
+            }
+        } catch (ErrnoException e) {
+            // not all file systems sync directories, do our best
+            LOGGER.info("Could not sync " + directory + ": " + e);
+        }
+    }
+
     @Override
     public void finishAndRemoveTask(Activity activity) {
         activity.finishAndRemoveTask();
@@ -950,8 +950,9 @@ public class PlayboardRenderer {
         boolean flagAcross = false;
         boolean flagDown = false;
 
-        for (ClueID cid : box.getIsPartOfClues()) {
-            if (box.isStartOf(cid) && puz.isFlagged(cid)) {
+        for (int i = 0; i < box.getNumIsPartOfClues(); i++) {
+            ClueID cid = box.getIsPartOfClueAt(i);
+            if (box.getCluePositionAt(i) == 0 && puz.isFlagged(cid)) {
                 if (isClueProbablyAcross(cid))
                     flagAcross = true;
                 else
@@ -1047,7 +1048,8 @@ public class PlayboardRenderer {
         String noteStringAcross = null;
         String noteStringDown = null;
 
-        for (ClueID cid : box.getIsPartOfClues()) {
+        for (int i = 0; i < box.getNumIsPartOfClues(); i++) {
+            ClueID cid = box.getIsPartOfClueAt(i);
             if (suppressNotesLists.contains(cid.getListName()))
                 continue;
 
@@ -1059,7 +1061,7 @@ public class PlayboardRenderer {
             if (scratch == null)
                 continue;
 
-            int pos = box.getCluePosition(cid);
+            int pos = box.getCluePositionAt(i);
             if (pos < 0 || pos >= scratch.length())
                 continue;
 
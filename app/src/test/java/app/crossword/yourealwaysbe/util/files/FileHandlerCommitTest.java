@@ -0,0 +1,266 @@
+package app.crossword.yourealwaysbe.util.files;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import app.crossword.yourealwaysbe.io.IPuzIO;
+import app.crossword.yourealwaysbe.puz.Puzzle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Saves cut short by a crash are finished or dropped when listed
+ *
+ * The crash is faked by leaving the slot and commit files a save
+ * writes before putting the new contents in place.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FileHandlerCommitTest {
+
+    private static final String NAME = "test";
+    private static final String MAIN_NAME = NAME + FileHandler.FILE_EXT_IPUZ;
+    private static final String SLOT_NAME = MAIN_NAME + ".slot0";
+    private static final String COMMIT_NAME = MAIN_NAME + ".commit";
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private FileHandler fileHandler;
+    private File crosswordsDir;
+    private PuzHandle puzHandle;
+
+    @Before
+    public void setUp() throws IOException {
+        fileHandler = new FileHandlerInternal(
+            RuntimeEnvironment.getApplication()
+        );
+        crosswordsDir = fileHandler.getCrosswordsDirectory().getFile();
+        puzHandle = fileHandler.saveNewPuzzle(makePuzzle('A'), NAME);
+        assertNotNull(puzHandle);
+    }
+
+    @Test
+    public void testSaveLeavesNoSlots() throws IOException {
+        assertFalse(new File(crosswordsDir, SLOT_NAME).exists());
+        assertFalse(new File(crosswordsDir, COMMIT_NAME).exists());
+    }
+
+    @Test
+    public void testCommittedFinished() throws IOException {
+        File slot = new File(crosswordsDir, SLOT_NAME);
+        writeSlot(slot, makePuzzle('B'));
+        writeCommit(slot, new File(crosswordsDir, MAIN_NAME));
+
+        assertEquals("B", listAndLoadResponse());
+        assertFalse(slot.exists());
+        assertFalse(new File(crosswordsDir, COMMIT_NAME).exists());
+    }
+
+    @Test
+    public void testUncommittedDropped() throws IOException {
+        File slot = new File(crosswordsDir, SLOT_NAME);
+        writeSlot(slot, makePuzzle('B'));
+
+        assertEquals("A", listAndLoadResponse());
+        assertFalse(slot.exists());
+    }
+
+    @Test
+    public void testPartCommitDropped() throws IOException {
+        File slot = new File(crosswordsDir, SLOT_NAME);
+        writeSlot(slot, makePuzzle('B'));
+        // no end line, cut short while writing the commit file
+        File commit = new File(crosswordsDir, COMMIT_NAME);
+        try (OutputStream os = new FileOutputStream(commit)) {
+            os.write(
+                (slot.toURI() + "\t").getBytes(CHARSET)
+            );
+        }
+
+        assertEquals("A", listAndLoadResponse());
+        assertFalse(slot.exists());
+        assertFalse(commit.exists());
+    }
+
+    @Test
+    public void testSaveAfterCrashBeforeListing() throws IOException {
+        File slot = new File(crosswordsDir, SLOT_NAME);
+        writeSlot(slot, makePuzzle('B'));
+
+        // as if started again, and the puzzle opened from a handle kept
+        // from before
+        fileHandler = new FileHandlerInternal(
+            RuntimeEnvironment.getApplication()
+        );
+        fileHandler.save(makePuzzle('C'), puzHandle);
+
+        assertFalse(slot.exists());
+        assertEquals("C", listAndLoadResponse());
+    }
+
+    @Test
+    public void testInPlaceSavesAlternate() throws IOException {
+        fileHandler = new InPlaceFileHandler(
+            RuntimeEnvironment.getApplication()
+        );
+        File slot = new File(crosswordsDir, SLOT_NAME);
+        File commit = new File(crosswordsDir, COMMIT_NAME);
+
+        fileHandler.save(makePuzzle('B'), puzHandle);
+        assertTrue(slot.exists());
+        assertTrue(commit.exists());
+        assertEquals("B", loadResponse());
+        List<String> names = Arrays.asList(crosswordsDir.list());
+
+        fileHandler.save(makePuzzle('C'), puzHandle);
+        assertEquals("C", loadResponse());
+        fileHandler.save(makePuzzle('D'), puzHandle);
+        assertEquals("D", loadResponse());
+
+        // no files made or removed after the first save
+        assertEquals(
+            names.size(), Arrays.asList(crosswordsDir.list()).size()
+        );
+        assertTrue(names.containsAll(Arrays.asList(crosswordsDir.list())));
+    }
+
+    @Test
+    public void testInPlaceSlotsFoundWhenStarted() throws IOException {
+        fileHandler = new InPlaceFileHandler(
+            RuntimeEnvironment.getApplication()
+        );
+        fileHandler.save(makePuzzle('B'), puzHandle);
+
+        fileHandler = new InPlaceFileHandler(
+            RuntimeEnvironment.getApplication()
+        );
+        assertEquals("B", loadResponse());
+        assertEquals("B", listAndLoadResponse());
+        assertTrue(new File(crosswordsDir, SLOT_NAME).exists());
+
+        fileHandler.save(makePuzzle('C'), puzHandle);
+        assertEquals("C", listAndLoadResponse());
+    }
+
+    @Test
+    public void testInPlacePartCommitKeepsFiles() throws IOException {
+        fileHandler = new InPlaceFileHandler(
+            RuntimeEnvironment.getApplication()
+        );
+        fileHandler.save(makePuzzle('B'), puzHandle);
+        // files current, then the slots written and the crash while
+        // writing the commit file
+        fileHandler.save(makePuzzle('C'), puzHandle);
+        File slot = new File(crosswordsDir, SLOT_NAME);
+        writeSlot(slot, makePuzzle('D'));
+        File commit = new File(crosswordsDir, COMMIT_NAME);
+        try (OutputStream os = new FileOutputStream(commit)) {
+            os.write((slot.toURI() + "	").getBytes(CHARSET));
+        }
+
+        fileHandler = new InPlaceFileHandler(
+            RuntimeEnvironment.getApplication()
+        );
+        assertEquals("C", listAndLoadResponse());
+        assertFalse(slot.exists());
+        assertFalse(commit.exists());
+    }
+
+    @Test
+    public void testInPlaceMoveSettles() throws IOException {
+        fileHandler = new InPlaceFileHandler(
+            RuntimeEnvironment.getApplication()
+        );
+        fileHandler.save(makePuzzle('B'), puzHandle);
+
+        DirHandle archive = fileHandler.getArchiveDirectory();
+        fileHandler.moveTo(puzHandle, archive);
+
+        assertFalse(new File(crosswordsDir, SLOT_NAME).exists());
+        assertFalse(new File(crosswordsDir, COMMIT_NAME).exists());
+        assertFalse(new File(crosswordsDir, MAIN_NAME).exists());
+        List<PuzMetaFile> metas = fileHandler.getPuzMetas(archive);
+        assertEquals(1, metas.size());
+        Puzzle puz = fileHandler.load(metas.get(0));
+        assertEquals("B", puz.checkedGetBox(0, 0).getResponse());
+    }
+
+    @Test
+    public void testInPlaceDelete() throws IOException {
+        fileHandler = new InPlaceFileHandler(
+            RuntimeEnvironment.getApplication()
+        );
+        fileHandler.save(makePuzzle('B'), puzHandle);
+        fileHandler.delete(puzHandle);
+
+        assertEquals(0, crosswordsDir.list().length);
+    }
+
+    /**
+     * Load the puzzle from its handle and give a response
+     */
+    private String loadResponse() throws IOException {
+        Puzzle puz = fileHandler.load(puzHandle);
+        return puz.checkedGetBox(0, 0).getResponse();
+    }
+
+    /**
+     * List the directory, then load the puzzle and give a response
+     */
+    private String listAndLoadResponse() throws IOException {
+        List<PuzMetaFile> metas = fileHandler.getPuzMetas(
+            fileHandler.getCrosswordsDirectory()
+        );
+        assertEquals(1, metas.size());
+        Puzzle puz = fileHandler.load(metas.get(0));
+        return puz.checkedGetBox(0, 0).getResponse();
+    }
+
+    private void writeSlot(File slot, Puzzle puz) throws IOException {
+        try (OutputStream os = new FileOutputStream(slot)) {
+            IPuzIO.writePuzzle(puz, os);
+        }
+    }
+
+    private void writeCommit(File slot, File main) throws IOException {
+        File commit = new File(crosswordsDir, COMMIT_NAME);
+        try (OutputStream os = new FileOutputStream(commit)) {
+            os.write(
+                (slot.toURI() + "\t" + main.toURI() + "\nend\n")
+                    .getBytes(CHARSET)
+            );
+        }
+    }
+
+    private static Puzzle makePuzzle(char letter) {
+        return TestPuzzles.makePuzzle(3, letter, "Commit");
+    }
+
+    /**
+     * Storage that can only write files in place, as some providers
+     */
+    private static class InPlaceFileHandler extends FileHandlerInternal {
+        InPlaceFileHandler(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected boolean canReplaceFile() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package app.crossword.yourealwaysbe.util.files;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import app.crossword.yourealwaysbe.puz.Puzzle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Many threads saving, loading, listing and deleting puzzles at once
+ *
+ * Checks nothing deadlocks and no load sees a half written puzzle.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FileHandlerConcurrencyTest {
+
+    private static final int NUM_THREADS = 8;
+    private static final int NUM_ROUNDS = 50;
+    private static final int TIMEOUT_SECONDS = 60;
+    private static final int SIZE = 5;
+
+    private FileHandler fileHandler;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        fileHandler = new FileHandlerInternal(
+            RuntimeEnvironment.getApplication()
+        );
+        executor = Executors.newFixedThreadPool(NUM_THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSharedPuzzle() throws Exception {
+        final PuzHandle ph = fileHandler.saveNewPuzzle(
+            makePuzzle('A'), "shared"
+        );
+        assertNotNull(ph);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            final char letter = (char) ('A' + i);
+            final boolean writer = (i % 2 == 0);
+            tasks.add(new Callable<Void>() {
+                public Void call() throws IOException {
+                    for (int round = 0; round < NUM_ROUNDS; round++) {
+                        if (writer)
+                            fileHandler.save(makePuzzle(letter), ph);
+                        else
+                            assertUniform(fileHandler.load(ph));
+                    }
+                    return null;
+                }
+            });
+        }
+
+        runAll(tasks);
+        assertUniform(fileHandler.load(ph));
+    }
+
+    @Test
+    public void testDistinctPuzzles() throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            final char letter = (char) ('A' + i);
+            final String name = "puzzle" + i;
+            tasks.add(new Callable<Void>() {
+                public Void call() throws IOException {
+                    for (int round = 0; round < NUM_ROUNDS; round++) {
+                        PuzHandle ph = fileHandler.saveNewPuzzle(
+                            makePuzzle(letter), name + "-" + round
+                        );
+                        assertNotNull(ph);
+                        Puzzle puz = fileHandler.load(ph);
+                        assertEquals(
+                            String.valueOf(letter),
+                            puz.checkedGetBox(0, 0).getResponse()
+                        );
+                        fileHandler.getPuzMetas(
+                            fileHandler.getCrosswordsDirectory()
+                        );
+                        fileHandler.delete(ph);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        runAll(tasks);
+        assertTrue(
+            fileHandler.getPuzMetas(
+                fileHandler.getCrosswordsDirectory()
+            ).isEmpty()
+        );
+    }
+
+    private void runAll(List<Callable<Void>> tasks) throws Exception {
+        List<Future<Void>> futures = new ArrayList<>();
+        for (Callable<Void> task : tasks)
+            futures.add(executor.submit(task));
+        // get rethrows assertion failures from the tasks
+        for (Future<Void> future : futures)
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A small puzzle with every box filled with letter
+     */
+    private static Puzzle makePuzzle(char letter) {
+        return TestPuzzles.makePuzzle(SIZE, letter, "Concurrency");
+    }
+
+    /**
+     * Check puzzle was written by one save, all boxes the same letter
+     */
+    private static void assertUniform(Puzzle puz) {
+        assertNotNull(puz);
+        String first = puz.checkedGetBox(0, 0).getResponse();
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                assertEquals(
+                    first, puz.checkedGetBox(row, col).getResponse()
+                );
+            }
+        }
+    }
+}
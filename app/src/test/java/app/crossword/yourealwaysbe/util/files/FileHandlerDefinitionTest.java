@@ -0,0 +1,119 @@
+package app.crossword.yourealwaysbe.util.files;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import android.content.Context;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import app.crossword.yourealwaysbe.io.IPuzIO;
+import app.crossword.yourealwaysbe.io.PlayJournal;
+import app.crossword.yourealwaysbe.puz.Puzzle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Puzzles saved or loaded once are opened again without reading files
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FileHandlerDefinitionTest {
+
+    private static final String NAME = "test";
+
+    private CountingFileHandler fileHandler;
+    private PuzHandle puzHandle;
+
+    /**
+     * Counts files opened for reading
+     */
+    private static class CountingFileHandler extends FileHandlerInternal {
+        private int numReads = 0;
+
+        CountingFileHandler(Context applicationContext) {
+            super(applicationContext);
+        }
+
+        @Override
+        protected InputStream getInputStream(FileHandle fileHandle)
+                throws IOException {
+            numReads += 1;
+            return super.getInputStream(fileHandle);
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        fileHandler = new CountingFileHandler(
+            RuntimeEnvironment.getApplication()
+        );
+        // as a download
+        puzHandle = fileHandler.saveNewPuzzle(makePuzzle('A'), NAME);
+        assertNotNull(puzHandle);
+        fileHandler.numReads = 0;
+    }
+
+    @Test
+    public void testLoadAfterSaveNew() throws IOException {
+        assertEquals("A", loadResponse());
+        assertEquals(0, fileHandler.numReads);
+    }
+
+    @Test
+    public void testLoadsIndependent() throws IOException {
+        Puzzle first = fileHandler.load(puzHandle);
+        first.checkedGetBox(0, 0).setResponse('Q');
+
+        assertEquals("A", loadResponse());
+    }
+
+    @Test
+    public void testLoadAfterSaveChanges() throws IOException {
+        Puzzle puz = fileHandler.load(puzHandle);
+        PlayJournal journal = new PlayJournal(puz);
+        puz.checkedGetBox(0, 0).setResponse('B');
+        fileHandler.saveChanges(puz, puzHandle, journal);
+
+        assertEquals("B", loadResponse());
+        assertEquals(0, fileHandler.numReads);
+
+        // and from the files for a handler without the cache
+        fileHandler = new CountingFileHandler(
+            RuntimeEnvironment.getApplication()
+        );
+        assertEquals("B", loadResponse());
+        assertTrue(fileHandler.numReads > 0);
+    }
+
+    @Test
+    public void testChangedElsewhereReread() throws IOException {
+        assertEquals("A", loadResponse());
+
+        File file = puzHandle.getMainFileHandle().getFile();
+        long lastModified = file.lastModified();
+        try (OutputStream os = new FileOutputStream(file)) {
+            IPuzIO.writePuzzle(makePuzzle('C'), os);
+        }
+        file.setLastModified(lastModified + 10000);
+
+        assertEquals("C", loadResponse());
+        assertTrue(fileHandler.numReads > 0);
+    }
+
+    private String loadResponse() throws IOException {
+        Puzzle puz = fileHandler.load(puzHandle);
+        return puz.checkedGetBox(0, 0).getResponse();
+    }
+
+    private static Puzzle makePuzzle(char letter) {
+        return TestPuzzles.makePuzzle(3, letter, "Definition");
+    }
+}
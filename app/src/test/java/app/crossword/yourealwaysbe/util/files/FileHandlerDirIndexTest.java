@@ -0,0 +1,198 @@
+package app.crossword.yourealwaysbe.util.files;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import android.content.Context;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import app.crossword.yourealwaysbe.io.IPuzIO;
+import app.crossword.yourealwaysbe.puz.Puzzle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Directories are only listed when something else changed them
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FileHandlerDirIndexTest {
+
+    // well outside the time a directory is listed again after a change
+    private static final long OLD_MILLIS = 60 * 1000;
+    // coarse enough that changes in one test share a stamp
+    private static final long COARSE_STAMP_MILLIS = 10 * 1000;
+
+    private CountingFileHandler fileHandler;
+    private File crosswordsDir;
+
+    /**
+     * Counts listings of the crosswords directory
+     *
+     * Can keep stamps to the nearest few seconds, like some storage,
+     * and run something before a file is created.
+     */
+    private static class CountingFileHandler extends FileHandlerInternal {
+        private int numListings = 0;
+        private boolean coarseStamps = false;
+        private Runnable beforeCreate = null;
+
+        CountingFileHandler(Context applicationContext) {
+            super(applicationContext);
+        }
+
+        @Override
+        protected Iterable<FileHandle> listFiles(DirHandle dir) {
+            if (dir.equals(getCrosswordsDirectory()))
+                numListings += 1;
+            return super.listFiles(dir);
+        }
+
+        @Override
+        protected long getDirStamp(DirHandle dir) {
+            long stamp = super.getDirStamp(dir);
+            return coarseStamps
+                ? stamp - stamp % COARSE_STAMP_MILLIS
+                : stamp;
+        }
+
+        @Override
+        protected FileHandle createFileHandle(
+            DirHandle dir, String fileName, String mimeType
+        ) {
+            Runnable run = beforeCreate;
+            beforeCreate = null;
+            if (run != null)
+                run.run();
+            return super.createFileHandle(dir, fileName, mimeType);
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        fileHandler = new CountingFileHandler(
+            RuntimeEnvironment.getApplication()
+        );
+        crosswordsDir = fileHandler.getCrosswordsDirectory().getFile();
+        assertNotNull(fileHandler.saveNewPuzzle(makePuzzle(), "first"));
+        // the first save looks for leftovers of a crash in the new
+        // directory, only listings after count
+        fileHandler.numListings = 0;
+    }
+
+    @Test
+    public void testUnchangedNotListed() {
+        makeDirOld();
+        assertEquals(1, countPuzzles());
+        assertEquals(1, countPuzzles());
+        assertEquals(1, fileHandler.numListings);
+    }
+
+    @Test
+    public void testRecentChangeListed() {
+        assertEquals(1, countPuzzles());
+        assertEquals(1, countPuzzles());
+        assertEquals(2, fileHandler.numListings);
+    }
+
+    @Test
+    public void testOwnChangesIndexed() throws IOException {
+        makeDirOld();
+        assertEquals(1, countPuzzles());
+
+        PuzHandle second
+            = fileHandler.saveNewPuzzle(makePuzzle(), "second");
+        assertNotNull(second);
+        assertEquals(2, countPuzzles());
+
+        fileHandler.delete(second);
+        assertEquals(1, countPuzzles());
+        assertEquals(
+            Collections.singleton("first"), fileHandler.getPuzzleNames()
+        );
+
+        assertEquals(1, fileHandler.numListings);
+    }
+
+    @Test
+    public void testOtherChangesListed() throws IOException {
+        makeDirOld();
+        assertEquals(1, countPuzzles());
+
+        File added = new File(
+            crosswordsDir, "added" + FileHandler.FILE_EXT_IPUZ
+        );
+        try (OutputStream os = new FileOutputStream(added)) {
+            IPuzIO.writePuzzle(makePuzzle(), os);
+        }
+
+        assertEquals(2, countPuzzles());
+        assertEquals(2, fileHandler.numListings);
+        assertTrue(fileHandler.getPuzzleNames().contains("added"));
+    }
+
+    @Test
+    public void testOverlappingChangesListed() throws Exception {
+        fileHandler.coarseStamps = true;
+        makeDirOld();
+        assertEquals(1, countPuzzles());
+
+        PuzMetaFile first = fileHandler.getPuzMetas(
+            fileHandler.getCrosswordsDirectory()
+        ).get(0);
+        Puzzle firstPuz = fileHandler.load(first);
+
+        // first is saved after second's save starts, and both end with
+        // the same stamp
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            fileHandler.beforeCreate = () -> {
+                try {
+                    executor.submit(() -> {
+                        fileHandler.save(firstPuz, first);
+                        return null;
+                    }).get();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            };
+            assertNotNull(fileHandler.saveNewPuzzle(makePuzzle(), "second"));
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(2, countPuzzles());
+        assertEquals(2, fileHandler.numListings);
+    }
+
+    private int countPuzzles() {
+        return fileHandler.getPuzMetas(
+            fileHandler.getCrosswordsDirectory()
+        ).size();
+    }
+
+    /**
+     * Set directory time back so a listing of it can be trusted
+     */
+    private void makeDirOld() {
+        assertTrue(
+            crosswordsDir.setLastModified(
+                System.currentTimeMillis() - OLD_MILLIS
+            )
+        );
+    }
+
+    private static Puzzle makePuzzle() {
+        return TestPuzzles.makePuzzle(3, "Index");
+    }
+}
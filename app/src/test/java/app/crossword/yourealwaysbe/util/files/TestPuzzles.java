@@ -0,0 +1,39 @@
+package app.crossword.yourealwaysbe.util.files;
+
+import app.crossword.yourealwaysbe.puz.Box;
+import app.crossword.yourealwaysbe.puz.Puzzle;
+import app.crossword.yourealwaysbe.puz.PuzzleBuilder;
+
+/**
+ * Small puzzles for the file handler tests
+ */
+class TestPuzzles {
+
+    /**
+     * A square grid of A solutions, one across and one down clue
+     */
+    static Puzzle makePuzzle(int size, String title) {
+        return makePuzzle(size, Box.BLANK.charAt(0), title);
+    }
+
+    /**
+     * As makePuzzle, with response in every box
+     */
+    static Puzzle makePuzzle(int size, char response, String title) {
+        Box[][] boxes = new Box[size][size];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                boxes[row][col] = new Box();
+                boxes[row][col].setSolution('A');
+                boxes[row][col].setResponse(response);
+            }
+        }
+
+        return new PuzzleBuilder(boxes)
+            .autoNumberBoxes()
+            .addAcrossClue("Across", "1", "First across")
+            .addDownClue("Down", "1", "First down")
+            .setTitle(title)
+            .getPuzzle();
+    }
+}
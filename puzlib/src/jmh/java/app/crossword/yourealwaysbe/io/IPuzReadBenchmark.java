@@ -0,0 +1,100 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.crossword.yourealwaysbe.puz.Box;
+import app.crossword.yourealwaysbe.puz.Clue;
+import app.crossword.yourealwaysbe.puz.Puzzle;
+import app.crossword.yourealwaysbe.puz.PuzzleBuilder;
+
+/**
+ * Compare the streaming IPuz reader with building a JSON tree
+ *
+ * The tree benchmark is only the parse the old tree reader started
+ * with, so a lower bound on its cost.
+ *
+ * Run with -prof gc to compare allocation. The "styled" puzzle is a
+ * generated 21x21 grid where every cell has a style object, the case
+ * where the tree is most expensive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IPuzReadBenchmark {
+
+    private static final String STYLED = "styled";
+    private static final int STYLED_SIZE = 21;
+
+    @Param({ "/test.ipuz", "/extras.ipuz", STYLED })
+    public String puzzle;
+
+    private byte[] data;
+
+    @Setup
+    public void setup() throws IOException {
+        if (STYLED.equals(puzzle)) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            IPuzIO.writePuzzle(getStyledPuzzle(), baos);
+            data = baos.toByteArray();
+        } else {
+            try (
+                InputStream is
+                    = IPuzReadBenchmark.class.getResourceAsStream(puzzle)
+            ) {
+                data = StreamUtils.getStreamBytes(is);
+            }
+        }
+    }
+
+    /**
+     * Building the JSON tree alone, which the old reader did before
+     * reading the puzzle from it
+     */
+    @Benchmark
+    public JSONObject tree() throws IOException {
+        return new JSONObject(new JSONTokener(new ByteArrayInputStream(data)));
+    }
+
+    @Benchmark
+    public Puzzle stream() throws IOException {
+        return IPuzIO.readPuzzle(new ByteArrayInputStream(data));
+    }
+
+    private static Puzzle getStyledPuzzle() {
+        Box[][] boxes = new Box[STYLED_SIZE][STYLED_SIZE];
+        for (int row = 0; row < STYLED_SIZE; row++) {
+            for (int col = 0; col < STYLED_SIZE; col++) {
+                Box box = new Box();
+                box.setSolution((char) ('A' + (row + col) % 26));
+                box.setCircled((row + col) % 2 == 0);
+                box.setColor(0x10 * row + col);
+                box.setBarredRight(col % 5 == 4);
+                boxes[row][col] = box;
+            }
+        }
+        return new PuzzleBuilder(boxes)
+            .addClue(new Clue("Across", 0, "Hint"))
+            .getPuzzle();
+    }
+}
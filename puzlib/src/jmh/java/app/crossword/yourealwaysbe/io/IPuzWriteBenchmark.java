@@ -0,0 +1,79 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.crossword.yourealwaysbe.puz.Puzzle;
+
+/**
+ * Cost of saving an IPuz puzzle
+ *
+ * "fresh" is a one-off IPuzIO.writePuzzle, "reused" is a save through a
+ * PuzzleWriter kept between saves, as FileHandler does (compact only
+ * applies to this one). Run with -prof gc to see allocation per save.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IPuzWriteBenchmark {
+
+    @Param({ "/2010-7-19-NewYorkTimes.puz", "/extras.ipuz" })
+    public String puzzle;
+
+    @Param({ "false", "true" })
+    public boolean compact;
+
+    private Puzzle puz;
+    private IPuzIO.PuzzleWriter writer = new IPuzIO.PuzzleWriter();
+    private OutputStream sink = new OutputStream() {
+        @Override
+        public void write(int b) { }
+
+        @Override
+        public void write(byte[] b, int off, int len) { }
+    };
+
+    @Setup
+    public void setup() throws IOException {
+        try (
+            InputStream is
+                = IPuzWriteBenchmark.class.getResourceAsStream(puzzle)
+        ) {
+            if (puzzle.endsWith(".ipuz"))
+                puz = IPuzIO.readPuzzle(is);
+            else
+                puz = IO.loadNative(is);
+        }
+    }
+
+    @Benchmark
+    public int fresh() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        IPuzIO.writePuzzle(puz, baos);
+        return baos.size();
+    }
+
+    @Benchmark
+    public int reused() throws IOException {
+        writer.encode(puz, false, compact).writeTo(sink);
+        return writer.size();
+    }
+}
@@ -0,0 +1,116 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.crossword.yourealwaysbe.puz.Puzzle;
+
+/**
+ * Compare key search strategies on the scrambled test puzzles
+ *
+ * The legacy benchmark reproduces the search before PuzCracker: one
+ * key at a time, rebuilding the scrambled solution for each key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PuzCrackerBenchmark {
+
+    @Param({
+        "/2010-7-19-NewYorkTimes.puz",
+        "/puz_110523margulies.puz",
+        "/puz_110131aniston.puz"
+    })
+    public String puzzle;
+
+    private Puzzle puz;
+    private byte[] scrambled;
+    private short checksum;
+
+    @Setup
+    public void setup() throws IOException {
+        try (
+            InputStream is
+                = PuzCrackerBenchmark.class.getResourceAsStream(puzzle)
+        ) {
+            puz = IO.loadNative(is);
+        }
+        scrambled = puz.getScrambledSolution();
+        checksum = puz.getSolutionChecksum();
+    }
+
+    @Benchmark
+    public int legacy() {
+        for (int key = 0; key < PuzCracker.NUM_KEYS; key++) {
+            if (legacyTryKey(puz.getScrambledSolution(), key))
+                return key;
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public int sequential() {
+        return PuzCracker.findKeySequential(scrambled, checksum);
+    }
+
+    @Benchmark
+    public int parallel() {
+        return PuzCracker.findKey(scrambled, checksum);
+    }
+
+    private boolean legacyTryKey(byte[] solution, int keyInt) {
+        int[] key = {
+            (keyInt / 1000) % 10,
+            (keyInt / 100) % 10,
+            (keyInt / 10) % 10,
+            keyInt % 10
+        };
+        byte[] buf = new byte[solution.length];
+        byte[] tmp = new byte[9];
+
+        for (int i = 3; i >= 0; i--) {
+            int oddIndex = 0;
+            int evenIndex = solution.length / 2;
+            for (int j = 0; j < solution.length; j++) {
+                if ((j % 2) == 0)
+                    buf[evenIndex++] = solution[j];
+                else
+                    buf[oddIndex++] = solution[j];
+            }
+            System.arraycopy(buf, 0, solution, 0, buf.length);
+
+            int keynum = key[i];
+            int len = solution.length;
+            System.arraycopy(solution, len - keynum, tmp, 0, keynum);
+            System.arraycopy(solution, 0, solution, keynum, len - keynum);
+            System.arraycopy(tmp, 0, solution, 0, keynum);
+
+            for (int j = 0; j < solution.length; j++) {
+                int letter = (solution[j] & 0xFF) - key[j % 4];
+                if (letter < 65)
+                    letter += 26;
+                solution[j] = (byte) letter;
+            }
+        }
+
+        return checksum == (short) IO.cksum_region(
+            solution, 0, solution.length, 0
+        );
+    }
+}
@@ -0,0 +1,69 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.crossword.yourealwaysbe.puz.Puzzle;
+
+/**
+ * Compare loading a puzzle from a snapshot with parsing its source
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotReadBenchmark {
+
+    private static final String KEY = "benchmark";
+
+    @Param({ "/test.ipuz", "/extras.ipuz", "/puz_110523margulies.puz" })
+    public String puzzle;
+
+    private byte[] source;
+    private byte[] snapshot;
+
+    @Setup
+    public void setup() throws IOException {
+        try (
+            InputStream is
+                = SnapshotReadBenchmark.class.getResourceAsStream(puzzle)
+        ) {
+            source = StreamUtils.getStreamBytes(is);
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        SnapshotIO.writeSnapshot(parse(), KEY, baos);
+        snapshot = baos.toByteArray();
+    }
+
+    @Benchmark
+    public Puzzle parse() throws IOException {
+        InputStream is = new ByteArrayInputStream(source);
+        if (puzzle.endsWith(".puz"))
+            return IO.loadNative(is);
+        else
+            return IPuzIO.readPuzzle(is);
+    }
+
+    @Benchmark
+    public Puzzle snapshot() {
+        return SnapshotIO.readSnapshot(snapshot, KEY);
+    }
+}
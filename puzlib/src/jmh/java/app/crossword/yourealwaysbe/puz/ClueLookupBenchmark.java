@@ -0,0 +1,115 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import app.crossword.yourealwaysbe.io.IO;
+import app.crossword.yourealwaysbe.io.IPuzIO;
+
+/**
+ * Cost of the cell to clue lookups done for every cell on each render
+ *
+ * Each op visits every cell once and, like the renderer and board,
+ * walks the clues it is part of with their positions, then asks its
+ * position in the current clue and its clue in the current list. The current clue id is a separate
+ * instance to the one stored on the boxes, as when read from a file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClueLookupBenchmark {
+
+    @Param({ "/test.puz", "/test.ipuz", "/acrostic.ipuz" })
+    public String puzzle;
+
+    private Box[] boxes;
+    private ClueID[] currentClueIDs;
+
+    @Setup
+    public void setup() throws IOException {
+        Puzzle puz;
+        try (
+            InputStream is
+                = ClueLookupBenchmark.class.getResourceAsStream(puzzle)
+        ) {
+            puz = puzzle.endsWith(".puz")
+                ? IO.loadNative(is)
+                : IPuzIO.readPuzzle(is);
+        }
+
+        List<Box> boxList = new ArrayList<>();
+        for (Box box : puz.getBoxesList()) {
+            if (box != null)
+                boxList.add(box);
+        }
+        boxes = boxList.toArray(new Box[0]);
+
+        List<ClueID> cids = new ArrayList<>();
+        for (Clue clue : puz.getAllClues()) {
+            ClueID cid = clue.getClueID();
+            cids.add(new ClueID(
+                new String(cid.getListName()), cid.getIndex()
+            ));
+        }
+        currentClueIDs = cids.toArray(new ClueID[0]);
+    }
+
+    /**
+     * Walk clues through the list view, as done before indexed access
+     */
+    @Benchmark
+    public int listLookups() {
+        int result = 0;
+        for (int i = 0; i < boxes.length; i++) {
+            Box box = boxes[i];
+            ClueID cid = currentClueIDs[i % currentClueIDs.length];
+            for (ClueID partOf : box.getIsPartOfClues())
+                result += partOf.getIndex() + box.getCluePosition(partOf);
+            result += lookupCurrent(box, cid);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int indexedLookups() {
+        int result = 0;
+        for (int i = 0; i < boxes.length; i++) {
+            Box box = boxes[i];
+            ClueID cid = currentClueIDs[i % currentClueIDs.length];
+            for (int j = 0; j < box.getNumIsPartOfClues(); j++) {
+                result += box.getIsPartOfClueAt(j).getIndex()
+                    + box.getCluePositionAt(j);
+            }
+            result += lookupCurrent(box, cid);
+        }
+        return result;
+    }
+
+    private static int lookupCurrent(Box box, ClueID cid) {
+        int result = box.getCluePosition(cid);
+        if (box.isPartOf(cid))
+            result += 1;
+        ClueID inList = box.getIsPartOfClue(cid.getListName());
+        if (inList != null)
+            result += inList.getIndex();
+        return result;
+    }
+}
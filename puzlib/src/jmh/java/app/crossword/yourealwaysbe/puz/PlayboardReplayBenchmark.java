@@ -0,0 +1,237 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import app.crossword.yourealwaysbe.io.PuzzleStreamReader;
+
+/**
+ * Headless replay of a scripted solve on each test fixture
+ *
+ * load parses the fixture through PuzzleStreamReader (so whichever
+ * parser takes it) and builds a Playboard. replay runs one step of a
+ * script made from the puzzle: jump to each clue, type its solution
+ * with a mistake and delete, move about, scratch notes, reveal words
+ * and errors, undo/redo, then clear every word. The board ends blank,
+ * so the script loops without reloading.
+ *
+ * replay is one board operation per op, so throughput is operations
+ * per microsecond and, with -prof gc, gc.alloc.rate.norm is bytes per
+ * operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayboardReplayBenchmark {
+
+    private enum Action {
+        JUMP, LETTER, DELETE, SCRATCH, DELETE_SCRATCH,
+        MOVE_RIGHT, MOVE_DOWN, MOVE_LEFT, MOVE_UP, TOGGLE, NEXT_WORD,
+        REVEAL_LETTER, REVEAL_WORD, REVEAL_ERRORS, UNDO, REDO, CLEAR_WORD
+    }
+
+    private static class Step {
+        private final Action action;
+        private final ClueID cid;
+        private final String letter;
+
+        Step(Action action) { this(action, null, null); }
+
+        Step(Action action, ClueID cid, String letter) {
+            this.action = action;
+            this.cid = cid;
+            this.letter = letter;
+        }
+    }
+
+    // fixtures PuzzleStreamReader can read, brainsonly3.txt is broken
+    // on purpose and przekroj.json is only read by PrzekrojIO directly
+    @Param({
+        "2010-7-19-NewYorkTimes.puz",
+        "2010-7-4-LosAngelesTimes.puz",
+        "acrostic.ipuz",
+        "acrostic.jpz",
+        "amuselabs.json",
+        "barred-test.ipuz",
+        "brainsonly.txt",
+        "brainsonly2.txt",
+        "crnet091215-data.xml",
+        "detachedCells.ipuz",
+        "extras.ipuz",
+        "guardian.json",
+        "html.ipuz",
+        "keesing.xml",
+        "lat_puzzle_111128.xml",
+        "premiere-20100704.txt",
+        "puz_110131aniston.puz",
+        "puz_110523margulies.puz",
+        "raetselzentrale.json",
+        "rcijeux-motsfleches.mfj",
+        "test.ipuz",
+        "test.puz",
+        "test_rebus.puz",
+        "usatodaytest.xml",
+        "zones-0-based.ipuz",
+        "zones-1-based.ipuz",
+        "zones-io-v2.ipuz"
+    })
+    public String resource;
+
+    private byte[] data;
+    private Playboard board;
+    private Step[] script;
+    private int nextStep;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole blackhole) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (
+            InputStream is
+                = PlayboardReplayBenchmark.class.getResourceAsStream(
+                    "/" + resource
+                )
+        ) {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = is.read(buffer)) > 0)
+                baos.write(buffer, 0, len);
+        }
+        data = baos.toByteArray();
+
+        this.blackhole = blackhole;
+        board = loadBoard();
+        board.setDontDeleteCrossing(false);
+        board.addListener(new Playboard.PlayboardListener() {
+            public void onPlayboardChange(Playboard.PlayboardChanges c) {
+                PlayboardReplayBenchmark.this.blackhole.consume(c);
+            }
+        });
+        script = makeScript(board.getPuzzle());
+        nextStep = 0;
+    }
+
+    @Benchmark
+    public Playboard load() throws Exception {
+        return loadBoard();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void replay() {
+        Step step = script[nextStep];
+        nextStep = (nextStep + 1) % script.length;
+
+        switch (step.action) {
+        case JUMP: board.jumpToClue(step.cid); break;
+        case LETTER: board.playLetter(step.letter); break;
+        case DELETE: board.deleteLetter(); break;
+        case SCRATCH: board.playScratchLetter(step.letter.charAt(0)); break;
+        case DELETE_SCRATCH: board.deleteScratchLetter(); break;
+        case MOVE_RIGHT: board.moveRight(); break;
+        case MOVE_DOWN: board.moveDown(); break;
+        case MOVE_LEFT: board.moveLeft(); break;
+        case MOVE_UP: board.moveUp(); break;
+        case TOGGLE: board.toggleSelection(); break;
+        case NEXT_WORD: board.nextWord(); break;
+        case REVEAL_LETTER: board.revealLetter(); break;
+        case REVEAL_WORD: board.revealWord(); break;
+        case REVEAL_ERRORS: board.revealErrors(); break;
+        case UNDO: board.undo(); break;
+        case REDO: board.redo(); break;
+        case CLEAR_WORD: board.clearWord(); break;
+        }
+    }
+
+    private Playboard loadBoard() throws Exception {
+        Puzzle puz = PuzzleStreamReader.parseInputStatic(
+            new ByteArrayInputStream(data)
+        );
+        if (puz == null)
+            throw new IOException("Could not parse " + resource);
+        return new Playboard(puz, MovementStrategy.MOVE_NEXT_ON_AXIS);
+    }
+
+    /**
+     * Script for a solve of puz that leaves the board blank
+     */
+    private static Step[] makeScript(Puzzle puz) {
+        List<ClueID> cids = new ArrayList<>();
+        for (Clue clue : puz.getAllClues()) {
+            if (clue.hasZone() && !clue.getZone().isEmpty())
+                cids.add(clue.getClueID());
+        }
+
+        List<Step> steps = new ArrayList<>();
+        for (int i = 0; i < cids.size(); i++) {
+            ClueID cid = cids.get(i);
+            Zone zone = puz.getClue(cid).getZone();
+
+            steps.add(new Step(Action.JUMP, cid, null));
+            for (int j = 0; j < zone.size(); j++) {
+                String solution = getSolution(puz, zone.getPosition(j));
+                if (j % 4 == 1) {
+                    steps.add(new Step(Action.LETTER, null, "X"));
+                    steps.add(new Step(Action.DELETE));
+                }
+                steps.add(new Step(Action.LETTER, null, solution));
+            }
+
+            if (i % 3 == 0) {
+                steps.add(new Step(Action.JUMP, cid, null));
+                steps.add(new Step(Action.SCRATCH, null, "S"));
+                steps.add(new Step(Action.SCRATCH, null, "T"));
+                steps.add(new Step(Action.DELETE_SCRATCH));
+            }
+            if (i % 5 == 0) {
+                steps.add(new Step(Action.JUMP, cid, null));
+                steps.add(new Step(Action.REVEAL_LETTER));
+                steps.add(new Step(Action.REVEAL_WORD));
+            }
+
+            steps.add(new Step(Action.MOVE_DOWN));
+            steps.add(new Step(Action.MOVE_RIGHT));
+            steps.add(new Step(Action.TOGGLE));
+            steps.add(new Step(Action.MOVE_LEFT));
+            steps.add(new Step(Action.MOVE_UP));
+            steps.add(new Step(Action.NEXT_WORD));
+        }
+
+        steps.add(new Step(Action.REVEAL_ERRORS));
+        steps.add(new Step(Action.UNDO));
+        steps.add(new Step(Action.REDO));
+
+        for (ClueID cid : cids) {
+            steps.add(new Step(Action.JUMP, cid, null));
+            steps.add(new Step(Action.CLEAR_WORD));
+        }
+
+        return steps.toArray(new Step[steps.size()]);
+    }
+
+    private static String getSolution(Puzzle puz, Position pos) {
+        Box box = puz.checkedGetBox(pos);
+        return (box == null || !box.hasSolution()) ? "A" : box.getSolution();
+    }
+}
@@ -0,0 +1,71 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import app.crossword.yourealwaysbe.io.IO;
+
+/**
+ * Cost per keystroke of typing into a 15x15 grid through playLetter
+ *
+ * Each op types 225 letters with a listener attached, so results (run
+ * with -prof gc for allocations) are per keystroke.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayboardTypingBenchmark {
+
+    private static final int KEYSTROKES = 15 * 15;
+
+    private Playboard board;
+    private Position start;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole blackhole) throws IOException {
+        Puzzle puz;
+        try (
+            InputStream is
+                = PlayboardTypingBenchmark.class.getResourceAsStream(
+                    "/test.puz"
+                )
+        ) {
+            puz = IO.loadNative(is);
+        }
+
+        this.blackhole = blackhole;
+        board = new Playboard(puz, MovementStrategy.MOVE_NEXT_ON_AXIS);
+        start = board.getHighlightLetter();
+        board.addListener(new Playboard.PlayboardListener() {
+            public void onPlayboardChange(Playboard.PlayboardChanges c) {
+                PlayboardTypingBenchmark.this.blackhole.consume(c);
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYSTROKES)
+    public void typeGrid() {
+        board.setHighlightLetter(start);
+        for (int i = 0; i < KEYSTROKES; i++)
+            board.playLetter((char) ('A' + (i % 26)));
+    }
+}
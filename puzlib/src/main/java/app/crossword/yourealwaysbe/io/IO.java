@@ -32,6 +32,7 @@ import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.Charset;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -74,20 +75,134 @@ public class IO implements PuzzleParser {
     public static final String ACROSS_LIST = "Across";
     public static final String DOWN_LIST = "Down";
 
+    // Header layout
+    private static final int HEADER_LENGTH = 0x34;
+    private static final int HEADER_MAGIC_OFFSET = 0x02;
+    private static final int HEADER_CIB_CKSUM_OFFSET = 0x0E;
+    private static final int HEADER_MASKED_CKSUM_OFFSET = 0x10;
+    private static final int HEADER_VERSION_OFFSET = 0x18;
+    private static final int HEADER_CIB_OFFSET = 0x2C;
+    private static final int HEADER_CIB_LENGTH = 8;
+    private static final int HEADER_WIDTH_OFFSET = 0x2C;
+    private static final int HEADER_HEIGHT_OFFSET = 0x2D;
+    private static final int HEADER_NUM_CLUES_OFFSET = 0x2E;
+    private static final byte[] CKSUM_MASK = "ICHEATED".getBytes(CHARSET_OLD);
+    // notes are included in the checksums from this version
+    private static final String NOTES_CKSUM_VERSION = "1.3";
+
+    // single byte decodings, as loadNative decodes grid cells
+    private static final char[] BYTE_CHARS = getByteChars(CHARSET);
+    private static final char[] BYTE_CHARS_OLD = getByteChars(CHARSET_OLD);
+
     public static int cksum_region(byte[] data, int offset, int length,
                                    int cksum) {
-        for (int i = offset; i < (offset + length); i++) {
-            if ((cksum & 0x1) != 0) {
-                cksum = (cksum >> 1) + 0x8000;
+        for (int i = offset; i < (offset + length); i++)
+            cksum = PuzChecksum.step(cksum, data[i]);
+
+        return cksum;
+    }
+
+    /**
+     * Check the header of an Across Lite file
+     *
+     * Reads only the first 0x34 bytes and checks the file magic and
+     * the CIB checksum (both stored directly and in the masked
+     * checksums). Does not decode the grid, clues or extra sections.
+     *
+     * @return true if the header looks valid, false if it is not an
+     * Across Lite file or is corrupt
+     */
+    public static boolean validateHeader(InputStream is) throws IOException {
+        return readValidHeader(new DataInputStream(is)) != null;
+    }
+
+    /**
+     * Check all checksums of an Across Lite file
+     *
+     * Streams through the board and strings once, updating the
+     * checksums as it goes, without building a Puzzle. Extra sections
+     * after the strings are not checked.
+     *
+     * @return true if all header checksums match the contents
+     */
+    public static boolean validateChecksums(InputStream is)
+            throws IOException {
+        DataInputStream input = new DataInputStream(is);
+
+        byte[] header = readValidHeader(input);
+        if (header == null)
+            return false;
+
+        ByteBuffer bb = ByteBuffer.wrap(header);
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+
+        int width = 0xFF & header[HEADER_WIDTH_OFFSET];
+        int height = 0xFF & header[HEADER_HEIGHT_OFFSET];
+        int numberOfBoxes = width * height;
+        int numberOfClues = 0xFFFF & bb.getShort(HEADER_NUM_CLUES_OFFSET);
+
+        String version = new String(
+            header, HEADER_VERSION_OFFSET, VERSION_STRING.length(), CHARSET
+        );
+        boolean cksumNotes = NOTES_CKSUM_VERSION.compareTo(version) <= 0;
+
+        int c_cib = cksum_region(
+            header, HEADER_CIB_OFFSET, HEADER_CIB_LENGTH, 0
+        );
+        PuzChecksum primary = new PuzChecksum(c_cib);
+        PuzChecksum solution = new PuzChecksum();
+        PuzChecksum grid = new PuzChecksum();
+        PuzChecksum partial = new PuzChecksum();
+
+        byte[] board = new byte[numberOfBoxes];
+
+        input.readFully(board);
+        solution.update(board);
+        primary.update(board);
+
+        input.readFully(board);
+        grid.update(board);
+        primary.update(board);
+
+        // title, author, copyright, clues, notes
+        int numStrings = 4 + numberOfClues;
+        for (int i = 0; i < numStrings; i++) {
+            boolean isClue = (i > 2) && (i < 3 + numberOfClues);
+            boolean isNotes = (i == numStrings - 1);
+
+            if (isNotes && !cksumNotes) {
+                skipNullTerminatedString(input);
             } else {
-                cksum = cksum >> 1;
+                PuzChecksum[] cksums = { primary, partial };
+                int length = checksumNullTerminatedString(input, cksums);
+                if (!isClue && length > 0) {
+                    primary.update(0);
+                    partial.update(0);
+                }
             }
+        }
+
+        int c_sol = (int) solution.getValue();
+        int c_grid = (int) grid.getValue();
+        int c_part = (int) partial.getValue();
+
+        if (bb.getShort(0) != primary.getShortValue())
+            return false;
 
-            cksum += (0xFF & data[i]);
-            cksum = cksum & 0xFFFF;
+        int[] masked = { c_cib, c_sol, c_grid, c_part };
+        for (int i = 0; i < masked.length; i++) {
+            int low = HEADER_MASKED_CKSUM_OFFSET + i;
+            int high = low + masked.length;
+            if (header[low] != (byte) (CKSUM_MASK[i] ^ (masked[i] & 0xFF)))
+                return false;
+            if (header[high] != (byte) (
+                CKSUM_MASK[i + masked.length] ^ ((masked[i] & 0xFF00) >> 8)
+            )) {
+                return false;
+            }
         }
 
-        return cksum;
+        return true;
     }
 
     public static Puzzle load(DataInputStream puzzleInput,
@@ -100,6 +215,171 @@ public class IO implements PuzzleParser {
         return puz;
     }
 
+    /**
+     * Read just the meta data needed for puzzle lists
+     *
+     * Gives the same author, title, source, date, updatable and
+     * percentages as load, without building the Puzzle. Clues and notes
+     * are skipped without decoding, and of the extra sections only the
+     * rebus ones are read as they affect the percentages.
+     *
+     * @param metaInput the .forkyz meta stream, or null if none
+     * @return null if not a puz file
+     */
+    public static PuzzleMeta loadMeta(
+        DataInputStream puzzleInput, DataInputStream metaInput
+    ) throws IOException {
+        byte[] header = new byte[HEADER_LENGTH];
+        puzzleInput.readFully(header);
+
+        String magic = new String(
+            header, HEADER_MAGIC_OFFSET, FILE_MAGIC.length(), CHARSET
+        );
+        if (!FILE_MAGIC.equals(magic))
+            return null;
+
+        String version = new String(header, HEADER_VERSION_OFFSET, 3, CHARSET);
+        Charset charset = ("2.0".compareTo(version) > 0)
+            ? CHARSET_OLD
+            : CHARSET;
+        char[] byteChars = (charset == CHARSET_OLD)
+            ? BYTE_CHARS_OLD
+            : BYTE_CHARS;
+
+        int width = 0xFF & header[HEADER_WIDTH_OFFSET];
+        int height = 0xFF & header[HEADER_HEIGHT_OFFSET];
+        int numBoxes = width * height;
+
+        byte[] solution = new byte[numBoxes];
+        byte[] response = new byte[numBoxes];
+        puzzleInput.readFully(solution);
+        puzzleInput.readFully(response);
+
+        PuzzleMeta meta = new PuzzleMeta();
+        meta.title = readNullTerminatedString(puzzleInput, charset);
+        meta.author = readNullTerminatedString(puzzleInput, charset);
+        skipNullTerminatedString(puzzleInput); // copyright
+
+        int numAcross = 0;
+        int numDown = 0;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                if (isBlockByte(solution, byteChars, width, height, row, col))
+                    continue;
+
+                boolean joinedLeft = !isBlockByte(
+                    solution, byteChars, width, height, row, col - 1
+                );
+                boolean joinedRight = !isBlockByte(
+                    solution, byteChars, width, height, row, col + 1
+                );
+                boolean joinedTop = !isBlockByte(
+                    solution, byteChars, width, height, row - 1, col
+                );
+                boolean joinedBottom = !isBlockByte(
+                    solution, byteChars, width, height, row + 1, col
+                );
+
+                if (!joinedLeft && joinedRight)
+                    numAcross += 1;
+                if (!joinedTop && joinedBottom)
+                    numDown += 1;
+            }
+        }
+
+        // clues then notes
+        for (int i = 0; i < numAcross + numDown + 1; i++)
+            skipNullTerminatedString(puzzleInput);
+
+        byte[][] rebusBoard = null;
+        String[] solRebusTable = null;
+        String[] usrRebusTable = null;
+
+        boolean eof = false;
+        while (!eof) {
+            try {
+                switch (readExtraSectionType(puzzleInput)) {
+                case ANTS:
+                    skipNotesNative(puzzleInput, numAcross);
+                    break;
+                case DNTS:
+                    skipNotesNative(puzzleInput, numDown);
+                    break;
+                case GRBS:
+                    rebusBoard = readRebusBoard(puzzleInput, width, height);
+                    break;
+                case RTBL:
+                    solRebusTable = readRebusTable(
+                        puzzleInput, width, height, charset
+                    );
+                    break;
+                case RUSR:
+                    usrRebusTable = readRebusTable(
+                        puzzleInput, width, height, charset
+                    );
+                    break;
+                default:
+                    skipExtraSection(puzzleInput);
+                }
+            } catch (EOFException e) {
+                eof = true;
+            }
+        }
+
+        int total = 0;
+        int correct = 0;
+        int filled = 0;
+
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int i = row * width + col;
+                char solChar = byteChars[0xFF & solution[i]];
+                if (solChar == '.')
+                    continue;
+
+                String sol = String.valueOf(solChar);
+                String usr = Box.BLANK;
+
+                char usrChar = byteChars[0xFF & response[i]];
+                if (usrChar != '.' && usrChar != '-')
+                    usr = String.valueOf(usrChar);
+
+                int index = (rebusBoard == null) ? 0 : rebusBoard[row][col];
+                if (index > 0) {
+                    int truei = (byte) (index - 1);
+                    if (solRebusTable != null && solRebusTable[truei] != null)
+                        sol = solRebusTable[truei];
+                    if (usrRebusTable != null && usrRebusTable[truei] != null)
+                        usr = usrRebusTable[truei];
+                }
+
+                total += 1;
+                if (sol.equals(usr))
+                    correct += 1;
+                if (!Box.BLANK.equals(usr))
+                    filled += 1;
+            }
+        }
+
+        if (total > 0) {
+            meta.percentComplete = (correct * 100) / total;
+            meta.percentFilled = (filled * 100) / total;
+        }
+
+        if (metaInput == null) {
+            // as a newly built Puzzle
+            meta.date = LocalDate.now();
+        } else {
+            PuzzleMeta custom = readMeta(metaInput);
+            meta.source = custom.source;
+            meta.date = custom.date;
+            meta.updatable = custom.updatable;
+            meta.sourceUrl = custom.sourceUrl;
+        }
+
+        return meta;
+    }
+
     @Override
     public Puzzle parseInput(InputStream is) throws IOException {
         return loadNative(new DataInputStream(is));
@@ -249,15 +529,25 @@ public class IO implements PuzzleParser {
                         break;
 
                     case GRBS:
-                        rebusBoard = readRebusBoard(input, builder);
+                        rebusBoard = readRebusBoard(
+                            input, builder.getWidth(), builder.getHeight()
+                        );
                         break;
 
                     case RTBL:
-                        solRebusTable = readRebusTable(input, builder, charset);
+                        solRebusTable = readRebusTable(
+                            input,
+                            builder.getWidth(), builder.getHeight(),
+                            charset
+                        );
                         break;
 
                     case RUSR:
-                        usrRebusTable = readRebusTable(input, builder, charset);
+                        usrRebusTable = readRebusTable(
+                            input,
+                            builder.getWidth(), builder.getHeight(),
+                            charset
+                        );
                         break;
 
                     default:
@@ -361,6 +651,118 @@ public class IO implements PuzzleParser {
             : new String(baos.toByteArray(), charset.name());
     }
 
+    /**
+     * Read header and check magic and CIB checksum
+     *
+     * @return header bytes if valid, else null
+     */
+    private static byte[] readValidHeader(DataInputStream input)
+            throws IOException {
+        byte[] header = new byte[HEADER_LENGTH];
+        try {
+            input.readFully(header);
+        } catch (EOFException e) {
+            return null;
+        }
+
+        String magic = new String(
+            header, HEADER_MAGIC_OFFSET, FILE_MAGIC.length(), CHARSET
+        );
+        if (!FILE_MAGIC.equals(magic))
+            return null;
+
+        ByteBuffer bb = ByteBuffer.wrap(header);
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+
+        int c_cib = cksum_region(
+            header, HEADER_CIB_OFFSET, HEADER_CIB_LENGTH, 0
+        );
+        if (bb.getShort(HEADER_CIB_CKSUM_OFFSET) != (short) c_cib)
+            return null;
+
+        // masked checksums start with CIB low byte, CIB high byte at +4
+        int low = HEADER_MASKED_CKSUM_OFFSET;
+        int high = HEADER_MASKED_CKSUM_OFFSET + 4;
+        if (header[low] != (byte) (CKSUM_MASK[0] ^ (c_cib & 0xFF)))
+            return null;
+        if (header[high] != (byte) (CKSUM_MASK[4] ^ ((c_cib & 0xFF00) >> 8)))
+            return null;
+
+        int width = 0xFF & header[HEADER_WIDTH_OFFSET];
+        int height = 0xFF & header[HEADER_HEIGHT_OFFSET];
+        if (width == 0 || height == 0)
+            return null;
+
+        return header;
+    }
+
+    /**
+     * Feed a null terminated string to checksums without decoding it
+     *
+     * The null terminator is not included.
+     *
+     * @return length of string without terminator
+     */
+    private static int checksumNullTerminatedString(
+        DataInputStream input, PuzChecksum[] cksums
+    ) throws IOException {
+        int length = 0;
+        for (byte b = input.readByte(); b != 0x0; b = input.readByte()) {
+            for (PuzChecksum cksum : cksums)
+                cksum.update(b);
+            length += 1;
+        }
+        return length;
+    }
+
+    private static void skipNullTerminatedString(DataInputStream input)
+            throws IOException {
+        while (input.readByte() != 0x0) {
+            // skip
+        }
+    }
+
+    /**
+     * Skip a legacy ANTS/DNTS section with notes for numClues clues
+     *
+     * See loadNotesNative for format.
+     */
+    private static void skipNotesNative(DataInputStream input, int numClues)
+            throws IOException {
+        for (int i = 0; i < numClues; i++) {
+            byte numFields = input.readByte();
+            for (byte j = 0; j < numFields; j++) {
+                input.readByte();
+                skipNullTerminatedString(input);
+            }
+        }
+    }
+
+    /**
+     * True if the cell is a block or off the grid
+     *
+     * @param solution the raw solution grid bytes
+     * @param byteChars the decoding of each byte value
+     */
+    private static boolean isBlockByte(
+        byte[] solution, char[] byteChars,
+        int width, int height, int row, int col
+    ) {
+        if (row < 0 || row >= height || col < 0 || col >= width)
+            return true;
+        return byteChars[0xFF & solution[row * width + col]] == '.';
+    }
+
+    private static char[] getByteChars(Charset charset) {
+        char[] chars = new char[256];
+        byte[] b = new byte[1];
+        for (int i = 0; i < chars.length; i++) {
+            b[0] = (byte) i;
+            chars[i] = new String(b, charset).charAt(0);
+        }
+        return chars;
+    }
+
     public static void save(
         Puzzle puz,
         OutputStream puzzleOutputStream,
@@ -522,43 +924,26 @@ public class IO implements PuzzleParser {
     /**
      * Attempts to unscramble the solution using the input key. Modifications to
      * the solution array occur in place. If true, the unscrambled solution
-     * checksum is valid.
+     * checksum is valid and the solution is set on the puzzle's boxes.
+     * The puzzle's scrambled and updatable flags are left alone.
      */
     public static boolean tryUnscramble(Puzzle p, int key_int, byte[] solution) {
-        p.unscrambleKey[0] = (key_int / 1000) % 10;
-        p.unscrambleKey[1] = (key_int / 100) % 10;
-        p.unscrambleKey[2] = (key_int / 10) % 10;
-        p.unscrambleKey[3] = (key_int / 1) % 10;
-
-        for (int i = 3; i >= 0; i--) {
-            unscrambleString(p, solution);
-            System.arraycopy(p.unscrambleBuf, 0, solution, 0,
-                    p.unscrambleBuf.length);
-            unshiftString(p, solution, p.unscrambleKey[i]);
-
-            for (int j = 0; j < solution.length; j++) {
-                int letter = (solution[j] & 0xFF) - p.unscrambleKey[j % 4];
-
-                if (letter < 65) {
-                    letter += 26;
-                }
-
-                solution[j] = (byte) letter;
-            }
-        }
-
-        if (p.solutionChecksum == (short) IO.cksum_region(solution, 0,
-                solution.length, 0)) {
+        boolean valid = PuzCracker.unscramble(
+            solution, key_int, p.getSolutionChecksum(), solution
+        );
+        if (valid) {
+            // column order, as scrambled
+            Box[][] boxes = p.getBoxes();
             int s = 0;
-            for (int i = 0; i < p.getBoxesList().length; i++) {
-                Box b = p.getBoxesList()[i];
-                if (b != null) {
-                    b.setSolution((char) solution[s++]);
+            for (int col = 0; col < p.getWidth(); col++) {
+                for (int row = 0; row < p.getHeight(); row++) {
+                    Box box = boxes[row][col];
+                    if (box != null)
+                        box.setSolution((char) solution[s++]);
                 }
             }
-            return true;
         }
-        return false;
+        return valid;
     }
 
     public static void writeCustom(Puzzle puz, DataOutputStream os)
@@ -568,13 +953,21 @@ public class IO implements PuzzleParser {
         v.write(puz, os);
     }
 
+    /**
+     * Search all keys for one that unscrambles the puzzle
+     *
+     * Search runs in parallel, if found the solution is set on the
+     * puzzle, which is then no longer scrambled or updatable, as with
+     * Puzzle.setUnscrambledSolution.
+     */
     public static boolean crack(Puzzle puz) {
-        for (int a = 0; a < 10000; a++) {
-            if (tryUnscramble(puz, a, puz.initializeUnscrambleData())) {
-                return true;
-            }
-        }
-        return false;
+        byte[] solution = puz.getScrambledSolution();
+        int key = PuzCracker.findKey(solution, puz.getSolutionChecksum());
+        if (key < 0 || !tryUnscramble(puz, key, solution))
+            return false;
+        puz.setScrambled(false);
+        puz.setUpdatable(false);
+        return true;
     }
 
     public static void writeNullTerminatedString(
@@ -588,6 +981,11 @@ public class IO implements PuzzleParser {
         os.write(0);
     }
 
+    /**
+     * @deprecated uses the deprecated buffers on the puzzle, PuzCracker
+     * unscrambles without them
+     */
+    @Deprecated
     public static void unscrambleString(Puzzle p, byte[] str) {
         int oddIndex = 0;
         int evenIndex = str.length / 2;
@@ -601,6 +999,11 @@ public class IO implements PuzzleParser {
         }
     }
 
+    /**
+     * @deprecated uses the deprecated buffers on the puzzle, PuzCracker
+     * unscrambles without them
+     */
+    @Deprecated
     public static void unshiftString(Puzzle p, byte[] str, int keynum) {
         System.arraycopy(str, str.length - keynum, p.unscrambleTmp, 0, keynum);
         System.arraycopy(str, 0, str, keynum, str.length - keynum);
@@ -820,10 +1223,8 @@ public class IO implements PuzzleParser {
      * https://github.com/alexdej/puzpy
      */
     private static byte[][] readRebusBoard(
-        DataInputStream input, PuzzleBuilder builder
+        DataInputStream input, int width, int height
     ) throws IOException {
-        int height = builder.getHeight();
-        int width = builder.getWidth();
         byte[][] rebusBoard = new byte[height][width];
 
         input.skipBytes(4);
@@ -847,11 +1248,8 @@ public class IO implements PuzzleParser {
      * https://github.com/alexdej/puzpy
      */
     private static String[] readRebusTable(
-        DataInputStream input, PuzzleBuilder builder, Charset charset
+        DataInputStream input, int width, int height, Charset charset
     ) throws IOException {
-        int height = builder.getHeight();
-        int width = builder.getWidth();
-
         String[] table = new String[width * height + 1];
 
         // 2 bytes len, 2 bytes checksum
@@ -1,12 +1,9 @@
 
 package app.crossword.yourealwaysbe.io;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.Charset;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -23,8 +20,6 @@ import java.util.logging.Logger;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONTokener;
-import org.json.JSONWriter;
 
 import app.crossword.yourealwaysbe.puz.Box;
 import app.crossword.yourealwaysbe.puz.Clue;
@@ -35,6 +30,7 @@ import app.crossword.yourealwaysbe.puz.Position;
 import app.crossword.yourealwaysbe.puz.PuzImage;
 import app.crossword.yourealwaysbe.puz.Puzzle;
 import app.crossword.yourealwaysbe.puz.PuzzleBuilder;
+import app.crossword.yourealwaysbe.puz.PuzzleMeta;
 import app.crossword.yourealwaysbe.puz.Zone;
 import app.crossword.yourealwaysbe.util.PuzzleUtils;
 
@@ -69,7 +65,6 @@ public class IPuzIO implements PuzzleParser {
     // version 1 was not tagged in file
     private static final int IO_VERSION = 3;
 
-    private static final Charset WRITE_CHARSET = Charset.forName("UTF-8");
 
     private static final String FIELD_VERSION = "version";
     private static final String FIELD_KIND = "kind";
@@ -100,7 +95,6 @@ public class IPuzIO implements PuzzleParser {
     private static final String FIELD_SHAPE_BG = "shapebg";
     private static final String FIELD_COLOR = "color";
     private static final int HEX_CODE_LEN = 6;
-    private static final String HEX_COLOR_FORMAT = "%0" + HEX_CODE_LEN + "X";
     private static final String FIELD_BARRED = "barred";
 
     private static final String SHAPE_BG_CIRCLE = "circle";
@@ -108,6 +102,13 @@ public class IPuzIO implements PuzzleParser {
     private static final char BARRED_BOTTOM = 'B';
     private static final char BARRED_LEFT = 'L';
     private static final char BARRED_RIGHT = 'R';
+    private static final int BARRED_TOP_BIT = 1;
+    private static final int BARRED_RIGHT_BIT = 2;
+    private static final int BARRED_BOTTOM_BIT = 4;
+    private static final int BARRED_LEFT_BIT = 8;
+    // barred field value for each combination of bits, so that writing
+    // doesn't build a string per cell
+    private static final String[] BARRED_VALUES = getBarredValues();
     private static final String FIELD_MARK = "mark";
     private static final String FIELD_MARK_TOP_LEFT = "TL";
     private static final String FIELD_MARK_TOP = "T";
@@ -266,36 +267,141 @@ public class IPuzIO implements PuzzleParser {
         return readPuzzle(is);
     }
 
+    /**
+     * Read puzzle from stream of IPuz JSON
+     *
+     * The JSON is read a token at a time, filling in the puzzle as it
+     * goes. Only small parts (the clues, play data fields, cell styles)
+     * are built as JSON objects.
+     *
+     * @return null if the puzzle could not be read
+     */
     public static Puzzle readPuzzle(InputStream is) throws IOException {
         try {
-            JSONObject json = new JSONObject(new JSONTokener(is));
-
-            checkIPuzVersion(json);
-            Puzzle.Kind kind = getPuzKind(json);
+            return new IPuzStreamReader(new JSONStreamReader(is)).read();
+        } catch (IPuzFormatException | JSONException e) {
+            LOG.severe("Could not read IPuz file: " + e);
+            return null;
+        }
+    }
 
-            PuzzleBuilder builder = new PuzzleBuilder(readBoxes(json));
+    /**
+     * Read just the meta data needed for puzzle lists
+     *
+     * Streams through the top level fields, skipping the grids, clues
+     * and anything else not needed, and reads the percentages stored in
+     * the Forkyz play data extension. Gives the same title, author,
+     * source, date, updatable and percentages as readPuzzle.
+     *
+     * @return the meta data, or null if the file could not be read or
+     * does not contain stored percentages (i.e. it was not saved by
+     * Forkyz), in which case use readPuzzle
+     */
+    public static PuzzleMeta readMeta(InputStream is) throws IOException {
+        try {
+            JSONStreamReader reader = new JSONStreamReader(is);
+
+            PuzzleMeta meta = new PuzzleMeta();
+            String version = null;
+            boolean hasKind = false;
+            String date = null;
+            int ioVersion = 0;
+            boolean hasIOVersion = false;
+            boolean hasPlayData = false;
+            boolean hasPercentComplete = false;
+            boolean hasPercentFilled = false;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (FIELD_VERSION.equals(name)) {
+                    version = reader.nextStringOrNull();
+                } else if (FIELD_KIND.equals(name)) {
+                    hasKind = readMetaKind(reader);
+                } else if (FIELD_TITLE.equals(name)) {
+                    meta.title = reader.nextStringOrNull();
+                } else if (FIELD_AUTHOR.equals(name)) {
+                    meta.author = reader.nextStringOrNull();
+                } else if (FIELD_PUBLISHER.equals(name)) {
+                    meta.source = reader.nextStringOrNull();
+                } else if (FIELD_DATE.equals(name)) {
+                    date = reader.nextStringOrNull();
+                } else if (FIELD_EXT_IO_VERSION.equals(name)) {
+                    ioVersion = reader.nextInt();
+                    hasIOVersion = true;
+                } else if (FIELD_EXT_PLAY_DATA.equals(name)) {
+                    hasPlayData = true;
+                    if (reader.peek() != JSONStreamReader.Token.BEGIN_OBJECT) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String playName = reader.nextName();
+                        if (FIELD_PCNT_COMPLETE.equals(playName)) {
+                            meta.percentComplete = reader.nextInt();
+                            hasPercentComplete = true;
+                        } else if (FIELD_PCNT_FILLED.equals(playName)) {
+                            meta.percentFilled = reader.nextInt();
+                            hasPercentFilled = true;
+                        } else if (FIELD_UPDATABLE.equals(playName)) {
+                            meta.updatable = reader.nextBoolean();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
 
-            if (kind != null)
-                builder.setKind(kind);
+            checkIPuzVersion(version);
+            if (!hasKind)
+                throw new IPuzFormatException("No supported IPuz kind");
 
-            readMetaData(json, builder);
-            readClues(json, builder);
-            readExtensions(json, builder);
+            if (!hasIOVersion)
+                ioVersion = hasPlayData ? 1 : 0;
+            meta.date = parseDate(date, ioVersion);
 
-            if (Puzzle.Kind.ACROSTIC.equals(kind))
-                ensureBoardClue(builder);
+            if (!hasPercentComplete || !hasPercentFilled)
+                return null;
 
-            return builder.getPuzzle();
+            return meta;
         } catch (IPuzFormatException | JSONException e) {
-            LOG.severe("Could not read IPuz file: " + e);
-            e.printStackTrace();
+            LOG.info("Could not read IPuz meta: " + e);
             return null;
         }
     }
 
+    /**
+     * Read kind array from reader
+     *
+     * @return true if a supported kind is listed
+     */
+    private static boolean readMetaKind(JSONStreamReader reader)
+            throws IOException {
+        boolean supported = false;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String kind = reader.nextScalar().toString().toLowerCase();
+            for (String supportedKindPrefix : SUPPORTED_KIND_PREFIXES) {
+                if (kind.startsWith(supportedKindPrefix))
+                    supported = true;
+            }
+        }
+        reader.endArray();
+        return supported;
+    }
+
     private static void checkIPuzVersion(JSONObject puzJson)
             throws IPuzFormatException {
-        String version = puzJson.getString(FIELD_VERSION);
+        checkIPuzVersion(puzJson.getString(FIELD_VERSION));
+    }
+
+    private static void checkIPuzVersion(String version)
+            throws IPuzFormatException {
         for (String supportedVersion : SUPPORTED_VERSIONS) {
             if (supportedVersion.equalsIgnoreCase(version))
                 return;
@@ -366,12 +472,23 @@ public class IPuzIO implements PuzzleParser {
      */
     private static LocalDate parseDate(JSONObject puzJson)
             throws IPuzFormatException {
-        String date = optStringNull(puzJson, FIELD_DATE);
+        return parseDate(
+            optStringNull(puzJson, FIELD_DATE), getIOVersion(puzJson)
+        );
+    }
+
+    /**
+     * Parse date string written by given Forkyz IO version
+     *
+     * @return null if date is null
+     */
+    private static LocalDate parseDate(String date, int ioVersion)
+            throws IPuzFormatException {
         if (date == null)
             return null;
 
         try {
-            if (getIOVersion(puzJson) == 1)
+            if (ioVersion == 1)
                 return LocalDate.parse(date, DATE_FORMATTER_V1);
             else
                 return LocalDate.parse(date, DATE_FORMATTER);
@@ -410,61 +527,6 @@ public class IPuzIO implements PuzzleParser {
         return unHtmlString(value);
     }
 
-    /**
-     * Read fully populated Box objects from JSON
-     *
-     * Will always return some boxes, or throw a JSON exception
-     */
-    private static Box[][] readBoxes(JSONObject puzJson)
-            throws IPuzFormatException {
-        JSONObject dimensions = puzJson.getJSONObject(FIELD_DIMENSIONS);
-
-        int width = dimensions.getInt(FIELD_WIDTH);
-        int height = dimensions.getInt(FIELD_HEIGHT);
-
-        Box[][] boxes = new Box[height][width];
-
-        readPuzzleCells(puzJson, boxes);
-        readSaved(puzJson, boxes);
-        readSolution(puzJson, boxes);
-
-        return boxes;
-    }
-
-    /**
-     * Populate boxes array following cells in JSON
-     *
-     * I.e. no box, block, empty, or clue number, possibly with styles
-     * etc.
-     */
-    private static void readPuzzleCells(JSONObject puzJson, Box[][] boxes)
-            throws IPuzFormatException {
-        JSONArray cells = puzJson.getJSONArray(FIELD_PUZZLE);
-
-        if (cells.length() < boxes.length) {
-            throw new IPuzFormatException(
-                "Number of cell rows doesn't match boxes dimensions"
-            );
-        }
-
-        String block = getBlockString(puzJson);
-        String empty = getEmptyCellString(puzJson);
-
-        for (int row = 0; row < boxes.length; row++) {
-            JSONArray rowCells = cells.getJSONArray(row);
-
-            if (rowCells.length() < boxes[row].length) {
-                throw new IPuzFormatException(
-                    "Number of cell columns doesn't match boxes dimension"
-                );
-            }
-
-            for (int col = 0; col < boxes[row].length; col++) {
-                boxes[row][col]
-                    = getBoxFromObj(rowCells.get(col), block, empty);
-            }
-        }
-    }
 
     private static String getBlockString(JSONObject puzJson) {
         return puzJson.optString(FIELD_BLOCK, DEFAULT_BLOCK);
@@ -500,34 +562,11 @@ public class IPuzIO implements PuzzleParser {
 
             Box box = getBoxFromObj(cellObj, block, empty);
 
-            String initVal = optStringNull(json, FIELD_VALUE);
-            if (initVal != null) {
-                if (initVal.length() != 1) {
-                    throw new IPuzFormatException(
-                        "Cannot represent init values of more "
-                        + "than one character: '"
-                        + initVal
-                        + "'"
-                    );
-                }
-                box.setResponse(initVal.charAt(0));
-            }
+            setInitValue(optStringNull(json, FIELD_VALUE), box);
 
             JSONObject style = json.optJSONObject(FIELD_STYLE);
-
-            if (style != null) {
-                if (SHAPE_BG_CIRCLE.equals(style.optString(FIELD_SHAPE_BG))) {
-                    box.setCircled(true);
-                }
-                String color = style.optString(FIELD_COLOR);
-                // not supporting numbered "unique" colors for now
-                if (color != null && color.length() == HEX_CODE_LEN) {
-                    box.setColor(hexToColor(color));
-                }
-
-                getBarredFromStyleObj(style, box);
-                getMarksFromStyleObj(style, box);
-            }
+            if (style != null)
+                getStyleFromStyleObj(style, box);
 
             return box;
         } else if (cell.toString().equals(block.toString())) {
@@ -547,6 +586,39 @@ public class IPuzIO implements PuzzleParser {
         }
     }
 
+    /**
+     * Set box response from a cell's initial value, if not null
+     */
+    private static void setInitValue(String initVal, Box box)
+            throws IPuzFormatException {
+        if (initVal == null)
+            return;
+
+        if (initVal.length() != 1) {
+            throw new IPuzFormatException(
+                "Cannot represent init values of more "
+                + "than one character: '"
+                + initVal
+                + "'"
+            );
+        }
+        box.setResponse(initVal.charAt(0));
+    }
+
+    private static void getStyleFromStyleObj(JSONObject style, Box box) {
+        if (SHAPE_BG_CIRCLE.equals(style.optString(FIELD_SHAPE_BG))) {
+            box.setCircled(true);
+        }
+        String color = style.optString(FIELD_COLOR);
+        // not supporting numbered "unique" colors for now
+        if (color != null && color.length() == HEX_CODE_LEN) {
+            box.setColor(hexToColor(color));
+        }
+
+        getBarredFromStyleObj(style, box);
+        getMarksFromStyleObj(style, box);
+    }
+
     private static void getBarredFromStyleObj(JSONObject style, Box box) {
         String barred = optStringNull(style, FIELD_BARRED);
         if (barred != null) {
@@ -592,64 +664,6 @@ public class IPuzIO implements PuzzleParser {
         box.setMarks(marks);
     }
 
-    /**
-     * Populate boxes array with response data from JSON
-     */
-    private static void readSaved(JSONObject puzJson, Box[][] boxes)
-            throws IPuzFormatException {
-        String block = getBlockString(puzJson);
-        String empty = getEmptyCellString(puzJson);
-        JSONArray saved = puzJson.optJSONArray(FIELD_SAVED);
-        if (saved != null && saved.length() > 0)
-            readValues(saved, boxes, false, block, empty);
-    }
-
-    /**
-     * Populate boxes array with puzzle solution data from JSON
-     */
-    private static void readSolution(JSONObject puzJson, Box[][] boxes)
-            throws IPuzFormatException {
-        String block = getBlockString(puzJson);
-        String empty = getEmptyCellString(puzJson);
-        JSONArray solution = puzJson.optJSONArray(FIELD_SOLUTION);
-        if (solution != null && solution.length() > 0)
-            readValues(solution, boxes, true, block, empty);
-    }
-
-    /**
-     * Reads a value array and loads into boxes saved/solution
-     *
-     * @param cells the array of arrays of CrosswordValues
-     * @param boxes the boxes to read data into
-     * @param isSolution whether puzzles solution is being read, else
-     * saved user responses will be read
-     */
-    private static void readValues(
-        JSONArray cells, Box[][] boxes, boolean isSolution,
-        String block, String empty
-    ) throws IPuzFormatException {
-        int height = Math.min(cells.length(), boxes.length);
-
-        for (int row = 0; row < height; row++) {
-            JSONArray rowCells = cells.getJSONArray(row);
-
-            int width = Math.min(rowCells.length(), boxes[row].length);
-
-            for (int col = 0; col < width; col++) {
-                String value = getCrosswordValueFromObj(
-                    rowCells.get(col), block, empty
-                );
-
-                if (value !=  null) {
-                    if (isSolution)
-                        boxes[row][col].setSolution(value);
-                    else
-                        boxes[row][col].setResponse(value);
-                }
-            }
-        }
-    }
-
     /**
      * Fill in the saved data for the box from the object in the JSON
      *
@@ -1089,16 +1103,18 @@ public class IPuzIO implements PuzzleParser {
         if (images == null)
             return;
 
-        for (int i = 0; i < images.length(); i++) {
-            JSONObject image = images.getJSONObject(i);
-            String url = image.getString(FIELD_EXT_IMAGE_URL);
-            int row = image.getInt(FIELD_EXT_IMAGE_ROW);
-            int col = image.getInt(FIELD_EXT_IMAGE_COL);
-            int width = image.getInt(FIELD_EXT_IMAGE_WIDTH);
-            int height = image.getInt(FIELD_EXT_IMAGE_HEIGHT);
+        for (int i = 0; i < images.length(); i++)
+            builder.addImage(getImage(images.getJSONObject(i)));
+    }
 
-            builder.addImage(new PuzImage(url, row, col, width, height));
-        }
+    private static PuzImage getImage(JSONObject image) {
+        String url = image.getString(FIELD_EXT_IMAGE_URL);
+        int row = image.getInt(FIELD_EXT_IMAGE_ROW);
+        int col = image.getInt(FIELD_EXT_IMAGE_COL);
+        int width = image.getInt(FIELD_EXT_IMAGE_WIDTH);
+        int height = image.getInt(FIELD_EXT_IMAGE_HEIGHT);
+
+        return new PuzImage(url, row, col, width, height);
     }
 
     /**
@@ -1503,35 +1519,73 @@ public class IPuzIO implements PuzzleParser {
     }
 
     /**
-     * Write puzzle to os using WRITE_CHARSET
+     * Write puzzle to os as UTF-8
+     *
+     * Does not close os. For repeated saves, use a PuzzleWriter.
      */
     public static void writePuzzle(
         Puzzle puz, OutputStream os, boolean omitPlayState
     ) throws IOException {
-        BufferedWriter writer = null;
-        try {
-            writer = new BufferedWriter(
-                new OutputStreamWriter(os, WRITE_CHARSET)
-            );
+        new PuzzleWriter().encode(puz, omitPlayState, false).writeTo(os);
+        os.flush();
+    }
+
+    /**
+     * Reusable IPuz encoder
+     *
+     * Encodes into a buffer that is kept between uses, so saving the
+     * same puzzle again (e.g. every time the app is paused) allocates
+     * next to nothing. Encode first then write out, so that a puzzle
+     * that fails to encode does not leave a truncated file. Not thread
+     * safe.
+     */
+    public static class PuzzleWriter {
+        private final FormatableJSONWriter writer
+            = new FormatableJSONWriter();
 
-            FormatableJSONWriter jsonWriter = new FormatableJSONWriter(writer);
+        /**
+         * Encode puzzle, replacing anything encoded before
+         *
+         * @param omitPlayState don't write the player's state
+         * @param compact no new lines or indentation, for saves not
+         * meant to be read by people
+         * @return self for chaining
+         */
+        public PuzzleWriter encode(
+            Puzzle puz, boolean omitPlayState, boolean compact
+        ) throws IOException {
+            writer.reset(compact);
+
+            writer.object();
+            writer.newLine();
 
-            jsonWriter.object();
-            jsonWriter.newLine();
+            writeIPuzHeader(puz, writer);
+            writeMetaData(puz, writer);
+            writeBoxes(puz, writer, omitPlayState);
+            writeClues(puz, writer);
+            writeExtensions(puz, writer, omitPlayState);
 
-            writeIPuzHeader(puz, jsonWriter);
-            writeMetaData(puz, jsonWriter);
-            writeBoxes(puz, jsonWriter, omitPlayState);
-            writeClues(puz, jsonWriter);
-            writeExtensions(puz, jsonWriter, omitPlayState);
+            writer.endObject();
+            writer.newLine();
 
-            jsonWriter.endObject();
-            jsonWriter.newLine();
-        } finally {
-            // don't close original output stream, it's the caller's job
-            if (writer != null)
-                writer.flush();
-        };
+            return this;
+        }
+
+        /**
+         * Size in bytes of the last encoded puzzle
+         */
+        public int size() {
+            return writer.size();
+        }
+
+        /**
+         * Write the last encoded puzzle to os
+         *
+         * Does not flush or close os.
+         */
+        public void writeTo(OutputStream os) throws IOException {
+            writer.writeTo(os);
+        }
     }
 
     /**
@@ -1665,8 +1719,9 @@ public class IPuzIO implements PuzzleParser {
         writer.object();
 
         if (box.hasColor()) {
+            // ignore alpha channel
             writer.key(FIELD_COLOR)
-                .value(colorToHex(box.getColor()));
+                .hexValue(box.getColor() & 0x00ffffff, HEX_CODE_LEN);
         }
 
         if (box.isCircled()) {
@@ -1681,17 +1736,17 @@ public class IPuzIO implements PuzzleParser {
 
     private static void writeBarredField(Box box, FormatableJSONWriter writer) {
         if (box.isBarred()) {
-            String barred = "";
+            int barred = 0;
             if (box.isBarredTop())
-                barred += BARRED_TOP;
+                barred |= BARRED_TOP_BIT;
             if (box.isBarredRight())
-                barred += BARRED_RIGHT;
+                barred |= BARRED_RIGHT_BIT;
             if (box.isBarredBottom())
-                barred += BARRED_BOTTOM;
+                barred |= BARRED_BOTTOM_BIT;
             if (box.isBarredLeft())
-                barred += BARRED_LEFT;
+                barred |= BARRED_LEFT_BIT;
 
-            writer.key(FIELD_BARRED).value(barred.toString());
+            writer.key(FIELD_BARRED).value(BARRED_VALUES[barred]);
         }
     }
 
@@ -1746,7 +1801,7 @@ public class IPuzIO implements PuzzleParser {
                 else if (box.isBlank())
                     writer.value(DEFAULT_EMPTY_WRITE);
                 else
-                    writer.value(String.valueOf(box.getResponse()));
+                    writer.value(box.getResponse());
             }
 
             writer.endArray();
@@ -1781,9 +1836,9 @@ public class IPuzIO implements PuzzleParser {
                 if (box == null) {
                     writer.value(DEFAULT_BLOCK);
                 } else if (box.hasSolution()) {
-                    writer.value(String.valueOf(box.getSolution()));
+                    writer.value(box.getSolution());
                 } else {
-                    writer.value(JSONObject.NULL);
+                    writer.nullValue();
                 }
             }
 
@@ -2243,13 +2298,28 @@ public class IPuzIO implements PuzzleParser {
     }
 
     /**
-     * Convert a color to dddddd
+     * Barred field value for each combination of BARRED_*_BIT
      */
-    private static String colorToHex(int color) {
-        // ignore alpha channel
-        return String.format(
-            HEX_COLOR_FORMAT, color & 0x00ffffff
-        );
+    private static String[] getBarredValues() {
+        int numValues = BARRED_TOP_BIT
+            | BARRED_RIGHT_BIT
+            | BARRED_BOTTOM_BIT
+            | BARRED_LEFT_BIT;
+
+        String[] values = new String[numValues + 1];
+        for (int bits = 0; bits <= numValues; bits++) {
+            StringBuilder barred = new StringBuilder();
+            if ((bits & BARRED_TOP_BIT) != 0)
+                barred.append(BARRED_TOP);
+            if ((bits & BARRED_RIGHT_BIT) != 0)
+                barred.append(BARRED_RIGHT);
+            if ((bits & BARRED_BOTTOM_BIT) != 0)
+                barred.append(BARRED_BOTTOM);
+            if ((bits & BARRED_LEFT_BIT) != 0)
+                barred.append(BARRED_LEFT);
+            values[bits] = barred.toString();
+        }
+        return values;
     }
 
     /**
@@ -2263,11 +2333,29 @@ public class IPuzIO implements PuzzleParser {
     }
 
     /**
-     * Extend JSONWriter with a write method to add custom formatting
+     * As optStringNull for a value already taken from JSON
+     */
+    private static String optStringNull(Object value) {
+        if (value == null || JSONObject.NULL.equals(value))
+            return null;
+        String s = value.toString();
+        return s.isEmpty() ? null : s;
+    }
+
+    /**
+     * Extend JSONStreamWriter with methods to add custom formatting
+     *
+     * Formatting is skipped in compact mode.
      */
-    private static class FormatableJSONWriter extends JSONWriter {
-        public FormatableJSONWriter(Appendable writer) {
-            super(writer);
+    private static class FormatableJSONWriter extends JSONStreamWriter {
+        private boolean compact = false;
+
+        /**
+         * Clear output and set whether formatting is written
+         */
+        public void reset(boolean compact) {
+            reset();
+            this.compact = compact;
         }
 
         /**
@@ -2282,6 +2370,10 @@ public class IPuzIO implements PuzzleParser {
 
         /**
          * Writes the field if not null with trailing new line and indent
+         *
+         * Value should be a String, Boolean, or integral Number, else
+         * it is written as its toString.
+         *
          * @return self for chaining
          */
         public FormatableJSONWriter keyValueNonNull(
@@ -2290,24 +2382,435 @@ public class IPuzIO implements PuzzleParser {
             if (value != null) {
                 indent(indentSteps);
                 key(field);
-                value(value);
+                if (value instanceof Boolean)
+                    value(((Boolean) value).booleanValue());
+                else if (value instanceof Number)
+                    value(((Number) value).longValue());
+                else
+                    value(value.toString());
                 newLine();
             }
             return this;
         }
 
         public FormatableJSONWriter newLine() throws IOException {
-            writer.append("\n");
+            if (!compact)
+                raw('\n');
             return this;
         }
 
         public FormatableJSONWriter indent(int count) throws IOException {
-            for (int i = 0; i < count; i++)
-                writer.append("\t");
+            if (!compact) {
+                for (int i = 0; i < count; i++)
+                    raw('\t');
+            }
             return this;
         }
     }
 
+    /**
+     * Reads IPuz from a JSON token stream
+     *
+     * Fields can come in any order, but boxes need the dimensions and
+     * block/empty strings, clues need the Forkyz IO version, and so on.
+     * So the big per-cell arrays are read into compact rows (scalars,
+     * or a pre-styled Box for object cells) and resolved at the end.
+     * The small top-level fields, clues and play data (apart from the
+     * per-cell box extras) are collected into a JSONObject so that the
+     * same methods as the tree reader can be used on them. Fields we
+     * don't use are skipped without being built.
+     */
+    private static class IPuzStreamReader {
+        // top-level fields kept as JSON for the shared read methods
+        private static final Set<String> JSON_FIELDS
+            = new HashSet<>(Arrays.asList(new String[] {
+                FIELD_VERSION,
+                FIELD_KIND,
+                FIELD_TITLE,
+                FIELD_AUTHOR,
+                FIELD_COPYRIGHT,
+                FIELD_INTRO,
+                FIELD_NOTES,
+                FIELD_EXPLANATION,
+                FIELD_URL,
+                FIELD_PUBLISHER,
+                FIELD_DATE,
+                FIELD_DIMENSIONS,
+                FIELD_BLOCK,
+                FIELD_EMPTY,
+                FIELD_SHOW_ENUMERATIONS,
+                FIELD_CLUES,
+                FIELD_EXT_SUPPORT_URL,
+                FIELD_EXT_SHARE_URL,
+                FIELD_EXT_IO_VERSION,
+                FIELD_EXT_PINNED_CLUE_ID
+            }));
+
+        private final JSONStreamReader reader;
+        private final JSONObject puzJson = new JSONObject();
+        private final List<Object> rowBuffer = new ArrayList<>();
+
+        // null if not in file
+        private List<Object[]> cells = null;
+        private List<Object[]> saved = null;
+        private List<Object[]> solution = null;
+        private List<PuzImage> images = null;
+        private List<Boolean[]> cheated = null;
+        private List<String[]> responders = null;
+
+        public IPuzStreamReader(JSONStreamReader reader) {
+            this.reader = reader;
+        }
+
+        public Puzzle read() throws IOException, IPuzFormatException {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (FIELD_PUZZLE.equals(name)) {
+                    cells = readCellRows();
+                } else if (FIELD_SAVED.equals(name)) {
+                    saved = readValueRows();
+                } else if (FIELD_SOLUTION.equals(name)) {
+                    solution = readValueRows();
+                } else if (FIELD_EXT_IMAGES.equals(name)) {
+                    images = readImages();
+                } else if (FIELD_EXT_PLAY_DATA.equals(name)) {
+                    readPlayData();
+                } else if (JSON_FIELDS.contains(name)) {
+                    puzJson.put(name, reader.nextJSONValue());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return buildPuzzle();
+        }
+
+        private Puzzle buildPuzzle() throws IPuzFormatException {
+            checkIPuzVersion(puzJson);
+            Puzzle.Kind kind = getPuzKind(puzJson);
+
+            PuzzleBuilder builder = new PuzzleBuilder(buildBoxes());
+
+            if (kind != null)
+                builder.setKind(kind);
+
+            readMetaData(puzJson, builder);
+            readClues(puzJson, builder);
+            readExtensions(puzJson, builder);
+
+            if (images != null) {
+                for (PuzImage image : images)
+                    builder.addImage(image);
+            }
+
+            applyBoxExtras(builder);
+
+            if (Puzzle.Kind.ACROSTIC.equals(kind))
+                ensureBoardClue(builder);
+
+            return builder.getPuzzle();
+        }
+
+        /**
+         * Rows of cells, scalars or PendingCell for objects
+         */
+        private List<Object[]> readCellRows() throws IOException {
+            if (reader.peek() != JSONStreamReader.Token.BEGIN_ARRAY)
+                throw new JSONException("Puzzle cells not a JSONArray");
+
+            List<Object[]> rows = new ArrayList<>();
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                rowBuffer.clear();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (reader.peek() == JSONStreamReader.Token.BEGIN_OBJECT)
+                        rowBuffer.add(readPendingCell());
+                    else
+                        rowBuffer.add(reader.nextJSONValue());
+                }
+                reader.endArray();
+                rows.add(rowBuffer.toArray());
+            }
+            reader.endArray();
+
+            return rows;
+        }
+
+        /**
+         * Read a cell object into a box with its value and style
+         *
+         * The clue number (or block) can only be determined once the
+         * block/empty strings are known.
+         */
+        private PendingCell readPendingCell() throws IOException {
+            Object cell = null;
+            String initVal = null;
+            JSONObject style = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (FIELD_CELL.equals(name)) {
+                    cell = reader.nextJSONValue();
+                } else if (FIELD_VALUE.equals(name)) {
+                    initVal = optStringNull(reader.nextJSONValue());
+                } else if (FIELD_STYLE.equals(name)) {
+                    Object styleObj = reader.nextJSONValue();
+                    if (styleObj instanceof JSONObject)
+                        style = (JSONObject) styleObj;
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return new PendingCell(cell, initVal, style);
+        }
+
+        /**
+         * Rows of saved or solution values
+         *
+         * @return null if not an array (ignored, as the tree reader)
+         */
+        private List<Object[]> readValueRows() throws IOException {
+            if (reader.peek() != JSONStreamReader.Token.BEGIN_ARRAY) {
+                reader.skipValue();
+                return null;
+            }
+
+            List<Object[]> rows = new ArrayList<>();
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                rowBuffer.clear();
+                reader.beginArray();
+                while (reader.hasNext())
+                    rowBuffer.add(reader.nextJSONValue());
+                reader.endArray();
+                rows.add(rowBuffer.toArray());
+            }
+            reader.endArray();
+
+            return rows;
+        }
+
+        private List<PuzImage> readImages() throws IOException {
+            if (reader.peek() != JSONStreamReader.Token.BEGIN_ARRAY) {
+                reader.skipValue();
+                return null;
+            }
+
+            List<PuzImage> images = new ArrayList<>();
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Object image = reader.nextJSONValue();
+                if (!(image instanceof JSONObject))
+                    throw new JSONException("Image not a JSONObject");
+                images.add(getImage((JSONObject) image));
+            }
+            reader.endArray();
+
+            return images;
+        }
+
+        /**
+         * Read play data into puzJson, except box extras
+         */
+        private void readPlayData() throws IOException {
+            if (reader.peek() != JSONStreamReader.Token.BEGIN_OBJECT) {
+                puzJson.put(FIELD_EXT_PLAY_DATA, reader.nextJSONValue());
+                return;
+            }
+
+            JSONObject playData = new JSONObject();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (FIELD_BOX_EXTRAS.equals(name))
+                    readBoxExtras();
+                else
+                    playData.put(name, reader.nextJSONValue());
+            }
+            reader.endObject();
+
+            puzJson.put(FIELD_EXT_PLAY_DATA, playData);
+        }
+
+        private void readBoxExtras() throws IOException {
+            cheated = new ArrayList<>();
+            responders = new ArrayList<>();
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                List<Boolean> rowCheated = new ArrayList<>();
+                List<String> rowResponders = new ArrayList<>();
+
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Object extrasObj = reader.nextJSONValue();
+                    Boolean boxCheated = null;
+                    String boxResponder = null;
+                    if (extrasObj instanceof JSONObject) {
+                        JSONObject extras = (JSONObject) extrasObj;
+                        if (extras.has(FIELD_BOX_CHEATED))
+                            boxCheated = extras.getBoolean(FIELD_BOX_CHEATED);
+                        if (extras.has(FIELD_BOX_RESPONDER))
+                            boxResponder = extras.getString(FIELD_BOX_RESPONDER);
+                    }
+                    rowCheated.add(boxCheated);
+                    rowResponders.add(boxResponder);
+                }
+                reader.endArray();
+
+                cheated.add(rowCheated.toArray(new Boolean[0]));
+                responders.add(rowResponders.toArray(new String[0]));
+            }
+            reader.endArray();
+        }
+
+        private Box[][] buildBoxes() throws IPuzFormatException {
+            JSONObject dimensions = puzJson.getJSONObject(FIELD_DIMENSIONS);
+
+            int width = dimensions.getInt(FIELD_WIDTH);
+            int height = dimensions.getInt(FIELD_HEIGHT);
+
+            Box[][] boxes = new Box[height][width];
+
+            String block = getBlockString(puzJson);
+            String empty = getEmptyCellString(puzJson);
+
+            if (cells == null)
+                throw new JSONException("No puzzle cells");
+
+            if (cells.size() < boxes.length) {
+                throw new IPuzFormatException(
+                    "Number of cell rows doesn't match boxes dimensions"
+                );
+            }
+
+            for (int row = 0; row < boxes.length; row++) {
+                Object[] rowCells = cells.get(row);
+
+                if (rowCells.length < boxes[row].length) {
+                    throw new IPuzFormatException(
+                        "Number of cell columns doesn't match boxes dimension"
+                    );
+                }
+
+                for (int col = 0; col < boxes[row].length; col++) {
+                    Object cell = rowCells[col];
+                    if (cell instanceof PendingCell) {
+                        boxes[row][col]
+                            = ((PendingCell) cell).getBox(block, empty);
+                    } else {
+                        boxes[row][col] = getBoxFromObj(cell, block, empty);
+                    }
+                }
+            }
+
+            if (saved != null && saved.size() > 0)
+                buildValues(saved, boxes, false, block, empty);
+            if (solution != null && solution.size() > 0)
+                buildValues(solution, boxes, true, block, empty);
+
+            return boxes;
+        }
+
+        /**
+         * As readValues but from the streamed rows
+         */
+        private void buildValues(
+            List<Object[]> values, Box[][] boxes, boolean isSolution,
+            String block, String empty
+        ) throws IPuzFormatException {
+            int height = Math.min(values.size(), boxes.length);
+
+            for (int row = 0; row < height; row++) {
+                Object[] rowValues = values.get(row);
+
+                int width = Math.min(rowValues.length, boxes[row].length);
+
+                for (int col = 0; col < width; col++) {
+                    String value = getCrosswordValueFromObj(
+                        rowValues[col], block, empty
+                    );
+
+                    if (value !=  null) {
+                        if (isSolution)
+                            boxes[row][col].setSolution(value);
+                        else
+                            boxes[row][col].setResponse(value);
+                    }
+                }
+            }
+        }
+
+        /**
+         * As readBoxExtras but from the streamed rows
+         */
+        private void applyBoxExtras(PuzzleBuilder builder) {
+            if (cheated == null)
+                return;
+
+            int numRows = Math.min(cheated.size(), builder.getHeight());
+
+            for (int row = 0; row < numRows; row++) {
+                Boolean[] rowCheated = cheated.get(row);
+                String[] rowResponders = responders.get(row);
+
+                int numCols = Math.min(rowCheated.length, builder.getWidth());
+
+                for (int col = 0; col < numCols; col++) {
+                    Box box = builder.getBox(row, col);
+                    if (box != null) {
+                        if (rowCheated[col] != null)
+                            box.setCheated(rowCheated[col]);
+                        if (rowResponders[col] != null)
+                            box.setResponder(rowResponders[col]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A cell object from the puzzle field waiting for block/empty
+     */
+    private static class PendingCell {
+        private Object cell;
+        private String initVal;
+        private JSONObject style;
+
+        public PendingCell(Object cell, String initVal, JSONObject style) {
+            this.cell = cell;
+            this.initVal = initVal;
+            this.style = style;
+        }
+
+        /**
+         * Build box as getBoxFromObj would for the whole object
+         */
+        public Box getBox(String block, String empty)
+                throws IPuzFormatException {
+            Box box = getBoxFromObj(
+                (cell == null) ? empty : cell, block, empty
+            );
+
+            setInitValue(initVal, box);
+
+            if (style != null)
+                getStyleFromStyleObj(style, box);
+
+            return box;
+        }
+    }
+
     private static class IPuzClue {
         private String number;
         private String label;
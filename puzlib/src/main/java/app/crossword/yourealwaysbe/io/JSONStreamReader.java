@@ -0,0 +1,509 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Pull reader for JSON streams
+ *
+ * Reads one token at a time instead of building a JSONObject tree, so
+ * that callers can pick out the fields they want and skip the rest
+ * without allocating for it.
+ *
+ * Accepts the same input as org.json's JSONTokener for the things we
+ * read: single or double quoted strings, unquoted keys and literals,
+ * and trailing commas. Unquoted literals are converted as
+ * JSONObject.stringToValue does. Syntax errors are thrown as
+ * JSONException, as when parsing with org.json.
+ */
+class JSONStreamReader implements Closeable {
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 8192;
+
+    // characters ending an unquoted literal, as in JSONTokener
+    private static final String LITERAL_DELIMITERS = ",:]}/\\\"[{;=#";
+
+    public enum Token {
+        BEGIN_OBJECT,
+        END_OBJECT,
+        BEGIN_ARRAY,
+        END_ARRAY,
+        NAME,
+        STRING,
+        LITERAL,
+        END_DOCUMENT
+    }
+
+    private static final int SCOPE_EMPTY_DOCUMENT = 0;
+    private static final int SCOPE_NONEMPTY_DOCUMENT = 1;
+    private static final int SCOPE_EMPTY_ARRAY = 2;
+    private static final int SCOPE_NONEMPTY_ARRAY = 3;
+    private static final int SCOPE_EMPTY_OBJECT = 4;
+    private static final int SCOPE_DANGLING_NAME = 5;
+    private static final int SCOPE_NONEMPTY_OBJECT = 6;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+
+    private int[] scopes = new int[32];
+    private int numScopes = 0;
+
+    private Token peeked = null;
+    private String peekedString = null;
+    private final StringBuilder text = new StringBuilder();
+
+    // don't build strings while skipping
+    private boolean skipping = false;
+
+    /**
+     * Read from UTF-8 encoded stream (as JSONTokener)
+     */
+    public JSONStreamReader(InputStream is) {
+        this(new InputStreamReader(is, CHARSET));
+    }
+
+    public JSONStreamReader(Reader in) {
+        this.in = in;
+        pushScope(SCOPE_EMPTY_DOCUMENT);
+    }
+
+    /**
+     * Type of the next token, without consuming it
+     */
+    public Token peek() throws IOException {
+        if (peeked != null)
+            return peeked;
+
+        int c;
+
+        switch (scopes[numScopes - 1]) {
+        case SCOPE_EMPTY_DOCUMENT:
+            scopes[numScopes - 1] = SCOPE_NONEMPTY_DOCUMENT;
+            return peekValue();
+        case SCOPE_NONEMPTY_DOCUMENT:
+            // like JSONObject, ignore anything after the value
+            peeked = Token.END_DOCUMENT;
+            return peeked;
+        case SCOPE_EMPTY_ARRAY:
+            scopes[numScopes - 1] = SCOPE_NONEMPTY_ARRAY;
+            c = nextClean();
+            if (c == ']') {
+                peeked = Token.END_ARRAY;
+                return peeked;
+            } else if (c < 0) {
+                throw syntaxError("Unexpected end of input");
+            }
+            pos -= 1;
+            return peekValue();
+        case SCOPE_NONEMPTY_ARRAY:
+            c = nextClean();
+            if (c == ']') {
+                peeked = Token.END_ARRAY;
+                return peeked;
+            } else if (c != ',') {
+                throw syntaxError("Expected a ',' or ']'");
+            }
+            c = nextClean();
+            if (c == ']') {
+                peeked = Token.END_ARRAY;
+                return peeked;
+            } else if (c < 0) {
+                throw syntaxError("Unexpected end of input");
+            }
+            pos -= 1;
+            return peekValue();
+        case SCOPE_EMPTY_OBJECT:
+            c = nextClean();
+            return peekName(c);
+        case SCOPE_NONEMPTY_OBJECT:
+            c = nextClean();
+            if (c == '}') {
+                peeked = Token.END_OBJECT;
+                return peeked;
+            } else if (c != ',') {
+                throw syntaxError("Expected a ',' or '}'");
+            }
+            return peekName(nextClean());
+        case SCOPE_DANGLING_NAME:
+            c = nextClean();
+            if (c != ':')
+                throw syntaxError("Expected a ':' after a key");
+            scopes[numScopes - 1] = SCOPE_NONEMPTY_OBJECT;
+            return peekValue();
+        default:
+            throw new IllegalStateException("Unknown scope");
+        }
+    }
+
+    /**
+     * True if the current array or object has more elements
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT
+            && token != Token.END_ARRAY
+            && token != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        pushScope(SCOPE_EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        numScopes -= 1;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        pushScope(SCOPE_EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        numScopes -= 1;
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return peekedString;
+    }
+
+    /**
+     * Next value if a string or literal
+     *
+     * @return the value as org.json would give it: a String, Boolean,
+     * Number, or JSONObject.NULL
+     */
+    public Object nextScalar() throws IOException {
+        Token token = peek();
+        if (token == Token.STRING) {
+            peeked = null;
+            return peekedString;
+        } else if (token == Token.LITERAL) {
+            peeked = null;
+            return JSONObject.stringToValue(peekedString);
+        } else {
+            throw syntaxError("Expected a string or literal but was " + token);
+        }
+    }
+
+    /**
+     * Next value as JSONObject.optString would give it
+     *
+     * @return string value, or null if the value is null or empty
+     */
+    public String nextStringOrNull() throws IOException {
+        Object value = nextScalar();
+        if (JSONObject.NULL.equals(value))
+            return null;
+        String s = value.toString();
+        return s.isEmpty() ? null : s;
+    }
+
+    public int nextInt() throws IOException {
+        Object value = nextScalar();
+        if (value instanceof Number)
+            return ((Number) value).intValue();
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected an int but was " + value);
+        }
+    }
+
+    public long nextLong() throws IOException {
+        Object value = nextScalar();
+        if (value instanceof Number)
+            return ((Number) value).longValue();
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected a long but was " + value);
+        }
+    }
+
+    public boolean nextBoolean() throws IOException {
+        Object value = nextScalar();
+        if (Boolean.TRUE.equals(value)
+                || "true".equalsIgnoreCase(value.toString()))
+            return true;
+        if (Boolean.FALSE.equals(value)
+                || "false".equalsIgnoreCase(value.toString()))
+            return false;
+        throw syntaxError("Expected a boolean but was " + value);
+    }
+
+    /**
+     * Next value as org.json would read it
+     *
+     * Objects and arrays are built as JSONObject/JSONArray, for values
+     * that are small and easier to handle as a tree.
+     */
+    public Object nextJSONValue() throws IOException {
+        switch (peek()) {
+        case BEGIN_OBJECT:
+            JSONObject object = new JSONObject();
+            beginObject();
+            while (hasNext()) {
+                String name = nextName();
+                object.put(name, nextJSONValue());
+            }
+            endObject();
+            return object;
+        case BEGIN_ARRAY:
+            JSONArray array = new JSONArray();
+            beginArray();
+            while (hasNext())
+                array.put(nextJSONValue());
+            endArray();
+            return array;
+        default:
+            return nextScalar();
+        }
+    }
+
+    /**
+     * Skip the next value, including any nested arrays/objects
+     *
+     * Strings inside the skipped value are not built.
+     */
+    public void skipValue() throws IOException {
+        boolean wasSkipping = skipping;
+        skipping = true;
+        try {
+            int depth = 0;
+            do {
+                switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    depth += 1;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    depth += 1;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    depth -= 1;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    depth -= 1;
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("Unexpected end of document");
+                default:
+                    peeked = null;
+                }
+            } while (depth > 0);
+        } finally {
+            skipping = wasSkipping;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expect(Token token) throws IOException {
+        Token next = peek();
+        if (next != token)
+            throw syntaxError("Expected " + token + " but was " + next);
+        peeked = null;
+    }
+
+    private void pushScope(int scope) {
+        if (numScopes == scopes.length) {
+            int[] newScopes = new int[scopes.length * 2];
+            System.arraycopy(scopes, 0, newScopes, 0, scopes.length);
+            scopes = newScopes;
+        }
+        scopes[numScopes++] = scope;
+    }
+
+    /**
+     * Read name token, c is first non-whitespace character
+     */
+    private Token peekName(int c) throws IOException {
+        if (c == '}') {
+            peeked = Token.END_OBJECT;
+            return peeked;
+        }
+
+        if (c == '"' || c == '\'') {
+            peekedString = readString((char) c);
+        } else if (c == '{' || c == '[' || c < 0) {
+            throw syntaxError("A JSONObject text must contain keys");
+        } else {
+            pos -= 1;
+            peekedString = readLiteral();
+        }
+
+        scopes[numScopes - 1] = SCOPE_DANGLING_NAME;
+        peeked = Token.NAME;
+        return peeked;
+    }
+
+    private Token peekValue() throws IOException {
+        int c = nextClean();
+        switch (c) {
+        case -1:
+            throw syntaxError("Unexpected end of document");
+        case '{':
+            peeked = Token.BEGIN_OBJECT;
+            break;
+        case '[':
+            peeked = Token.BEGIN_ARRAY;
+            break;
+        case '"':
+        case '\'':
+            peekedString = readString((char) c);
+            peeked = Token.STRING;
+            break;
+        default:
+            pos -= 1;
+            peekedString = readLiteral();
+            peeked = Token.LITERAL;
+        }
+        return peeked;
+    }
+
+    /**
+     * Next character that isn't whitespace, -1 at end
+     */
+    private int nextClean() throws IOException {
+        while (true) {
+            if (pos == limit && !fill())
+                return -1;
+            char c = buffer[pos++];
+            if (c > ' ')
+                return c;
+        }
+    }
+
+    /**
+     * Read string up to closing quote, handling escapes
+     *
+     * @return null if skipping
+     */
+    private String readString(char quote) throws IOException {
+        text.setLength(0);
+        while (true) {
+            if (pos == limit && !fill())
+                throw syntaxError("Unterminated string");
+
+            // copy runs of plain characters in one go
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == quote || c == '\\' || c == '\n' || c == '\r')
+                    break;
+                pos += 1;
+            }
+            if (!skipping)
+                text.append(buffer, start, pos - start);
+
+            if (pos == limit)
+                continue;
+
+            char c = buffer[pos++];
+            if (c == quote) {
+                return skipping ? null : text.toString();
+            } else if (c == '\\') {
+                char escaped = readEscape();
+                if (!skipping)
+                    text.append(escaped);
+            } else {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = nextChar();
+        switch (c) {
+        case 'b': return '\b';
+        case 't': return '\t';
+        case 'n': return '\n';
+        case 'f': return '\f';
+        case 'r': return '\r';
+        case 'u':
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(nextChar(), 16);
+                if (digit < 0)
+                    throw syntaxError("Illegal escape.");
+                value = (value << 4) + digit;
+            }
+            return (char) value;
+        case '"':
+        case '\'':
+        case '\\':
+        case '/':
+            return (char) c;
+        default:
+            throw syntaxError("Illegal escape.");
+        }
+    }
+
+    private int nextChar() throws IOException {
+        if (pos == limit && !fill())
+            throw syntaxError("Unexpected end of document");
+        return buffer[pos++];
+    }
+
+    /**
+     * Read unquoted literal, trimmed
+     *
+     * Returned even when skipping, literals are short.
+     */
+    private String readLiteral() throws IOException {
+        text.setLength(0);
+        while (true) {
+            if (pos == limit && !fill())
+                break;
+            char c = buffer[pos];
+            if (c < ' ' || LITERAL_DELIMITERS.indexOf(c) >= 0)
+                break;
+            text.append(c);
+            pos += 1;
+        }
+
+        String literal = text.toString().trim();
+        if (literal.isEmpty())
+            throw syntaxError("Missing value");
+        return literal;
+    }
+
+    /**
+     * Refill buffer, return false if end of input
+     */
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            pos = 0;
+            limit = 0;
+            return false;
+        }
+        pos = 0;
+        limit = read;
+        return true;
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " in JSON stream");
+    }
+}
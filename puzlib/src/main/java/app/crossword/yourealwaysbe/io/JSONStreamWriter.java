@@ -0,0 +1,344 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes JSON as UTF-8 straight into a growable byte buffer
+ *
+ * Counterpart of JSONStreamReader. Output is the same as org.json's
+ * JSONWriter (no whitespace, strings escaped as JSONObject.quote does)
+ * but nothing is allocated per value: strings and numbers are
+ * encoded directly into the buffer. The buffer is kept on reset, so a
+ * writer used repeatedly for similar documents stops allocating once
+ * it has grown to size.
+ *
+ * Commas are added automatically. There is no checking that keys and
+ * values are in a valid order, that is up to the caller. Not thread
+ * safe.
+ */
+class JSONStreamWriter {
+    private static final int INITIAL_CAPACITY = 8192;
+    private static final int INITIAL_DEPTH = 32;
+    // longest encoding of a char is \\uXXXX
+    private static final int MAX_BYTES_PER_CHAR = 6;
+    private static final byte[] HEX_DIGITS = {
+        '0', '1', '2', '3', '4', '5', '6', '7',
+        '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+    };
+    // JSONObject.quote uses lower case for \\u escapes
+    private static final byte[] LOWER_HEX_DIGITS = {
+        '0', '1', '2', '3', '4', '5', '6', '7',
+        '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+    // as the UTF-8 encoder does for malformed input
+    private static final byte REPLACEMENT = '?';
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int count = 0;
+
+    // whether the next item at each depth needs a comma before it
+    private boolean[] commas = new boolean[INITIAL_DEPTH];
+    private int depth = 0;
+
+    /**
+     * Clear the output, keeping the buffer for reuse
+     */
+    public void reset() {
+        count = 0;
+        depth = 0;
+        commas[0] = false;
+    }
+
+    /**
+     * Number of bytes written since last reset
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Copy output to stream
+     *
+     * Does not flush or close the stream.
+     */
+    public void writeTo(OutputStream os) throws IOException {
+        os.write(buffer, 0, count);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    public JSONStreamWriter object() {
+        startValue();
+        writeByte('{');
+        push();
+        return this;
+    }
+
+    public JSONStreamWriter endObject() {
+        writeByte('}');
+        pop();
+        return this;
+    }
+
+    public JSONStreamWriter array() {
+        startValue();
+        writeByte('[');
+        push();
+        return this;
+    }
+
+    public JSONStreamWriter endArray() {
+        writeByte(']');
+        pop();
+        return this;
+    }
+
+    public JSONStreamWriter key(String key) {
+        startValue();
+        writeString(key);
+        writeByte(':');
+        // value that follows needs no comma
+        commas[depth] = false;
+        return this;
+    }
+
+    /**
+     * Write a string value, or null if null
+     */
+    public JSONStreamWriter value(String value) {
+        startValue();
+        if (value == null)
+            writeBytes(NULL);
+        else
+            writeString(value);
+        endValue();
+        return this;
+    }
+
+    public JSONStreamWriter value(long value) {
+        startValue();
+        writeLong(value);
+        endValue();
+        return this;
+    }
+
+    public JSONStreamWriter value(boolean value) {
+        startValue();
+        writeBytes(value ? TRUE : FALSE);
+        endValue();
+        return this;
+    }
+
+    public JSONStreamWriter nullValue() {
+        startValue();
+        writeBytes(NULL);
+        endValue();
+        return this;
+    }
+
+    /**
+     * Write value as a string of upper case hex digits
+     *
+     * @param value the value, only the lowest digits * 4 bits are used
+     * @param digits number of digits to write, zero padded
+     */
+    public JSONStreamWriter hexValue(int value, int digits) {
+        startValue();
+        ensureCapacity(digits + 2);
+        buffer[count++] = '"';
+        for (int i = digits - 1; i >= 0; i--)
+            buffer[count++] = HEX_DIGITS[(value >>> (4 * i)) & 0xF];
+        buffer[count++] = '"';
+        endValue();
+        return this;
+    }
+
+    /**
+     * Write a raw ASCII character to the output
+     *
+     * For formatting whitespace between tokens. Not checked or escaped.
+     */
+    public JSONStreamWriter raw(char c) {
+        writeByte(c);
+        return this;
+    }
+
+    private void startValue() {
+        if (commas[depth])
+            writeByte(',');
+    }
+
+    private void endValue() {
+        commas[depth] = true;
+    }
+
+    private void push() {
+        depth += 1;
+        if (depth >= commas.length)
+            commas = Arrays.copyOf(commas, 2 * commas.length);
+        commas[depth] = false;
+    }
+
+    private void pop() {
+        depth -= 1;
+        endValue();
+    }
+
+    /**
+     * Write quoted string, escaped as JSONObject.quote
+     */
+    private void writeString(String s) {
+        int len = s.length();
+        ensureCapacity(MAX_BYTES_PER_CHAR * len + 2);
+
+        buffer[count++] = '"';
+
+        char prev = 0;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < len) {
+                char low = s.charAt(i + 1);
+                if (Character.isLowSurrogate(low)) {
+                    writeCodePoint(Character.toCodePoint(c, low));
+                    i += 1;
+                    prev = low;
+                    continue;
+                }
+            }
+            writeChar(c, prev);
+            prev = c;
+        }
+
+        buffer[count++] = '"';
+    }
+
+    /**
+     * Write escaped/encoded char, assumes capacity
+     *
+     * @param prev the char before in the string (for escaping "</")
+     */
+    private void writeChar(char c, char prev) {
+        switch (c) {
+        case '\\':
+        case '"':
+            buffer[count++] = '\\';
+            buffer[count++] = (byte) c;
+            break;
+        case '/':
+            if (prev == '<')
+                buffer[count++] = '\\';
+            buffer[count++] = (byte) c;
+            break;
+        case '\b':
+            writeEscape('b');
+            break;
+        case '\t':
+            writeEscape('t');
+            break;
+        case '\n':
+            writeEscape('n');
+            break;
+        case '\f':
+            writeEscape('f');
+            break;
+        case '\r':
+            writeEscape('r');
+            break;
+        default:
+            if (c < ' '
+                    || (c >= '\u0080' && c < '\u00a0')
+                    || (c >= '\u2000' && c < '\u2100')) {
+                buffer[count++] = '\\';
+                buffer[count++] = 'u';
+                for (int i = 3; i >= 0; i--)
+                    buffer[count++] = LOWER_HEX_DIGITS[(c >>> (4 * i)) & 0xF];
+            } else if (Character.isSurrogate(c)) {
+                buffer[count++] = REPLACEMENT;
+            } else {
+                writeCodePoint(c);
+            }
+        }
+    }
+
+    private void writeEscape(char c) {
+        buffer[count++] = '\\';
+        buffer[count++] = (byte) c;
+    }
+
+    /**
+     * Write UTF-8 encoding of code point, assumes capacity
+     */
+    private void writeCodePoint(int cp) {
+        if (cp < 0x80) {
+            buffer[count++] = (byte) cp;
+        } else if (cp < 0x800) {
+            buffer[count++] = (byte) (0xC0 | (cp >> 6));
+            buffer[count++] = (byte) (0x80 | (cp & 0x3F));
+        } else if (cp < 0x10000) {
+            buffer[count++] = (byte) (0xE0 | (cp >> 12));
+            buffer[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buffer[count++] = (byte) (0x80 | (cp & 0x3F));
+        } else {
+            buffer[count++] = (byte) (0xF0 | (cp >> 18));
+            buffer[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            buffer[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buffer[count++] = (byte) (0x80 | (cp & 0x3F));
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            String s = Long.toString(value);
+            ensureCapacity(s.length());
+            for (int i = 0; i < s.length(); i++)
+                buffer[count++] = (byte) s.charAt(i);
+            return;
+        }
+
+        // sign plus 19 digits
+        ensureCapacity(20);
+
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+
+        int numDigits = 1;
+        for (long v = value / 10; v > 0; v /= 10)
+            numDigits += 1;
+
+        int end = count + numDigits;
+        for (int i = end - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        count = end;
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+        buffer[count++] = (byte) c;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        int needed = count + extra;
+        if (needed > buffer.length) {
+            buffer = Arrays.copyOf(
+                buffer, Math.max(needed, 2 * buffer.length)
+            );
+        }
+    }
+}
@@ -0,0 +1,555 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import app.crossword.yourealwaysbe.puz.Box;
+import app.crossword.yourealwaysbe.puz.Clue;
+import app.crossword.yourealwaysbe.puz.ClueID;
+import app.crossword.yourealwaysbe.puz.Note;
+import app.crossword.yourealwaysbe.puz.Position;
+import app.crossword.yourealwaysbe.puz.Puzzle;
+
+/**
+ * Append-only journal of play state changes
+ *
+ * Instead of rewriting the whole puzzle file each time the player
+ * pauses, write just what changed since the last save as a journal
+ * entry appended to a separate file. Load the puzzle from its main file
+ * then replay the journal on top. Every so often the puzzle should be
+ * saved in full and the journal emptied.
+ *
+ * Changes are found by comparing with a snapshot of the play state
+ * taken at the last save rather than listening to the Playboard, since
+ * not every change goes through the board (e.g. cheated flags set when
+ * showing errors). Comparing is cheap, the point is to write only what
+ * changed.
+ *
+ * Covers cell responses, responders and cheated flags, the position and
+ * current clue, history, flagged clues, clue and player notes, and the
+ * play time. Each entry is a compact JSON object on its own line, with
+ * cells and notes as deltas and the rest only when changed. An entry
+ * cut short by a crash will not parse and is skipped on replay.
+ *
+ * One journal per open puzzle. Not thread safe.
+ */
+public class PlayJournal {
+    private static final Logger LOG
+        = Logger.getLogger(PlayJournal.class.getCanonicalName());
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private static final String FIELD_CELLS = "cells";
+    private static final String FIELD_POSITION = "position";
+    private static final String FIELD_CLUE_ID = "clueid";
+    private static final String FIELD_HISTORY = "history";
+    private static final String FIELD_FLAGGED = "flagged";
+    private static final String FIELD_NOTES = "notes";
+    private static final String FIELD_PLAYER_NOTE = "playernote";
+    private static final String FIELD_TIME = "time";
+    private static final String FIELD_LIST_NAME = "listname";
+    private static final String FIELD_INDEX = "index";
+    private static final String FIELD_CLUE = "clue";
+    private static final String FIELD_NOTE = "note";
+    private static final String FIELD_SCRATCH = "scratch";
+    private static final String FIELD_TEXT = "text";
+    private static final String FIELD_ANAGRAM_SRC = "anagramsrc";
+    private static final String FIELD_ANAGRAM_SOL = "anagramsol";
+
+    // cells are [row, col, response, responder, cheated]
+    private static final int CELL_ROW = 0;
+    private static final int CELL_COL = 1;
+    private static final int CELL_RESPONSE = 2;
+    private static final int CELL_RESPONDER = 3;
+    private static final int CELL_CHEATED = 4;
+
+    private final Puzzle puz;
+    private final int width;
+    private final int height;
+    private final JSONStreamWriter writer = new JSONStreamWriter();
+
+    // play state at last save, cells indexed row * width + col
+    private final String[] responses;
+    private final String[] responders;
+    private final boolean[] cheated;
+    private Position position;
+    private ClueID currentClueID;
+    private List<ClueID> history = new ArrayList<>();
+    private Set<ClueID> flagged = new HashSet<>();
+    private Map<ClueID, Note> notes = new HashMap<>();
+    private Note playerNote;
+    private long time;
+
+    // changes in the entry being written, kept to update the snapshot
+    // once written
+    private final int[] changedCells;
+    private int numChangedCells;
+    private final List<ClueID> changedNotes = new ArrayList<>();
+
+    private int numEntries = 0;
+
+    /**
+     * Start a journal for a puzzle as it is now
+     *
+     * The current state is taken as already saved.
+     */
+    public PlayJournal(Puzzle puz) {
+        this.puz = puz;
+        this.width = puz.getWidth();
+        this.height = puz.getHeight();
+
+        int size = width * height;
+        responses = new String[size];
+        responders = new String[size];
+        cheated = new boolean[size];
+        changedCells = new int[size];
+
+        markSaved();
+    }
+
+    /**
+     * Number of entries written since created or marked saved
+     */
+    public int getNumEntries() {
+        return numEntries;
+    }
+
+    /**
+     * Take the current state as saved
+     *
+     * Call after the puzzle has been saved in full.
+     */
+    public void markSaved() {
+        Box[][] boxes = puz.getBoxes();
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                Box box = boxes[row][col];
+                if (box != null)
+                    snapshotCell(row * width + col, box);
+            }
+        }
+
+        notes.clear();
+        for (String listName : puz.getClueListNames()) {
+            for (Clue clue : puz.getClues(listName)) {
+                ClueID cid = clue.getClueID();
+                Note note = puz.getNote(cid);
+                if (note != null)
+                    notes.put(cid, copyNote(note));
+            }
+        }
+
+        snapshotNonCells();
+
+        numEntries = 0;
+    }
+
+    /**
+     * Append changes since the last save to os
+     *
+     * If the write succeeds, the current state is taken as saved. Does
+     * not close os.
+     *
+     * @return true if an entry was written, false if nothing changed
+     */
+    public boolean writeEntry(OutputStream os) throws IOException {
+        writer.reset();
+        // start on a fresh line in case the last write was cut short
+        writer.raw('\n');
+        writer.object();
+
+        boolean changed = writeCells();
+        changed |= writePosition();
+        changed |= writeHistory();
+        changed |= writeFlagged();
+        changed |= writeNotes();
+        changed |= writePlayerNote();
+
+        if (puz.getTime() != time) {
+            writer.key(FIELD_TIME).value(puz.getTime());
+            changed = true;
+        }
+
+        writer.endObject();
+
+        if (!changed)
+            return false;
+
+        writer.writeTo(os);
+        os.flush();
+
+        // written, so now the saved state
+        numEntries += 1;
+        snapshotChanges();
+
+        return true;
+    }
+
+    /**
+     * Apply journal entries to a puzzle freshly loaded from its file
+     *
+     * Entries that can't be parsed are skipped.
+     *
+     * @return the number of entries applied
+     */
+    public static int replay(Puzzle puz, InputStream is) throws IOException {
+        BufferedReader reader
+            = new BufferedReader(new InputStreamReader(is, CHARSET));
+
+        int numApplied = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty())
+                continue;
+            try {
+                applyEntry(puz, new JSONObject(line));
+                numApplied += 1;
+            } catch (JSONException e) {
+                LOG.warning("Skipping bad journal entry: " + e);
+            }
+        }
+
+        return numApplied;
+    }
+
+    private void snapshotCell(int index, Box box) {
+        responses[index] = box.getResponse();
+        responders[index] = box.getResponder();
+        cheated[index] = box.isCheated();
+    }
+
+    /**
+     * Write changed cells, noting them in changedCells
+     */
+    private boolean writeCells() {
+        Box[][] boxes = puz.getBoxes();
+        boolean started = false;
+        numChangedCells = 0;
+
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                Box box = boxes[row][col];
+                if (box == null)
+                    continue;
+
+                int index = row * width + col;
+                String response = box.getResponse();
+                String responder = box.getResponder();
+                boolean boxCheated = box.isCheated();
+
+                boolean same = Objects.equals(response, responses[index])
+                    && Objects.equals(responder, responders[index])
+                    && boxCheated == cheated[index];
+                if (same)
+                    continue;
+
+                if (!started) {
+                    writer.key(FIELD_CELLS).array();
+                    started = true;
+                }
+
+                writer.array()
+                    .value(row)
+                    .value(col)
+                    .value(response)
+                    .value(responder)
+                    .value(boxCheated)
+                    .endArray();
+
+                changedCells[numChangedCells++] = index;
+            }
+        }
+
+        if (started)
+            writer.endArray();
+
+        return started;
+    }
+
+    private boolean writePosition() {
+        Position curPosition = puz.getPosition();
+        ClueID curClueID = puz.getCurrentClueID();
+
+        if (Objects.equals(curPosition, position)
+                && Objects.equals(curClueID, currentClueID))
+            return false;
+
+        writer.key(FIELD_POSITION);
+        if (curPosition == null) {
+            writer.nullValue();
+        } else {
+            writer.array()
+                .value(curPosition.getRow())
+                .value(curPosition.getCol())
+                .endArray();
+        }
+
+        writer.key(FIELD_CLUE_ID);
+        writeClueID(curClueID);
+
+        return true;
+    }
+
+    private boolean writeHistory() {
+        List<ClueID> curHistory = puz.getHistory();
+        if (curHistory.equals(history))
+            return false;
+
+        writer.key(FIELD_HISTORY).array();
+        for (ClueID cid : curHistory)
+            writeClueID(cid);
+        writer.endArray();
+
+        return true;
+    }
+
+    private boolean writeFlagged() {
+        if (isSameFlagged())
+            return false;
+
+        writer.key(FIELD_FLAGGED).array();
+        for (ClueID cid : puz.getFlaggedClues())
+            writeClueID(cid);
+        writer.endArray();
+
+        return true;
+    }
+
+    /**
+     * Write notes that changed, noting them in changedNotes
+     */
+    private boolean writeNotes() {
+        boolean started = false;
+        changedNotes.clear();
+
+        for (String listName : puz.getClueListNames()) {
+            for (Clue clue : puz.getClues(listName)) {
+                ClueID cid = clue.getClueID();
+                Note note = puz.getNote(cid);
+                if (Objects.equals(note, notes.get(cid)))
+                    continue;
+
+                if (!started) {
+                    writer.key(FIELD_NOTES).array();
+                    started = true;
+                }
+
+                writer.object().key(FIELD_CLUE);
+                writeClueID(cid);
+                writer.key(FIELD_NOTE);
+                writeNote(note);
+                writer.endObject();
+
+                changedNotes.add(cid);
+            }
+        }
+
+        if (started)
+            writer.endArray();
+
+        return started;
+    }
+
+    private boolean writePlayerNote() {
+        Note curNote = puz.getPlayerNote();
+        if (Objects.equals(curNote, playerNote))
+            return false;
+
+        writer.key(FIELD_PLAYER_NOTE);
+        writeNote(curNote);
+
+        return true;
+    }
+
+    private void writeClueID(ClueID cid) {
+        if (cid == null) {
+            writer.nullValue();
+        } else {
+            writer.object()
+                .key(FIELD_LIST_NAME).value(cid.getListName())
+                .key(FIELD_INDEX).value(cid.getIndex())
+                .endObject();
+        }
+    }
+
+    private void writeNote(Note note) {
+        if (note == null) {
+            writer.nullValue();
+        } else {
+            writer.object()
+                .key(FIELD_SCRATCH).value(note.getScratch())
+                .key(FIELD_TEXT).value(note.getText())
+                .key(FIELD_ANAGRAM_SRC).value(note.getAnagramSource())
+                .key(FIELD_ANAGRAM_SOL).value(note.getAnagramSolution())
+                .endObject();
+        }
+    }
+
+    private boolean isSameFlagged() {
+        Collection<ClueID> curFlagged = puz.getFlaggedClues();
+        return curFlagged.size() == flagged.size()
+            && flagged.containsAll(curFlagged);
+    }
+
+    /**
+     * Update snapshot with the changes in the entry just written
+     */
+    private void snapshotChanges() {
+        Box[][] boxes = puz.getBoxes();
+        for (int i = 0; i < numChangedCells; i++) {
+            int index = changedCells[i];
+            snapshotCell(index, boxes[index / width][index % width]);
+        }
+
+        for (ClueID cid : changedNotes) {
+            Note note = puz.getNote(cid);
+            if (note == null)
+                notes.remove(cid);
+            else
+                notes.put(cid, copyNote(note));
+        }
+
+        snapshotNonCells();
+    }
+
+    /**
+     * Snapshot everything but cells and clue notes
+     *
+     * Only copies lists if changed to avoid allocating on every save.
+     */
+    private void snapshotNonCells() {
+        position = puz.getPosition();
+        currentClueID = puz.getCurrentClueID();
+        if (!history.equals(puz.getHistory()))
+            history = new ArrayList<>(puz.getHistory());
+        if (!isSameFlagged())
+            flagged = new HashSet<>(puz.getFlaggedClues());
+        if (!Objects.equals(playerNote, puz.getPlayerNote()))
+            playerNote = copyNote(puz.getPlayerNote());
+        time = puz.getTime();
+    }
+
+    private static void applyEntry(Puzzle puz, JSONObject entry) {
+        JSONArray cells = entry.optJSONArray(FIELD_CELLS);
+        if (cells != null) {
+            for (int i = 0; i < cells.length(); i++) {
+                JSONArray cell = cells.getJSONArray(i);
+                Box box = puz.checkedGetBox(
+                    cell.getInt(CELL_ROW), cell.getInt(CELL_COL)
+                );
+                if (box == null)
+                    continue;
+                box.setResponse(cell.getString(CELL_RESPONSE));
+                box.setResponder(optString(cell.opt(CELL_RESPONDER)));
+                box.setCheated(cell.getBoolean(CELL_CHEATED));
+            }
+        }
+
+        if (entry.has(FIELD_POSITION)) {
+            JSONArray position = entry.optJSONArray(FIELD_POSITION);
+            puz.setPosition(
+                position == null
+                    ? null
+                    : new Position(position.getInt(0), position.getInt(1))
+            );
+            puz.setCurrentClueID(readClueID(entry.opt(FIELD_CLUE_ID)));
+        }
+
+        JSONArray history = entry.optJSONArray(FIELD_HISTORY);
+        if (history != null)
+            puz.setHistory(readClueIDs(history));
+
+        JSONArray flagged = entry.optJSONArray(FIELD_FLAGGED);
+        if (flagged != null) {
+            for (ClueID cid : new ArrayList<>(puz.getFlaggedClues()))
+                puz.flagClue(cid, false);
+            for (ClueID cid : readClueIDs(flagged))
+                puz.flagClue(cid, true);
+        }
+
+        JSONArray notes = entry.optJSONArray(FIELD_NOTES);
+        if (notes != null) {
+            for (int i = 0; i < notes.length(); i++) {
+                JSONObject clueNote = notes.getJSONObject(i);
+                ClueID cid = readClueID(clueNote.opt(FIELD_CLUE));
+                if (cid != null)
+                    puz.setNote(cid, readNote(clueNote.opt(FIELD_NOTE)));
+            }
+        }
+
+        if (entry.has(FIELD_PLAYER_NOTE))
+            puz.setPlayerNote(readNote(entry.opt(FIELD_PLAYER_NOTE)));
+
+        if (entry.has(FIELD_TIME))
+            puz.setTime(entry.getLong(FIELD_TIME));
+    }
+
+    private static List<ClueID> readClueIDs(JSONArray array) {
+        List<ClueID> cids = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            ClueID cid = readClueID(array.opt(i));
+            if (cid != null)
+                cids.add(cid);
+        }
+        return cids;
+    }
+
+    private static ClueID readClueID(Object value) {
+        if (!(value instanceof JSONObject))
+            return null;
+        JSONObject cid = (JSONObject) value;
+        return new ClueID(
+            cid.getString(FIELD_LIST_NAME), cid.getInt(FIELD_INDEX)
+        );
+    }
+
+    private static Note readNote(Object value) {
+        if (!(value instanceof JSONObject))
+            return null;
+        JSONObject note = (JSONObject) value;
+        return new Note(
+            optString(note.opt(FIELD_SCRATCH)),
+            optString(note.opt(FIELD_TEXT)),
+            optString(note.opt(FIELD_ANAGRAM_SRC)),
+            optString(note.opt(FIELD_ANAGRAM_SOL))
+        );
+    }
+
+    /**
+     * String value or null if missing or JSON null
+     */
+    private static String optString(Object value) {
+        if (value == null || JSONObject.NULL.equals(value))
+            return null;
+        return value.toString();
+    }
+
+    private static Note copyNote(Note note) {
+        if (note == null)
+            return null;
+        return new Note(
+            note.getScratch(),
+            note.getText(),
+            note.getAnagramSource(),
+            note.getAnagramSolution()
+        );
+    }
+}
@@ -0,0 +1,78 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.util.zip.Checksum;
+
+/**
+ * Incremental version of the Across Lite checksum
+ *
+ * Computes the same value as IO.cksum_region, but can be updated a
+ * chunk at a time, e.g. with java.util.zip.CheckedInputStream as a
+ * stream is consumed.
+ */
+public class PuzChecksum implements Checksum {
+    private final int initial;
+    private int cksum;
+
+    public PuzChecksum() {
+        this(0);
+    }
+
+    /**
+     * Start from an existing checksum value
+     *
+     * As the cksum argument of IO.cksum_region. The value is also used
+     * on reset.
+     */
+    public PuzChecksum(int initial) {
+        this.initial = initial & 0xFFFF;
+        this.cksum = this.initial;
+    }
+
+    @Override
+    public void update(int b) {
+        cksum = step(cksum, b);
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        int value = cksum;
+        for (int i = off; i < off + len; i++)
+            value = step(value, b[i]);
+        cksum = value;
+    }
+
+    public void update(byte[] b) {
+        update(b, 0, b.length);
+    }
+
+    @Override
+    public long getValue() {
+        return cksum;
+    }
+
+    /**
+     * The checksum as stored in the file (a little endian short)
+     */
+    public short getShortValue() {
+        return (short) cksum;
+    }
+
+    @Override
+    public void reset() {
+        cksum = initial;
+    }
+
+    /**
+     * Add one byte to a checksum
+     */
+    static int step(int cksum, int b) {
+        if ((cksum & 0x1) != 0) {
+            cksum = (cksum >> 1) + 0x8000;
+        } else {
+            cksum = cksum >> 1;
+        }
+
+        cksum += (0xFF & b);
+        return cksum & 0xFFFF;
+    }
+}
@@ -0,0 +1,231 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Brute force key search for scrambled Across Lite solutions
+ *
+ * Works directly on the scrambled solution bytes (the solution read in
+ * column order, as returned by Puzzle.getScrambledSolution). Each
+ * search task has its own scratch buffers, so nothing is shared with
+ * the Puzzle and the key space can be searched in parallel.
+ *
+ * Keys are the four digit unlock codes 0000-9999. A key is accepted if
+ * the unscrambled solution matches the solution checksum. Since the
+ * checksum is only 16 bits, more than one key may match; the search
+ * always returns the smallest.
+ */
+public class PuzCracker {
+    public static final int NUM_KEYS = 10000;
+
+    private static final int KEY_LENGTH = 4;
+    private static final int KEYS_PER_TASK = 250;
+
+    /**
+     * Find smallest key that unscrambles the solution, in parallel
+     *
+     * Uses the common fork join pool.
+     *
+     * @param scrambled the scrambled solution, not modified
+     * @param checksum the checksum of the unscrambled solution
+     * @return the key or -1 if none found
+     */
+    public static int findKey(byte[] scrambled, short checksum) {
+        return findKey(scrambled, checksum, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * As findKey, but using the given pool
+     */
+    public static int findKey(
+        byte[] scrambled, short checksum, ForkJoinPool pool
+    ) {
+        AtomicInteger bestKey = new AtomicInteger(NUM_KEYS);
+        pool.invoke(
+            new SearchTask(scrambled, checksum, 0, NUM_KEYS, bestKey)
+        );
+        int key = bestKey.get();
+        return key < NUM_KEYS ? key : -1;
+    }
+
+    /**
+     * Find smallest key that unscrambles the solution on this thread
+     *
+     * @return the key or -1 if none found
+     */
+    public static int findKeySequential(byte[] scrambled, short checksum) {
+        Scratch scratch = new Scratch(scrambled.length);
+        for (int key = 0; key < NUM_KEYS; key++) {
+            if (scratch.tryKey(scrambled, key, checksum))
+                return key;
+        }
+        return -1;
+    }
+
+    /**
+     * Unscramble solution with key
+     *
+     * @param scrambled the scrambled solution, not modified
+     * @param key the key to try
+     * @param checksum the checksum of the unscrambled solution
+     * @param dest array of same length as scrambled to receive
+     * unscrambled solution, filled even if checksum does not match
+     * @return true if the unscrambled solution matches the checksum
+     */
+    public static boolean unscramble(
+        byte[] scrambled, int key, short checksum, byte[] dest
+    ) {
+        Scratch scratch = new Scratch(scrambled.length);
+        boolean valid = scratch.tryKey(scrambled, key, checksum);
+        System.arraycopy(scratch.result, 0, dest, 0, scratch.result.length);
+        return valid;
+    }
+
+    /**
+     * Per-task buffers for trying keys
+     */
+    private static class Scratch {
+        private final int[] digits = new int[KEY_LENGTH];
+        private byte[] src;
+        private byte[] dst;
+        // points to src or dst, whichever has latest data
+        private byte[] result;
+
+        public Scratch(int length) {
+            src = new byte[length];
+            dst = new byte[length];
+        }
+
+        /**
+         * Unscramble into result, return true if matches checksum
+         *
+         * Each of the four rounds (last digit first) de-interleaves the
+         * string (odd indices then even), rotates it right by the key
+         * digit, then subtracts the key digits from the letters
+         * cyclically. The three steps are fused into a single pass in
+         * output order, and the checksum is computed during the last
+         * round.
+         */
+        public boolean tryKey(byte[] scrambled, int key, short checksum) {
+            int len = scrambled.length;
+
+            digits[0] = (key / 1000) % 10;
+            digits[1] = (key / 100) % 10;
+            digits[2] = (key / 10) % 10;
+            digits[3] = key % 10;
+
+            System.arraycopy(scrambled, 0, src, 0, len);
+            result = src;
+
+            // rotation by more than the length is not supported by the
+            // format
+            for (int i = 0; i < KEY_LENGTH; i++) {
+                if (digits[i] > len)
+                    return false;
+            }
+
+            int half = len / 2;
+            int cksum = 0;
+
+            for (int i = KEY_LENGTH - 1; i >= 0; i--) {
+                boolean lastRound = (i == 0);
+
+                // m is position before rotation
+                int m = len - digits[i];
+                if (m >= len)
+                    m -= len;
+                int digit = 0;
+
+                for (int to = 0; to < len; to++) {
+                    int from = (m < half) ? 2 * m + 1 : 2 * (m - half);
+
+                    int letter = (src[from] & 0xFF) - digits[digit];
+                    if (letter < 65)
+                        letter += 26;
+
+                    dst[to] = (byte) letter;
+
+                    if (lastRound)
+                        cksum = PuzChecksum.step(cksum, letter);
+
+                    m += 1;
+                    if (m == len)
+                        m = 0;
+                    digit += 1;
+                    if (digit == KEY_LENGTH)
+                        digit = 0;
+                }
+
+                byte[] swap = src;
+                src = dst;
+                dst = swap;
+            }
+
+            result = src;
+
+            return checksum == (short) cksum;
+        }
+    }
+
+    /**
+     * Search a key range, splitting until small enough
+     *
+     * Keys at or above the best key found so far are skipped, so once a
+     * key is found higher ranges stop early.
+     */
+    private static class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] scrambled;
+        private final short checksum;
+        private final int from;
+        private final int to;
+        private final AtomicInteger bestKey;
+
+        public SearchTask(
+            byte[] scrambled, short checksum,
+            int from, int to,
+            AtomicInteger bestKey
+        ) {
+            this.scrambled = scrambled;
+            this.checksum = checksum;
+            this.from = from;
+            this.to = to;
+            this.bestKey = bestKey;
+        }
+
+        @Override
+        protected void compute() {
+            if (from >= bestKey.get())
+                return;
+
+            if (to - from <= KEYS_PER_TASK) {
+                search();
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(
+                    new SearchTask(scrambled, checksum, from, mid, bestKey),
+                    new SearchTask(scrambled, checksum, mid, to, bestKey)
+                );
+            }
+        }
+
+        private void search() {
+            Scratch scratch = new Scratch(scrambled.length);
+            for (int key = from; key < to && key < bestKey.get(); key++) {
+                if (scratch.tryKey(scrambled, key, checksum)) {
+                    updateBest(key);
+                    return;
+                }
+            }
+        }
+
+        private void updateBest(int key) {
+            int current = bestKey.get();
+            while (key < current && !bestKey.compareAndSet(current, key))
+                current = bestKey.get();
+        }
+    }
+}
@@ -3,7 +3,9 @@ package app.crossword.yourealwaysbe.io;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 import app.crossword.yourealwaysbe.puz.Puzzle;
 
@@ -11,26 +13,64 @@ public class PuzzleStreamReader implements PuzzleParser {
     private static final Logger LOGGER
         = Logger.getLogger(PuzzleStreamReader.class.getCanonicalName());
 
+    /**
+     * Number of bytes from the start of the stream used to detect format
+     */
+    private static final int SNIFF_LENGTH = 4096;
+
+    // byte-preserving so offsets match the raw stream
+    private static final Charset SNIFF_CHARSET
+        = Charset.forName("ISO-8859-1");
+    private static final String UTF8_BOM = "\u00EF\u00BB\u00BF";
+
+    private static final Pattern IPUZ_VERSION_PATTERN = Pattern.compile(
+        "\"version\"\\s*:\\s*\"https?://ipuz\\.org/"
+    );
+    private static final Pattern RZS_TYPE_PATTERN = Pattern.compile(
+        "\"type\"\\s*:\\s*\"sweden\"", Pattern.CASE_INSENSITIVE
+    );
+    private static final Pattern PRZEKROJ_QUESTIONS_PATTERN = Pattern.compile(
+        "\"questions\"\\s*:\\s*\\["
+    );
+
+    private static final IO IO_PARSER = new IO();
+    private static final JPZIO JPZ_PARSER = new JPZIO();
+    private static final IPuzIO IPUZ_PARSER = new IPuzIO();
+    private static final UclickXMLIO UCLICK_PARSER = new UclickXMLIO();
+    private static final BrainsOnlyIO BRAINS_ONLY_PARSER = new BrainsOnlyIO();
+    private static final KingFeaturesPlaintextIO KING_FEATURES_PARSER
+        = new KingFeaturesPlaintextIO();
+    private static final GuardianJSONIO GUARDIAN_PARSER = new GuardianJSONIO();
+    private static final AmuseLabsJSONIO AMUSE_LABS_PARSER
+        = new AmuseLabsJSONIO();
+    private static final RaetselZentraleSchwedenJSONIO RZS_PARSER
+        = new RaetselZentraleSchwedenJSONIO();
+    private static final RCIJeuxMFJIO RCI_JEUX_PARSER = new RCIJeuxMFJIO();
+    private static final PrzekrojIO PRZEKROJ_PARSER = new PrzekrojIO();
+    private static final KeesingXMLIO KEESING_PARSER = new KeesingXMLIO();
+
     private static final PuzzleParser[] PARSERS = {
-        new IO(),
-        new JPZIO(),
-        new IPuzIO(),
-        new UclickXMLIO(),
-        new BrainsOnlyIO(),
-        new KingFeaturesPlaintextIO(),
-        new GuardianJSONIO(),
-        new AmuseLabsJSONIO(),
-        new RaetselZentraleSchwedenJSONIO(),
-        new RCIJeuxMFJIO(),
-        new PrzekrojIO(),
-        new KeesingXMLIO()
+        IO_PARSER,
+        JPZ_PARSER,
+        IPUZ_PARSER,
+        UCLICK_PARSER,
+        BRAINS_ONLY_PARSER,
+        KING_FEATURES_PARSER,
+        GUARDIAN_PARSER,
+        AMUSE_LABS_PARSER,
+        RZS_PARSER,
+        RCI_JEUX_PARSER,
+        PRZEKROJ_PARSER,
+        KEESING_PARSER
     };
 
     /**
      * Read the puzzle from the input stream, try multiple formats
      *
-     * The method will try known file formats until it finds one that
-     * parses to completion.
+     * The method first looks at the start of the stream to guess the
+     * format and tries the matching parser. If there is no match, or
+     * the parse fails, it will try known file formats until it finds
+     * one that parses to completion.
      */
     @Override
     public Puzzle parseInput(InputStream is) {
@@ -40,25 +80,187 @@ public class PuzzleStreamReader implements PuzzleParser {
     public static Puzzle parseInputStatic(InputStream is) {
         try {
             ByteArrayInputStream unzipped = StreamUtils.unzipOrPassThrough(is);
+
+            PuzzleParser detected = detectParser(unzipped);
+            if (detected != null) {
+                Puzzle puz = tryParse(detected, unzipped);
+                if (puz != null)
+                    return puz;
+            }
+
             for (PuzzleParser parser : PARSERS) {
-                try {
-                    unzipped.reset();
-                    LOGGER.info(
-                        "Attemptting parse with " + parser.getClass().getName()
-                    );
-                    Puzzle puz = parser.parseInput(unzipped);
-                    if (puz != null)
-                        return puz;
-                    else
-                        LOGGER.info("Parse returned null.");
-                } catch (Exception e) {
-                    LOGGER.info("Parse attempt failed with " + e);
-                    // on to the next one
-                }
+                if (parser == detected)
+                    continue;
+                Puzzle puz = tryParse(parser, unzipped);
+                if (puz != null)
+                    return puz;
             }
         } catch (IOException e) {
             LOGGER.info("Could not read input stream with " + e);
         }
         return null;
     }
+
+    /**
+     * Guess the parser for the stream from its first few bytes
+     *
+     * The stream is reset to the start afterwards.
+     *
+     * @return the parser to try first, or null if format not recognised
+     */
+    static PuzzleParser detectParser(ByteArrayInputStream is) {
+        byte[] head = new byte[SNIFF_LENGTH];
+        is.reset();
+        int len = Math.max(0, is.read(head, 0, head.length));
+        is.reset();
+        return detectParser(head, len);
+    }
+
+    /**
+     * Guess the parser from the first len bytes of the data
+     *
+     * @return the parser to try first, or null if format not recognised
+     */
+    static PuzzleParser detectParser(byte[] head, int len) {
+        if (isAcrossLite(head, len))
+            return IO_PARSER;
+
+        String text = new String(head, 0, len, SNIFF_CHARSET);
+        if (text.startsWith(UTF8_BOM))
+            text = text.substring(UTF8_BOM.length());
+        text = text.trim();
+
+        if (text.startsWith("<"))
+            return detectXMLParser(text);
+        else if (text.startsWith("{"))
+            return detectJSONParser(text);
+        else if (text.startsWith("ARCHIVE"))
+            return BRAINS_ONLY_PARSER;
+        else if (text.contains("nbcaseslargeur"))
+            return RCI_JEUX_PARSER;
+
+        return null;
+    }
+
+    private static Puzzle tryParse(
+        PuzzleParser parser, ByteArrayInputStream is
+    ) {
+        try {
+            is.reset();
+            LOGGER.info(
+                "Attemptting parse with " + parser.getClass().getName()
+            );
+            Puzzle puz = parser.parseInput(is);
+            if (puz == null)
+                LOGGER.info("Parse returned null.");
+            return puz;
+        } catch (Exception e) {
+            LOGGER.info("Parse attempt failed with " + e);
+            return null;
+        }
+    }
+
+    private static boolean isAcrossLite(byte[] head, int len) {
+        // magic follows two byte checksum
+        int offset = 0x2;
+        int magicLen = IO.FILE_MAGIC.length();
+        if (len < offset + magicLen)
+            return false;
+        for (int i = 0; i < magicLen; i++) {
+            if (head[offset + i] != IO.FILE_MAGIC.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private static PuzzleParser detectXMLParser(String text) {
+        String root = getXMLRootName(text);
+        if (root == null)
+            return null;
+
+        if (root.startsWith("crossword-compiler")
+                || text.contains("<rectangular-puzzle"))
+            return JPZ_PARSER;
+        else if (root.equals("crossword"))
+            return UCLICK_PARSER;
+        else if (root.equals("puzzle"))
+            return KEESING_PARSER;
+
+        return null;
+    }
+
+    /**
+     * Get lower case local name of first element in XML
+     *
+     * Skips declarations, processing instructions and comments. Returns
+     * null if none found.
+     */
+    private static String getXMLRootName(String text) {
+        int pos = 0;
+        while (pos < text.length()) {
+            pos = text.indexOf('<', pos);
+            if (pos < 0)
+                return null;
+
+            if (text.startsWith("<?", pos)) {
+                pos = skipPast(text, pos, "?>");
+            } else if (text.startsWith("<!--", pos)) {
+                pos = skipPast(text, pos, "-->");
+            } else if (text.startsWith("<!", pos)) {
+                pos = skipPast(text, pos, ">");
+            } else {
+                int start = pos + 1;
+                int end = start;
+                while (end < text.length()) {
+                    char c = text.charAt(end);
+                    if (Character.isWhitespace(c) || c == '>' || c == '/')
+                        break;
+                    end += 1;
+                }
+                String name = text.substring(start, end);
+                int colon = name.indexOf(':');
+                if (colon >= 0)
+                    name = name.substring(colon + 1);
+                return name.isEmpty() ? null : name.toLowerCase();
+            }
+
+            if (pos < 0)
+                return null;
+        }
+        return null;
+    }
+
+    /**
+     * Index after next occurrence of end from pos, or -1
+     */
+    private static int skipPast(String text, int pos, String end) {
+        int idx = text.indexOf(end, pos);
+        return idx < 0 ? -1 : idx + end.length();
+    }
+
+    private static PuzzleParser detectJSONParser(String text) {
+        // King Features plaintext grids are also wrapped in { ... |
+        int lineEnd = text.indexOf('\n');
+        String firstLine = (lineEnd < 0 ? text : text.substring(0, lineEnd))
+            .trim();
+        if (firstLine.endsWith("|"))
+            return KING_FEATURES_PARSER;
+
+        if (IPUZ_VERSION_PATTERN.matcher(text).find())
+            return IPUZ_PARSER;
+        else if (RZS_TYPE_PATTERN.matcher(text).find()
+                && text.contains("\"payload\""))
+            return RZS_PARSER;
+        else if (text.contains("\"webPublicationDate\"")
+                || text.contains("\"crosswordType\""))
+            return GUARDIAN_PARSER;
+        else if (text.contains("\"puzzleType\"")
+                || text.contains("\"placedWords\"")
+                || text.contains("\"publishTimeZone\""))
+            return AMUSE_LABS_PARSER;
+        else if (PRZEKROJ_QUESTIONS_PATTERN.matcher(text).find())
+            return PRZEKROJ_PARSER;
+
+        return null;
+    }
 }
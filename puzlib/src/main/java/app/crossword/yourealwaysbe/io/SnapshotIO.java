@@ -0,0 +1,541 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import app.crossword.yourealwaysbe.puz.Box;
+import app.crossword.yourealwaysbe.puz.Clue;
+import app.crossword.yourealwaysbe.puz.ClueID;
+import app.crossword.yourealwaysbe.puz.ClueList;
+import app.crossword.yourealwaysbe.puz.Note;
+import app.crossword.yourealwaysbe.puz.Position;
+import app.crossword.yourealwaysbe.puz.PuzImage;
+import app.crossword.yourealwaysbe.puz.Puzzle;
+import app.crossword.yourealwaysbe.puz.PuzzleBuilder;
+import app.crossword.yourealwaysbe.puz.Zone;
+
+/**
+ * Compact binary snapshot of a whole puzzle for use as a load cache
+ *
+ * Not an interchange format: the layout follows the in-memory model
+ * and changes with it (bump VERSION when it does). A snapshot carries
+ * a key chosen by the caller (e.g. source file and modification time)
+ * and is only read back if the key matches, so a stale or foreign
+ * snapshot is simply a cache miss.
+ *
+ * All strings are stored once in a table at the start and referred to
+ * by index after, so the many repeated cell values ("A", " ", null)
+ * are decoded once. Reading takes the whole snapshot as a byte array
+ * so the caller can fetch it in one read.
+ */
+public class SnapshotIO {
+    private static final Logger LOG
+        = Logger.getLogger(SnapshotIO.class.getCanonicalName());
+
+    private static final int MAGIC = 0x464b5a53; // FKZS
+    private static final int VERSION = 1;
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private static final int NULL_INDEX = -1;
+    private static final long NULL_DATE = Long.MIN_VALUE;
+
+    private static final int BOX_CHEATED = 0x01;
+    private static final int BOX_CIRCLED = 0x02;
+    private static final int BOX_BAR_TOP = 0x04;
+    private static final int BOX_BAR_BOTTOM = 0x08;
+    private static final int BOX_BAR_LEFT = 0x10;
+    private static final int BOX_BAR_RIGHT = 0x20;
+    private static final int BOX_MARKS = 0x40;
+    private static final int BOX_BLOCK = 0x80;
+
+    private static final int MARKS_SIZE = 3;
+
+    private SnapshotIO() { }
+
+    /**
+     * Write snapshot of the puzzle
+     *
+     * @param puz the puzzle to save
+     * @param key identifies what the snapshot was taken from, needed
+     * to read it back
+     * @param os stream to write to, not flushed or closed
+     */
+    public static void writeSnapshot(Puzzle puz, String key, OutputStream os)
+            throws IOException {
+        StringTable strings = new StringTable();
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(body);
+        writePuzzle(puz, strings, dos);
+        dos.flush();
+
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeBytes(key.getBytes(CHARSET), out);
+        out.writeInt(strings.size());
+        for (String s : strings.getStrings())
+            writeBytes(s.getBytes(CHARSET), out);
+        body.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Read snapshot back
+     *
+     * @param data the full contents of the snapshot
+     * @param key the key the snapshot is expected to have
+     * @return the puzzle, or null if the snapshot is for a different key
+     * or version, or is corrupt
+     */
+    public static Puzzle readSnapshot(byte[] data, String key) {
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(data);
+
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION)
+                return null;
+            if (!key.equals(readString(buf)))
+                return null;
+
+            int numStrings = buf.getInt();
+            if (numStrings < 0 || numStrings > buf.remaining())
+                return null;
+            String[] strings = new String[numStrings];
+            for (int i = 0; i < numStrings; i++)
+                strings[i] = readString(buf);
+
+            Puzzle puz = readPuzzle(buf, strings);
+            if (buf.hasRemaining())
+                return null;
+            return puz;
+        } catch (
+            BufferUnderflowException
+            | IllegalArgumentException
+            | IndexOutOfBoundsException e
+        ) {
+            LOG.info("Ignoring corrupt snapshot: " + e);
+            return null;
+        }
+    }
+
+    private static void writePuzzle(
+        Puzzle puz, StringTable strings, DataOutputStream dos
+    ) throws IOException {
+        dos.writeByte(puz.getKind().ordinal());
+        dos.writeInt(strings.get(puz.getTitle()));
+        dos.writeInt(strings.get(puz.getAuthor()));
+        dos.writeInt(strings.get(puz.getCopyright()));
+        dos.writeInt(strings.get(puz.getNotes()));
+        dos.writeInt(strings.get(puz.getIntroMessage()));
+        dos.writeInt(strings.get(puz.getCompletionMessage()));
+        dos.writeInt(strings.get(puz.getSource()));
+        dos.writeInt(strings.get(puz.getSourceUrl()));
+        dos.writeInt(strings.get(puz.getSupportUrl()));
+        dos.writeInt(strings.get(puz.getShareUrl()));
+        LocalDate date = puz.getDate();
+        dos.writeLong(date == null ? NULL_DATE : date.toEpochDay());
+        dos.writeBoolean(puz.isUpdatable());
+        dos.writeLong(puz.getTime());
+        dos.writeBoolean(puz.isScrambled());
+        dos.writeShort(puz.getSolutionChecksum());
+
+        writeBoxes(puz, strings, dos);
+        writeClues(puz, strings, dos);
+
+        writePosition(puz.getPosition(), dos);
+        writeClueID(puz.getCurrentClueID(), strings, dos);
+        writeClueID(puz.getPinnedClueID(), strings, dos);
+
+        List<ClueID> history = puz.getHistory();
+        dos.writeInt(history.size());
+        for (ClueID cid : history)
+            writeClueID(cid, strings, dos);
+
+        List<ClueID> flagged = new ArrayList<>(puz.getFlaggedClues());
+        dos.writeInt(flagged.size());
+        for (ClueID cid : flagged)
+            writeClueID(cid, strings, dos);
+
+        List<Clue> noted = new ArrayList<>();
+        for (Clue clue : puz.getAllClues()) {
+            if (puz.getNote(clue) != null)
+                noted.add(clue);
+        }
+        dos.writeInt(noted.size());
+        for (Clue clue : noted) {
+            writeClueID(clue.getClueID(), strings, dos);
+            writeNote(puz.getNote(clue), strings, dos);
+        }
+
+        Note playerNote = puz.getPlayerNote();
+        dos.writeBoolean(playerNote != null);
+        if (playerNote != null)
+            writeNote(playerNote, strings, dos);
+
+        List<PuzImage> images = puz.getImages();
+        dos.writeInt(images.size());
+        for (PuzImage image : images) {
+            dos.writeInt(strings.get(image.getURL()));
+            dos.writeInt(image.getRow());
+            dos.writeInt(image.getCol());
+            dos.writeInt(image.getWidth());
+            dos.writeInt(image.getHeight());
+        }
+    }
+
+    private static Puzzle readPuzzle(ByteBuffer buf, String[] strings) {
+        Puzzle.Kind kind = Puzzle.Kind.values()[buf.get()];
+        String title = readString(buf, strings);
+        String author = readString(buf, strings);
+        String copyright = readString(buf, strings);
+        String notes = readString(buf, strings);
+        String introMessage = readString(buf, strings);
+        String completionMessage = readString(buf, strings);
+        String source = readString(buf, strings);
+        String sourceUrl = readString(buf, strings);
+        String supportUrl = readString(buf, strings);
+        String shareUrl = readString(buf, strings);
+        long epochDay = buf.getLong();
+        boolean updatable = buf.get() != 0;
+        long time = buf.getLong();
+        boolean scrambled = buf.get() != 0;
+        short checksum = buf.getShort();
+
+        PuzzleBuilder builder = new PuzzleBuilder(readBoxes(buf, strings))
+            .setKind(kind)
+            .setTitle(title)
+            .setAuthor(author)
+            .setCopyright(copyright)
+            .setNotes(notes)
+            .setIntroMessage(introMessage)
+            .setCompletionMessage(completionMessage)
+            .setSource(source)
+            .setSourceUrl(sourceUrl)
+            .setSupportUrl(supportUrl)
+            .setShareUrl(shareUrl)
+            .setDate(
+                epochDay == NULL_DATE ? null : LocalDate.ofEpochDay(epochDay)
+            )
+            .setUpdatable(updatable)
+            .setTime(time)
+            .setScrambled(scrambled)
+            .setSolutionChecksum(checksum);
+
+        readClues(buf, strings, builder);
+
+        builder.setPosition(readPosition(buf))
+            .setCurrentClueID(readClueID(buf, strings))
+            .setPinnedClueID(readClueID(buf, strings));
+
+        int numHistory = readCount(buf);
+        List<ClueID> history = new ArrayList<>(numHistory);
+        for (int i = 0; i < numHistory; i++)
+            history.add(readClueID(buf, strings));
+        builder.setHistory(history);
+
+        int numFlagged = readCount(buf);
+        for (int i = 0; i < numFlagged; i++)
+            builder.flagClue(readClueID(buf, strings), true);
+
+        int numNotes = readCount(buf);
+        for (int i = 0; i < numNotes; i++) {
+            ClueID cid = readClueID(buf, strings);
+            builder.setNote(cid, readNote(buf, strings));
+        }
+
+        if (buf.get() != 0)
+            builder.setPlayerNote(readNote(buf, strings));
+
+        int numImages = readCount(buf);
+        for (int i = 0; i < numImages; i++) {
+            String url = readString(buf, strings);
+            int row = buf.getInt();
+            int col = buf.getInt();
+            int width = buf.getInt();
+            int height = buf.getInt();
+            builder.addImage(new PuzImage(url, row, col, width, height));
+        }
+
+        return builder.getPuzzle();
+    }
+
+    private static void writeBoxes(
+        Puzzle puz, StringTable strings, DataOutputStream dos
+    ) throws IOException {
+        int width = puz.getWidth();
+        int height = puz.getHeight();
+        Box[][] boxes = puz.getBoxes();
+
+        dos.writeInt(width);
+        dos.writeInt(height);
+
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                Box box = boxes[row][col];
+                if (box == null) {
+                    dos.writeByte(BOX_BLOCK);
+                    continue;
+                }
+
+                int flags = 0;
+                if (box.isCheated())
+                    flags |= BOX_CHEATED;
+                if (box.isCircled())
+                    flags |= BOX_CIRCLED;
+                if (box.isBarredTop())
+                    flags |= BOX_BAR_TOP;
+                if (box.isBarredBottom())
+                    flags |= BOX_BAR_BOTTOM;
+                if (box.isBarredLeft())
+                    flags |= BOX_BAR_LEFT;
+                if (box.isBarredRight())
+                    flags |= BOX_BAR_RIGHT;
+                if (box.hasMarks())
+                    flags |= BOX_MARKS;
+
+                dos.writeByte(flags);
+                dos.writeInt(strings.get(box.getSolution()));
+                dos.writeInt(strings.get(box.getResponse()));
+                dos.writeInt(strings.get(box.getResponder()));
+                dos.writeInt(strings.get(box.getClueNumber()));
+                dos.writeInt(box.getColor());
+
+                if (box.hasMarks()) {
+                    String[][] marks = box.getMarks();
+                    for (int r = 0; r < MARKS_SIZE; r++) {
+                        for (int c = 0; c < MARKS_SIZE; c++)
+                            dos.writeInt(strings.get(marks[r][c]));
+                    }
+                }
+            }
+        }
+    }
+
+    private static Box[][] readBoxes(ByteBuffer buf, String[] strings) {
+        int width = buf.getInt();
+        int height = buf.getInt();
+        if (width < 0 || height < 0 || (long) width * height > buf.remaining())
+            throw new IllegalArgumentException("Bad grid size");
+
+        Box[][] boxes = new Box[height][width];
+
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                int flags = buf.get() & 0xff;
+                if ((flags & BOX_BLOCK) != 0)
+                    continue;
+
+                Box box = new Box();
+
+                String solution = readString(buf, strings);
+                // setSolution(null) would store "null"
+                if (solution != null)
+                    box.setSolution(solution);
+                box.setResponse(readString(buf, strings));
+                box.setResponder(readString(buf, strings));
+                box.setClueNumber(readString(buf, strings));
+                box.setColor(buf.getInt());
+
+                box.setCheated((flags & BOX_CHEATED) != 0);
+                box.setCircled((flags & BOX_CIRCLED) != 0);
+                box.setBarredTop((flags & BOX_BAR_TOP) != 0);
+                box.setBarredBottom((flags & BOX_BAR_BOTTOM) != 0);
+                box.setBarredLeft((flags & BOX_BAR_LEFT) != 0);
+                box.setBarredRight((flags & BOX_BAR_RIGHT) != 0);
+
+                if ((flags & BOX_MARKS) != 0) {
+                    String[][] marks = new String[MARKS_SIZE][MARKS_SIZE];
+                    for (int r = 0; r < MARKS_SIZE; r++) {
+                        for (int c = 0; c < MARKS_SIZE; c++)
+                            marks[r][c] = readString(buf, strings);
+                    }
+                    box.setMarks(marks);
+                }
+
+                boxes[row][col] = box;
+            }
+        }
+
+        return boxes;
+    }
+
+    /**
+     * Write clue lists
+     *
+     * Clue indices are contiguous from 0, so are not stored.
+     */
+    private static void writeClues(
+        Puzzle puz, StringTable strings, DataOutputStream dos
+    ) throws IOException {
+        dos.writeInt(puz.getClueListNames().size());
+        for (String listName : puz.getClueListNames()) {
+            ClueList clues = puz.getClues(listName);
+            dos.writeInt(strings.get(listName));
+            dos.writeInt(clues.size());
+            for (Clue clue : clues) {
+                dos.writeInt(strings.get(clue.getClueNumber()));
+                dos.writeInt(strings.get(clue.getLabel()));
+                dos.writeInt(strings.get(clue.getHint()));
+                Zone zone = clue.getZone();
+                dos.writeInt(zone.size());
+                for (Position pos : zone) {
+                    dos.writeInt(pos.getRow());
+                    dos.writeInt(pos.getCol());
+                }
+            }
+        }
+    }
+
+    private static void readClues(
+        ByteBuffer buf, String[] strings, PuzzleBuilder builder
+    ) {
+        int numLists = readCount(buf);
+        for (int i = 0; i < numLists; i++) {
+            String listName = readString(buf, strings);
+            int numClues = readCount(buf);
+            for (int index = 0; index < numClues; index++) {
+                String number = readString(buf, strings);
+                String label = readString(buf, strings);
+                String hint = readString(buf, strings);
+                int zoneSize = readCount(buf);
+                Zone zone = new Zone();
+                for (int j = 0; j < zoneSize; j++) {
+                    int row = buf.getInt();
+                    int col = buf.getInt();
+                    zone.addPosition(new Position(row, col));
+                }
+                builder.addClue(
+                    new Clue(listName, index, number, label, hint, zone)
+                );
+            }
+        }
+    }
+
+    private static void writePosition(Position pos, DataOutputStream dos)
+            throws IOException {
+        dos.writeBoolean(pos != null);
+        if (pos != null) {
+            dos.writeInt(pos.getRow());
+            dos.writeInt(pos.getCol());
+        }
+    }
+
+    private static Position readPosition(ByteBuffer buf) {
+        if (buf.get() == 0)
+            return null;
+        int row = buf.getInt();
+        int col = buf.getInt();
+        return new Position(row, col);
+    }
+
+    /**
+     * Write clue id as list name index and clue index
+     *
+     * A null id is written with a null list name.
+     */
+    private static void writeClueID(
+        ClueID cid, StringTable strings, DataOutputStream dos
+    ) throws IOException {
+        if (cid == null) {
+            dos.writeInt(NULL_INDEX);
+        } else {
+            dos.writeInt(strings.get(cid.getListName()));
+            dos.writeInt(cid.getIndex());
+        }
+    }
+
+    private static ClueID readClueID(ByteBuffer buf, String[] strings) {
+        String listName = readString(buf, strings);
+        if (listName == null)
+            return null;
+        return new ClueID(listName, buf.getInt());
+    }
+
+    private static void writeNote(
+        Note note, StringTable strings, DataOutputStream dos
+    ) throws IOException {
+        dos.writeInt(strings.get(note.getScratch()));
+        dos.writeInt(strings.get(note.getText()));
+        dos.writeInt(strings.get(note.getAnagramSource()));
+        dos.writeInt(strings.get(note.getAnagramSolution()));
+    }
+
+    private static Note readNote(ByteBuffer buf, String[] strings) {
+        String scratch = readString(buf, strings);
+        String text = readString(buf, strings);
+        String anagramSource = readString(buf, strings);
+        String anagramSolution = readString(buf, strings);
+        return new Note(scratch, text, anagramSource, anagramSolution);
+    }
+
+    private static void writeBytes(byte[] bytes, DataOutputStream dos)
+            throws IOException {
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+    }
+
+    /**
+     * Read a length-prefixed UTF-8 string directly from the buffer
+     */
+    private static String readString(ByteBuffer buf) {
+        int len = readCount(buf);
+        String s = new String(buf.array(), buf.position(), len, CHARSET);
+        buf.position(buf.position() + len);
+        return s;
+    }
+
+    /**
+     * Read string table reference
+     */
+    private static String readString(ByteBuffer buf, String[] strings) {
+        int index = buf.getInt();
+        return index == NULL_INDEX ? null : strings[index];
+    }
+
+    /**
+     * Read a count, checked against remaining data
+     *
+     * Protects against allocating huge arrays for corrupt data, every
+     * counted item takes at least a byte.
+     */
+    private static int readCount(ByteBuffer buf) {
+        int count = buf.getInt();
+        if (count < 0 || count > buf.remaining())
+            throw new IllegalArgumentException("Bad count " + count);
+        return count;
+    }
+
+    /**
+     * Assigns each distinct string an index in order of first use
+     */
+    private static class StringTable {
+        private Map<String, Integer> indices = new HashMap<>();
+        private List<String> strings = new ArrayList<>();
+
+        public int get(String s) {
+            if (s == null)
+                return NULL_INDEX;
+            Integer index = indices.get(s);
+            if (index == null) {
+                index = strings.size();
+                indices.put(s, index);
+                strings.add(s);
+            }
+            return index;
+        }
+
+        public int size() { return strings.size(); }
+        public List<String> getStrings() { return strings; }
+    }
+}
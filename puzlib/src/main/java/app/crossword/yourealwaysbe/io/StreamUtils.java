@@ -1,6 +1,7 @@
 
 package app.crossword.yourealwaysbe.io;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -12,35 +13,45 @@ import java.util.zip.ZipInputStream;
 public class StreamUtils {
     public static final int DEFAULT_BUFFER_SIZE = 1024;
 
+    // "PK\3\4"
+    private static final int[] ZIP_SIGNATURE = { 0x50, 0x4B, 0x03, 0x04 };
+
     /**
      * If given input stream, returns unzipped input stream
      *
-     * Returns copy of original stream if not zipped.
+     * Returns copy of original stream if not zipped, or the stream
+     * itself if it is already a byte array stream.
      *
      * Closing return stream has no effect (it's a byte array stream).
+     *
+     * Zip files are detected by peeking at the local file header
+     * signature, so the input is only read once and the returned stream
+     * is a view on the single buffer the (unzipped) data was read into.
      */
     public static ByteArrayInputStream unzipOrPassThrough(InputStream is)
             throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        if (!is.markSupported())
+            is = new BufferedInputStream(is);
 
-        copyStream(is, baos);
+        if (!isZipped(is))
+            return asResettableStream(is);
 
-        try (
-            ZipInputStream zis = new ZipInputStream(
-                new ByteArrayInputStream(baos.toByteArray())
-            )
-        ) {
-            ZipEntry entry = zis.getNextEntry();
-            while (entry.isDirectory()) {
-                entry = zis.getNextEntry();
-            }
-            baos = new ByteArrayOutputStream();
-            copyStream(zis, baos);
-        } catch (Exception e) {
-            // not zipped
+        ZipInputStream zis = new ZipInputStream(is);
+        ZipEntry entry = zis.getNextEntry();
+        while (entry != null && entry.isDirectory()) {
+            entry = zis.getNextEntry();
         }
 
-        return new ByteArrayInputStream(baos.toByteArray());
+        if (entry == null)
+            throw new IOException("Zip file contains no file entries");
+
+        long size = entry.getSize();
+        BufferOutputStream bos = (size > 0 && size < Integer.MAX_VALUE)
+            ? new BufferOutputStream((int) size)
+            : new BufferOutputStream();
+        copyStream(zis, bos);
+
+        return bos.toInputStream();
     }
 
     /**
@@ -50,9 +61,26 @@ public class StreamUtils {
      */
     public static ByteArrayInputStream copyInputStream(InputStream source)
             throws IOException {
-        ByteArrayOutputStream outCopy = new ByteArrayOutputStream();
+        BufferOutputStream outCopy = new BufferOutputStream();
         copyStream(source, outCopy);
-        return new ByteArrayInputStream(outCopy.toByteArray());
+        return outCopy.toInputStream();
+    }
+
+    /**
+     * A byte array stream of the rest of source that can be reset to
+     * where source is now
+     *
+     * Unlike copyInputStream, a byte array stream is not copied but
+     * marked and returned, so source must not be used by the caller
+     * afterwards. Other streams are copied.
+     */
+    public static ByteArrayInputStream asResettableStream(InputStream source)
+            throws IOException {
+        if (source instanceof ByteArrayInputStream) {
+            source.mark(0);
+            return (ByteArrayInputStream) source;
+        }
+        return copyInputStream(source);
     }
 
     /**
@@ -94,4 +122,39 @@ public class StreamUtils {
         copyStream(source, baos);
         return baos.toByteArray();
     }
+
+    /**
+     * Check if stream starts with a zip local file header
+     *
+     * Stream must support mark, position is not changed.
+     */
+    private static boolean isZipped(InputStream is) throws IOException {
+        is.mark(ZIP_SIGNATURE.length);
+        try {
+            for (int i = 0; i < ZIP_SIGNATURE.length; i++) {
+                if (is.read() != ZIP_SIGNATURE[i])
+                    return false;
+            }
+            return true;
+        } finally {
+            is.reset();
+        }
+    }
+
+    /**
+     * Output stream that can be read back without copying its buffer
+     */
+    private static class BufferOutputStream extends ByteArrayOutputStream {
+        public BufferOutputStream() { super(); }
+        public BufferOutputStream(int size) { super(size); }
+
+        /**
+         * Input stream over the bytes written so far
+         *
+         * Shares the buffer, so do not write after calling.
+         */
+        public ByteArrayInputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
 }
@@ -2,29 +2,49 @@ package app.crossword.yourealwaysbe.puz;
 
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.NavigableMap;
-import java.util.NavigableSet;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
-import java.util.TreeMap;
 
+/**
+ * A cell of the puzzle grid
+ *
+ * A puzzle has one of these per cell so they are kept small: flags
+ * are packed into a byte, single character responses and solutions
+ * share one String per character, and clue positions are stored in
+ * arrays rather than a map.
+ */
 public class Box implements Serializable {
     public static final String BLANK = " ";
     private static final int NOCOLOR = -1;
 
+    private static final int CHEATED = 0x01;
+    private static final int CIRCLED = 0x02;
+    private static final int BAR_TOP = 0x04;
+    private static final int BAR_BOTTOM = 0x08;
+    private static final int BAR_LEFT = 0x10;
+    private static final int BAR_RIGHT = 0x20;
+    private static final int BARS = BAR_TOP | BAR_BOTTOM | BAR_LEFT | BAR_RIGHT;
+
+    private static final ClueID[] NO_CLUES = new ClueID[0];
+    private static final int[] NO_POSITIONS = new int[0];
+
+    // shared strings for single characters below this
+    private static final int NUM_CHAR_STRINGS = 256;
+    private static final String[] CHAR_STRINGS = getCharStrings();
+
     private String responder;
-    private boolean cheated;
-    private boolean circled;
+    private byte flags = 0;
     private String response = BLANK;
     private String solution = null;
     private String clueNumber;
-    // for each clue this box is a part of, the index of the cell it is
-    // the clue word, sorted for consistency of cycling through clues
-    private NavigableMap<ClueID, Integer> cluePositions = new TreeMap<>();
-
-    private boolean barTop = false;
-    private boolean barBottom = false;
-    private boolean barLeft = false;
-    private boolean barRight = false;
+    // the clues this box is a part of in ClueID order (for consistency
+    // of cycling through clues), and the index of the cell in each
+    // clue's word. A box is rarely in more than two clues.
+    private ClueID[] partOfClues = NO_CLUES;
+    private int[] cluePositions = NO_POSITIONS;
+    private transient List<ClueID> partOfCluesView;
+
     // 3x3 grid of small text marks
     private String[][] marks = null;
 
@@ -47,7 +67,11 @@ public class Box implements Serializable {
 
         Box other = (Box) obj;
 
-        if (!cluePositions.equals(other.cluePositions)) {
+        if (!Arrays.equals(partOfClues, other.partOfClues)) {
+            return false;
+        }
+
+        if (!Arrays.equals(cluePositions, other.cluePositions)) {
             return false;
         }
 
@@ -112,7 +136,8 @@ public class Box implements Serializable {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = (prime * result) + cluePositions.hashCode();
+        result = (prime * result) + Arrays.hashCode(partOfClues);
+        result = (prime * result) + Arrays.hashCode(cluePositions);
         result = (prime * result) + (isCheated() ? 1231 : 1237);
         result = (prime * result) + Objects.hash(getClueNumber());
         result = (prime * result) + (isCircled() ? 1231 : 1237);
@@ -150,36 +175,35 @@ public class Box implements Serializable {
      * @return if start of clue in list name with box number
      */
     public boolean isStartOf(ClueID clueID) {
-        Integer position = cluePositions.get(clueID);
-        return position != null && position == 0;
+        return getCluePosition(clueID) == 0;
     }
 
     /**
      * @return the cheated
      */
     public boolean isCheated() {
-        return cheated;
+        return isFlagged(CHEATED);
     }
 
     /**
      * @param cheated the cheated to set
      */
     public void setCheated(boolean cheated) {
-        this.cheated = cheated;
+        setFlag(CHEATED, cheated);
     }
 
     /**
      * @return if the box is circled
      */
     public boolean isCircled() {
-        return circled;
+        return isFlagged(CIRCLED);
     }
 
     /**
      * @param circled the circled to set
      */
     public void setCircled(boolean circled) {
-        this.circled = circled;
+        setFlag(CIRCLED, circled);
     }
 
     /**
@@ -193,11 +217,11 @@ public class Box implements Serializable {
      * @param response the response to set
      */
     public void setResponse(char response) {
-        setResponse(String.valueOf(response));
+        setResponse(charString(response));
     }
 
     public void setResponse(String response) {
-        this.response = response;
+        this.response = shareString(response);
     }
 
     /**
@@ -218,11 +242,11 @@ public class Box implements Serializable {
      * @param solution the solution to set
      */
     public void setSolution(char solution) {
-        setSolution(String.valueOf(solution));
+        setSolution(charString(solution));
     }
 
     public void setSolution(String solution) {
-        this.solution = String.valueOf(solution);
+        this.solution = shareString(String.valueOf(solution));
     }
 
     /**
@@ -264,7 +288,7 @@ public class Box implements Serializable {
      * @returns true if box is part of the clue
      */
     public boolean isPartOf(ClueID clueId) {
-        return cluePositions.containsKey(clueId);
+        return getCluePosition(clueId) >= 0;
     }
 
     public boolean isPartOf(Clue clue) {
@@ -276,17 +300,46 @@ public class Box implements Serializable {
     /**
      * The clue ids that have this box in their zones
      *
-     * Set will iterate in ClueID order.
+     * Unmodifiable list in ClueID order.
+     */
+    public List<ClueID> getIsPartOfClues() {
+        if (partOfCluesView == null) {
+            partOfCluesView
+                = Collections.unmodifiableList(Arrays.asList(partOfClues));
+        }
+        return partOfCluesView;
+    }
+
+    /**
+     * Number of clues that have this box in their zones
+     *
+     * With getIsPartOfClueAt and getCluePositionAt, lets callers that
+     * visit every cell (e.g. rendering) walk the clues without
+     * allocating an iterator per box.
      */
-    public NavigableSet<ClueID> getIsPartOfClues() {
-        return cluePositions.navigableKeySet();
+    public int getNumIsPartOfClues() {
+        return partOfClues.length;
+    }
+
+    /**
+     * The i-th clue id with this box in its zone, in ClueID order
+     */
+    public ClueID getIsPartOfClueAt(int i) {
+        return partOfClues[i];
+    }
+
+    /**
+     * Position of this box in the i-th clue it is part of
+     */
+    public int getCluePositionAt(int i) {
+        return cluePositions[i];
     }
 
     /**
      * True if this box belongs to at least one clue
      */
     public boolean isPartOfClues() {
-        return !getIsPartOfClues().isEmpty();
+        return partOfClues.length > 0;
     }
 
     /**
@@ -301,7 +354,7 @@ public class Box implements Serializable {
         if (listName == null)
             return null;
 
-        for (ClueID cid : getIsPartOfClues()) {
+        for (ClueID cid : partOfClues) {
             if (listName.equals(cid.getListName()))
                 return cid;
         }
@@ -314,7 +367,35 @@ public class Box implements Serializable {
      * word
      */
     public void setCluePosition(ClueID clueId, int position) {
-        cluePositions.put(clueId, position);
+        int index = Arrays.binarySearch(partOfClues, clueId);
+        if (index >= 0) {
+            // never write in place, copies of the box may share it
+            int[] newPositions = cluePositions.clone();
+            newPositions[index] = position;
+            cluePositions = newPositions;
+            return;
+        }
+
+        int insert = -(index + 1);
+        int len = partOfClues.length;
+
+        ClueID[] newClues = new ClueID[len + 1];
+        int[] newPositions = new int[len + 1];
+
+        System.arraycopy(partOfClues, 0, newClues, 0, insert);
+        System.arraycopy(cluePositions, 0, newPositions, 0, insert);
+        newClues[insert] = clueId;
+        newPositions[insert] = position;
+        System.arraycopy(
+            partOfClues, insert, newClues, insert + 1, len - insert
+        );
+        System.arraycopy(
+            cluePositions, insert, newPositions, insert + 1, len - insert
+        );
+
+        partOfClues = newClues;
+        cluePositions = newPositions;
+        partOfCluesView = null;
     }
 
     /**
@@ -323,14 +404,24 @@ public class Box implements Serializable {
      * @return postion or -1 if not in clue
      */
     public int getCluePosition(ClueID clueId) {
-        Integer pos = cluePositions.get(clueId);
-        return (pos == null) ? -1 : pos;
+        // linear, it's a very short list, and usually clueId is the
+        // same instance as stored from the puzzle's clue, so check that
+        // before falling back to comparing names
+        for (int i = 0; i < partOfClues.length; i++) {
+            if (partOfClues[i] == clueId)
+                return cluePositions[i];
+        }
+        for (int i = 0; i < partOfClues.length; i++) {
+            if (partOfClues[i].equals(clueId))
+                return cluePositions[i];
+        }
+        return -1;
     }
 
-    public boolean isBarredTop() { return barTop; }
-    public boolean isBarredBottom() { return barBottom; }
-    public boolean isBarredLeft() { return barLeft; }
-    public boolean isBarredRight() { return barRight; }
+    public boolean isBarredTop() { return isFlagged(BAR_TOP); }
+    public boolean isBarredBottom() { return isFlagged(BAR_BOTTOM); }
+    public boolean isBarredLeft() { return isFlagged(BAR_LEFT); }
+    public boolean isBarredRight() { return isFlagged(BAR_RIGHT); }
 
     /**
      * 3x3 array of text marks to put in box, can have null entries
@@ -363,24 +454,23 @@ public class Box implements Serializable {
      * True if box has any bars
      */
     public boolean isBarred() {
-        return isBarredTop() || isBarredBottom()
-            || isBarredLeft() || isBarredRight();
+        return (flags & BARS) != 0;
     }
 
     public void setBarredTop(boolean barTop) {
-        this.barTop = barTop;
+        setFlag(BAR_TOP, barTop);
     }
 
     public void setBarredBottom(boolean barBottom) {
-        this.barBottom = barBottom;
+        setFlag(BAR_BOTTOM, barBottom);
     }
 
     public void setBarredLeft(boolean barLeft) {
-        this.barLeft = barLeft;
+        setFlag(BAR_LEFT, barLeft);
     }
 
     public void setBarredRight(boolean barRight) {
-        this.barRight = barRight;
+        setFlag(BAR_RIGHT, barRight);
     }
 
     public boolean hasColor() { return color != NOCOLOR; }
@@ -396,4 +486,61 @@ public class Box implements Serializable {
     public void setColor(int color) {
         this.color = color;
     }
+
+    /**
+     * A copy of the box without play state (response, responder,
+     * cheated)
+     *
+     * The clue arrays and marks are shared with this box rather than
+     * copied.
+     */
+    Box copyDefinition() {
+        Box copy = new Box();
+        copy.flags = (byte) (flags & ~CHEATED);
+        copy.solution = solution;
+        copy.clueNumber = clueNumber;
+        copy.partOfClues = partOfClues;
+        copy.cluePositions = cluePositions;
+        copy.marks = marks;
+        copy.color = color;
+        return copy;
+    }
+
+    private boolean isFlagged(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    private void setFlag(int flag, boolean value) {
+        if (value)
+            flags |= flag;
+        else
+            flags &= ~flag;
+    }
+
+    /**
+     * A string of c, shared if c is a common character
+     */
+    static String charString(char c) {
+        return (c < NUM_CHAR_STRINGS) ? CHAR_STRINGS[c] : String.valueOf(c);
+    }
+
+    /**
+     * Use the shared string if s is a single character that has one
+     */
+    private static String shareString(String s) {
+        if (s != null && s.length() == 1) {
+            char c = s.charAt(0);
+            if (c < NUM_CHAR_STRINGS)
+                return CHAR_STRINGS[c];
+        }
+        return s;
+    }
+
+    private static String[] getCharStrings() {
+        String[] strings = new String[NUM_CHAR_STRINGS];
+        for (int c = 0; c < NUM_CHAR_STRINGS; c++)
+            strings[c] = String.valueOf((char) c);
+        strings[BLANK.charAt(0)] = BLANK;
+        return strings;
+    }
 }
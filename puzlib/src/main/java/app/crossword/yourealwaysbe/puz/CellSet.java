@@ -0,0 +1,118 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of grid positions backed by a bitset over the cells
+ *
+ * Adding, checking and clearing do not allocate, so one set can be
+ * reused for every change notification. Iterating creates a Position
+ * per member. Positions outside the grid are never members.
+ */
+class CellSet extends AbstractSet<Position> {
+    private final int width;
+    private final int height;
+    private final long[] bits;
+    private int size = 0;
+
+    public CellSet(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.bits = new long[(width * height + 63) / 64];
+    }
+
+    @Override
+    public boolean add(Position pos) {
+        return (pos == null) ? false : add(pos.getRow(), pos.getCol());
+    }
+
+    public boolean add(int row, int col) {
+        if (!inGrid(row, col))
+            return false;
+
+        int cell = row * width + col;
+        long mask = 1L << cell;
+        int word = cell >>> 6;
+        if ((bits[word] & mask) != 0)
+            return false;
+
+        bits[word] |= mask;
+        size += 1;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Position))
+            return false;
+        Position pos = (Position) o;
+        return contains(pos.getRow(), pos.getCol());
+    }
+
+    public boolean contains(int row, int col) {
+        if (!inGrid(row, col))
+            return false;
+        int cell = row * width + col;
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(bits, 0L);
+            size = 0;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Position> iterator() {
+        return new Iterator<Position>() {
+            private int next = nextCell(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public Position next() {
+                if (next < 0)
+                    throw new NoSuchElementException();
+                Position pos = new Position(next / width, next % width);
+                next = nextCell(next + 1);
+                return pos;
+            }
+        };
+    }
+
+    private boolean inGrid(int row, int col) {
+        return 0 <= row && row < height && 0 <= col && col < width;
+    }
+
+    /**
+     * First set cell at or after from, or -1
+     */
+    private int nextCell(int from) {
+        int word = from >>> 6;
+        if (word >= bits.length)
+            return -1;
+
+        long remaining = bits[word] & (-1L << from);
+        while (true) {
+            if (remaining != 0)
+                return (word << 6) + Long.numberOfTrailingZeros(remaining);
+            word += 1;
+            if (word >= bits.length)
+                return -1;
+            remaining = bits[word];
+        }
+    }
+}
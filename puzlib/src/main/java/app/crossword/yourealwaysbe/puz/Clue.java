@@ -76,6 +76,17 @@ public class Clue implements Serializable {
             return null;
     }
 
+    /**
+     * Same clue with an equal list name
+     *
+     * So the puzzle can give all clues of a list one name string.
+     */
+    Clue withListName(String listName) {
+        return new Clue(
+            listName, clueID.getIndex(), number, label, hint, zone
+        );
+    }
+
     @Override
     public String toString() {
         return getClueID() + " / " + getClueNumber() + " / "  + getHint();
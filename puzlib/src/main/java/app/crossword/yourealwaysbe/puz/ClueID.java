@@ -3,6 +3,12 @@ package app.crossword.yourealwaysbe.puz;
 
 import java.util.Objects;
 
+/**
+ * A clue by list name and index in the list
+ *
+ * The puzzle gives the clues of each list one name string, so its ids
+ * usually compare without looking at the characters.
+ */
 public class ClueID implements Comparable<ClueID> {
     private String listName;
     private int index;
@@ -16,8 +22,11 @@ public class ClueID implements Comparable<ClueID> {
     public int getIndex() { return index; }
 
     public boolean equals(Object o) {
+        if (o == this)
+            return true;
         if (o instanceof ClueID) {
             ClueID other = (ClueID) o;
+            // names of the puzzle's ids are usually the same instance
             return index == other.getIndex()
                 && Objects.equals(listName, other.getListName());
         }
@@ -32,6 +41,9 @@ public class ClueID implements Comparable<ClueID> {
         String list = getListName();
         String otherList = other.getListName();
 
+        if (list == otherList)
+            return Integer.compare(getIndex(), other.getIndex());
+
         if (list == null && otherList != null)
             return -1;
 
@@ -47,7 +59,8 @@ public class ClueID implements Comparable<ClueID> {
     }
 
     public int hashCode() {
-        return Objects.hash(getListName(), getIndex());
+        // as Objects.hash(listName, index) without boxing into an array
+        return 31 * (31 + Objects.hashCode(listName)) + index;
     }
 
     public String toString() {
@@ -0,0 +1,263 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Running counts of filled and correct cells in a puzzle and its clues
+ *
+ * Lets the board answer how complete the puzzle is, or whether a clue is
+ * filled, without scanning the grid. Counts are built from the puzzle
+ * once, then every response change must go through setResponse to keep
+ * them in step.
+ *
+ * A cell is filled if it is not blank, and correct if its response
+ * equals its solution, as in Puzzle.getPercentFilled/Complete.
+ *
+ * Also indexes, per clue list, the clues that are not yet filled (or
+ * not filled correctly), so the next one can be found without walking
+ * clue zones.
+ *
+ * Clue lists are given ordinals in name order and clues are looked up
+ * by (ordinal, index) in arrays, with the incomplete clues of each list
+ * held in a bitset. The clue ids returned are the puzzle's own.
+ */
+class FillCounts {
+
+    private static class ClueCounts {
+        private int length = 0;
+        private int filled = 0;
+        private int correct = 0;
+    }
+
+    private int total = 0;
+    private int filled = 0;
+    private int correct = 0;
+
+    // by list ordinal
+    private final String[] listNames;
+    private final ClueID[][] clueIDs;
+    private final ClueCounts[][] clueCounts;
+    // indices of clues with cells not filled, or not filled correctly
+    private final BitSet[] unfilledClues;
+    private final BitSet[] unsolvedClues;
+
+    public FillCounts(Puzzle puzzle) {
+        List<String> names = new ArrayList<>(puzzle.getClueListNames());
+        Collections.sort(names);
+
+        int numLists = names.size();
+        listNames = names.toArray(new String[numLists]);
+        clueIDs = new ClueID[numLists][];
+        clueCounts = new ClueCounts[numLists][];
+        unfilledClues = new BitSet[numLists];
+        unsolvedClues = new BitSet[numLists];
+
+        for (int ordinal = 0; ordinal < numLists; ordinal++) {
+            ClueList clues = puzzle.getClues(listNames[ordinal]);
+            int size = clues.size();
+            clueIDs[ordinal] = new ClueID[size];
+            clueCounts[ordinal] = new ClueCounts[size];
+            for (Clue clue : clues) {
+                int index = clue.getClueID().getIndex();
+                clueIDs[ordinal][index] = clue.getClueID();
+                clueCounts[ordinal][index] = new ClueCounts();
+            }
+            unfilledClues[ordinal] = new BitSet(size);
+            unsolvedClues[ordinal] = new BitSet(size);
+        }
+
+        Box[][] boxes = puzzle.getBoxes();
+        for (int row = 0; row < boxes.length; row++) {
+            for (int col = 0; col < boxes[row].length; col++) {
+                Box box = boxes[row][col];
+                if (box == null)
+                    continue;
+
+                total += 1;
+                for (int i = 0; i < box.getNumIsPartOfClues(); i++) {
+                    ClueCounts counts
+                        = getClueCounts(box.getIsPartOfClueAt(i));
+                    if (counts != null)
+                        counts.length += 1;
+                }
+                add(box);
+            }
+        }
+
+        for (int ordinal = 0; ordinal < numLists; ordinal++) {
+            for (int index = 0; index < clueCounts[ordinal].length; index++)
+                index(ordinal, index);
+        }
+    }
+
+    public void setResponse(Box box, String response) {
+        remove(box);
+        box.setResponse(response);
+        add(box);
+    }
+
+    public void setResponse(Box box, char response) {
+        remove(box);
+        box.setResponse(response);
+        add(box);
+    }
+
+    public int getPercentComplete() {
+        return (total == 0) ? 0 : (correct * 100) / total;
+    }
+
+    public int getPercentFilled() {
+        return (total == 0) ? 0 : (filled * 100) / total;
+    }
+
+    /**
+     * True if clue has cells and all are filled
+     *
+     * False if cid is null
+     */
+    public boolean isFilled(ClueID cid) {
+        ClueCounts counts = getClueCounts(cid);
+        return counts != null
+            && counts.length > 0
+            && counts.filled == counts.length;
+    }
+
+    /**
+     * True if clue has cells and all are filled and correct
+     *
+     * False if cid is null
+     */
+    public boolean isSolved(ClueID cid) {
+        ClueCounts counts = getClueCounts(cid);
+        return counts != null
+            && counts.length > 0
+            && counts.filled == counts.length
+            && counts.correct == counts.length;
+    }
+
+    /**
+     * Find the next clue that is not complete
+     *
+     * Searches the clues after cid in its list, then the other lists in
+     * name order from their start (wrapping round), then cid's list from
+     * the start up to and including cid. Only clues with cells are
+     * considered.
+     *
+     * @param cid where to search from
+     * @param correct if complete means all cells correct, else just
+     * filled
+     * @return the clue found, or null if all complete
+     */
+    public ClueID findNextIncomplete(ClueID cid, boolean correct) {
+        BitSet[] incomplete = correct ? unsolvedClues : unfilledClues;
+
+        int numLists = listNames.length;
+        int ordinal = getOrdinal(cid.getListName());
+        int index = cid.getIndex();
+
+        if (ordinal >= 0) {
+            int next = incomplete[ordinal].nextSetBit(Math.max(0, index + 1));
+            if (next >= 0)
+                return clueIDs[ordinal][next];
+        }
+
+        // lists after cid's (or all lists if cid's list is unknown)
+        int start = (ordinal >= 0) ? ordinal : numLists - 1;
+        for (int i = 1; i < numLists; i++) {
+            int nextOrdinal = (start + i) % numLists;
+            int first = incomplete[nextOrdinal].nextSetBit(0);
+            if (first >= 0)
+                return clueIDs[nextOrdinal][first];
+        }
+
+        if (ordinal >= 0) {
+            int first = incomplete[ordinal].nextSetBit(0);
+            if (first >= 0 && first <= index)
+                return clueIDs[ordinal][first];
+        } else if (numLists > 0) {
+            int first = incomplete[start].nextSetBit(0);
+            if (first >= 0)
+                return clueIDs[start][first];
+        }
+
+        return null;
+    }
+
+    private void add(Box box) {
+        count(box, 1);
+    }
+
+    private void remove(Box box) {
+        count(box, -1);
+    }
+
+    private void count(Box box, int delta) {
+        int filledDelta = box.isBlank() ? 0 : delta;
+        int correctDelta
+            = Objects.equals(box.getResponse(), box.getSolution()) ? delta : 0;
+
+        if (filledDelta == 0 && correctDelta == 0)
+            return;
+
+        filled += filledDelta;
+        correct += correctDelta;
+
+        for (int i = 0; i < box.getNumIsPartOfClues(); i++) {
+            ClueID cid = box.getIsPartOfClueAt(i);
+            int ordinal = getOrdinal(cid.getListName());
+            int index = cid.getIndex();
+            if (!hasClue(ordinal, index))
+                continue;
+            ClueCounts counts = clueCounts[ordinal][index];
+            counts.filled += filledDelta;
+            counts.correct += correctDelta;
+            index(ordinal, index);
+        }
+    }
+
+    /**
+     * Update which incomplete sets the clue is in
+     */
+    private void index(int ordinal, int index) {
+        ClueCounts counts = clueCounts[ordinal][index];
+        boolean isFilled = counts.filled == counts.length;
+        boolean isSolved = isFilled && counts.correct == counts.length;
+        unfilledClues[ordinal].set(index, !isFilled);
+        unsolvedClues[ordinal].set(index, !isSolved);
+    }
+
+    /**
+     * Ordinal of list, or -1 if not a list of the puzzle
+     *
+     * The puzzle's ids share its list name strings, so usually the
+     * same instance.
+     */
+    private int getOrdinal(String listName) {
+        for (int i = 0; i < listNames.length; i++) {
+            if (listNames[i] == listName)
+                return i;
+        }
+        for (int i = 0; i < listNames.length; i++) {
+            if (listNames[i].equals(listName))
+                return i;
+        }
+        return -1;
+    }
+
+    private boolean hasClue(int ordinal, int index) {
+        return ordinal >= 0
+            && 0 <= index && index < clueCounts[ordinal].length;
+    }
+
+    private ClueCounts getClueCounts(ClueID cid) {
+        if (cid == null)
+            return null;
+        int ordinal = getOrdinal(cid.getListName());
+        int index = cid.getIndex();
+        return hasClue(ordinal, index) ? clueCounts[ordinal][index] : null;
+    }
+}
@@ -3,9 +3,6 @@ package app.crossword.yourealwaysbe.puz;
 import app.crossword.yourealwaysbe.puz.Playboard.Word;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Objects;
 
 public interface MovementStrategy extends Serializable {
@@ -89,142 +86,69 @@ public interface MovementStrategy extends Serializable {
     MovementStrategy MOVE_NEXT_CLUE = new MovementStrategy() {
         @Override
         public Word move(Playboard board, boolean skipCompletedLetters) {
-            return move(board, skipCompletedLetters, null, null, null, null);
-        }
-
-        @Override
-        public Word back(Playboard board) {
             Position start = board.getHighlightLetter();
-            Word word = board.moveZoneBack(false);
-            Position end = board.getHighlightLetter();
+            Word word = board.moveZoneForward(skipCompletedLetters);
+            Position newPos = board.getHighlightLetter();
 
-            // if did not move, assume at end of zone and move to
-            // previous zoned clue in same list
-            if (Objects.equals(start, end)) {
+            if (Objects.equals(start, newPos)) {
                 ClueID clueID = board.getClueID();
                 if (clueID != null) {
-                    Puzzle puz = board.getPuzzle();
-                    String listName = clueID.getListName();
-                    int curIndex = clueID.getIndex();
-                    ClueList clues = puz.getClues(listName);
-
-                    // Move to prev clue or wrap to end of prev list
-                    int firstIndex = clues.getFirstZonedIndex();
-                    if (curIndex == firstIndex) {
-                        String prevList = getPrevList(puz, listName);
-                        ClueList prevClues = puz.getClues(prevList);
-                        int lastIndex = prevClues.getLastZonedIndex();
-                        board.jumpToClueEnd(new ClueID(prevList, lastIndex));
-                    } else {
-                        int prevIndex
-                            = clues.getPreviousZonedIndex(curIndex, true);
-                        board.jumpToClueEnd(new ClueID(listName, prevIndex));
-                    }
+                    if (skipCompletedLetters)
+                        moveToNextUncompletedClue(board, clueID);
+                    else
+                        moveToNextClue(board, clueID);
                 }
             }
 
             return word;
         }
 
-        /**
-         * Keep moving to next clue unless we hit the breakPos
-         *
-         * If breakPos/breakClueID is null, keep moving until we hit the
-         * start of the next clue again.
-         *
-         * If breakPos hit with same clue selected, reset to resetPos
-         * (if not null) and resetClueID.
-         */
-        private Word move(
-            Playboard board,
-            boolean skipCompletedLetters,
-            Position breakPos,
-            ClueID breakClueID,
-            Position resetPos,
-            ClueID resetClueID
-        ) {
+        @Override
+        public Word back(Playboard board) {
             Position start = board.getHighlightLetter();
-            Word word = board.moveZoneForward(skipCompletedLetters);
-            Position newPos = board.getHighlightLetter();
+            Word word = board.moveZoneBack(false);
+            Position end = board.getHighlightLetter();
 
-            if (Objects.equals(start, newPos)) {
+            // if did not move, assume at start of zone and move to
+            // end of previous zoned clue, or wrap to end of prev list
+            if (Objects.equals(start, end)) {
                 ClueID clueID = board.getClueID();
                 if (clueID != null) {
-                    Puzzle puz = board.getPuzzle();
-                    String listName = clueID.getListName();
-                    int curIndex = clueID.getIndex();
-                    ClueList clues = puz.getClues(listName);
-
-                    // Move to next clue or wrap to start of next list
-                    int lastIndex = clues.getLastZonedIndex();
-                    if (curIndex == lastIndex) {
-                        String nextList = getNextList(puz, listName);
-                        ClueList nextClues = puz.getClues(nextList);
-                        int firstIndex = nextClues.getFirstZonedIndex();
-                        board.jumpToClue(new ClueID(nextList, firstIndex));
-                    } else {
-                        int nextIndex
-                            = clues.getNextZonedIndex(curIndex, true);
-                        board.jumpToClue(new ClueID(listName, nextIndex));
-                    }
-
-                    // Check if we should skip
-                    Box box = board.getCurrentBox();
-                    if (board.skipBox(box, skipCompletedLetters)) {
-                        // only carry on if we haven't been here before..
-                        newPos = board.getHighlightLetter();
-                        boolean isBreak = (
-                            Objects.equals(breakPos, newPos)
-                            && Objects.equals(clueID, breakClueID)
-                        );
-                        if (isBreak) {
-                            // didn't find anything, reset
-                            if (resetClueID != null)
-                                board.jumpToClue(resetClueID);
-                            if (resetPos != null)
-                                board.setHighlightLetter(resetPos);
-                        } else {
-                            if (breakPos == null) {
-                                breakPos = newPos;
-                                breakClueID = clueID;
-                            }
-                            if (resetPos == null) {
-                                resetPos = start;
-                                resetClueID = clueID;
-                            }
-                            move(
-                                board,
-                                skipCompletedLetters,
-                                breakPos, breakClueID,
-                                resetPos, resetClueID
-                            );
-                        }
-                    }
+                    ClueID prevClueID = board.getPreviousZonedClueID(clueID);
+                    if (prevClueID != null)
+                        board.jumpToClueEnd(prevClueID);
                 }
             }
 
             return word;
         }
 
-        private String getNextList(Puzzle puz, String listName) {
-            return getListDelta(puz, listName, 1);
+        /**
+         * Move to next zoned clue or wrap to start of next list
+         */
+        private void moveToNextClue(Playboard board, ClueID clueID) {
+            ClueID nextClueID = board.getNextZonedClueID(clueID);
+            if (nextClueID != null)
+                board.jumpToClue(nextClueID);
         }
 
-        private String getPrevList(Puzzle puz, String listName) {
-            return getListDelta(puz, listName, -1);
-        }
+        /**
+         * Move to first uncompleted cell of next uncompleted clue
+         *
+         * Looked up in the board's index of uncompleted clues rather
+         * than visiting each clue in turn. Does not move if there
+         * are none.
+         */
+        private void moveToNextUncompletedClue(
+            Playboard board, ClueID clueID
+        ) {
+            ClueID nextClueID = board.findNextUncompletedClueID(clueID);
+            if (nextClueID == null)
+                return;
 
-        private String getListDelta(Puzzle puz, String listName, int delta) {
-            // inefficient to sort list every time, but we don't expect
-            // many lists, and this function won't be called often
-            List<String> clueLists = new ArrayList<>(puz.getClueListNames());
-            Collections.sort(clueLists);
-            int curPos = clueLists.indexOf(listName);
-            int n = clueLists.size();
-            // +n trick to avoid negatives
-            // https://stackoverflow.com/a/21212090/6882587
-            int nextPos = (((curPos + delta) % n) + n) % n;
-            return clueLists.get(nextPos);
+            board.jumpToClue(nextClueID);
+            if (board.skipBox(board.getCurrentBox(), true))
+                board.moveZoneForward(true);
         }
     };
 
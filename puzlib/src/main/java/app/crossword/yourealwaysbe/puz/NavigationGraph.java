@@ -0,0 +1,158 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Where the cursor can go from each cell, worked out once per puzzle
+ *
+ * For each of the eight directions, the nearest cell with a box from
+ * each cell (skipping blocks), and the order of clues with zones for
+ * moving between words. Lookups are table reads and return shared
+ * Position instances, so moving does not scan or allocate.
+ *
+ * Direction tables are built on first use. The grid and clue zones
+ * must not change after the graph is made.
+ */
+class NavigationGraph {
+    private static final int NUM_DIRECTIONS = 9;
+
+    private final int width;
+    private final int height;
+    // shared position for each cell with a box, null otherwise
+    private final Position[] positions;
+    // per (drow, dcol), next cell with a box in that direction or -1
+    private final int[][] nextCells = new int[NUM_DIRECTIONS][];
+    // clues with zones in ClueID order (list name then index)
+    private final ClueID[] zonedClues;
+
+    public NavigationGraph(Puzzle puzzle) {
+        this.width = puzzle.getWidth();
+        this.height = puzzle.getHeight();
+
+        positions = new Position[width * height];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                if (puzzle.checkedGetBox(row, col) != null)
+                    positions[getCell(row, col)] = new Position(row, col);
+            }
+        }
+
+        List<ClueID> clues = new ArrayList<>();
+        for (Clue clue : puzzle.getAllClues()) {
+            if (clue.hasZone())
+                clues.add(clue.getClueID());
+        }
+        Collections.sort(clues);
+        zonedClues = clues.toArray(new ClueID[clues.size()]);
+    }
+
+    /**
+     * Nearest cell with a box from pos in direction (drow, dcol)
+     *
+     * @param drow -1, 0, or 1
+     * @param dcol -1, 0, or 1, not both zero
+     * @return the position, or null if none before the edge of the
+     * grid or pos is off the grid
+     */
+    public Position getNext(Position pos, int drow, int dcol) {
+        int row = pos.getRow();
+        int col = pos.getCol();
+        if (row < 0 || row >= height || col < 0 || col >= width)
+            return null;
+
+        int next = getNextCells(drow, dcol)[getCell(row, col)];
+        return (next < 0) ? null : positions[next];
+    }
+
+    /**
+     * True if getNext handles the direction
+     */
+    public static boolean isDirection(int drow, int dcol) {
+        return -1 <= drow && drow <= 1
+            && -1 <= dcol && dcol <= 1
+            && (drow != 0 || dcol != 0);
+    }
+
+    /**
+     * The clue with a zone after cid, wrapping to the next list
+     *
+     * Lists are in name order. If cid does not have a zone, the first
+     * zoned clue after where it would be.
+     *
+     * @return next clue, or null if no clues have zones
+     */
+    public ClueID getNextZonedClue(ClueID cid) {
+        int n = zonedClues.length;
+        if (n == 0)
+            return null;
+
+        int index = Arrays.binarySearch(zonedClues, cid);
+        int next = (index >= 0) ? index + 1 : -(index + 1);
+        return zonedClues[next % n];
+    }
+
+    /**
+     * The clue with a zone before cid, wrapping to the previous list
+     *
+     * @return previous clue, or null if no clues have zones
+     */
+    public ClueID getPreviousZonedClue(ClueID cid) {
+        int n = zonedClues.length;
+        if (n == 0)
+            return null;
+
+        int index = Arrays.binarySearch(zonedClues, cid);
+        int prev = (index >= 0) ? index - 1 : -(index + 1) - 1;
+        return zonedClues[(prev + n) % n];
+    }
+
+    private int getCell(int row, int col) {
+        return row * width + col;
+    }
+
+    private int[] getNextCells(int drow, int dcol) {
+        int direction = (drow + 1) * 3 + (dcol + 1);
+        int[] next = nextCells[direction];
+        if (next == null) {
+            next = buildNextCells(drow, dcol);
+            nextCells[direction] = next;
+        }
+        return next;
+    }
+
+    /**
+     * Fill in the table for one direction
+     *
+     * Visits cells so that the neighbour in the direction is done
+     * before the cell, so each entry is the neighbour if it has a
+     * box, else the neighbour's entry.
+     */
+    private int[] buildNextCells(int drow, int dcol) {
+        int[] next = new int[width * height];
+
+        for (int i = 0; i < height; i++) {
+            int row = (drow > 0) ? height - 1 - i : i;
+            for (int j = 0; j < width; j++) {
+                int col = (dcol > 0) ? width - 1 - j : j;
+
+                int nrow = row + drow;
+                int ncol = col + dcol;
+                int cell = getCell(row, col);
+
+                if (nrow < 0 || nrow >= height || ncol < 0 || ncol >= width) {
+                    next[cell] = -1;
+                } else {
+                    int ncell = getCell(nrow, ncol);
+                    next[cell] = (positions[ncell] != null)
+                        ? ncell
+                        : next[ncell];
+                }
+            }
+        }
+
+        return next;
+    }
+}
@@ -0,0 +1,147 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The player's progress on a puzzle, without the puzzle
+ *
+ * Responses, responders and cheated flags of each cell, the position,
+ * history, notes, flagged clues and time played. Taken as a copy, so
+ * later changes to the puzzle do not affect it, and applied to a fresh
+ * puzzle from a PuzzleDefinition to carry on, or to another copy of the
+ * same puzzle to bring it up to date.
+ *
+ * Immutable once taken, so can be handed to other threads.
+ */
+public class PlayState {
+    private final int width;
+    private final int height;
+    // by cell, row * width + col, null if no box
+    private final String[] responses;
+    private final String[] responders;
+    private final boolean[] cheated;
+
+    private final long time;
+    private final Position position;
+    private final ClueID currentClueID;
+    private final List<ClueID> history;
+    private final Map<ClueID, Note> clueNotes;
+    private final Note playerNote;
+    private final Set<ClueID> flaggedClues;
+
+    /**
+     * Take the current play state of a puzzle
+     */
+    public PlayState(Puzzle puz) {
+        width = puz.getWidth();
+        height = puz.getHeight();
+
+        responses = new String[width * height];
+        responders = new String[width * height];
+        cheated = new boolean[width * height];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                Box box = puz.checkedGetBox(row, col);
+                if (box != null) {
+                    int cell = row * width + col;
+                    responses[cell] = box.getResponse();
+                    responders[cell] = box.getResponder();
+                    cheated[cell] = box.isCheated();
+                }
+            }
+        }
+
+        time = puz.getTime();
+        position = puz.getPosition();
+        currentClueID = puz.getCurrentClueID();
+        history = Collections.unmodifiableList(
+            new ArrayList<>(puz.getHistory())
+        );
+
+        Map<ClueID, Note> notes = new HashMap<>();
+        for (Clue clue : puz.getAllClues()) {
+            Note note = puz.getNote(clue);
+            if (note != null)
+                notes.put(clue.getClueID(), copyNote(note));
+        }
+        clueNotes = Collections.unmodifiableMap(notes);
+        playerNote = copyNote(puz.getPlayerNote());
+
+        flaggedClues = Collections.unmodifiableSet(
+            new HashSet<>(puz.getFlaggedClues())
+        );
+    }
+
+    public long getTime() { return time; }
+    public Position getPosition() { return position; }
+    public ClueID getCurrentClueID() { return currentClueID; }
+    public List<ClueID> getHistory() { return history; }
+    public Set<ClueID> getFlaggedClues() { return flaggedClues; }
+
+    /**
+     * Put the state on a puzzle of the same definition
+     *
+     * Replaces any play state the puzzle already has.
+     *
+     * @throws IllegalArgumentException if the grid is not the same size
+     */
+    public void applyTo(Puzzle puz) {
+        if (puz.getWidth() != width || puz.getHeight() != height) {
+            throw new IllegalArgumentException(
+                "Play state is for a " + width + "x" + height + " grid"
+            );
+        }
+
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                Box box = puz.checkedGetBox(row, col);
+                int cell = row * width + col;
+                if (box != null && responses[cell] != null) {
+                    box.setResponse(responses[cell]);
+                    box.setResponder(responders[cell]);
+                    box.setCheated(cheated[cell]);
+                }
+            }
+        }
+
+        puz.setTime(time);
+        puz.setPosition(position);
+        puz.setCurrentClueID(currentClueID);
+        puz.setHistory(history);
+
+        for (Clue clue : puz.getAllClues()) {
+            ClueID cid = clue.getClueID();
+            Note note = clueNotes.get(cid);
+            if (note != null)
+                puz.setNote(cid, copyNote(note));
+            else if (puz.getNote(cid) != null)
+                puz.setNote(cid, null);
+        }
+        puz.setPlayerNote(copyNote(playerNote));
+
+        for (ClueID cid : new ArrayList<>(puz.getFlaggedClues())) {
+            if (!flaggedClues.contains(cid))
+                puz.flagClue(cid, false);
+        }
+        for (ClueID cid : flaggedClues)
+            puz.flagClue(cid, true);
+    }
+
+    // notes are changed in place during play
+    private static Note copyNote(Note note) {
+        if (note == null)
+            return null;
+        return new Note(
+            note.getScratch(),
+            note.getText(),
+            note.getAnagramSource(),
+            note.getAnagramSolution()
+        );
+    }
+}
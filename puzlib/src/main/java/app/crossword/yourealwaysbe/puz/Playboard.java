@@ -6,17 +6,19 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Set;
 import java.util.logging.Logger;
 
 import app.crossword.yourealwaysbe.util.PuzzleUtils;
-import app.crossword.yourealwaysbe.util.WeakSet;
+import app.crossword.yourealwaysbe.util.WeakListenerList;
 
 public class Playboard implements Serializable {
     private static final Logger LOG = Logger.getLogger(Playboard.class.getCanonicalName());
 
+    // most cell changes kept for undo
+    private static final int MAX_UNDO_CELLS = 4096;
+
     private MovementStrategy movementStrategy = MovementStrategy.MOVE_NEXT_ON_AXIS;
     private Puzzle puzzle;
     private String responder;
@@ -32,15 +34,22 @@ public class Playboard implements Serializable {
     private int lastFoundZoneIndex = -1;
     // Zone for the cells without clues attached
     private Zone detachedCellsZone;
+    // built on first move
+    private NavigationGraph navigationGraph;
 
-    private Set<PlayboardListener> listeners = WeakSet.buildSet();
-    private Set<PlayboardListener> pendingListenerRemovals = WeakSet.buildSet();
-    private Set<PlayboardListener> pendingListenerAdditions
-        = WeakSet.buildSet();
-    private boolean isNotifying = false;
+    private WeakListenerList<PlayboardListener> listeners
+        = new WeakListenerList<>();
     private int notificationDisabledDepth = 0;
 
-    private Set<Position> changedPositions = new HashSet<>();
+    // reused for every notification
+    private CellSet changedPositions;
+    // current word, only rebuilt when the current clue changes
+    private Clue currentWordClue;
+    private Word currentWord;
+    // all changes to responses go through this
+    private FillCounts fillCounts;
+    // all changes to responses are recorded here first
+    private UndoLog undoLog;
     // reuse same one for all notifications
     private PlayboardChanges notificationChanges = new PlayboardChanges();
 
@@ -66,6 +75,10 @@ public class Playboard implements Serializable {
         }
 
         this.puzzle = puzzle;
+        this.fillCounts = new FillCounts(puzzle);
+        this.undoLog = new UndoLog(puzzle, fillCounts, MAX_UNDO_CELLS);
+        this.changedPositions
+            = new CellSet(puzzle.getWidth(), puzzle.getHeight());
 
         sortedClueListNames.addAll(puzzle.getClueListNames());
         Collections.sort(this.sortedClueListNames);
@@ -161,8 +174,15 @@ public class Playboard implements Serializable {
     }
 
     public Word getCurrentWord() {
-        Word word = getClueWord(getClueID());
-        return (word == null) ? new Word(getDetachedCellsZone()) : word;
+        Clue clue = getClue();
+        if (currentWord == null || clue != currentWordClue) {
+            Word word = getClueWord(getClueID());
+            currentWord = (word == null)
+                ? new Word(getDetachedCellsZone())
+                : word;
+            currentWordClue = clue;
+        }
+        return currentWord;
     }
 
     /**
@@ -209,8 +229,10 @@ public class Playboard implements Serializable {
         for (int i = 0; i < length; i++) {
             Position pos = zone.getPosition(i);
             Box box = puzzle.checkedGetBox(pos);
-            if (box != null)
-                box.setResponse(response[i].getResponse());
+            if (box != null) {
+                undoLog.record(pos, box);
+                fillCounts.setResponse(box, response[i].getResponse());
+            }
             flagChange(pos);
         }
         notifyChange();
@@ -280,7 +302,7 @@ public class Playboard implements Serializable {
         if (sameSelection)
             return w;
 
-        if (box.getIsPartOfClues().contains(cid)) {
+        if (box.isPartOf(cid)) {
             puzzle.setPosition(highlightLetter);
             puzzle.setCurrentClueID(cid);
 
@@ -403,19 +425,49 @@ public class Playboard implements Serializable {
      * Always false if clue has a null or empty zone
      */
     public boolean isFilledClueID(ClueID clueID) {
-        Zone zone = getZone(clueID);
+        return fillCounts.isFilled(clueID);
+    }
 
-        if(zone == null || zone.isEmpty())
-            return false;
+    /**
+     * If every cell of the clue would be skipped when skipping completed
+     *
+     * I.e. filled, or filled correctly if showing errors. Always false
+     * if clue has a null or empty zone.
+     */
+    public boolean isCompletedClueID(ClueID clueID) {
+        return isShowErrors()
+            ? fillCounts.isSolved(clueID)
+            : fillCounts.isFilled(clueID);
+    }
 
-        Box[][] boxes = getBoxes();
+    /**
+     * Find next clue with cells that would not be skipped when skipping
+     * completed
+     *
+     * Searches clue lists in order from clueID, wrapping round and
+     * ending with clueID itself. Uses an index of incomplete clues, so
+     * does not walk the clue zones.
+     *
+     * @return the clue found, or null if all complete
+     */
+    public ClueID findNextUncompletedClueID(ClueID clueID) {
+        if (clueID == null)
+            return null;
+        return fillCounts.findNextIncomplete(clueID, isShowErrors());
+    }
 
-        for (Position pos : zone) {
-            if (boxes[pos.getRow()][pos.getCol()].isBlank())
-                return false;
-        }
+    /**
+     * As Puzzle.getPercentComplete, but without scanning the grid
+     */
+    public int getPercentComplete() {
+        return fillCounts.getPercentComplete();
+    }
 
-        return true;
+    /**
+     * As Puzzle.getPercentFilled, but without scanning the grid
+     */
+    public int getPercentFilled() {
+        return fillCounts.getPercentFilled();
     }
 
     /**
@@ -439,7 +491,8 @@ public class Playboard implements Serializable {
 
 
         if (!isDontDeleteCurrent()) {
-            currentBox.setBlank();
+            undoLog.record(getHighlightLetter(), currentBox);
+            fillCounts.setResponse(currentBox, Box.BLANK);
             flagChange(getHighlightLetter());
         }
 
@@ -506,7 +559,7 @@ public class Playboard implements Serializable {
 
         Position currentPos = getHighlightLetter();
         Box currentBox = getCurrentBox();
-        Set<ClueID> currentBoxClues = currentBox.getIsPartOfClues();
+        List<ClueID> currentBoxClues = currentBox.getIsPartOfClues();
 
         for (ClueID otherCID : currentBoxClues) {
             if (currentCID.equals(otherCID))
@@ -708,6 +761,25 @@ public class Playboard implements Serializable {
      */
     public Position findNextDelta(
         Position original, boolean skipCompleted, int drow, int dcol
+    ) {
+        if (!NavigationGraph.isDirection(drow, dcol))
+            return scanNextDelta(original, skipCompleted, drow, dcol);
+
+        NavigationGraph graph = getNavigationGraph();
+        Position next = graph.getNext(original, drow, dcol);
+        while (next != null && skipPosition(next, skipCompleted))
+            next = graph.getNext(next, drow, dcol);
+
+        return next;
+    }
+
+    /**
+     * As findNextDelta, but stepping through the grid
+     *
+     * For deltas the navigation graph does not have.
+     */
+    private Position scanNextDelta(
+        Position original, boolean skipCompleted, int drow, int dcol
     ) {
         Position next = new Position(
             original.getRow() + drow, original.getCol() + dcol
@@ -725,7 +797,7 @@ public class Playboard implements Serializable {
         Box value = puzzle.checkedGetBox(next);
 
         if ((value == null) || skipBox(value, skipCompleted)) {
-            next = findNextDelta(next, skipCompleted, drow, dcol);
+            next = scanNextDelta(next, skipCompleted, drow, dcol);
         }
 
         return next;
@@ -797,7 +869,7 @@ public class Playboard implements Serializable {
         if (Objects.equals(original, zone.getPosition(lastFoundZoneIndex))) {
             index = lastFoundZoneIndex;
         } else {
-            index = zone.indexOf(original);
+            index = getZoneIndex(zone, original);
         }
 
         if (index < 0)
@@ -814,6 +886,23 @@ public class Playboard implements Serializable {
         }
     }
 
+    /**
+     * Index of pos in zone, or -1
+     *
+     * Boxes know their position in their clues, so for the current
+     * clue's zone this avoids searching the zone.
+     */
+    private int getZoneIndex(Zone zone, Position pos) {
+        ClueID cid = getClueID();
+        Box box = puzzle.checkedGetBox(pos);
+        if (cid != null && box != null) {
+            int index = box.getCluePosition(cid);
+            if (index >= 0 && pos.equals(zone.getPosition(index)))
+                return index;
+        }
+        return zone.indexOf(pos);
+    }
+
     /**
      * As findZoneDelta but with index of position as first argument
      */
@@ -825,6 +914,10 @@ public class Playboard implements Serializable {
         if (zone == null)
             return -1;
 
+        // every cell would be skipped
+        if (skipCompleted && isCompletedClueID(getClueID()))
+            return -1;
+
         int nextIdx = original + delta;
         if (nextIdx < 0 || nextIdx >= zone.size()) {
             return -1;
@@ -912,7 +1005,8 @@ public class Playboard implements Serializable {
                 || !Objects.equals(b.getResponse(), b.getSolution())
                 || !isShowErrors()
             ) {
-                b.setResponse(answer.charAt(idx));
+                undoLog.record(pos, b);
+                fillCounts.setResponse(b, answer.charAt(idx));
                 b.setResponder(this.responder);
                 flagChange(pos);
             }
@@ -956,7 +1050,8 @@ public class Playboard implements Serializable {
     }
 
     public Word playLetter(char letter) {
-        return playLetter(String.valueOf(letter));
+        // shared strings for common characters
+        return playLetter(Box.charString(letter));
     }
 
     public Word playLetter(String letter) {
@@ -976,7 +1071,8 @@ public class Playboard implements Serializable {
             return this.getCurrentWord();
         } else {
             pushNotificationDisabled();
-            b.setResponse(letter);
+            undoLog.record(pos, b);
+            fillCounts.setResponse(b, letter);
             b.setResponder(this.responder);
             flagChange(pos);
             Word next = this.nextLetter();
@@ -1054,8 +1150,9 @@ public class Playboard implements Serializable {
             boolean correctResponse
                 = Objects.equals(b.getSolution(), b.getResponse());
             if (!correctResponse) {
+                undoLog.record(highlightLetter, b);
                 b.setCheated(true);
-                b.setResponse(b.getSolution());
+                fillCounts.setResponse(b, b.getSolution());
                 flagChange(highlightLetter);
                 notifyChange();
                 return highlightLetter;
@@ -1084,9 +1181,10 @@ public class Playboard implements Serializable {
                     boolean correctResponse
                         = Objects.equals(b.getSolution(), b.getResponse());
                     if (b.isCheated() || (!b.isBlank() && !correctResponse)) {
-                        b.setCheated(true);
-                        b.setResponse(b.getSolution());
                         Position pos = new Position(row, col);
+                        undoLog.record(pos, b);
+                        b.setCheated(true);
+                        fillCounts.setResponse(b, b.getSolution());
                         flagChange(pos);
                         changes.add(pos);
                     }
@@ -1110,9 +1208,10 @@ public class Playboard implements Serializable {
                     boolean correctResponse
                         = Objects.equals(b.getSolution(), b.getResponse());
                     if (!correctResponse) {
-                        b.setCheated(true);
-                        b.setResponse(b.getSolution());
                         Position pos = new Position(row, col);
+                        undoLog.record(pos, b);
+                        b.setCheated(true);
+                        fillCounts.setResponse(b, b.getSolution());
                         flagChange(pos);
                         changes.add(pos);
                     }
@@ -1155,6 +1254,76 @@ public class Playboard implements Serializable {
         return changes;
     }
 
+    /**
+     * Undo the last change to cell responses
+     *
+     * A change is everything done by one call that changes cells (e.g.
+     * playLetter or revealPuzzle). Moves and notes are not undone.
+     * Listeners get one notification with all the cells changed.
+     *
+     * @return positions changed, empty if nothing to undo
+     */
+    public List<Position> undo() {
+        List<Position> changes = undoLog.undo();
+        flagChanges(changes);
+        notifyChange();
+        return changes;
+    }
+
+    /**
+     * Redo the last undone change to cell responses
+     *
+     * See undo. Any new change to cells loses what could be redone.
+     *
+     * @return positions changed, empty if nothing to redo
+     */
+    public List<Position> redo() {
+        List<Position> changes = undoLog.redo();
+        flagChanges(changes);
+        notifyChange();
+        return changes;
+    }
+
+    public boolean canUndo() {
+        return undoLog.canUndo();
+    }
+
+    /**
+     * Make several changes as one
+     *
+     * Listeners get a single notification at the end with all the
+     * changes, and the changes are one step for undo. Batches can be
+     * nested, the outermost notifies.
+     *
+     * If changes throws, the cell responses and selected position and
+     * clue are restored to how they were before the batch, listeners
+     * are notified of the rollback, and the exception is rethrown.
+     * Notes are not rolled back.
+     */
+    public void batch(Runnable changes) {
+        long undoMark = undoLog.getMark();
+        Position position = getHighlightLetter();
+        ClueID clueID = getClueID();
+
+        pushNotificationDisabled();
+        try {
+            changes.run();
+        } catch (RuntimeException | Error e) {
+            flagChanges(undoLog.rollback(undoMark));
+            flagChange(getHighlightLetter(), position);
+            puzzle.setPosition(position);
+            puzzle.setCurrentClueID(clueID);
+            throw e;
+        } finally {
+            popNotificationDisabled();
+            notifyChange();
+        }
+    }
+
+    public boolean canRedo() {
+        return undoLog.canRedo();
+    }
+
     public boolean skipPosition(Position p, boolean skipCompleted) {
         Box box = puzzle.checkedGetBox(p);
         return (box == null) ? false : skipBox(box, skipCompleted);
@@ -1178,19 +1347,19 @@ public class Playboard implements Serializable {
 
         boolean changed = false;
 
-        NavigableSet<ClueID> boxClues = box.getIsPartOfClues();
+        List<ClueID> boxClues = box.getIsPartOfClues();
 
         if (boxClues.isEmpty()) {
             changed = w.getClueID() != null;
             puzzle.setCurrentClueID(null);
         } else {
             ClueID curCid = getClueID();
+            int curIndex = (curCid == null) ? -1 : boxClues.indexOf(curCid);
 
             // if in current clue, toggle, else try to stay in same list
-            if (curCid != null && boxClues.contains(curCid)) {
-                ClueID newCid = boxClues.higher(curCid);
-                if (newCid == null)
-                    newCid = boxClues.first();
+            if (curIndex >= 0) {
+                ClueID newCid
+                    = boxClues.get((curIndex + 1) % boxClues.size());
                 puzzle.setCurrentClueID(newCid);
                 changed = !Objects.equals(curCid, newCid);
             } else {
@@ -1198,7 +1367,7 @@ public class Playboard implements Serializable {
                 if (curCid != null)
                     newCid = box.getIsPartOfClue(curCid.getListName());
                 if (newCid == null)
-                    newCid = boxClues.first();
+                    newCid = boxClues.get(0);
                 puzzle.setCurrentClueID(newCid);
                 changed = true;
             }
@@ -1213,56 +1382,32 @@ public class Playboard implements Serializable {
         return w;
     }
 
+    /**
+     * Add a listener, weakly held
+     *
+     * If called during a notification, the listener is not notified
+     * until the next one.
+     */
     public void addListener(PlayboardListener listener) {
-        if (isNotifying)
-            addPendingListenerAddition(listener);
-        else
-            listeners.add(listener);
+        listeners.add(listener);
     }
 
+    /**
+     * Remove a listener
+     *
+     * If called during a notification, listeners already in the
+     * notification still get it.
+     */
     public void removeListener(PlayboardListener listener) {
-        if (isNotifying())
-            addPendingListenerRemoval(listener);
-        else
-            listeners.remove(listener);
-    }
-
-    private void flagNotifying(boolean isNotifying) {
-        // if stopping notifying, clear pending removals
-        boolean stoppingNotifying = !isNotifying && this.isNotifying;
-        this.isNotifying = isNotifying;
-
-        if (stoppingNotifying) {
-            for (PlayboardListener listener : pendingListenerRemovals) {
-                removeListener(listener);
-            }
-            pendingListenerRemovals.clear();
-            for (PlayboardListener listener : pendingListenerAdditions) {
-                addListener(listener);
-            }
-            pendingListenerAdditions.clear();
-        }
-
-        this.isNotifying = isNotifying;
-    }
-
-    private boolean isNotifying() {
-        return isNotifying;
-    }
-
-    private void addPendingListenerRemoval(PlayboardListener listener) {
-        pendingListenerRemovals.add(listener);
-    }
-
-    private void addPendingListenerAddition(PlayboardListener listener) {
-        pendingListenerAdditions.add(listener);
+        listeners.remove(listener);
     }
 
     private void notifyChange() { notifyChange(false); }
 
     private void notifyChange(boolean wholeBoard) {
         if (notificationDisabledDepth == 0) {
-            flagNotifying(true);
+            // end of a user action
+            undoLog.endGroup();
 
             int lastHistoryIndex = updateHistory();
             boolean historyChange = (getClueID() != null);
@@ -1282,13 +1427,14 @@ public class Playboard implements Serializable {
                 historyChange, lastHistoryIndex
             );
 
-            for (PlayboardListener listener : listeners) {
-                listener.onPlayboardChange(notificationChanges);
+            Object[] snapshot = listeners.getListeners();
+            for (int i = 0; i < snapshot.length; i++) {
+                PlayboardListener listener = listeners.get(snapshot, i);
+                if (listener != null)
+                    listener.onPlayboardChange(notificationChanges);
             }
             previousWord = currentWord;
             clearChanges();
-
-            flagNotifying(false);
         }
     }
 
@@ -1391,6 +1537,30 @@ public class Playboard implements Serializable {
             return zone.getPosition(zone.size() - 1);
     }
 
+    /**
+     * The clue with a zone after clueID, wrapping to the next list
+     *
+     * @return null if no clues have zones
+     */
+    ClueID getNextZonedClueID(ClueID clueID) {
+        return getNavigationGraph().getNextZonedClue(clueID);
+    }
+
+    /**
+     * The clue with a zone before clueID, wrapping to the previous list
+     *
+     * @return null if no clues have zones
+     */
+    ClueID getPreviousZonedClueID(ClueID clueID) {
+        return getNavigationGraph().getPreviousZonedClue(clueID);
+    }
+
+    private NavigationGraph getNavigationGraph() {
+        if (navigationGraph == null)
+            navigationGraph = new NavigationGraph(puzzle);
+        return navigationGraph;
+    }
+
     private int getCurrentWordLength() {
         Zone zone = getCurrentZone();
         return zone == null ? 0 : zone.size();
@@ -1404,11 +1574,19 @@ public class Playboard implements Serializable {
         return changedPositions;
     }
 
-    private void flagChange(Position... positions) {
-        for (Position pos : positions) {
-            if (pos != null)
-                changedPositions.add(pos);
-        }
+    private void flagChange(Position pos) {
+        if (pos != null)
+            changedPositions.add(pos);
+    }
+
+    private void flagChange(Position pos1, Position pos2) {
+        flagChange(pos1);
+        flagChange(pos2);
+    }
+
+    private void flagChanges(Collection<Position> positions) {
+        for (Position pos : positions)
+            flagChange(pos);
     }
 
     /**
@@ -2,7 +2,6 @@
 package app.crossword.yourealwaysbe.puz;
 
 import java.io.Serializable;
-import java.util.Arrays;
 
 public class Position implements Serializable {
     private int row;
@@ -32,7 +31,8 @@ public class Position implements Serializable {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(new int[] {row, col});
+        // as Arrays.hashCode(new int[] {row, col}) without the array
+        return 31 * (31 + row) + col;
     }
 
     @Override
@@ -66,16 +66,34 @@ public class Puzzle implements Serializable{
     public enum Kind { CROSSWORD, ACROSTIC };
     private Kind kind = Kind.CROSSWORD;
 
-    // Temporary fields used for unscrambling.
+    /**
+     * Temporary fields used for unscrambling.
+     *
+     * @deprecated only used by the deprecated IO unscramble helpers,
+     * PuzCracker keeps its own buffers
+     */
+    @Deprecated
     public int[] unscrambleKey;
+    @Deprecated
     public byte[] unscrambleTmp;
+    @Deprecated
     public byte[] unscrambleBuf;
 
     public void addClue(Clue clue) {
         String listName = clue.getClueID().getListName();
-        if (!clueLists.containsKey(listName))
-            clueLists.put(listName, new MutableClueList());
-        clueLists.get(listName).addClue(clue);
+        MutableClueList clues = clueLists.get(listName);
+        if (clues == null) {
+            clues = new MutableClueList();
+            clueLists.put(listName, clues);
+        } else {
+            // clues of a list share its first clue's name string, so ids
+            // usually compare by reference
+            String listNameUsed
+                = clues.getClueByIndex(0).getClueID().getListName();
+            if (listName != listNameUsed)
+                clue = clue.withListName(listNameUsed);
+        }
+        clues.addClue(clue);
         addClueToBoxes(clue);
     }
 
@@ -305,19 +323,28 @@ public class Puzzle implements Serializable{
     }
 
     /**
-     * Initialize the temporary unscramble buffers.  Returns the scrambled solution.
+     * Returns the scrambled solution.
+     *
+     * @deprecated unscrambling no longer needs buffers on the puzzle, use
+     * getScrambledSolution
      */
+    @Deprecated
     public byte[] initializeUnscrambleData() {
         unscrambleKey = new int[4];
         unscrambleTmp = new byte[9];
 
-        byte[] solution = getSolutionDown();
+        byte[] solution = getScrambledSolution();
         unscrambleBuf = new byte[solution.length];
 
         return solution;
     }
 
-    private byte[] getSolutionDown() {
+    /**
+     * The solution in column order, as scrambled by Across Lite
+     *
+     * Returns a new array each call.
+     */
+    public byte[] getScrambledSolution() {
         StringBuilder ans = new StringBuilder();
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
@@ -900,6 +927,66 @@ public class Puzzle implements Serializable{
         return images;
     }
 
+    /**
+     * A new puzzle with the same definition and no play state
+     *
+     * Boxes, clue lists and images are copied. Clues and metadata are
+     * shared, they are not changed after loading. Apply a PlayState to
+     * the copy to carry on from where this puzzle is.
+     */
+    public Puzzle copyDefinition() {
+        Puzzle copy = new Puzzle();
+
+        copy.author = author;
+        copy.copyright = copyright;
+        copy.notes = notes;
+        copy.title = title;
+        copy.introMessage = introMessage;
+        copy.completionMessage = completionMessage;
+        copy.pubdate = pubdate;
+        copy.source = source;
+        copy.sourceUrl = sourceUrl;
+        copy.shareUrl = shareUrl;
+        copy.supportUrl = supportUrl;
+        copy.updatable = updatable;
+        copy.scrambled = scrambled;
+        copy.solutionChecksum = solutionChecksum;
+        copy.pinnedClueID = pinnedClueID;
+        copy.kind = kind;
+
+        for (Map.Entry<String, MutableClueList> entry : clueLists.entrySet()) {
+            MutableClueList clues = new MutableClueList();
+            for (Clue clue : entry.getValue())
+                clues.addClue(clue);
+            copy.clueLists.put(entry.getKey(), clues);
+        }
+
+        // boxes already know their clues
+        if (boxes != null) {
+            Box[][] boxesCopy = new Box[height][width];
+            for (int row = 0; row < height; row++) {
+                for (int col = 0; col < width; col++) {
+                    Box box = boxes[row][col];
+                    if (box != null)
+                        boxesCopy[row][col] = box.copyDefinition();
+                }
+            }
+            copy.boxes = boxesCopy;
+            copy.height = height;
+            copy.width = width;
+        }
+
+        for (PuzImage image : images) {
+            copy.images.add(new PuzImage(
+                image.getURL(),
+                image.getRow(), image.getCol(),
+                image.getWidth(), image.getHeight()
+            ));
+        }
+
+        return copy;
+    }
+
     /**
      * Goes through existing clues and makes sure info in boxes
      *
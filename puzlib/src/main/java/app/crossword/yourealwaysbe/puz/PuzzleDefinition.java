@@ -0,0 +1,52 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.time.LocalDate;
+
+/**
+ * A puzzle as published, without anyone's progress on it
+ *
+ * The grid, solutions, clues and metadata, taken from a loaded puzzle.
+ * Never changed once made, so can be cached and shared between threads.
+ * Puzzles to play are made with newPuzzle, which share clues and
+ * metadata with the definition and copy only the boxes and clue lists,
+ * and put the player's progress back from a PlayState.
+ */
+public final class PuzzleDefinition {
+    private final Puzzle template;
+
+    /**
+     * Definition of puz, ignoring its play state
+     *
+     * Later changes to puz do not affect the definition.
+     */
+    public PuzzleDefinition(Puzzle puz) {
+        template = puz.copyDefinition();
+    }
+
+    public String getTitle() { return template.getTitle(); }
+    public String getAuthor() { return template.getAuthor(); }
+    public String getSource() { return template.getSource(); }
+    public LocalDate getDate() { return template.getDate(); }
+    public int getWidth() { return template.getWidth(); }
+    public int getHeight() { return template.getHeight(); }
+    public Puzzle.Kind getKind() { return template.getKind(); }
+
+    /**
+     * A new puzzle with nothing played
+     */
+    public Puzzle newPuzzle() {
+        return template.copyDefinition();
+    }
+
+    /**
+     * A new puzzle with the given play state
+     *
+     * @throws IllegalArgumentException if the state is for a different
+     * sized grid
+     */
+    public Puzzle newPuzzle(PlayState state) {
+        Puzzle puz = newPuzzle();
+        state.applyTo(puz);
+        return puz;
+    }
+}
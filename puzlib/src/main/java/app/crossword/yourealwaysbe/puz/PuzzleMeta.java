@@ -7,7 +7,10 @@ import java.util.List;
 import java.util.Objects;
 
 /**
- * Used only for .puz file IO, not to be confused with PuzMetaFile
+ * Used for .puz file IO, not to be confused with PuzMetaFile
+ *
+ * Also returned by IO.loadMeta and IPuzIO.readMeta when only the list
+ * meta data is needed.
  *
  * TODO: rename!
  */
@@ -0,0 +1,295 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded undo/redo log of cell changes on a playboard
+ *
+ * Only cell deltas are kept: the cell and its response, responder and
+ * cheated flag before the change. Deltas are grouped into actions
+ * (everything between two endGroup calls), and undo/redo work a whole
+ * action at a time.
+ *
+ * Deltas live in a ring buffer that grows by doubling up to a fixed
+ * maximum number of cells. When full, the oldest actions are dropped. An
+ * action bigger than the whole buffer cannot be undone, so the log is
+ * emptied instead.
+ *
+ * Undo and redo swap the stored state with the state of the box, so each
+ * delta holds whichever of the before/after states is not on the board.
+ *
+ * Response changes go through the board's FillCounts so its counts stay
+ * in step.
+ */
+class UndoLog {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // packed into the entries of cells
+    private static final int GROUP_START = 0x1;
+    private static final int CHEATED = 0x2;
+    private static final int CELL_SHIFT = 2;
+
+    private final Puzzle puzzle;
+    private final FillCounts fillCounts;
+    private final int maxCells;
+
+    private int[] cells = new int[0];
+    private String[] responses = new String[0];
+    private String[] responders = new String[0];
+
+    // logical indices into the ring, oldest delta kept, end of
+    // deltas on the board (undoable), end of all deltas (redoable)
+    private long first = 0;
+    private long cursor = 0;
+    private long last = 0;
+
+    private boolean groupOpen = false;
+    private long groupStart = 0;
+    private boolean groupOverflowed = false;
+
+    /**
+     * @param puzzle the puzzle whose boxes are changed
+     * @param fillCounts response changes are made through this
+     * @param maxCells most deltas kept
+     */
+    public UndoLog(Puzzle puzzle, FillCounts fillCounts, int maxCells) {
+        if (maxCells < 1) {
+            throw new IllegalArgumentException(
+                "Undo log needs room for at least one cell"
+            );
+        }
+        this.puzzle = puzzle;
+        this.fillCounts = fillCounts;
+        this.maxCells = maxCells;
+    }
+
+    /**
+     * Note the state of a box before it is changed
+     *
+     * Starts a new action if there isn't one open, which loses anything
+     * that could be redone.
+     */
+    public void record(Position pos, Box box) {
+        if (!groupOpen) {
+            groupOpen = true;
+            groupStart = cursor;
+            last = cursor;
+        }
+
+        if (groupOverflowed)
+            return;
+
+        if (cursor - first == cells.length && !grow()) {
+            dropOldestGroup();
+            if (groupStart < first) {
+                groupOverflowed = true;
+                return;
+            }
+        }
+
+        int cell = pos.getRow() * puzzle.getWidth() + pos.getCol();
+        int packed = cell << CELL_SHIFT;
+        if (cursor == groupStart)
+            packed |= GROUP_START;
+        if (box.isCheated())
+            packed |= CHEATED;
+
+        int index = getIndex(cursor);
+        cells[index] = packed;
+        responses[index] = box.getResponse();
+        responders[index] = box.getResponder();
+
+        cursor += 1;
+        last = cursor;
+    }
+
+    /**
+     * End the current action, if any
+     */
+    public void endGroup() {
+        if (groupOpen && groupOverflowed)
+            clear();
+        groupOpen = false;
+        groupOverflowed = false;
+    }
+
+    public boolean canUndo() {
+        return !groupOpen && cursor > first;
+    }
+
+    public boolean canRedo() {
+        return !groupOpen && cursor < last;
+    }
+
+    /**
+     * Undo the last action
+     *
+     * @return positions changed, empty if nothing to undo
+     */
+    public List<Position> undo() {
+        endGroup();
+
+        List<Position> changes = new ArrayList<>();
+        if (cursor == first)
+            return changes;
+
+        // reverse order in case a cell changed twice in one action
+        do {
+            cursor -= 1;
+            changes.add(swap(cursor));
+        } while (!isGroupStart(cursor));
+
+        return changes;
+    }
+
+    /**
+     * Redo the last undone action
+     *
+     * @return positions changed, empty if nothing to redo
+     */
+    public List<Position> redo() {
+        endGroup();
+
+        List<Position> changes = new ArrayList<>();
+        if (cursor == last)
+            return changes;
+
+        do {
+            changes.add(swap(cursor));
+            cursor += 1;
+        } while (cursor < last && !isGroupStart(cursor));
+
+        return changes;
+    }
+
+    /**
+     * Mark the current point in the log, for rollback
+     */
+    public long getMark() {
+        return cursor;
+    }
+
+    /**
+     * Undo and forget the changes of the open action since mark
+     *
+     * If the action outgrew the log, the changes no longer held cannot
+     * be restored: as much as possible is and the log is emptied.
+     *
+     * @return positions changed
+     */
+    public List<Position> rollback(long mark) {
+        List<Position> changes = new ArrayList<>();
+        if (!groupOpen)
+            return changes;
+
+        long stop = Math.max(Math.max(mark, groupStart), first);
+        while (cursor > stop) {
+            cursor -= 1;
+            changes.add(swap(cursor));
+            int index = getIndex(cursor);
+            responses[index] = null;
+            responders[index] = null;
+        }
+        last = cursor;
+
+        if (groupOverflowed) {
+            groupOverflowed = false;
+            clear();
+            groupStart = cursor;
+        }
+
+        return changes;
+    }
+
+    public void clear() {
+        for (long i = first; i < last; i++) {
+            int index = getIndex(i);
+            responses[index] = null;
+            responders[index] = null;
+        }
+        first = cursor = last = 0;
+    }
+
+    /**
+     * Swap the stored state with the box's
+     *
+     * @return position of the box
+     */
+    private Position swap(long delta) {
+        int index = getIndex(delta);
+        int packed = cells[index];
+        int cell = packed >>> CELL_SHIFT;
+        int width = puzzle.getWidth();
+        Position pos = new Position(cell / width, cell % width);
+        Box box = puzzle.checkedGetBox(pos);
+
+        String response = box.getResponse();
+        String responder = box.getResponder();
+        boolean cheated = box.isCheated();
+
+        fillCounts.setResponse(box, responses[index]);
+        box.setResponder(responders[index]);
+        box.setCheated((packed & CHEATED) != 0);
+
+        cells[index] = (packed & ~CHEATED) | (cheated ? CHEATED : 0);
+        responses[index] = response;
+        responders[index] = responder;
+
+        return pos;
+    }
+
+    private boolean isGroupStart(long delta) {
+        return (cells[getIndex(delta)] & GROUP_START) != 0;
+    }
+
+    /**
+     * Remove the oldest action from the log
+     */
+    private void dropOldestGroup() {
+        do {
+            int index = getIndex(first);
+            responses[index] = null;
+            responders[index] = null;
+            first += 1;
+        } while (first < cursor && !isGroupStart(first));
+    }
+
+    /**
+     * Double the ring buffer if under maxCells
+     *
+     * @return true if there is more room
+     */
+    private boolean grow() {
+        int capacity = cells.length;
+        if (capacity >= maxCells)
+            return false;
+
+        int newCapacity = Math.min(
+            maxCells, Math.max(INITIAL_CAPACITY, capacity * 2)
+        );
+
+        int[] newCells = new int[newCapacity];
+        String[] newResponses = new String[newCapacity];
+        String[] newResponders = new String[newCapacity];
+
+        for (long i = first; i < last; i++) {
+            int oldIndex = getIndex(i);
+            int newIndex = (int) (i % newCapacity);
+            newCells[newIndex] = cells[oldIndex];
+            newResponses[newIndex] = responses[oldIndex];
+            newResponders[newIndex] = responders[oldIndex];
+        }
+
+        cells = newCells;
+        responses = newResponses;
+        responders = newResponders;
+
+        return true;
+    }
+
+    private int getIndex(long delta) {
+        return (int) (delta % cells.length);
+    }
+}
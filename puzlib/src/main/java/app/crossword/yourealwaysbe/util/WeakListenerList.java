@@ -0,0 +1,80 @@
+package app.crossword.yourealwaysbe.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * A list of weakly held listeners that can be walked without allocating
+ *
+ * Copy on write: add and remove build a new array, and getListeners
+ * returns the current one. A dispatch loop over that array needs no
+ * lock and is not affected by listeners added or removed during it
+ * (they take effect from the next dispatch). Use as
+ *
+ *   Object[] snapshot = list.getListeners();
+ *   for (int i = 0; i < snapshot.length; i++) {
+ *       T listener = list.get(snapshot, i);
+ *       if (listener != null)
+ *           ...
+ *   }
+ *
+ * Like WeakSet, listeners do not stay alive just by being registered.
+ */
+public class WeakListenerList<T> {
+    private static final Object[] EMPTY = new Object[0];
+
+    private volatile Object[] listeners = EMPTY;
+
+    /**
+     * Add listener if not already there
+     */
+    public synchronized void add(T listener) {
+        if (listener == null)
+            return;
+
+        Object[] current = listeners;
+        Object[] updated = new Object[current.length + 1];
+        int size = 0;
+        for (Object ref : current) {
+            Object existing = ((WeakReference<?>) ref).get();
+            if (existing == listener)
+                return;
+            if (existing != null)
+                updated[size++] = ref;
+        }
+        updated[size++] = new WeakReference<T>(listener);
+
+        listeners = Arrays.copyOf(updated, size);
+    }
+
+    public synchronized void remove(T listener) {
+        Object[] current = listeners;
+        Object[] updated = new Object[current.length];
+        int size = 0;
+        for (Object ref : current) {
+            Object existing = ((WeakReference<?>) ref).get();
+            if (existing != null && existing != listener)
+                updated[size++] = ref;
+        }
+
+        if (size < current.length)
+            listeners = Arrays.copyOf(updated, size);
+    }
+
+    /**
+     * The current listeners, to be read with get and not modified
+     */
+    public Object[] getListeners() {
+        return listeners;
+    }
+
+    /**
+     * Get the i-th listener from a getListeners snapshot
+     *
+     * @return the listener, or null if it has been collected
+     */
+    @SuppressWarnings("unchecked")
+    public T get(Object[] snapshot, int i) {
+        return ((WeakReference<T>) snapshot[i]).get();
+    }
+}
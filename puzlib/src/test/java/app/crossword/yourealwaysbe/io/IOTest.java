@@ -5,6 +5,7 @@
 
 package app.crossword.yourealwaysbe.io;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.File;
@@ -14,6 +15,7 @@ import java.io.InputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.zip.CheckedInputStream;
 
 import org.junit.jupiter.api.Test;
 
@@ -22,8 +24,11 @@ import app.crossword.yourealwaysbe.puz.ClueID;
 import app.crossword.yourealwaysbe.puz.ClueList;
 import app.crossword.yourealwaysbe.puz.Note;
 import app.crossword.yourealwaysbe.puz.Puzzle;
+import app.crossword.yourealwaysbe.puz.PuzzleMeta;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -231,7 +236,7 @@ public class IOTest {
             System.out.println();
             try{
                 assertTrue(IO.tryUnscramble(
-                    puz, 2465, puz.initializeUnscrambleData())
+                    puz, 2465, puz.getScrambledSolution())
                 );
                 for(Box b :  puz.getBoxesList()){
                     if(b != null)
@@ -291,4 +296,183 @@ public class IOTest {
             }
         }
     }
+
+    @Test
+    public void testValidateHeader() throws Exception {
+        String[] puzzles = {
+            "/test.puz",
+            "/test_rebus.puz",
+            "/2010-7-4-LosAngelesTimes.puz",
+            "/2010-7-19-NewYorkTimes.puz"
+        };
+        for (String name : puzzles) {
+            try (InputStream is = IOTest.class.getResourceAsStream(name)) {
+                assertTrue(IO.validateHeader(is));
+            }
+            try (InputStream is = IOTest.class.getResourceAsStream(name)) {
+                assertTrue(IO.validateChecksums(is));
+            }
+        }
+
+        try (InputStream is = IPuzIOTest.getTestPuzzle1InputStream()) {
+            assertFalse(IO.validateHeader(is));
+        }
+
+        assertFalse(
+            IO.validateHeader(new ByteArrayInputStream(new byte[10]))
+        );
+    }
+
+    @Test
+    public void testValidateCorrupt() throws Exception {
+        byte[] data;
+        try (InputStream is = getTestPuzzle1InputStream()) {
+            data = StreamUtils.getStreamBytes(is);
+        }
+
+        // change width in CIB
+        byte[] badHeader = data.clone();
+        badHeader[0x2C] += 1;
+        assertFalse(IO.validateHeader(new ByteArrayInputStream(badHeader)));
+
+        // change a solution letter, header ok, checksums not
+        byte[] badBoard = data.clone();
+        badBoard[0x34] += 1;
+        assertTrue(IO.validateHeader(new ByteArrayInputStream(badBoard)));
+        assertFalse(
+            IO.validateChecksums(new ByteArrayInputStream(badBoard))
+        );
+    }
+
+    @Test
+    public void testValidateSaved() throws Exception {
+        Puzzle puz;
+        try (InputStream is = getTestPuzzleRebusInputStream()) {
+            puz = IO.loadNative(is);
+        }
+        puz.checkedGetBox(1, 7).setResponse("NEW RESPONSE");
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        IO.saveNative(puz, baos);
+
+        assertTrue(IO.validateChecksums(
+            new ByteArrayInputStream(baos.toByteArray())
+        ));
+    }
+
+    @Test
+    public void testIncrementalChecksum() throws Exception {
+        byte[] data;
+        try (InputStream is = getTestPuzzle1InputStream()) {
+            data = StreamUtils.getStreamBytes(is);
+        }
+
+        int expected = IO.cksum_region(data, 0, data.length, 0);
+
+        PuzChecksum chunked = new PuzChecksum();
+        for (int i = 0; i < data.length; i += 7)
+            chunked.update(data, i, Math.min(7, data.length - i));
+        assertEquals(expected, chunked.getValue());
+
+        PuzChecksum streamed = new PuzChecksum();
+        try (
+            DataInputStream dis = new DataInputStream(
+                new CheckedInputStream(
+                    new ByteArrayInputStream(data), streamed
+                )
+            )
+        ) {
+            dis.readFully(new byte[data.length]);
+        }
+        assertEquals(expected, streamed.getValue());
+
+        PuzChecksum seeded = new PuzChecksum(0x1234);
+        seeded.update(data);
+        assertEquals(
+            IO.cksum_region(data, 0, data.length, 0x1234), seeded.getValue()
+        );
+        seeded.reset();
+        seeded.update(data);
+        assertEquals(
+            IO.cksum_region(data, 0, data.length, 0x1234), seeded.getValue()
+        );
+    }
+
+    @Test
+    public void testLoadMeta() throws Exception {
+        String[] names = {
+            "/test.puz",
+            "/test_rebus.puz",
+            "/2010-7-19-NewYorkTimes.puz",
+            "/2010-7-4-LosAngelesTimes.puz",
+            "/puz_110131aniston.puz",
+            "/puz_110523margulies.puz"
+        };
+
+        for (String name : names) {
+            Puzzle puz;
+            try (InputStream is = IOTest.class.getResourceAsStream(name)) {
+                puz = IO.loadNative(is);
+            }
+
+            PuzzleMeta meta;
+            try (InputStream is = IOTest.class.getResourceAsStream(name)) {
+                meta = IO.loadMeta(new DataInputStream(is), null);
+            }
+
+            assertMetaMatches(puz, meta);
+        }
+    }
+
+    @Test
+    public void testLoadMetaSaved() throws Exception {
+        Puzzle puz;
+        try (InputStream is = getTestPuzzleRebusInputStream()) {
+            puz = IO.loadNative(is);
+        }
+
+        puz.setSource("Unit Test");
+        puz.setDate(LocalDate.of(2020, 2, 29));
+        puz.setUpdatable(true);
+        puz.checkedGetBox(1, 7).setResponse("NEW RESPONSE");
+        puz.checkedGetBox(0, 0).setResponse(
+            puz.checkedGetBox(0, 0).getSolution()
+        );
+
+        ByteArrayOutputStream puzOS = new ByteArrayOutputStream();
+        ByteArrayOutputStream metaOS = new ByteArrayOutputStream();
+        IO.save(puz, puzOS, metaOS);
+
+        Puzzle loaded = IO.load(
+            new DataInputStream(new ByteArrayInputStream(puzOS.toByteArray())),
+            new DataInputStream(new ByteArrayInputStream(metaOS.toByteArray()))
+        );
+
+        PuzzleMeta meta = IO.loadMeta(
+            new DataInputStream(new ByteArrayInputStream(puzOS.toByteArray())),
+            new DataInputStream(new ByteArrayInputStream(metaOS.toByteArray()))
+        );
+
+        assertMetaMatches(loaded, meta);
+        assertEquals(loaded.getDate(), meta.date);
+        assertEquals("Unit Test", meta.source);
+        assertTrue(meta.updatable);
+        assertTrue(meta.percentFilled > 0);
+    }
+
+    @Test
+    public void testLoadMetaNotPuz() throws Exception {
+        try (InputStream is = IPuzIOTest.getTestPuzzle1InputStream()) {
+            assertNull(IO.loadMeta(new DataInputStream(is), null));
+        }
+    }
+
+    private static void assertMetaMatches(Puzzle puz, PuzzleMeta meta) {
+        assertEquals(puz.getTitle(), meta.title);
+        assertEquals(puz.getAuthor(), meta.author);
+        assertEquals(puz.getSource(), meta.source);
+        assertEquals(puz.isUpdatable(), meta.updatable);
+        assertEquals(puz.getPercentComplete(), meta.percentComplete);
+        assertEquals(puz.getPercentFilled(), meta.percentFilled);
+    }
 }
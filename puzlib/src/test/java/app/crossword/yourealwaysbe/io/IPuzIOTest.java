@@ -2,10 +2,14 @@ package app.crossword.yourealwaysbe.io;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Set;
 
+import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 
 import app.crossword.yourealwaysbe.puz.Box;
@@ -16,15 +20,29 @@ import app.crossword.yourealwaysbe.puz.Note;
 import app.crossword.yourealwaysbe.puz.Position;
 import app.crossword.yourealwaysbe.puz.PuzImage;
 import app.crossword.yourealwaysbe.puz.Puzzle;
+import app.crossword.yourealwaysbe.puz.PuzzleMeta;
 import app.crossword.yourealwaysbe.puz.Zone;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class IPuzIOTest {
 
+    private static final String[] IPUZ_FIXTURES = {
+        "/test.ipuz",
+        "/acrostic.ipuz",
+        "/barred-test.ipuz",
+        "/detachedCells.ipuz",
+        "/extras.ipuz",
+        "/html.ipuz",
+        "/zones-0-based.ipuz",
+        "/zones-1-based.ipuz",
+        "/zones-io-v2.ipuz"
+    };
+
     public static InputStream getTestPuzzle1InputStream() {
         return IPuzIOTest.class.getResourceAsStream("/test.ipuz");
     }
@@ -581,5 +599,244 @@ public class IPuzIOTest {
             assertEquals(puz, puz2);
         }
     }
-}
 
+    @Test
+    public void testReadMeta() throws Exception {
+        try (InputStream is = getTestPuzzleExtrasInputStream()) {
+            Puzzle puz = IPuzIO.readPuzzle(is);
+
+            puz.setUpdatable(true);
+            puz.checkedGetBox(0, 0).setResponse("A");
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            IPuzIO.writePuzzle(puz, baos);
+
+            Puzzle puz2 = IPuzIO.readPuzzle(
+                new ByteArrayInputStream(baos.toByteArray())
+            );
+            PuzzleMeta meta = IPuzIO.readMeta(
+                new ByteArrayInputStream(baos.toByteArray())
+            );
+
+            assertEquals(puz2.getTitle(), meta.title);
+            assertEquals(puz2.getAuthor(), meta.author);
+            assertEquals(puz2.getSource(), meta.source);
+            assertEquals(puz2.getDate(), meta.date);
+            assertEquals(puz2.isUpdatable(), meta.updatable);
+            assertEquals(puz2.getPercentComplete(), meta.percentComplete);
+            assertEquals(puz2.getPercentFilled(), meta.percentFilled);
+            assertTrue(meta.updatable);
+        }
+    }
+
+    @Test
+    public void testReadMetaNoPlayData() throws Exception {
+        // not saved by us, so no stored percentages
+        try (InputStream is = getTestPuzzle1InputStream()) {
+            assertNull(IPuzIO.readMeta(is));
+        }
+    }
+
+    @Test
+    public void testTruncatedInput() throws Exception {
+        // ends inside an array, e.g. a part downloaded file
+        assertTruncatedUnread("{\"a\":[".getBytes("UTF-8"));
+        assertTruncatedUnread("{\"a\":[1,".getBytes("UTF-8"));
+
+        for (String name : IPUZ_FIXTURES) {
+            byte[] data;
+            try (InputStream is = IPuzIOTest.class.getResourceAsStream(name)) {
+                data = StreamUtils.getStreamBytes(is);
+            }
+            int step = Math.max(1, data.length / 50);
+            for (int len = 0; len < data.length - 1; len += step)
+                assertTruncatedUnread(Arrays.copyOf(data, len));
+        }
+    }
+
+    /**
+     * Reads every fixture as the old JSON tree reader did
+     *
+     * The expected files were made by the tree reader with PuzzleDump.
+     */
+    @Test
+    public void testFixturesMatchTreeReader() throws Exception {
+        for (String name : IPUZ_FIXTURES) {
+            String expected;
+            try (
+                InputStream is = IPuzIOTest.class.getResourceAsStream(
+                    "/ipuz-expected" + name + ".txt"
+                )
+            ) {
+                expected = new String(
+                    StreamUtils.getStreamBytes(is), StandardCharsets.UTF_8
+                );
+            }
+
+            Puzzle puz;
+            try (InputStream is = IPuzIOTest.class.getResourceAsStream(name)) {
+                puz = IPuzIO.readPuzzle(is);
+            }
+            assertEquals(expected, PuzzleDump.dump(puz), name);
+        }
+    }
+
+    @Test
+    public void testFixturesWriteRead() throws Exception {
+        for (String name : IPUZ_FIXTURES) {
+            Puzzle puz;
+            try (InputStream is = IPuzIOTest.class.getResourceAsStream(name)) {
+                puz = IPuzIO.readPuzzle(is);
+            }
+            assertNotNull(puz);
+
+            // with play data written by us
+            Box box = puz.checkedGetBox(puz.getPosition());
+            if (box != null) {
+                box.setResponse("Z");
+                box.setCheated(true);
+                box.setResponder("Tester");
+            }
+            assertWriteReadSame(puz);
+        }
+    }
+
+    @Test
+    public void testStreamFieldOrder() throws Exception {
+        // block/empty and dimensions after the cells that use them
+        String json = "{"
+            + "\"puzzle\": [[\"X\", 1, {\"cell\": \"-\", "
+            + "\"style\": {\"shapebg\": \"circle\"}}]], "
+            + "\"solution\": [[\"X\", \"A\", \"B\"]], "
+            + "\"clues\": {\"Across\": [[1, \"Clue\"]]}, "
+            + "\"unused\": {\"a\": [1, 2, {\"b\": \"c\"}]}, "
+            + "\"block\": \"X\", \"empty\": \"-\", "
+            + "\"dimensions\": {\"width\": 3, \"height\": 1}, "
+            + "\"kind\": [\"http://ipuz.org/crossword#1\"], "
+            + "\"version\": \"http://ipuz.org/v2\""
+            + "}";
+        byte[] data = json.getBytes("UTF-8");
+
+        Puzzle puz = IPuzIO.readPuzzle(new ByteArrayInputStream(data));
+        assertEquals(3, puz.getWidth());
+        assertEquals(1, puz.getHeight());
+        assertEquals(
+            "Clue", puz.getClues("Across").getClueByNumber("1").getHint()
+        );
+        assertNull(puz.checkedGetBox(0, 0));
+        assertEquals("1", puz.checkedGetBox(0, 1).getClueNumber());
+        assertTrue(puz.checkedGetBox(0, 2).isCircled());
+        assertNull(puz.checkedGetBox(0, 2).getClueNumber());
+        assertEquals("B", puz.checkedGetBox(0, 2).getSolution());
+    }
+
+    @Test
+    public void testStreamBadInput() throws Exception {
+        String[] inputs = {
+            "",
+            "[]",
+            "{\"version\": \"http://ipuz.org/v2\"",
+            "{\"version\": \"http://ipuz.org/v2\", \"puzzle\": [[1, }"
+        };
+        for (String input : inputs) {
+            assertNull(IPuzIO.readPuzzle(
+                new ByteArrayInputStream(input.getBytes("UTF-8"))
+            ));
+        }
+    }
+
+    @Test
+    public void testCompactWriteRead() throws Exception {
+        IPuzIO.PuzzleWriter writer = new IPuzIO.PuzzleWriter();
+
+        for (String name : IPUZ_FIXTURES) {
+            Puzzle puz;
+            try (InputStream is = IPuzIOTest.class.getResourceAsStream(name)) {
+                puz = IPuzIO.readPuzzle(is);
+            }
+
+            ByteArrayOutputStream pretty = new ByteArrayOutputStream();
+            IPuzIO.writePuzzle(puz, pretty);
+
+            // writer reused across puzzles
+            ByteArrayOutputStream compact = new ByteArrayOutputStream();
+            writer.encode(puz, false, true).writeTo(compact);
+            assertEquals(compact.size(), writer.size());
+
+            String compactString = compact.toString("UTF-8");
+            String prettyString = pretty.toString("UTF-8");
+            assertFalse(compactString.contains("\n"));
+            assertFalse(compactString.contains("\t"));
+            assertEquals(
+                prettyString.replaceAll("[\n\t]", ""), compactString
+            );
+
+            Puzzle puz2 = IPuzIO.readPuzzle(
+                new ByteArrayInputStream(compact.toByteArray())
+            );
+            assertEquals(puz, puz2);
+
+            // encoding again gives the same output
+            ByteArrayOutputStream again = new ByteArrayOutputStream();
+            writer.encode(puz2, false, true).writeTo(again);
+            assertEquals(compactString, again.toString("UTF-8"));
+        }
+    }
+
+    @Test
+    public void testWriteEscapes() throws Exception {
+        String title = "Quote \" slash \\ </b> tab \t nl \n"
+            + " ctrl \u0001 \u0085 nbsp \u00a0 \u2028 \u2100"
+            + " accent \u00e9 emoji \ud83d\ude00 lone \ud83d end";
+
+        Puzzle puz;
+        try (InputStream is = getTestPuzzle1InputStream()) {
+            puz = IPuzIO.readPuzzle(is);
+        }
+        puz.setTitle(title);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        IPuzIO.writePuzzle(puz, baos);
+
+        // as org.json would write it, with the lone surrogate replaced
+        // on encoding
+        String expected = JSONObject.quote(title)
+            .replace("\ud83d end", "? end");
+        assertTrue(baos.toString("UTF-8").contains(expected));
+
+        Puzzle puz2 = IPuzIO.readPuzzle(
+            new ByteArrayInputStream(baos.toByteArray())
+        );
+        assertEquals(title.replace("\ud83d end", "? end"), puz2.getTitle());
+    }
+
+    /**
+     * Both read paths give null rather than throwing
+     */
+    private static void assertTruncatedUnread(byte[] data)
+            throws IOException {
+        assertNull(IPuzIO.readPuzzle(new ByteArrayInputStream(data)));
+        assertNull(IPuzIO.readMeta(new ByteArrayInputStream(data)));
+    }
+
+    /**
+     * Check puzzle reads back the same after writing
+     *
+     * Puzzle.equals does not cover everything (e.g. play data), so also
+     * compare what gets written back out.
+     */
+    private static void assertWriteReadSame(Puzzle puz) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IPuzIO.writePuzzle(puz, out);
+        Puzzle read = IPuzIO.readPuzzle(
+            new ByteArrayInputStream(out.toByteArray())
+        );
+
+        assertEquals(puz, read);
+
+        ByteArrayOutputStream readOut = new ByteArrayOutputStream();
+        IPuzIO.writePuzzle(read, readOut);
+
+        assertEquals(out.toString("UTF-8"), readOut.toString("UTF-8"));
+    }
+}
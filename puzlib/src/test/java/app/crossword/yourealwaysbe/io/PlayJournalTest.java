@@ -0,0 +1,147 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import app.crossword.yourealwaysbe.puz.Box;
+import app.crossword.yourealwaysbe.puz.ClueID;
+import app.crossword.yourealwaysbe.puz.Note;
+import app.crossword.yourealwaysbe.puz.Position;
+import app.crossword.yourealwaysbe.puz.Puzzle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PlayJournalTest {
+
+    private static Puzzle loadTestPuzzle() throws Exception {
+        try (InputStream is = IPuzIOTest.getTestPuzzle1InputStream()) {
+            return IPuzIO.readPuzzle(is);
+        }
+    }
+
+    @Test
+    public void testNoChanges() throws Exception {
+        Puzzle puz = loadTestPuzzle();
+        PlayJournal journal = new PlayJournal(puz);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertFalse(journal.writeEntry(baos));
+        assertEquals(0, baos.size());
+        assertEquals(0, journal.getNumEntries());
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        Puzzle puz = loadTestPuzzle();
+        PlayJournal journal = new PlayJournal(puz);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        ClueID cidA1 = puz.getClues("Across").getClueByNumber("1").getClueID();
+        ClueID cidA3 = puz.getClues("Across").getClueByNumber("3").getClueID();
+
+        Box[][] boxes = puz.getBoxes();
+        boxes[0][0].setResponse("X");
+        boxes[0][0].setCheated(true);
+        puz.setPosition(new Position(1, 0));
+        puz.setCurrentClueID(cidA3);
+        puz.updateHistory(cidA3);
+        assertTrue(journal.writeEntry(baos));
+
+        boxes[1][1].setResponse("Y");
+        boxes[1][1].setResponder("Tester");
+        puz.setNote(cidA1, new Note("scratch", "text", "src", "sol"));
+        puz.flagClue(cidA1, true);
+        puz.setPlayerNote(new Note(null, "player", null, null));
+        puz.setTime(1234L);
+        assertTrue(journal.writeEntry(baos));
+
+        // only the latest changes written
+        String[] entries = baos.toString("UTF-8").trim().split("\n");
+        JSONObject second = new JSONObject(entries[1]);
+        assertEquals(1, second.getJSONArray("cells").length());
+        assertFalse(second.has("position"));
+        assertFalse(second.has("history"));
+
+        puz.getNote(cidA1).setText("changed in place");
+        puz.flagClue(cidA1, false);
+        puz.flagClue(cidA3, true);
+        boxes[0][0].setBlank();
+        assertTrue(journal.writeEntry(baos));
+
+        assertFalse(journal.writeEntry(baos));
+        assertEquals(3, journal.getNumEntries());
+
+        Puzzle replayed = loadTestPuzzle();
+        assertEquals(
+            3,
+            PlayJournal.replay(
+                replayed, new ByteArrayInputStream(baos.toByteArray())
+            )
+        );
+
+        assertSamePlayState(puz, replayed);
+        assertEquals("changed in place", replayed.getNote(cidA1).getText());
+        assertTrue(replayed.isFlagged(cidA3));
+        assertFalse(replayed.isFlagged(cidA1));
+        assertEquals(1234L, replayed.getTime());
+    }
+
+    @Test
+    public void testTornEntry() throws Exception {
+        Puzzle puz = loadTestPuzzle();
+        PlayJournal journal = new PlayJournal(puz);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        puz.getBoxes()[0][1].setResponse("A");
+        assertTrue(journal.writeEntry(baos));
+
+        // an entry cut short
+        baos.write("\n{\"cells\":[[1,0,\"Q".getBytes("UTF-8"));
+
+        puz.getBoxes()[1][0].setResponse("B");
+        assertTrue(journal.writeEntry(baos));
+
+        Puzzle replayed = loadTestPuzzle();
+        assertEquals(
+            2,
+            PlayJournal.replay(
+                replayed, new ByteArrayInputStream(baos.toByteArray())
+            )
+        );
+        assertSamePlayState(puz, replayed);
+    }
+
+    @Test
+    public void testMarkSaved() throws Exception {
+        Puzzle puz = loadTestPuzzle();
+        PlayJournal journal = new PlayJournal(puz);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        puz.getBoxes()[0][1].setResponse("A");
+        assertTrue(journal.writeEntry(baos));
+
+        journal.markSaved();
+        assertEquals(0, journal.getNumEntries());
+        assertFalse(journal.writeEntry(new ByteArrayOutputStream()));
+    }
+
+    /**
+     * Compare everything IPuzIO writes, including play data
+     */
+    private static void assertSamePlayState(Puzzle expected, Puzzle actual)
+            throws Exception {
+        ByteArrayOutputStream expectedOut = new ByteArrayOutputStream();
+        IPuzIO.writePuzzle(expected, expectedOut);
+        ByteArrayOutputStream actualOut = new ByteArrayOutputStream();
+        IPuzIO.writePuzzle(actual, actualOut);
+        assertEquals(
+            expectedOut.toString("UTF-8"), actualOut.toString("UTF-8")
+        );
+    }
+}
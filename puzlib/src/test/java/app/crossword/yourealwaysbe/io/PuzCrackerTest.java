@@ -0,0 +1,91 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.io.InputStream;
+
+import org.junit.jupiter.api.Test;
+
+import app.crossword.yourealwaysbe.puz.Box;
+import app.crossword.yourealwaysbe.puz.Puzzle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PuzCrackerTest {
+
+    private static final String[] SCRAMBLED_PUZZLES = {
+        "/2010-7-19-NewYorkTimes.puz",
+        "/puz_110523margulies.puz",
+        "/puz_110131aniston.puz"
+    };
+
+    public static Puzzle loadScrambled(String name) throws Exception {
+        try (InputStream is = PuzCrackerTest.class.getResourceAsStream(name)) {
+            return IO.loadNative(is);
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws Exception {
+        for (String name : SCRAMBLED_PUZZLES) {
+            Puzzle puz = loadScrambled(name);
+            assertTrue(puz.isScrambled());
+
+            byte[] scrambled = puz.getScrambledSolution();
+            short checksum = puz.getSolutionChecksum();
+
+            int key = PuzCracker.findKeySequential(scrambled, checksum);
+            assertTrue(key >= 0);
+            assertEquals(key, PuzCracker.findKey(scrambled, checksum));
+        }
+    }
+
+    @Test
+    public void testCrack() throws Exception {
+        Puzzle puz = loadScrambled("/2010-7-19-NewYorkTimes.puz");
+        byte[] scrambled = puz.getScrambledSolution();
+
+        assertEquals(
+            2465,
+            PuzCracker.findKey(scrambled, puz.getSolutionChecksum())
+        );
+
+        assertTrue(IO.crack(puz));
+        assertFalse(puz.isScrambled());
+
+        Box[][] boxes = puz.getBoxes();
+        assertEquals("M", boxes[0][0].getSolution());
+        assertEquals("A", boxes[0][1].getSolution());
+        assertEquals("P", boxes[0][2].getSolution());
+        assertEquals("S", boxes[0][3].getSolution());
+        assertEquals("E", boxes[1][0].getSolution());
+        assertEquals("T", boxes[14][14].getSolution());
+    }
+
+    @Test
+    public void testTryUnscrambleKeepsFlags() throws Exception {
+        Puzzle puz = loadScrambled("/2010-7-19-NewYorkTimes.puz");
+        puz.setUpdatable(true);
+
+        assertTrue(IO.tryUnscramble(puz, 2465, puz.getScrambledSolution()));
+        assertEquals("M", puz.getBoxes()[0][0].getSolution());
+        assertTrue(puz.isScrambled());
+        assertTrue(puz.isUpdatable());
+
+        puz = loadScrambled("/2010-7-19-NewYorkTimes.puz");
+        puz.setUpdatable(true);
+        assertTrue(IO.crack(puz));
+        assertFalse(puz.isScrambled());
+        assertFalse(puz.isUpdatable());
+    }
+
+    @Test
+    public void testWrongKey() throws Exception {
+        Puzzle puz = loadScrambled("/2010-7-19-NewYorkTimes.puz");
+        byte[] scrambled = puz.getScrambledSolution();
+        byte[] dest = new byte[scrambled.length];
+        assertFalse(PuzCracker.unscramble(
+            scrambled, 1234, puz.getSolutionChecksum(), dest
+        ));
+    }
+}
@@ -0,0 +1,171 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import app.crossword.yourealwaysbe.puz.Box;
+import app.crossword.yourealwaysbe.puz.Clue;
+import app.crossword.yourealwaysbe.puz.ClueID;
+import app.crossword.yourealwaysbe.puz.Note;
+import app.crossword.yourealwaysbe.puz.Position;
+import app.crossword.yourealwaysbe.puz.PuzImage;
+import app.crossword.yourealwaysbe.puz.Puzzle;
+
+/**
+ * Everything a reader puts in a puzzle, as text
+ *
+ * For comparing a reader's output with expected files in the test
+ * resources. Uses only getters that readers have always had, so the
+ * expected files could be made with an older reader.
+ */
+public class PuzzleDump {
+
+    private final StringBuilder sb = new StringBuilder();
+
+    public static String dump(Puzzle puz) {
+        return new PuzzleDump().append(puz).toString();
+    }
+
+    private PuzzleDump append(Puzzle puz) {
+        line("title", puz.getTitle());
+        line("author", puz.getAuthor());
+        line("copyright", puz.getCopyright());
+        line("notes", puz.getNotes());
+        line("intro", puz.getIntroMessage());
+        line("completion", puz.getCompletionMessage());
+        line("date", puz.getDate());
+        line("source", puz.getSource());
+        line("sourceUrl", puz.getSourceUrl());
+        line("shareUrl", puz.getShareUrl());
+        line("supportUrl", puz.getSupportUrl());
+        line("kind", puz.getKind());
+        line("updatable", puz.isUpdatable());
+        line("scrambled", puz.isScrambled());
+        line("checksum", puz.getSolutionChecksum());
+        line("time", puz.getTime());
+        line("position", position(puz.getPosition()));
+        line("currentClue", clueID(puz.getCurrentClueID()));
+        line("pinnedClue", clueID(puz.getPinnedClueID()));
+        line("playerNote", note(puz.getPlayerNote()));
+
+        List<String> history = new ArrayList<>();
+        for (ClueID cid : puz.getHistory())
+            history.add(clueID(cid));
+        line("history", history);
+
+        List<String> flagged = new ArrayList<>();
+        for (ClueID cid : puz.getFlaggedClues())
+            flagged.add(clueID(cid));
+        Collections.sort(flagged);
+        line("flagged", flagged);
+
+        line("size", puz.getWidth() + "x" + puz.getHeight());
+        Box[][] boxes = puz.getBoxes();
+        for (int row = 0; row < puz.getHeight(); row++) {
+            for (int col = 0; col < puz.getWidth(); col++) {
+                Box box = boxes[row][col];
+                if (box != null)
+                    line("box " + row + "," + col, box(box));
+            }
+        }
+
+        List<String> listNames = new ArrayList<>(puz.getClueListNames());
+        Collections.sort(listNames);
+        for (String listName : listNames) {
+            for (Clue clue : puz.getClues(listName))
+                appendClue(puz, clue);
+        }
+
+        for (PuzImage image : puz.getImages()) {
+            line(
+                "image",
+                image.getURL() + " " + image.getRow() + "," + image.getCol()
+                    + " " + image.getWidth() + "x" + image.getHeight()
+            );
+        }
+
+        return this;
+    }
+
+    private void appendClue(Puzzle puz, Clue clue) {
+        ClueID cid = clue.getClueID();
+        String key = "clue " + clueID(cid);
+        line(key + " number", clue.getClueNumber());
+        line(key + " label", clue.getLabel());
+        line(key + " hint", clue.getHint());
+        line(key + " note", note(puz.getNote(cid)));
+
+        // and where each box thinks it is in the clue
+        List<String> zone = new ArrayList<>();
+        for (Position pos : clue.getZone()) {
+            Box box = puz.checkedGetBox(pos.getRow(), pos.getCol());
+            String inBox = (box == null)
+                ? "none"
+                : String.valueOf(box.getCluePosition(cid));
+            zone.add(position(pos) + "@" + inBox);
+        }
+        line(key + " zone", zone);
+    }
+
+    private static String box(Box box) {
+        return "solution=" + escape(box.getSolution())
+            + " response=" + escape(box.getResponse())
+            + " responder=" + escape(box.getResponder())
+            + " number=" + escape(box.getClueNumber())
+            + " cheated=" + box.isCheated()
+            + " circled=" + box.isCircled()
+            + " bars=" + (box.isBarredTop() ? "T" : "")
+                + (box.isBarredBottom() ? "B" : "")
+                + (box.isBarredLeft() ? "L" : "")
+                + (box.isBarredRight() ? "R" : "")
+            + " color=" + (box.hasColor() ? box.getColor() : "none")
+            + " marks=" + (box.hasMarks()
+                ? escape(Arrays.deepToString(box.getMarks()))
+                : "none");
+    }
+
+    private static String note(Note note) {
+        if (note == null)
+            return null;
+        return "scratch=" + escape(note.getScratch())
+            + " text=" + escape(note.getText())
+            + " anagramSource=" + escape(note.getAnagramSource())
+            + " anagramSolution=" + escape(note.getAnagramSolution());
+    }
+
+    private static String position(Position pos) {
+        return (pos == null) ? null : pos.getRow() + "," + pos.getCol();
+    }
+
+    private static String clueID(ClueID cid) {
+        return (cid == null)
+            ? null
+            : cid.getListName() + "[" + cid.getIndex() + "]";
+    }
+
+    private void line(String key, Object value) {
+        sb.append(key)
+            .append(": ")
+            .append(escape(value == null ? null : String.valueOf(value)))
+            .append('\n');
+    }
+
+    /**
+     * One line, with null told apart from "null"
+     */
+    private static String escape(String value) {
+        if (value == null)
+            return "<null>";
+        return value.replace("\\", "\\\\")
+            .replace("\n", "\\n")
+            .replace("\r", "\\r")
+            .replace("\t", "\\t");
+    }
+
+    @Override
+    public String toString() {
+        return sb.toString();
+    }
+}
@@ -1,8 +1,19 @@
 
 package app.crossword.yourealwaysbe.io;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 public class PuzzleStreamReaderTest {
 
     @Test
@@ -94,5 +105,87 @@ public class PuzzleStreamReaderTest {
             )
         );
     }
+
+    @Test
+    public void testZipped() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
+            zos.putNextEntry(new ZipEntry("dir/"));
+            zos.closeEntry();
+            zos.putNextEntry(new ZipEntry("dir/test.ipuz"));
+            StreamUtils.copyStream(
+                IPuzIOTest.getTestPuzzle1InputStream(),
+                new FilterOutputStream(zos) {
+                    // keep zip stream open
+                    @Override
+                    public void close() { }
+                }
+            );
+            zos.closeEntry();
+        }
+
+        IPuzIOTest.assertIsTestPuzzle1(
+            PuzzleStreamReader.parseInputStatic(
+                new ByteArrayInputStream(baos.toByteArray())
+            )
+        );
+    }
+
+    @Test
+    public void testDetectParser() throws IOException {
+        assertDetected(IO.class, IOTest.getTestPuzzle1InputStream());
+        assertDetected(JPZIO.class, JPZIOTest.getTestPuzzle1InputStream());
+        assertDetected(JPZIO.class, JPZIOTest.getTestPuzzleAcrosticInputStream());
+        assertDetected(
+            BrainsOnlyIO.class, BrainsOnlyIOTest.getTestPuzzle1InputStream()
+        );
+        assertDetected(
+            KingFeaturesPlaintextIO.class,
+            KingFeaturesPlaintextIOTest.getTestPuzzle1InputStream()
+        );
+        assertDetected(
+            UclickXMLIO.class, UclickXMLIOTest.getTestPuzzle1InputStream()
+        );
+        assertDetected(IPuzIO.class, IPuzIOTest.getTestPuzzle1InputStream());
+        assertDetected(
+            GuardianJSONIO.class, GuardianJSONIOTest.getTestPuzzle1InputStream()
+        );
+        assertDetected(
+            AmuseLabsJSONIO.class,
+            AmuseLabsJSONIOTest.getTestPuzzle1InputStream()
+        );
+        assertDetected(
+            RaetselZentraleSchwedenJSONIO.class,
+            RaetselZentraleSchwedenJSONIOTest.getTestPuzzle1InputStream()
+        );
+        assertDetected(
+            RCIJeuxMFJIO.class, RCIJeuxMFJIOTest.getTestPuzzle1InputStream()
+        );
+        assertDetected(
+            PrzekrojIO.class, PrzekrojIOTest.getTestPuzzle1InputStream()
+        );
+        assertDetected(
+            KeesingXMLIO.class, KeesingXMLIOTest.getTestPuzzle1InputStream()
+        );
+    }
+
+    @Test
+    public void testDetectParserUnknown() throws IOException {
+        byte[] data = "not a puzzle".getBytes();
+        assertNull(
+            PuzzleStreamReader.detectParser(new ByteArrayInputStream(data))
+        );
+    }
+
+    private static void assertDetected(
+        Class<? extends PuzzleParser> expected, InputStream is
+    ) throws IOException {
+        try (
+            ByteArrayInputStream unzipped = StreamUtils.unzipOrPassThrough(is)
+        ) {
+            PuzzleParser parser = PuzzleStreamReader.detectParser(unzipped);
+            assertTrue(expected.isInstance(parser));
+        }
+    }
 }
 
@@ -0,0 +1,148 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import app.crossword.yourealwaysbe.puz.ClueID;
+import app.crossword.yourealwaysbe.puz.Note;
+import app.crossword.yourealwaysbe.puz.Position;
+import app.crossword.yourealwaysbe.puz.Puzzle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class SnapshotIOTest {
+
+    private static final String KEY = "content://test.ipuz|1234";
+
+    private static final String[] IPUZ_FIXTURES = {
+        "/test.ipuz",
+        "/acrostic.ipuz",
+        "/barred-test.ipuz",
+        "/detachedCells.ipuz",
+        "/extras.ipuz",
+        "/html.ipuz",
+        "/zones-0-based.ipuz",
+        "/zones-1-based.ipuz",
+    };
+
+    private static final String[] PUZ_FIXTURES = {
+        "/test.puz",
+        "/test_rebus.puz",
+        "/puz_110523margulies.puz",
+    };
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (String name : IPUZ_FIXTURES) {
+            try (
+                InputStream is
+                    = SnapshotIOTest.class.getResourceAsStream(name)
+            ) {
+                assertRoundTrip(IPuzIO.readPuzzle(is));
+            }
+        }
+        for (String name : PUZ_FIXTURES) {
+            try (
+                InputStream is
+                    = SnapshotIOTest.class.getResourceAsStream(name)
+            ) {
+                assertRoundTrip(IO.loadNative(is));
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTripPlayState() throws Exception {
+        Puzzle puz;
+        try (InputStream is = IPuzIOTest.getTestPuzzle1InputStream()) {
+            puz = IPuzIO.readPuzzle(is);
+        }
+
+        ClueID cidA1 = puz.getClues("Across").getClueByNumber("1").getClueID();
+        ClueID cidA3 = puz.getClues("Across").getClueByNumber("3").getClueID();
+
+        puz.getBoxes()[0][0].setResponse("X");
+        puz.getBoxes()[0][0].setCheated(true);
+        puz.getBoxes()[1][1].setResponder("Tester");
+        puz.setPosition(new Position(1, 0));
+        puz.setCurrentClueID(cidA3);
+        puz.updateHistory(cidA1);
+        puz.updateHistory(cidA3);
+        puz.flagClue(cidA1, true);
+        puz.setNote(cidA1, new Note("scratch", "text", null, "sol"));
+        puz.setPlayerNote(
+            new Note(null, "player \u00e9\ud83d\ude00", null, null)
+        );
+        puz.setPinnedClueID(cidA1);
+        puz.setTime(4321L);
+        puz.setDate(null);
+
+        Puzzle read = assertRoundTrip(puz);
+        assertEquals(Arrays.asList(cidA3, cidA1), read.getHistory());
+        assertEquals("sol", read.getNote(cidA1).getAnagramSolution());
+        assertEquals(cidA1, read.getPinnedClueID());
+        assertNull(read.getDate());
+    }
+
+    @Test
+    public void testKeyMismatch() throws Exception {
+        byte[] data = getSnapshot(KEY);
+        assertNull(SnapshotIO.readSnapshot(data, KEY + "5"));
+        assertNull(SnapshotIO.readSnapshot(data, ""));
+        assertNotNull(SnapshotIO.readSnapshot(data, KEY));
+    }
+
+    @Test
+    public void testCorrupt() throws Exception {
+        byte[] data = getSnapshot(KEY);
+
+        assertNull(SnapshotIO.readSnapshot(new byte[0], KEY));
+        assertNull(
+            SnapshotIO.readSnapshot(Arrays.copyOf(data, data.length / 2), KEY)
+        );
+        assertNull(
+            SnapshotIO.readSnapshot(Arrays.copyOf(data, data.length + 1), KEY)
+        );
+
+        // wrong version
+        byte[] badVersion = Arrays.copyOf(data, data.length);
+        badVersion[7] += 1;
+        assertNull(SnapshotIO.readSnapshot(badVersion, KEY));
+    }
+
+    private static byte[] getSnapshot(String key) throws Exception {
+        try (InputStream is = IPuzIOTest.getTestPuzzle1InputStream()) {
+            Puzzle puz = IPuzIO.readPuzzle(is);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            SnapshotIO.writeSnapshot(puz, key, baos);
+            return baos.toByteArray();
+        }
+    }
+
+    /**
+     * Snapshot and read back, checking everything IPuzIO writes is kept
+     *
+     * @return the puzzle read back
+     */
+    private static Puzzle assertRoundTrip(Puzzle puz) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        SnapshotIO.writeSnapshot(puz, KEY, baos);
+
+        Puzzle read = SnapshotIO.readSnapshot(baos.toByteArray(), KEY);
+        assertNotNull(read);
+        assertEquals(puz, read);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        IPuzIO.writePuzzle(puz, expected);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        IPuzIO.writePuzzle(read, actual);
+        assertEquals(expected.toString("UTF-8"), actual.toString("UTF-8"));
+
+        return read;
+    }
+}
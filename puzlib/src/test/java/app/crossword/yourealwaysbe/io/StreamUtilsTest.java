@@ -0,0 +1,42 @@
+package app.crossword.yourealwaysbe.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class StreamUtilsTest {
+
+    @Test
+    public void testCopyLeavesSource() throws IOException {
+        ByteArrayInputStream source
+            = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+        source.mark(0);
+        source.read();
+
+        ByteArrayInputStream copy = StreamUtils.copyInputStream(source);
+        assertNotSame(source, copy);
+        assertEquals(2, copy.read());
+
+        // mark is the caller's, not moved by copying
+        source.reset();
+        assertEquals(1, source.read());
+    }
+
+    @Test
+    public void testResettableReusesByteStream() throws IOException {
+        ByteArrayInputStream source
+            = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+        source.read();
+
+        ByteArrayInputStream stream = StreamUtils.asResettableStream(source);
+        assertSame(source, stream);
+        assertEquals(2, stream.read());
+        stream.reset();
+        assertEquals(2, stream.read());
+    }
+}
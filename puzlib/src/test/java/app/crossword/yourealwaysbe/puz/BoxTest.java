@@ -0,0 +1,90 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BoxTest {
+
+    @Test
+    public void testCluePositions() {
+        ClueID across = new ClueID("Across", 3);
+        ClueID down = new ClueID("Down", 1);
+        ClueID other = new ClueID("Across", 7);
+
+        Box box = new Box();
+        assertFalse(box.isPartOfClues());
+        assertTrue(box.getIsPartOfClues().isEmpty());
+
+        box.setCluePosition(down, 0);
+        box.setCluePosition(other, 4);
+        box.setCluePosition(across, 2);
+
+        assertEquals(
+            Arrays.asList(across, other, down), box.getIsPartOfClues()
+        );
+        assertEquals(2, box.getCluePosition(across));
+        assertEquals(0, box.getCluePosition(down));
+        assertEquals(-1, box.getCluePosition(new ClueID("Down", 2)));
+        assertTrue(box.isStartOf(down));
+        assertFalse(box.isStartOf(across));
+        assertEquals(across, box.getIsPartOfClue("Across"));
+        assertNull(box.getIsPartOfClue("Other"));
+
+        box.setCluePosition(other, 1);
+        assertEquals(1, box.getCluePosition(other));
+        assertEquals(3, box.getIsPartOfClues().size());
+
+        assertEquals(3, box.getNumIsPartOfClues());
+        assertEquals(other, box.getIsPartOfClueAt(1));
+        assertEquals(1, box.getCluePositionAt(1));
+        assertEquals(down, box.getIsPartOfClueAt(2));
+        assertEquals(0, box.getCluePositionAt(2));
+
+        // equal but not the same instance
+        assertEquals(
+            2, box.getCluePosition(new ClueID(new String("Across"), 3))
+        );
+    }
+
+    @Test
+    public void testFlags() {
+        Box box = new Box();
+        box.setBarredLeft(true);
+        box.setCheated(true);
+        assertTrue(box.isBarred());
+        assertTrue(box.isBarredLeft());
+        assertFalse(box.isBarredRight());
+        assertTrue(box.isCheated());
+        assertFalse(box.isCircled());
+
+        box.setBarredLeft(false);
+        assertFalse(box.isBarred());
+        assertTrue(box.isCheated());
+    }
+
+    @Test
+    public void testSharedStrings() {
+        Box box1 = new Box();
+        Box box2 = new Box();
+        box1.setResponse('A');
+        box2.setResponse(new String("A"));
+        assertSame(box1.getResponse(), box2.getResponse());
+
+        box1.setSolution("REBUS");
+        assertEquals("REBUS", box1.getSolution());
+        box2.setResponse('\u00e9');
+        assertEquals("\u00e9", box2.getResponse());
+        box2.setResponse('\u4e2d');
+        assertEquals("\u4e2d", box2.getResponse());
+
+        box1.setBlank();
+        assertTrue(box1.isBlank());
+    }
+}
@@ -0,0 +1,48 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CellSetTest {
+
+    @Test
+    public void testAddContains() {
+        // more than 64 cells to cross a word boundary
+        CellSet cells = new CellSet(10, 9);
+        assertTrue(cells.isEmpty());
+
+        assertTrue(cells.add(new Position(0, 0)));
+        assertTrue(cells.add(new Position(6, 5)));
+        assertTrue(cells.add(new Position(8, 9)));
+        assertFalse(cells.add(new Position(6, 5)));
+        assertFalse(cells.add(new Position(9, 0)));
+        assertFalse(cells.add(new Position(0, -1)));
+        assertFalse(cells.add(null));
+
+        assertEquals(3, cells.size());
+        assertTrue(cells.contains(new Position(6, 5)));
+        assertFalse(cells.contains(new Position(5, 6)));
+        assertFalse(cells.contains(new Position(-1, 0)));
+        assertFalse(cells.contains("(6, 5)"));
+
+        List<Position> members = new ArrayList<>(cells);
+        assertEquals(
+            Arrays.asList(
+                new Position(0, 0), new Position(6, 5), new Position(8, 9)
+            ),
+            members
+        );
+
+        cells.clear();
+        assertTrue(cells.isEmpty());
+        assertFalse(cells.contains(new Position(0, 0)));
+        assertFalse(cells.iterator().hasNext());
+    }
+}
@@ -0,0 +1,54 @@
+package app.crossword.yourealwaysbe.puz;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClueIDTest {
+
+    @Test
+    public void testListNameShared() {
+        Puzzle puz = new Puzzle();
+        puz.addClue(new Clue(newAcross(), 0, "First"));
+        puz.addClue(new Clue(newAcross(), 1, "Second"));
+
+        ClueID first = puz.getClues("Across").getClueByIndex(0).getClueID();
+        ClueID second = puz.getClues("Across").getClueByIndex(1).getClueID();
+        assertSame(first.getListName(), second.getListName());
+        assertSame(
+            first.getListName(),
+            puz.getClueListNames().iterator().next()
+        );
+    }
+
+    @Test
+    public void testListNameEqual() {
+        ClueID literal = new ClueID("Across", 1);
+        ClueID built = new ClueID(newAcross(), 1);
+        assertEquals(literal, built);
+        assertEquals(literal.hashCode(), built.hashCode());
+        assertEquals(0, literal.compareTo(built));
+    }
+
+    @Test
+    public void testCompare() {
+        ClueID across1 = new ClueID("Across", 1);
+        ClueID across2 = new ClueID("Across", 2);
+        ClueID down0 = new ClueID("Down", 0);
+        ClueID noList = new ClueID(null, 3);
+
+        assertTrue(across1.compareTo(across2) < 0);
+        assertTrue(across2.compareTo(down0) < 0);
+        assertTrue(down0.compareTo(across1) > 0);
+        assertTrue(noList.compareTo(across1) < 0);
+        assertTrue(across1.compareTo(noList) > 0);
+        assertTrue(noList.compareTo(new ClueID(null, 4)) < 0);
+        assertTrue(across1.compareTo(null) > 0);
+    }
+
+    private static String newAcross() {
+        return new StringBuilder("Acr").append("oss").toString();
+    }
+}
@@ -0,0 +1,90 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.io.InputStream;
+
+import org.junit.jupiter.api.Test;
+
+import app.crossword.yourealwaysbe.io.IO;
+import app.crossword.yourealwaysbe.io.IPuzIO;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class NavigationGraphTest {
+
+    @Test
+    public void testNextMatchesScan() throws Exception {
+        checkNextMatchesScan(loadIPuz("/detachedCells.ipuz"));
+        checkNextMatchesScan(loadIPuz("/acrostic.ipuz"));
+        checkNextMatchesScan(loadIPuz("/barred-test.ipuz"));
+        try (InputStream is = getClass().getResourceAsStream("/test.puz")) {
+            checkNextMatchesScan(IO.loadNative(is));
+        }
+    }
+
+    @Test
+    public void testZonedClues() throws Exception {
+        Puzzle puz = loadIPuz("/test.ipuz");
+        NavigationGraph graph = new NavigationGraph(puz);
+
+        ClueID across0 = new ClueID("Across", 0);
+        ClueID across1 = new ClueID("Across", 1);
+        ClueID vertical0 = new ClueID("Vertical", 0);
+
+        assertEquals(across1, graph.getNextZonedClue(across0));
+        assertEquals(across0, graph.getPreviousZonedClue(across1));
+
+        // wrap between lists
+        ClueID lastVertical = graph.getPreviousZonedClue(across0);
+        assertEquals("Vertical", lastVertical.getListName());
+        assertEquals(across0, graph.getNextZonedClue(lastVertical));
+        assertEquals(vertical0, graph.getNextZonedClue(across1));
+
+        // not a clue, goes to the next after where it would be
+        ClueID notClue = new ClueID("Across", -1);
+        assertEquals(across0, graph.getNextZonedClue(notClue));
+        assertEquals(lastVertical, graph.getPreviousZonedClue(notClue));
+    }
+
+    private void checkNextMatchesScan(Puzzle puz) {
+        NavigationGraph graph = new NavigationGraph(puz);
+        for (int row = 0; row < puz.getHeight(); row++) {
+            for (int col = 0; col < puz.getWidth(); col++) {
+                Position pos = new Position(row, col);
+                for (int drow = -1; drow <= 1; drow++) {
+                    for (int dcol = -1; dcol <= 1; dcol++) {
+                        if (drow == 0 && dcol == 0)
+                            continue;
+                        assertEquals(
+                            scanNext(puz, pos, drow, dcol),
+                            graph.getNext(pos, drow, dcol),
+                            pos + " by " + drow + ", " + dcol
+                        );
+                    }
+                }
+            }
+        }
+        assertNull(graph.getNext(new Position(-1, 0), 1, 0));
+    }
+
+    private Position scanNext(Puzzle puz, Position pos, int drow, int dcol) {
+        int row = pos.getRow() + drow;
+        int col = pos.getCol() + dcol;
+        while (
+            0 <= row && row < puz.getHeight()
+            && 0 <= col && col < puz.getWidth()
+        ) {
+            if (puz.checkedGetBox(row, col) != null)
+                return new Position(row, col);
+            row += drow;
+            col += dcol;
+        }
+        return null;
+    }
+
+    private Puzzle loadIPuz(String name) throws Exception {
+        try (InputStream is = getClass().getResourceAsStream(name)) {
+            return IPuzIO.readPuzzle(is);
+        }
+    }
+}
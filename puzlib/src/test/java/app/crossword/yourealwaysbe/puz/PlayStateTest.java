@@ -0,0 +1,132 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.io.InputStream;
+
+import org.junit.jupiter.api.Test;
+
+import app.crossword.yourealwaysbe.io.IO;
+import app.crossword.yourealwaysbe.io.IPuzIO;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class PlayStateTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        checkRoundTrip(loadIPuz("/test.ipuz"));
+        checkRoundTrip(loadIPuz("/barred-test.ipuz"));
+        checkRoundTrip(loadIPuz("/acrostic.ipuz"));
+        try (InputStream is = getClass().getResourceAsStream("/test.puz")) {
+            checkRoundTrip(IO.loadNative(is));
+        }
+    }
+
+    @Test
+    public void testNewPuzzleBlank() throws Exception {
+        Puzzle puz = loadIPuz("/test.ipuz");
+        assertTrue(puz.getPercentFilled() > 0);
+
+        Puzzle blank = puz.copyDefinition();
+
+        assertEquals(0, blank.getPercentFilled());
+        assertFalse(blank.hasCheated());
+        assertTrue(blank.getHistory().isEmpty());
+        assertEquals(puz.getTitle(), blank.getTitle());
+        assertEquals(puz.getWidth(), blank.getWidth());
+
+        // clues shared, boxes not
+        ClueID cid = new ClueID("Across", 0);
+        assertSame(puz.getClue(cid), blank.getClue(cid));
+        assertNotSame(puz.checkedGetBox(0, 0), blank.checkedGetBox(0, 0));
+        assertEquals(
+            puz.checkedGetBox(0, 0).getSolution(),
+            blank.checkedGetBox(0, 0).getSolution()
+        );
+    }
+
+    @Test
+    public void testIndependent() throws Exception {
+        Puzzle puz = loadIPuz("/test.ipuz");
+        PlayState state = new PlayState(puz);
+
+        Puzzle first = withState(puz, state);
+        Puzzle second = withState(puz, state);
+
+        Playboard board = new Playboard(first);
+        board.jumpToClue(new ClueID("Across", 0));
+        board.playLetter('Q');
+        board.playScratchLetter('Z');
+        first.flagClue(new ClueID("Across", 1), true);
+
+        assertNotEquals(first, second);
+        assertEquals(puz, second);
+        assertEquals(second, withState(puz, state));
+
+        // changes after the state was taken are not in it
+        puz.checkedGetBox(0, 0).setResponse('Q');
+        assertNotEquals(puz, withState(puz, state));
+    }
+
+    @Test
+    public void testApplyReplaces() throws Exception {
+        Puzzle puz = loadIPuz("/test.ipuz");
+        Puzzle copy = withState(puz, new PlayState(puz));
+
+        ClueID flagged = new ClueID("Across", 1);
+        ClueID noted = new ClueID("Down", 0);
+        puz.flagClue(flagged, true);
+        puz.setNote(noted, new Note("scratch", "text", null, null));
+        puz.checkedGetBox(0, 0).setResponse('Q');
+        new PlayState(puz).applyTo(copy);
+        assertEquals(puz, copy);
+
+        puz.flagClue(flagged, false);
+        puz.setNote(noted, null);
+        puz.checkedGetBox(0, 0).setResponse('R');
+        new PlayState(puz).applyTo(copy);
+        assertFalse(copy.isFlagged(flagged));
+        assertNull(copy.getNote(noted));
+        assertEquals("R", copy.checkedGetBox(0, 0).getResponse());
+    }
+
+    @Test
+    public void testWrongSize() throws Exception {
+        PlayState state = new PlayState(loadIPuz("/test.ipuz"));
+        Puzzle other = loadIPuz("/barred-test.ipuz").copyDefinition();
+        try {
+            state.applyTo(other);
+            fail("state for wrong size grid applied");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private void checkRoundTrip(Puzzle puz) {
+        Puzzle copy = withState(puz, new PlayState(puz));
+        assertEquals(puz, copy);
+        assertEquals(puz.getPosition(), copy.getPosition());
+        assertEquals(puz.getCurrentClueID(), copy.getCurrentClueID());
+        assertEquals(puz.getHistory(), copy.getHistory());
+        assertEquals(puz.getTime(), copy.getTime());
+        assertEquals(puz.getDate(), copy.getDate());
+    }
+
+    private Puzzle withState(Puzzle puz, PlayState state) {
+        Puzzle copy = puz.copyDefinition();
+        state.applyTo(copy);
+        return copy;
+    }
+
+    private Puzzle loadIPuz(String name) throws Exception {
+        try (InputStream is = getClass().getResourceAsStream(name)) {
+            return IPuzIO.readPuzzle(is);
+        }
+    }
+}
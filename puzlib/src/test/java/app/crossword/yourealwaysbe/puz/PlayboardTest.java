@@ -3,6 +3,8 @@ package app.crossword.yourealwaysbe.puz;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
@@ -11,7 +13,11 @@ import app.crossword.yourealwaysbe.io.IOTest;
 import app.crossword.yourealwaysbe.io.IPuzIO;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 public class PlayboardTest {
 
@@ -370,6 +376,221 @@ public class PlayboardTest {
         assertEquals(boardZone, expectedZone);
     }
 
+    @Test
+    public void testPlayLetterNoClue() throws Exception {
+        Puzzle puz = loadTestDetachedPuz();
+        Playboard board = new Playboard(puz);
+        board.setSkipCompletedLetters(true);
+
+        // in no listed clue
+        moveToPosition(board, 7, 1);
+        assertNull(board.getClueID());
+        assertFalse(board.isFilledClueID(board.getClueID()));
+        assertFalse(board.isCompletedClueID(board.getClueID()));
+
+        board.playLetter('A');
+        assertEquals("A", puz.checkedGetBox(7, 1).getResponse());
+    }
+
+    @Test
+    public void testFillCounts() throws Exception {
+        Puzzle puz = loadTestPuz();
+        Playboard board = new Playboard(puz);
+        board.setDontDeleteCrossing(false);
+        assertFillCounts(board);
+
+        moveToPosition(board, 1, 0);
+        board.playAnswer("ABCDE");
+        assertFillCounts(board);
+
+        board.revealWord();
+        assertFillCounts(board);
+        assertTrue(board.isFilledClueID(board.getClueID()));
+
+        board.clearWord();
+        assertFillCounts(board);
+
+        moveToPosition(board, 0, 1);
+        board.playLetter('A');
+        board.deleteLetter();
+        board.playLetter('Q');
+        board.revealLetter();
+        assertFillCounts(board);
+
+        board.revealErrors();
+        assertFillCounts(board);
+
+        board.revealPuzzle();
+        assertFillCounts(board);
+        assertEquals(100, board.getPercentComplete());
+        assertEquals(100, board.getPercentFilled());
+    }
+
+    @Test
+    public void testNextUncompletedClue() throws Exception {
+        Puzzle puz = loadTestPuz();
+        Playboard board = new Playboard(puz, MovementStrategy.MOVE_NEXT_CLUE);
+        board.setSkipCompletedLetters(true);
+
+        ClueID across0 = new ClueID(IO.ACROSS_LIST, 0);
+        ClueID across1 = new ClueID(IO.ACROSS_LIST, 1);
+        ClueID across2 = new ClueID(IO.ACROSS_LIST, 2);
+        ClueID across3 = new ClueID(IO.ACROSS_LIST, 3);
+
+        // fill with wrong answers
+        for (ClueID cid : new ClueID[] { across1, across2 }) {
+            board.jumpToClue(cid);
+            board.playAnswer("XXXXXXXXXXXXXXX");
+        }
+
+        board.jumpToClueEnd(across0);
+        board.nextLetter();
+        assertEquals(across3, board.getClueID());
+        assertEquals(
+            puz.getClue(across3).getZone().getPosition(0),
+            board.getHighlightLetter()
+        );
+
+        // wrong answers not complete when showing errors
+        board.setShowErrorsGrid(true);
+        board.jumpToClueEnd(across0);
+        board.nextLetter();
+        assertEquals(across1, board.getClueID());
+        assertEquals(
+            puz.getClue(across1).getZone().getPosition(0),
+            board.getHighlightLetter()
+        );
+
+        // the puzzle's own ids are returned
+        assertSame(
+            puz.getClue(across1).getClueID(),
+            board.findNextUncompletedClueID(across0)
+        );
+    }
+
+    @Test
+    public void testUndoRedo() throws Exception {
+        Puzzle puz = loadTestPuz();
+        Playboard board = new Playboard(puz);
+        board.setResponder("Tester");
+        board.setDontDeleteCrossing(false);
+        assertFalse(board.canUndo());
+
+        List<String> start = getCellStates(puz);
+
+        moveToPosition(board, 1, 0);
+        board.playAnswer("ABCDE");
+        List<String> answered = getCellStates(puz);
+
+        board.playLetter('X');
+        board.deleteLetter();
+        List<String> deleted = getCellStates(puz);
+
+        // moving is not a change
+        moveToPosition(board, 0, 0);
+        assertTrue(board.canUndo());
+
+        final int[] notifications = new int[1];
+        final int[] cellsChanged = new int[1];
+        board.addListener(new Playboard.PlayboardListener() {
+            public void onPlayboardChange(Playboard.PlayboardChanges c) {
+                notifications[0] += 1;
+                cellsChanged[0] = c.getCellChanges().size();
+            }
+        });
+
+        board.revealPuzzle();
+        notifications[0] = 0;
+        List<Position> undone = board.undo();
+        assertEquals(1, notifications[0]);
+        assertEquals(undone.size(), cellsChanged[0]);
+        assertEquals(deleted, getCellStates(puz));
+        assertFillCounts(board);
+
+        board.undo();
+        board.undo();
+        assertEquals(answered, getCellStates(puz));
+        board.undo();
+        assertEquals(start, getCellStates(puz));
+        assertFalse(board.canUndo());
+        assertTrue(board.undo().isEmpty());
+        assertFillCounts(board);
+
+        board.redo();
+        assertEquals(answered, getCellStates(puz));
+        assertTrue(board.canRedo());
+
+        // new change loses redo
+        moveToPosition(board, 0, 0);
+        board.playLetter('Q');
+        assertFalse(board.canRedo());
+        board.undo();
+        assertEquals(answered, getCellStates(puz));
+        assertFillCounts(board);
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        Puzzle puz = loadTestPuz();
+        final Playboard board = new Playboard(puz);
+        board.setDontDeleteCrossing(false);
+
+        final int[] notifications = new int[1];
+        board.addListener(new Playboard.PlayboardListener() {
+            public void onPlayboardChange(Playboard.PlayboardChanges c) {
+                notifications[0] += 1;
+            }
+        });
+
+        moveToPosition(board, 1, 0);
+        List<String> start = getCellStates(puz);
+        Position startPos = board.getHighlightLetter();
+        ClueID startCid = board.getClueID();
+
+        notifications[0] = 0;
+        board.batch(new Runnable() {
+            public void run() {
+                board.playAnswer("ABCDE");
+                moveToPosition(board, 0, 1);
+                board.playLetter('Q');
+                board.revealWord();
+            }
+        });
+        assertEquals(1, notifications[0]);
+        List<String> batched = getCellStates(puz);
+
+        // one step to undo
+        board.undo();
+        assertEquals(start, getCellStates(puz));
+        board.redo();
+        assertEquals(batched, getCellStates(puz));
+
+        notifications[0] = 0;
+        moveToPosition(board, 1, 0);
+        try {
+            board.batch(new Runnable() {
+                public void run() {
+                    board.clearWord();
+                    moveToPosition(board, 0, 1);
+                    board.playLetter('Z');
+                    throw new IllegalStateException("failed");
+                }
+            });
+            fail("batch should rethrow");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(2, notifications[0]);
+        assertEquals(batched, getCellStates(puz));
+        assertEquals(startPos, board.getHighlightLetter());
+        assertEquals(startCid, board.getClueID());
+        assertFillCounts(board);
+
+        // rolled back batch is not an undo step
+        board.undo();
+        assertEquals(start, getCellStates(puz));
+    }
+
     private void checkNoMoveFullGrid(
         MovementStrategy moveStrat
     ) throws Exception {
@@ -382,10 +603,6 @@ public class PlayboardTest {
         int height = puz.getHeight();
         Box[][] boxes = puz.getBoxes();
 
-        Playboard board = new Playboard(puz);
-        board.setMovementStrategy(moveStrat);
-        board.setSkipCompletedLetters(true);
-
         Position checkPos = null;
 
         // fill grid, find checkPos
@@ -406,12 +623,51 @@ public class PlayboardTest {
             }
         }
 
+        // board counts filled cells when created
+        Playboard board = new Playboard(puz);
+        board.setMovementStrategy(moveStrat);
+        board.setSkipCompletedLetters(true);
+
         board.setHighlightLetter(checkPos);
         board.playLetter('A');
 
         assertEquals(checkPos, board.getHighlightLetter());
     }
 
+    /**
+     * Check the board's running counts match a scan of the puzzle
+     */
+    private void assertFillCounts(Playboard board) {
+        Puzzle puz = board.getPuzzle();
+        assertEquals(puz.getPercentComplete(), board.getPercentComplete());
+        assertEquals(puz.getPercentFilled(), board.getPercentFilled());
+
+        for (Clue clue : puz.getAllClues()) {
+            boolean filled = clue.hasZone();
+            for (Position pos : clue.getZone()) {
+                if (puz.checkedGetBox(pos).isBlank())
+                    filled = false;
+            }
+            assertEquals(filled, board.isFilledClueID(clue.getClueID()));
+        }
+    }
+
+    /**
+     * The state of each cell undo restores
+     */
+    private List<String> getCellStates(Puzzle puz) {
+        List<String> states = new ArrayList<>();
+        for (Box box : puz.getBoxesList()) {
+            states.add(
+                (box == null)
+                    ? null
+                    : box.getResponse() + "|" + box.getResponder()
+                        + "|" + box.isCheated()
+            );
+        }
+        return states;
+    }
+
     private void assertBoxBlank(Puzzle puz, int row, int col) throws Exception {
         assertTrue(puz.checkedGetBox(row, col).isBlank());
     }
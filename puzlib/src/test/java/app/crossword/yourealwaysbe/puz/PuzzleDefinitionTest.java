@@ -0,0 +1,51 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.io.InputStream;
+
+import org.junit.jupiter.api.Test;
+
+import app.crossword.yourealwaysbe.io.IPuzIO;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class PuzzleDefinitionTest {
+
+    @Test
+    public void testNewPuzzleWithState() throws Exception {
+        Puzzle puz = loadIPuz("/test.ipuz");
+        PuzzleDefinition def = new PuzzleDefinition(puz);
+
+        Puzzle copy = def.newPuzzle(new PlayState(puz));
+        assertEquals(puz, copy);
+        assertEquals(puz.getTitle(), def.getTitle());
+        assertEquals(puz.getWidth(), def.getWidth());
+
+        // clues shared, boxes not
+        ClueID cid = new ClueID("Across", 0);
+        assertSame(puz.getClue(cid), copy.getClue(cid));
+        assertNotSame(puz.checkedGetBox(0, 0), copy.checkedGetBox(0, 0));
+    }
+
+    @Test
+    public void testUnchangedByPlay() throws Exception {
+        Puzzle puz = loadIPuz("/test.ipuz");
+        PuzzleDefinition def = new PuzzleDefinition(puz);
+        Puzzle blank = def.newPuzzle();
+
+        // play on the puzzle it was taken from and one made from it
+        puz.checkedGetBox(0, 0).setResponse('Q');
+        Playboard board = new Playboard(def.newPuzzle());
+        board.jumpToClue(new ClueID("Across", 0));
+        board.playLetter('Z');
+
+        assertEquals(blank, def.newPuzzle());
+    }
+
+    private Puzzle loadIPuz(String name) throws Exception {
+        try (InputStream is = getClass().getResourceAsStream(name)) {
+            return IPuzIO.readPuzzle(is);
+        }
+    }
+}
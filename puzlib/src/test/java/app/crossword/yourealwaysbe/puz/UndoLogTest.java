@@ -0,0 +1,90 @@
+package app.crossword.yourealwaysbe.puz;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import app.crossword.yourealwaysbe.io.IPuzIO;
+import app.crossword.yourealwaysbe.io.IPuzIOTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UndoLogTest {
+
+    @Test
+    public void testDropsOldest() throws Exception {
+        Puzzle puz = loadTestPuzzle();
+        FillCounts counts = new FillCounts(puz);
+        UndoLog log = new UndoLog(puz, counts, 3);
+        String start01 = getResponse(puz, 0, 1);
+        String start10 = getResponse(puz, 1, 0);
+
+        // three actions of one, two and one cells
+        set(log, counts, puz, 0, 0, "A");
+        log.endGroup();
+        set(log, counts, puz, 0, 1, "B");
+        set(log, counts, puz, 1, 0, "C");
+        log.endGroup();
+        set(log, counts, puz, 0, 1, "D");
+        log.endGroup();
+
+        // first action dropped to make room
+        assertEquals(1, log.undo().size());
+        assertEquals("B", getResponse(puz, 0, 1));
+        assertEquals(2, log.undo().size());
+        assertEquals(start01, getResponse(puz, 0, 1));
+        assertEquals(start10, getResponse(puz, 1, 0));
+        assertFalse(log.canUndo());
+        assertEquals("A", getResponse(puz, 0, 0));
+
+        assertEquals(2, log.redo().size());
+        assertEquals(1, log.redo().size());
+        assertEquals("D", getResponse(puz, 0, 1));
+        assertFalse(log.canRedo());
+    }
+
+    @Test
+    public void testOverflow() throws Exception {
+        Puzzle puz = loadTestPuzzle();
+        FillCounts counts = new FillCounts(puz);
+        UndoLog log = new UndoLog(puz, counts, 2);
+
+        set(log, counts, puz, 0, 0, "A");
+        log.endGroup();
+        assertTrue(log.canUndo());
+
+        // too big to undo, so nothing can be
+        set(log, counts, puz, 0, 1, "B");
+        set(log, counts, puz, 1, 0, "C");
+        set(log, counts, puz, 1, 1, "D");
+        log.endGroup();
+        assertFalse(log.canUndo());
+        assertTrue(log.undo().isEmpty());
+        assertEquals("D", getResponse(puz, 1, 1));
+
+        set(log, counts, puz, 1, 1, "E");
+        log.endGroup();
+        log.undo();
+        assertEquals("D", getResponse(puz, 1, 1));
+    }
+
+    private static void set(
+        UndoLog log, FillCounts counts,
+        Puzzle puz, int row, int col, String response
+    ) {
+        Position pos = new Position(row, col);
+        Box box = puz.checkedGetBox(pos);
+        log.record(pos, box);
+        counts.setResponse(box, response);
+    }
+
+    private static String getResponse(Puzzle puz, int row, int col) {
+        return puz.checkedGetBox(row, col).getResponse();
+    }
+
+    private static Puzzle loadTestPuzzle() throws IOException {
+        return IPuzIO.readPuzzle(IPuzIOTest.getTestPuzzle1InputStream());
+    }
+}